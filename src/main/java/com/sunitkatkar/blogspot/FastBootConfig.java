@@ -0,0 +1,235 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot;
+
+import java.lang.reflect.Method;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.Lifecycle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Startup settings for the <tt>fastboot</tt> profile, which shorten the time
+ * until a new instance serves its first request during rolling deploys and
+ * scale outs.
+ * 
+ * <br/>
+ * <br/>
+ * Application beans are created on first use instead of at startup. Spring
+ * Boot 2.0 has no lazy initialization setting, so the bean definitions are
+ * marked lazy here. Beans which do their work without being asked, i.e. with
+ * scheduled methods, init methods or a lifecycle, stay eager. Both entity
+ * manager factories are built on background threads, and Hibernate uses the
+ * configured dialects instead of opening a connection to read JDBC metadata.
+ * Together with an AppCDS archive built by the <tt>appcds</tt> Maven profile,
+ * most of the remaining class loading is also avoided.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Configuration
+@Profile("fastboot")
+public class FastBootConfig {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(FastBootConfig.class);
+
+    private static final String PREFIX = "multitenancy.mtapp.fastboot";
+
+    @Autowired
+    private FastBootConfigProperties fastBootProperties;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @PostConstruct
+    public void init() {
+        LOG.info("Fast boot enabled with: " + fastBootProperties.toString());
+    }
+
+    /**
+     * Bean factory post processors run before configuration properties are
+     * bound, so the properties are bound here directly
+     */
+    @Bean
+    public static BeanFactoryPostProcessor lazyInitBeanFactoryPostProcessor(
+            Environment environment) {
+        return new LazyInitBeanFactoryPostProcessor(bind(environment));
+    }
+
+    @Bean
+    public static BeanPostProcessor fastBootEntityManagerFactoryPostProcessor(
+            Environment environment) {
+        return new EntityManagerFactoryPostProcessor(bind(environment));
+    }
+
+    /**
+     * Ends the training run of the AppCDS archive, which is written when the
+     * JVM exits
+     */
+    @EventListener
+    public void onApplicationReady(ApplicationReadyEvent event) {
+        if (fastBootProperties.isExitAfterStartup()) {
+            LOG.info("Exiting after startup");
+            System.exit(SpringApplication.exit(applicationContext, () -> 0));
+        }
+    }
+
+    private static FastBootConfigProperties bind(Environment environment) {
+        return Binder.get(environment)
+                .bind(PREFIX, FastBootConfigProperties.class)
+                .orElseGet(FastBootConfigProperties::new);
+    }
+
+    /**
+     * Marks the application bean definitions lazy, except the ones which must
+     * run at startup
+     */
+    static class LazyInitBeanFactoryPostProcessor
+            implements BeanFactoryPostProcessor {
+
+        private final FastBootConfigProperties properties;
+
+        LazyInitBeanFactoryPostProcessor(FastBootConfigProperties properties) {
+            this.properties = properties;
+        }
+
+        @Override
+        public void postProcessBeanFactory(
+                ConfigurableListableBeanFactory beanFactory)
+                throws BeansException {
+            if (!properties.isLazyInit()) {
+                return;
+            }
+            int lazy = 0;
+            for (String beanName : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition beanDefinition = beanFactory
+                        .getBeanDefinition(beanName);
+                if (beanDefinition.getRole() != BeanDefinition.ROLE_APPLICATION
+                        || beanDefinition.isAbstract()
+                        || beanDefinition.isLazyInit()
+                        || properties.getEagerBeans().contains(beanName)
+                        || mustStayEager(beanDefinition,
+                                beanFactory.getBeanClassLoader())) {
+                    continue;
+                }
+                beanDefinition.setLazyInit(true);
+                lazy++;
+            }
+            LOG.info("Marked " + lazy + " bean definitions lazy");
+        }
+
+        /**
+         * Beans of an unknown type stay eager to be safe
+         */
+        private static boolean mustStayEager(BeanDefinition beanDefinition,
+                ClassLoader classLoader) {
+            String className = beanDefinition.getBeanClassName();
+            if (beanDefinition instanceof AnnotatedBeanDefinition
+                    && ((AnnotatedBeanDefinition) beanDefinition)
+                            .getFactoryMethodMetadata() != null) {
+                className = ((AnnotatedBeanDefinition) beanDefinition)
+                        .getFactoryMethodMetadata().getReturnTypeName();
+            }
+            if (className == null) {
+                return true;
+            }
+            Class<?> beanClass;
+            try {
+                beanClass = ClassUtils.forName(className, classLoader);
+            } catch (ClassNotFoundException | LinkageError e) {
+                return true;
+            }
+            if (Lifecycle.class.isAssignableFrom(beanClass)) {
+                return true;
+            }
+            for (Method method : ReflectionUtils
+                    .getUniqueDeclaredMethods(beanClass)) {
+                if (AnnotatedElementUtils.hasAnnotation(method,
+                        Scheduled.class)
+                        || AnnotatedElementUtils.hasAnnotation(method,
+                                PostConstruct.class)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Builds the entity manager factories in the background and without
+     * reading JDBC metadata
+     */
+    static class EntityManagerFactoryPostProcessor
+            implements BeanPostProcessor {
+
+        private final FastBootConfigProperties properties;
+
+        EntityManagerFactoryPostProcessor(FastBootConfigProperties properties) {
+            this.properties = properties;
+        }
+
+        @Override
+        public Object postProcessBeforeInitialization(Object bean,
+                String beanName) throws BeansException {
+            if (!(bean instanceof AbstractEntityManagerFactoryBean)) {
+                return bean;
+            }
+            AbstractEntityManagerFactoryBean emfBean = (AbstractEntityManagerFactoryBean) bean;
+            if (properties.isBackgroundBootstrap()) {
+                // Callers block on the factory proxy until it is built
+                emfBean.setBootstrapExecutor(
+                        new SimpleAsyncTaskExecutor(beanName + "-bootstrap-"));
+            }
+            if (properties.isSkipJdbcMetadata()) {
+                emfBean.getJpaPropertyMap().put(
+                        "hibernate.temp.use_jdbc_metadata_defaults", false);
+            }
+            if (!properties.isMasterSchemaUpdate()
+                    && "masterEntityManagerFactory".equals(beanName)) {
+                emfBean.getJpaPropertyMap().put(
+                        org.hibernate.cfg.Environment.HBM2DDL_AUTO, "none");
+            }
+            return bean;
+        }
+    }
+}
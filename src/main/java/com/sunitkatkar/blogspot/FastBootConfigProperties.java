@@ -0,0 +1,183 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Fast boot configuration properties which are read from the application.yml
+ * file. They only take effect with the <tt>fastboot</tt> profile.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Configuration
+@ConfigurationProperties("multitenancy.mtapp.fastboot")
+public class FastBootConfigProperties {
+
+    /**
+     * Whether application beans are created on first use instead of at
+     * startup. Beans with <tt>{@literal @}Scheduled</tt> or
+     * <tt>{@literal @}PostConstruct</tt> methods and lifecycle beans are always
+     * created at startup.
+     */
+    private boolean lazyInit = true;
+
+    /**
+     * Names of further beans which are created at startup
+     */
+    private List<String> eagerBeans = new ArrayList<>();
+
+    /**
+     * Whether the entity manager factories are built on a background thread
+     * while the rest of the context starts
+     */
+    private boolean backgroundBootstrap = true;
+
+    /**
+     * Whether Hibernate skips opening a connection at startup to read JDBC
+     * metadata. The configured dialects are used instead.
+     */
+    private boolean skipJdbcMetadata = true;
+
+    /**
+     * Whether the master schema is updated at startup. Turn off for deploys
+     * which do not change the master entities.
+     */
+    private boolean masterSchemaUpdate = true;
+
+    /**
+     * Whether the application exits as soon as it is ready, for the training
+     * run which records the AppCDS archive
+     */
+    private boolean exitAfterStartup = false;
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("FastBootConfigProperties [lazyInit=");
+        builder.append(lazyInit);
+        builder.append(", eagerBeans=");
+        builder.append(eagerBeans);
+        builder.append(", backgroundBootstrap=");
+        builder.append(backgroundBootstrap);
+        builder.append(", skipJdbcMetadata=");
+        builder.append(skipJdbcMetadata);
+        builder.append(", masterSchemaUpdate=");
+        builder.append(masterSchemaUpdate);
+        builder.append(", exitAfterStartup=");
+        builder.append(exitAfterStartup);
+        builder.append("]");
+        return builder.toString();
+    }
+
+    // Getters and Setters
+    /**
+     * @return the lazyInit
+     */
+    public boolean isLazyInit() {
+        return lazyInit;
+    }
+
+    /**
+     * @param lazyInit
+     *            the lazyInit to set
+     */
+    public void setLazyInit(boolean lazyInit) {
+        this.lazyInit = lazyInit;
+    }
+
+    /**
+     * @return the eagerBeans
+     */
+    public List<String> getEagerBeans() {
+        return eagerBeans;
+    }
+
+    /**
+     * @param eagerBeans
+     *            the eagerBeans to set
+     */
+    public void setEagerBeans(List<String> eagerBeans) {
+        this.eagerBeans = eagerBeans;
+    }
+
+    /**
+     * @return the backgroundBootstrap
+     */
+    public boolean isBackgroundBootstrap() {
+        return backgroundBootstrap;
+    }
+
+    /**
+     * @param backgroundBootstrap
+     *            the backgroundBootstrap to set
+     */
+    public void setBackgroundBootstrap(boolean backgroundBootstrap) {
+        this.backgroundBootstrap = backgroundBootstrap;
+    }
+
+    /**
+     * @return the skipJdbcMetadata
+     */
+    public boolean isSkipJdbcMetadata() {
+        return skipJdbcMetadata;
+    }
+
+    /**
+     * @param skipJdbcMetadata
+     *            the skipJdbcMetadata to set
+     */
+    public void setSkipJdbcMetadata(boolean skipJdbcMetadata) {
+        this.skipJdbcMetadata = skipJdbcMetadata;
+    }
+
+    /**
+     * @return the masterSchemaUpdate
+     */
+    public boolean isMasterSchemaUpdate() {
+        return masterSchemaUpdate;
+    }
+
+    /**
+     * @param masterSchemaUpdate
+     *            the masterSchemaUpdate to set
+     */
+    public void setMasterSchemaUpdate(boolean masterSchemaUpdate) {
+        this.masterSchemaUpdate = masterSchemaUpdate;
+    }
+
+    /**
+     * @return the exitAfterStartup
+     */
+    public boolean isExitAfterStartup() {
+        return exitAfterStartup;
+    }
+
+    /**
+     * @param exitAfterStartup
+     *            the exitAfterStartup to set
+     */
+    public void setExitAfterStartup(boolean exitAfterStartup) {
+        this.exitAfterStartup = exitAfterStartup;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+/**
+ * Runs the scheduled tasks on a pool of threads. Without it Spring runs all
+ * of them on a single thread, so the failover check, the quota window and the
+ * latency snapshots would wait for every other task. Tasks which can take
+ * long, like the schema migration, also hand their work to their own
+ * {@link com.sunitkatkar.blogspot.util.JobExecutor}.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Configuration
+public class SchedulingConfig implements SchedulingConfigurer {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(SchedulingConfig.class);
+
+    @Autowired
+    private SchedulingConfigProperties schedulingProperties;
+
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolTaskScheduler taskScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(Math.max(1, schedulingProperties.getPoolSize()));
+        scheduler.setThreadNamePrefix("scheduled-");
+        scheduler.setErrorHandler(e -> LOG.error("Scheduled task failed", e));
+        LOG.info("Scheduling set up with: " + schedulingProperties);
+        return scheduler;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.setTaskScheduler(taskScheduler());
+    }
+}
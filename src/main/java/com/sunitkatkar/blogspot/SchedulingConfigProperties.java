@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Scheduling configuration properties which are read from the
+ * application.yml file
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Configuration
+@ConfigurationProperties("multitenancy.mtapp.scheduling")
+public class SchedulingConfigProperties {
+
+    /**
+     * Number of threads which run the scheduled tasks. Long running jobs hand
+     * their work to their own thread, so a few are enough.
+     */
+    private int poolSize = 4;
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("SchedulingConfigProperties [poolSize=");
+        builder.append(poolSize);
+        builder.append("]");
+        return builder.toString();
+    }
+
+    // Getters and Setters
+    /**
+     * @return the poolSize
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * @param poolSize
+     *            the poolSize to set
+     */
+    public void setPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+    }
+}
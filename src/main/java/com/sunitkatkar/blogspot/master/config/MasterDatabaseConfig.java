@@ -37,6 +37,8 @@ import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 import com.sunitkatkar.blogspot.master.model.MasterTenant;
 import com.sunitkatkar.blogspot.master.repository.MasterTenantRepository;
+import com.sunitkatkar.blogspot.tenant.config.SamplingStatementInspector;
+import com.sunitkatkar.blogspot.tenant.config.SqlLogRecorder;
 import com.zaxxer.hikari.HikariDataSource;
 
 /**
@@ -63,6 +65,12 @@ public class MasterDatabaseConfig {
     @Autowired
     private MasterDatabaseConfigProperties masterDbProperties;
 
+    /**
+     * Receives a sample of the master database statements
+     */
+    @Autowired
+    private SqlLogRecorder sqlLogRecorder;
+
     /**
      * Creates the master datasource bean which is required for creating the
      * entity manager factory bean <br/>
@@ -181,8 +189,10 @@ public class MasterDatabaseConfig {
         Properties properties = new Properties();
         properties.put(org.hibernate.cfg.Environment.DIALECT,
                 "org.hibernate.dialect.MySQL5Dialect");
-        properties.put(org.hibernate.cfg.Environment.SHOW_SQL, true);
-        properties.put(org.hibernate.cfg.Environment.FORMAT_SQL, true);
+        properties.put(org.hibernate.cfg.Environment.STATEMENT_INSPECTOR,
+                new SamplingStatementInspector(sqlLogRecorder, "master"));
+        // The master is a single database updated once at startup. Tenant
+        // databases are migrated by the TenantSchemaMigrationService instead.
         properties.put(org.hibernate.cfg.Environment.HBM2DDL_AUTO, "update");
         return properties;
     }
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.master.config;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.session.config.annotation.web.http.EnableSpringHttpSession;
+
+import com.sunitkatkar.blogspot.master.repository.MasterSessionRepository;
+
+/**
+ * Configuration of the HTTP session store. Sessions are kept in the master
+ * database instead of the memory of one node, so that the application can run
+ * on several nodes behind a load balancer without sticky sessions.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Configuration
+@EnableSpringHttpSession
+public class SessionConfig {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(SessionConfig.class);
+
+    @Autowired
+    private SessionConfigProperties sessionProperties;
+
+    /**
+     * The session repository replaces the servlet container sessions through
+     * the session repository filter registered by
+     * {@literal @}EnableSpringHttpSession
+     * 
+     * @param masterDataSource
+     * @return
+     */
+    @Bean
+    public MasterSessionRepository sessionRepository(
+            @Qualifier("masterDataSource") DataSource masterDataSource) {
+        LOG.info("Setting up the master database session store with: "
+                + sessionProperties);
+        MasterSessionRepository repository = new MasterSessionRepository(
+                new JdbcTemplate(masterDataSource), sessionProperties);
+        repository.initializeSchema();
+        return repository;
+    }
+}
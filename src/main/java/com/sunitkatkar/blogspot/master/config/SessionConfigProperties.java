@@ -0,0 +1,132 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.master.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * HTTP session store configuration properties which are read from the
+ * application.yml file
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Configuration
+@ConfigurationProperties("multitenancy.mtapp.session")
+public class SessionConfigProperties {
+
+    /**
+     * Time in seconds after which a session without requests expires
+     */
+    private int maxInactiveInterval = 1800;
+
+    /**
+     * Time in seconds the last access time of a session may lag behind in the
+     * database. Requests within this time after the last write do not write
+     * the session at all unless its attributes changed.
+     */
+    private int touchInterval = 60;
+
+    /**
+     * Time in milliseconds between two runs of the expired session cleanup
+     */
+    private long cleanupInterval = 60000;
+
+    /**
+     * Maximum number of expired sessions deleted by one statement, so that the
+     * cleanup never holds locks on a large part of the table
+     */
+    private int cleanupBatchSize = 500;
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("SessionConfigProperties [maxInactiveInterval=");
+        builder.append(maxInactiveInterval);
+        builder.append(", touchInterval=");
+        builder.append(touchInterval);
+        builder.append(", cleanupInterval=");
+        builder.append(cleanupInterval);
+        builder.append(", cleanupBatchSize=");
+        builder.append(cleanupBatchSize);
+        builder.append("]");
+        return builder.toString();
+    }
+
+    // Getters and Setters
+    /**
+     * @return the maxInactiveInterval
+     */
+    public int getMaxInactiveInterval() {
+        return maxInactiveInterval;
+    }
+
+    /**
+     * @param maxInactiveInterval
+     *            the maxInactiveInterval to set
+     */
+    public void setMaxInactiveInterval(int maxInactiveInterval) {
+        this.maxInactiveInterval = maxInactiveInterval;
+    }
+
+    /**
+     * @return the touchInterval
+     */
+    public int getTouchInterval() {
+        return touchInterval;
+    }
+
+    /**
+     * @param touchInterval
+     *            the touchInterval to set
+     */
+    public void setTouchInterval(int touchInterval) {
+        this.touchInterval = touchInterval;
+    }
+
+    /**
+     * @return the cleanupInterval
+     */
+    public long getCleanupInterval() {
+        return cleanupInterval;
+    }
+
+    /**
+     * @param cleanupInterval
+     *            the cleanupInterval to set
+     */
+    public void setCleanupInterval(long cleanupInterval) {
+        this.cleanupInterval = cleanupInterval;
+    }
+
+    /**
+     * @return the cleanupBatchSize
+     */
+    public int getCleanupBatchSize() {
+        return cleanupBatchSize;
+    }
+
+    /**
+     * @param cleanupBatchSize
+     *            the cleanupBatchSize to set
+     */
+    public void setCleanupBatchSize(int cleanupBatchSize) {
+        this.cleanupBatchSize = cleanupBatchSize;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.master.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Tenant offboarding configuration properties which are read from the
+ * application.yml file
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Configuration
+@ConfigurationProperties("multitenancy.mtapp.offboarding")
+public class TenantOffboardingConfigProperties {
+
+    /**
+     * Maximum time in milliseconds to wait for in-flight transactions of a
+     * draining tenant before its pool is closed anyway
+     */
+    private long drainTimeout = 30000;
+
+    /**
+     * Directory in which tenant archives are written, one sub directory per
+     * offboarded tenant
+     */
+    private String archiveDirectory = "tenant-archives";
+
+    /**
+     * Time in milliseconds between two reads of the tenant statuses from the
+     * master database, which applies offboarding done on other nodes
+     */
+    private long statusSyncInterval = 10000;
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("TenantOffboardingConfigProperties [drainTimeout=");
+        builder.append(drainTimeout);
+        builder.append(", archiveDirectory=");
+        builder.append(archiveDirectory);
+        builder.append(", statusSyncInterval=");
+        builder.append(statusSyncInterval);
+        builder.append("]");
+        return builder.toString();
+    }
+
+    // Getters and Setters
+    /**
+     * @return the drainTimeout
+     */
+    public long getDrainTimeout() {
+        return drainTimeout;
+    }
+
+    /**
+     * @param drainTimeout
+     *            the drainTimeout to set
+     */
+    public void setDrainTimeout(long drainTimeout) {
+        this.drainTimeout = drainTimeout;
+    }
+
+    /**
+     * @return the archiveDirectory
+     */
+    public String getArchiveDirectory() {
+        return archiveDirectory;
+    }
+
+    /**
+     * @param archiveDirectory
+     *            the archiveDirectory to set
+     */
+    public void setArchiveDirectory(String archiveDirectory) {
+        this.archiveDirectory = archiveDirectory;
+    }
+
+    /**
+     * @return the statusSyncInterval
+     */
+    public long getStatusSyncInterval() {
+        return statusSyncInterval;
+    }
+
+    /**
+     * @param statusSyncInterval
+     *            the statusSyncInterval to set
+     */
+    public void setStatusSyncInterval(long statusSyncInterval) {
+        this.statusSyncInterval = statusSyncInterval;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.master.config;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Tenant provisioning configuration properties which are read from the
+ * application.yml file
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Configuration
+@ConfigurationProperties("multitenancy.mtapp.provisioning")
+public class TenantProvisioningConfigProperties {
+
+    /**
+     * JDBC url of the template database. It is kept migrated to the latest
+     * tenant schema version and new tenant databases are created on the same
+     * server by cloning its tables.
+     */
+    private String templateUrl;
+
+    /**
+     * Database user which may create databases on the template server. New
+     * tenants are registered with the same credentials.
+     */
+    private String username;
+
+    /** database password */
+    private String password;
+
+    /**
+     * Tables whose rows are copied from the template in addition to the
+     * schema, e.g. the migration history and reference data
+     */
+    private List<String> seedTables = Arrays.asList("schema_version",
+            "hibernate_sequence", "role");
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("TenantProvisioningConfigProperties [templateUrl=");
+        builder.append(templateUrl);
+        builder.append(", username=");
+        builder.append(username);
+        builder.append(", seedTables=");
+        builder.append(seedTables);
+        builder.append("]");
+        return builder.toString();
+    }
+
+    // Getters and Setters
+    /**
+     * @return the templateUrl
+     */
+    public String getTemplateUrl() {
+        return templateUrl;
+    }
+
+    /**
+     * @param templateUrl
+     *            the templateUrl to set
+     */
+    public void setTemplateUrl(String templateUrl) {
+        this.templateUrl = templateUrl;
+    }
+
+    /**
+     * @return the username
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * @param username
+     *            the username to set
+     */
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    /**
+     * @return the password
+     */
+    public String getPassword() {
+        return password;
+    }
+
+    /**
+     * @param password
+     *            the password to set
+     */
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    /**
+     * @return the seedTables
+     */
+    public List<String> getSeedTables() {
+        return seedTables;
+    }
+
+    /**
+     * @param seedTables
+     *            the seedTables to set
+     */
+    public void setSeedTables(List<String> seedTables) {
+        this.seedTables = seedTables;
+    }
+}
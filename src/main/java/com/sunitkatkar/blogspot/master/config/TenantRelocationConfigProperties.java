@@ -0,0 +1,224 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.master.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Tenant relocation configuration properties which are read from the
+ * application.yml file
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Configuration
+@ConfigurationProperties("multitenancy.mtapp.relocation")
+public class TenantRelocationConfigProperties {
+
+    /**
+     * Database user on the target servers, which may create databases and
+     * users and grant privileges. It is only used to copy the tenant database,
+     * relocated tenants keep their own credentials.
+     */
+    private String username;
+
+    /** database password */
+    private String password;
+
+    /**
+     * Number of rows inserted into the target database per batch and
+     * transaction
+     */
+    private int batchSize = 1000;
+
+    /**
+     * Number of change log entries read at a time during the catch-up, each
+     * entry is a row which changed while the tenant was being copied
+     */
+    private int catchUpBatchSize = 1000;
+
+    /**
+     * Maximum number of catch-up rounds before the write freeze, the freeze
+     * starts earlier once a round finds no changes
+     */
+    private int maxCatchUpRounds = 5;
+
+    /**
+     * Time in milliseconds a tenant may stay frozen, for the connections in use
+     * to be returned and the final catch-up. Requests of the tenant wait at
+     * most this long. The relocation is aborted if the connections are not
+     * returned in time.
+     */
+    private long freezeTimeout = 5000;
+
+    /**
+     * Time in milliseconds between two checks of the master database for
+     * tenants relocated by other nodes, whose pools are then switched on this
+     * node as well
+     */
+    private long followInterval = 10000;
+
+    /**
+     * Time in milliseconds the connections in use of a pool replaced by the
+     * follow get to be returned, before the pool is closed
+     */
+    private long followDrainTimeout = 30000;
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("TenantRelocationConfigProperties [username=");
+        builder.append(username);
+        builder.append(", batchSize=");
+        builder.append(batchSize);
+        builder.append(", catchUpBatchSize=");
+        builder.append(catchUpBatchSize);
+        builder.append(", maxCatchUpRounds=");
+        builder.append(maxCatchUpRounds);
+        builder.append(", freezeTimeout=");
+        builder.append(freezeTimeout);
+        builder.append(", followInterval=");
+        builder.append(followInterval);
+        builder.append(", followDrainTimeout=");
+        builder.append(followDrainTimeout);
+        builder.append("]");
+        return builder.toString();
+    }
+
+    // Getters and Setters
+    /**
+     * @return the username
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * @param username
+     *            the username to set
+     */
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    /**
+     * @return the password
+     */
+    public String getPassword() {
+        return password;
+    }
+
+    /**
+     * @param password
+     *            the password to set
+     */
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    /**
+     * @return the batchSize
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @param batchSize
+     *            the batchSize to set
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return the catchUpBatchSize
+     */
+    public int getCatchUpBatchSize() {
+        return catchUpBatchSize;
+    }
+
+    /**
+     * @param catchUpBatchSize
+     *            the catchUpBatchSize to set
+     */
+    public void setCatchUpBatchSize(int catchUpBatchSize) {
+        this.catchUpBatchSize = catchUpBatchSize;
+    }
+
+    /**
+     * @return the maxCatchUpRounds
+     */
+    public int getMaxCatchUpRounds() {
+        return maxCatchUpRounds;
+    }
+
+    /**
+     * @param maxCatchUpRounds
+     *            the maxCatchUpRounds to set
+     */
+    public void setMaxCatchUpRounds(int maxCatchUpRounds) {
+        this.maxCatchUpRounds = maxCatchUpRounds;
+    }
+
+    /**
+     * @return the freezeTimeout
+     */
+    public long getFreezeTimeout() {
+        return freezeTimeout;
+    }
+
+    /**
+     * @param freezeTimeout
+     *            the freezeTimeout to set
+     */
+    public void setFreezeTimeout(long freezeTimeout) {
+        this.freezeTimeout = freezeTimeout;
+    }
+
+    /**
+     * @return the followInterval
+     */
+    public long getFollowInterval() {
+        return followInterval;
+    }
+
+    /**
+     * @param followInterval
+     *            the followInterval to set
+     */
+    public void setFollowInterval(long followInterval) {
+        this.followInterval = followInterval;
+    }
+
+    /**
+     * @return the followDrainTimeout
+     */
+    public long getFollowDrainTimeout() {
+        return followDrainTimeout;
+    }
+
+    /**
+     * @param followDrainTimeout
+     *            the followDrainTimeout to set
+     */
+    public void setFollowDrainTimeout(long followDrainTimeout) {
+        this.followDrainTimeout = followDrainTimeout;
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.master.model;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.persistence.UniqueConstraint;
+import javax.validation.constraints.Size;
+
+/**
+ * This JPA entity represents the <tt>master_job_run</tt> table in the
+ * <tt>masterdb</tt> database. It holds the current or last run of every tenant
+ * job. A run without <tt>completedAt</tt> was interrupted, e.g. by a restart,
+ * and is resumed instead of starting a new one.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Entity
+@Table(name = "master_job_run", uniqueConstraints = @UniqueConstraint(name = "uk_master_job_run_job_name", columnNames = "job_name"))
+public class MasterJobRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Size(max = 100)
+    @Column(name = "job_name", nullable = false)
+    private String jobName;
+
+    /**
+     * Incremented for every new run, the tenant checkpoints refer to it
+     */
+    @Column(name = "run_number", nullable = false)
+    private long runNumber;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "started_at")
+    private Date startedAt;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "completed_at")
+    private Date completedAt;
+
+    /**
+     * Number of tenants the run went through, set when it completes
+     */
+    @Column(name = "tenant_count", nullable = false)
+    private int tenantCount;
+
+    /**
+     * Number of tenants on which the job failed, set when the run completes
+     */
+    @Column(name = "failed_count", nullable = false)
+    private int failedCount;
+
+    /**
+     * @return the id
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * @param id
+     *            the id to set
+     */
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    /**
+     * @return the jobName
+     */
+    public String getJobName() {
+        return jobName;
+    }
+
+    /**
+     * @param jobName
+     *            the jobName to set
+     */
+    public void setJobName(String jobName) {
+        this.jobName = jobName;
+    }
+
+    /**
+     * @return the runNumber
+     */
+    public long getRunNumber() {
+        return runNumber;
+    }
+
+    /**
+     * @param runNumber
+     *            the runNumber to set
+     */
+    public void setRunNumber(long runNumber) {
+        this.runNumber = runNumber;
+    }
+
+    /**
+     * @return the startedAt
+     */
+    public Date getStartedAt() {
+        return startedAt;
+    }
+
+    /**
+     * @param startedAt
+     *            the startedAt to set
+     */
+    public void setStartedAt(Date startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    /**
+     * @return the completedAt
+     */
+    public Date getCompletedAt() {
+        return completedAt;
+    }
+
+    /**
+     * @param completedAt
+     *            the completedAt to set
+     */
+    public void setCompletedAt(Date completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    /**
+     * @return the tenantCount
+     */
+    public int getTenantCount() {
+        return tenantCount;
+    }
+
+    /**
+     * @param tenantCount
+     *            the tenantCount to set
+     */
+    public void setTenantCount(int tenantCount) {
+        this.tenantCount = tenantCount;
+    }
+
+    /**
+     * @return the failedCount
+     */
+    public int getFailedCount() {
+        return failedCount;
+    }
+
+    /**
+     * @param failedCount
+     *            the failedCount to set
+     */
+    public void setFailedCount(int failedCount) {
+        this.failedCount = failedCount;
+    }
+}
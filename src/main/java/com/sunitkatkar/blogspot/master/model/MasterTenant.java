@@ -17,6 +17,8 @@ package com.sunitkatkar.blogspot.master.model;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
@@ -63,6 +65,76 @@ public class MasterTenant {
     @Column(name = "password")
     private String password;
 
+    /**
+     * The highest tenant schema migration applied to the tenant database.
+     * <code>null</code> means the tenant has never been migrated.
+     */
+    @Column(name = "schema_version")
+    private Integer schemaVersion;
+
+    /**
+     * Lifecycle status of the tenant. Rows created before this column existed
+     * have no status and are treated as {@link TenantStatus#ACTIVE}.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 20)
+    private TenantStatus status = TenantStatus.ACTIVE;
+
+    /**
+     * Name of the plan of the tenant, which selects its request rate limit.
+     * <code>null</code> means the configured default plan.
+     */
+    @Size(max = 20)
+    @Column(name = "plan", length = 20)
+    private String plan;
+
+    /**
+     * Requests per second allowed for this tenant, overriding the limit of its
+     * plan. <code>null</code> means the plan limit applies.
+     */
+    @Column(name = "rate_limit")
+    private Integer rateLimit;
+
+    /**
+     * Statement timeout in seconds for this tenant, overriding the configured
+     * one. <code>null</code> means the configured timeout applies.
+     */
+    @Column(name = "statement_timeout")
+    private Integer statementTimeout;
+
+    /**
+     * Database time in milliseconds this tenant may use per quota window,
+     * overriding the configured quota. <code>null</code> means the configured
+     * quota applies.
+     */
+    @Column(name = "db_quota")
+    private Long dbQuota;
+
+    /**
+     * Whether the tenant lives in a database shared with other small tenants.
+     * Its rows are then told apart by their <tt>tenant</tt> column and all
+     * shared tenants with the same url use one connection pool.
+     */
+    @Column(name = "shared", nullable = false)
+    private boolean shared;
+
+    /**
+     * Optional url of a standby database of the tenant, e.g. a replica, which
+     * takes over while the database at <tt>url</tt> is unreachable. It is
+     * connected to with the same credentials.
+     */
+    @Size(max = 256)
+    @Column(name = "standby_url")
+    private String standbyUrl;
+
+    /**
+     * Whether the tenant is to be served by its standby database. It is the
+     * single failover decision which every application node follows, changed
+     * only by a conditional update on {@link #version}.
+     */
+    @Column(name = "on_standby", nullable = false)
+    private boolean onStandby;
+
     /**
      * Specifies the version field or property of an entity class that serves as
      * its optimistic lock value. The version is used to ensure integrity when
@@ -146,6 +218,141 @@ public class MasterTenant {
         this.password = password;
     }
 
+    /**
+     * @return the schemaVersion
+     */
+    public Integer getSchemaVersion() {
+        return schemaVersion;
+    }
+
+    /**
+     * @param schemaVersion
+     *            the schemaVersion to set
+     */
+    public void setSchemaVersion(Integer schemaVersion) {
+        this.schemaVersion = schemaVersion;
+    }
+
+    /**
+     * @return the status
+     */
+    public TenantStatus getStatus() {
+        return status == null ? TenantStatus.ACTIVE : status;
+    }
+
+    /**
+     * @param status
+     *            the status to set
+     */
+    public void setStatus(TenantStatus status) {
+        this.status = status;
+    }
+
+    /**
+     * @return the plan
+     */
+    public String getPlan() {
+        return plan;
+    }
+
+    /**
+     * @param plan
+     *            the plan to set
+     */
+    public void setPlan(String plan) {
+        this.plan = plan;
+    }
+
+    /**
+     * @return the rateLimit
+     */
+    public Integer getRateLimit() {
+        return rateLimit;
+    }
+
+    /**
+     * @param rateLimit
+     *            the rateLimit to set
+     */
+    public void setRateLimit(Integer rateLimit) {
+        this.rateLimit = rateLimit;
+    }
+
+    /**
+     * @return the statementTimeout
+     */
+    public Integer getStatementTimeout() {
+        return statementTimeout;
+    }
+
+    /**
+     * @param statementTimeout
+     *            the statementTimeout to set
+     */
+    public void setStatementTimeout(Integer statementTimeout) {
+        this.statementTimeout = statementTimeout;
+    }
+
+    /**
+     * @return the dbQuota
+     */
+    public Long getDbQuota() {
+        return dbQuota;
+    }
+
+    /**
+     * @param dbQuota
+     *            the dbQuota to set
+     */
+    public void setDbQuota(Long dbQuota) {
+        this.dbQuota = dbQuota;
+    }
+
+    /**
+     * @return the shared
+     */
+    public boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * @param shared
+     *            the shared to set
+     */
+    public void setShared(boolean shared) {
+        this.shared = shared;
+    }
+
+    /**
+     * @return the standbyUrl
+     */
+    public String getStandbyUrl() {
+        return standbyUrl;
+    }
+
+    /**
+     * @param standbyUrl
+     *            the standbyUrl to set
+     */
+    public void setStandbyUrl(String standbyUrl) {
+        this.standbyUrl = standbyUrl;
+    }
+
+    /**
+     * @return the onStandby
+     */
+    public boolean isOnStandby() {
+        return onStandby;
+    }
+
+    /**
+     * @param onStandby
+     *            the onStandby to set
+     */
+    public void setOnStandby(boolean onStandby) {
+        this.onStandby = onStandby;
+    }
+
     /**
      * @return the version
      */
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.master.model;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.persistence.UniqueConstraint;
+import javax.validation.constraints.Size;
+
+/**
+ * This JPA entity represents the <tt>master_tenant_job</tt> table in the
+ * <tt>masterdb</tt> database. It holds the outcome of the last execution of a
+ * tenant job on one tenant, and is the checkpoint of the run: tenants which
+ * already have a row for the current <tt>runNumber</tt> are skipped when the
+ * run is resumed.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Entity
+@Table(name = "master_tenant_job", uniqueConstraints = @UniqueConstraint(name = "uk_master_tenant_job_job_tenant", columnNames = {
+        "job_name", "tenant_id" }))
+public class MasterTenantJob {
+
+    public static final String SUCCESS = "SUCCESS";
+
+    public static final String FAILED = "FAILED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Size(max = 100)
+    @Column(name = "job_name", nullable = false)
+    private String jobName;
+
+    @Size(max = 30)
+    @Column(name = "tenant_id", nullable = false)
+    private String tenantId;
+
+    /**
+     * The {@link MasterJobRun} run in which the job last ran on the tenant
+     */
+    @Column(name = "run_number", nullable = false)
+    private long runNumber;
+
+    /**
+     * {@link #SUCCESS} or {@link #FAILED}
+     */
+    @Size(max = 10)
+    @Column(name = "status")
+    private String status;
+
+    @Column(name = "duration_millis", nullable = false)
+    private long durationMillis;
+
+    @Size(max = 1000)
+    @Column(name = "error", length = 1000)
+    private String error;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "completed_at")
+    private Date completedAt;
+
+    /**
+     * @return the id
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * @param id
+     *            the id to set
+     */
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    /**
+     * @return the jobName
+     */
+    public String getJobName() {
+        return jobName;
+    }
+
+    /**
+     * @param jobName
+     *            the jobName to set
+     */
+    public void setJobName(String jobName) {
+        this.jobName = jobName;
+    }
+
+    /**
+     * @return the tenantId
+     */
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    /**
+     * @param tenantId
+     *            the tenantId to set
+     */
+    public void setTenantId(String tenantId) {
+        this.tenantId = tenantId;
+    }
+
+    /**
+     * @return the runNumber
+     */
+    public long getRunNumber() {
+        return runNumber;
+    }
+
+    /**
+     * @param runNumber
+     *            the runNumber to set
+     */
+    public void setRunNumber(long runNumber) {
+        this.runNumber = runNumber;
+    }
+
+    /**
+     * @return the status
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * @param status
+     *            the status to set
+     */
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    /**
+     * @return the durationMillis
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * @param durationMillis
+     *            the durationMillis to set
+     */
+    public void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    /**
+     * @return the error
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @param error
+     *            the error to set
+     */
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    /**
+     * @return the completedAt
+     */
+    public Date getCompletedAt() {
+        return completedAt;
+    }
+
+    /**
+     * @param completedAt
+     *            the completedAt to set
+     */
+    public void setCompletedAt(Date completedAt) {
+        this.completedAt = completedAt;
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.master.model;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.persistence.UniqueConstraint;
+import javax.validation.constraints.Size;
+
+/**
+ * This JPA entity represents the <tt>master_tenant_stats</tt> table in the
+ * <tt>masterdb</tt> database. It holds a per tenant summary which is kept up to
+ * date incrementally, so that dashboards can read the numbers for all tenants
+ * without querying every tenant database.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Entity
+@Table(name = "master_tenant_stats", uniqueConstraints = @UniqueConstraint(name = "uk_master_tenant_stats_tenant_id", columnNames = "tenant_id"))
+public class MasterTenantStats {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Size(max = 30)
+    @Column(name = "tenant_id", nullable = false)
+    private String tenantId;
+
+    @Column(name = "user_count", nullable = false)
+    private long userCount;
+
+    @Column(name = "active_user_count", nullable = false)
+    private long activeUserCount;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "last_login_at")
+    private Date lastLoginAt;
+
+    /**
+     * When the counts were last recomputed from the tenant database by the
+     * reconciler. Incremental updates do not touch this column.
+     */
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "reconciled_at")
+    private Date reconciledAt;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "updated_at")
+    private Date updatedAt;
+
+    /**
+     * @return the id
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * @param id
+     *            the id to set
+     */
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    /**
+     * @return the tenantId
+     */
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    /**
+     * @param tenantId
+     *            the tenantId to set
+     */
+    public void setTenantId(String tenantId) {
+        this.tenantId = tenantId;
+    }
+
+    /**
+     * @return the userCount
+     */
+    public long getUserCount() {
+        return userCount;
+    }
+
+    /**
+     * @param userCount
+     *            the userCount to set
+     */
+    public void setUserCount(long userCount) {
+        this.userCount = userCount;
+    }
+
+    /**
+     * @return the activeUserCount
+     */
+    public long getActiveUserCount() {
+        return activeUserCount;
+    }
+
+    /**
+     * @param activeUserCount
+     *            the activeUserCount to set
+     */
+    public void setActiveUserCount(long activeUserCount) {
+        this.activeUserCount = activeUserCount;
+    }
+
+    /**
+     * @return the lastLoginAt
+     */
+    public Date getLastLoginAt() {
+        return lastLoginAt;
+    }
+
+    /**
+     * @param lastLoginAt
+     *            the lastLoginAt to set
+     */
+    public void setLastLoginAt(Date lastLoginAt) {
+        this.lastLoginAt = lastLoginAt;
+    }
+
+    /**
+     * @return the reconciledAt
+     */
+    public Date getReconciledAt() {
+        return reconciledAt;
+    }
+
+    /**
+     * @param reconciledAt
+     *            the reconciledAt to set
+     */
+    public void setReconciledAt(Date reconciledAt) {
+        this.reconciledAt = reconciledAt;
+    }
+
+    /**
+     * @return the updatedAt
+     */
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+
+    /**
+     * @param updatedAt
+     *            the updatedAt to set
+     */
+    public void setUpdatedAt(Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
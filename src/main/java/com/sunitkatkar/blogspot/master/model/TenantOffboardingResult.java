@@ -0,0 +1,112 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.master.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Outcome of offboarding a tenant, including how long each step took.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+public class TenantOffboardingResult {
+
+    private final String tenantId;
+
+    private TenantStatus status;
+
+    /**
+     * Whether all in-flight transactions finished before the drain deadline
+     */
+    private boolean drained;
+
+    /**
+     * Connections still in use when the pool was closed
+     */
+    private int abandonedConnections;
+
+    private String archivePath;
+
+    /**
+     * Step name as key and its duration in milliseconds as value, in the
+     * order in which the steps ran
+     */
+    private final Map<String, Long> phaseMillis = new LinkedHashMap<>();
+
+    private long totalMillis;
+
+    public TenantOffboardingResult(String tenantId) {
+        this.tenantId = tenantId;
+    }
+
+    public void addPhase(String phase, long millis) {
+        phaseMillis.put(phase, millis);
+    }
+
+    // Getters and setters
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public TenantStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(TenantStatus status) {
+        this.status = status;
+    }
+
+    public boolean isDrained() {
+        return drained;
+    }
+
+    public void setDrained(boolean drained) {
+        this.drained = drained;
+    }
+
+    public int getAbandonedConnections() {
+        return abandonedConnections;
+    }
+
+    public void setAbandonedConnections(int abandonedConnections) {
+        this.abandonedConnections = abandonedConnections;
+    }
+
+    public String getArchivePath() {
+        return archivePath;
+    }
+
+    public void setArchivePath(String archivePath) {
+        this.archivePath = archivePath;
+    }
+
+    public Map<String, Long> getPhaseMillis() {
+        return phaseMillis;
+    }
+
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    public void setTotalMillis(long totalMillis) {
+        this.totalMillis = totalMillis;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.master.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Outcome of provisioning a new tenant, including how long each phase took so
+ * that onboarding latency can be tracked.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+public class TenantProvisioningResult {
+
+    private final String tenantId;
+
+    private String url;
+
+    private int schemaVersion;
+
+    /**
+     * Phase name as key and its duration in milliseconds as value, in the
+     * order in which the phases ran
+     */
+    private final Map<String, Long> phaseMillis = new LinkedHashMap<>();
+
+    private long totalMillis;
+
+    public TenantProvisioningResult(String tenantId) {
+        this.tenantId = tenantId;
+    }
+
+    public void addPhase(String phase, long millis) {
+        phaseMillis.put(phase, millis);
+    }
+
+    // Getters and setters
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public int getSchemaVersion() {
+        return schemaVersion;
+    }
+
+    public void setSchemaVersion(int schemaVersion) {
+        this.schemaVersion = schemaVersion;
+    }
+
+    public Map<String, Long> getPhaseMillis() {
+        return phaseMillis;
+    }
+
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    public void setTotalMillis(long totalMillis) {
+        this.totalMillis = totalMillis;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.master.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Outcome of moving a tenant to another database server, including how long
+ * each phase took and how long the tenant was frozen.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+public class TenantRelocationResult {
+
+    private final String tenantId;
+
+    private String sourceUrl;
+
+    private String targetUrl;
+
+    private long rowsCopied;
+
+    private int catchUpRounds;
+
+    /**
+     * Number of rows copied again because they changed during the copy. A
+     * changed table without a primary key is copied again as a whole and
+     * counts as one.
+     */
+    private int rowsRecopied;
+
+    /**
+     * Time in milliseconds during which new requests of the tenant had to
+     * wait
+     */
+    private long freezeMillis;
+
+    /**
+     * Phase name as key and its duration in milliseconds as value, in the
+     * order in which the phases ran
+     */
+    private final Map<String, Long> phaseMillis = new LinkedHashMap<>();
+
+    private long totalMillis;
+
+    public TenantRelocationResult(String tenantId) {
+        this.tenantId = tenantId;
+    }
+
+    public void addPhase(String phase, long millis) {
+        phaseMillis.put(phase, millis);
+    }
+
+    public void addRowsCopied(long rows) {
+        rowsCopied += rows;
+    }
+
+    public void addRowsRecopied(int rows) {
+        rowsRecopied += rows;
+    }
+
+    // Getters and setters
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public String getSourceUrl() {
+        return sourceUrl;
+    }
+
+    public void setSourceUrl(String sourceUrl) {
+        this.sourceUrl = sourceUrl;
+    }
+
+    public String getTargetUrl() {
+        return targetUrl;
+    }
+
+    public void setTargetUrl(String targetUrl) {
+        this.targetUrl = targetUrl;
+    }
+
+    public long getRowsCopied() {
+        return rowsCopied;
+    }
+
+    public int getCatchUpRounds() {
+        return catchUpRounds;
+    }
+
+    public void setCatchUpRounds(int catchUpRounds) {
+        this.catchUpRounds = catchUpRounds;
+    }
+
+    public int getRowsRecopied() {
+        return rowsRecopied;
+    }
+
+    public long getFreezeMillis() {
+        return freezeMillis;
+    }
+
+    public void setFreezeMillis(long freezeMillis) {
+        this.freezeMillis = freezeMillis;
+    }
+
+    public Map<String, Long> getPhaseMillis() {
+        return phaseMillis;
+    }
+
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    public void setTotalMillis(long totalMillis) {
+        this.totalMillis = totalMillis;
+    }
+}
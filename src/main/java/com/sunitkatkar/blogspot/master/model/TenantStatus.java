@@ -0,0 +1,43 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.master.model;
+
+/**
+ * Lifecycle status of a tenant as stored in the <tt>master_tenant</tt> table.
+ * Only {@link #ACTIVE} tenants receive traffic.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+public enum TenantStatus {
+
+    /** The tenant is in normal use */
+    ACTIVE,
+
+    /**
+     * New requests are rejected while in-flight transactions finish, before
+     * the tenant pools are closed
+     */
+    DRAINING,
+
+    /** The tenant is switched off but its database is kept */
+    SUSPENDED,
+
+    /** The tenant has been removed and its data archived if requested */
+    OFFBOARDED
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.master.repository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.session.Session;
+import org.springframework.session.SessionRepository;
+
+import com.sunitkatkar.blogspot.master.config.SessionConfigProperties;
+import com.sunitkatkar.blogspot.util.CompactSessionSerializer;
+
+/**
+ * Stores the HTTP sessions in the <tt>master_session</tt> table of the master
+ * database, so that any node behind the load balancer can serve any session.
+ * 
+ * <br/>
+ * <br/>
+ * A session is one row, with all its attributes in one column written by the
+ * {@link CompactSessionSerializer}, so a request reads it with a single
+ * primary key lookup. Saving only writes what changed: the attributes when
+ * one was set or removed, and the last access time only once it is
+ * <tt>touchInterval</tt> behind. Most requests of a logged in user therefore
+ * write nothing. As with other session stores, an attribute changed in place
+ * must be set again to be saved.
+ * 
+ * <br/>
+ * <br/>
+ * Expired sessions are deleted in batches of <tt>cleanupBatchSize</tt> every
+ * <tt>cleanupInterval</tt>, and right away when they are read.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+public class MasterSessionRepository
+        implements SessionRepository<MasterSessionRepository.MasterSession> {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(MasterSessionRepository.class);
+
+    private static final String CREATE_TABLE = "create table if not exists master_session ("
+            + "session_id char(36) not null, "
+            + "creation_time bigint not null, "
+            + "last_access_time bigint not null, "
+            + "max_inactive_interval int not null, "
+            + "expiry_time bigint not null, "
+            + "attributes blob not null, "
+            + "primary key (session_id), "
+            + "index ix_master_session_expiry_time (expiry_time))";
+
+    private static final String INSERT = "insert into master_session "
+            + "(session_id, creation_time, last_access_time, max_inactive_interval, expiry_time, attributes) "
+            + "values (?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT = "select creation_time, last_access_time, max_inactive_interval, attributes "
+            + "from master_session where session_id = ?";
+
+    private static final String DELETE = "delete from master_session where session_id = ?";
+
+    private static final String DELETE_EXPIRED = "delete from master_session where expiry_time < ? limit ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final SessionConfigProperties sessionProperties;
+
+    public MasterSessionRepository(JdbcTemplate jdbcTemplate,
+            SessionConfigProperties sessionProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sessionProperties = sessionProperties;
+    }
+
+    /**
+     * Creates the session table if it does not exist yet
+     */
+    public void initializeSchema() {
+        jdbcTemplate.execute(CREATE_TABLE);
+    }
+
+    @Override
+    public MasterSession createSession() {
+        return new MasterSession(
+                Duration.ofSeconds(sessionProperties.getMaxInactiveInterval()));
+    }
+
+    @Override
+    public void save(MasterSession session) {
+        if (session.isNew) {
+            jdbcTemplate.update(INSERT, session.id,
+                    session.creationTime.toEpochMilli(),
+                    session.lastAccessedTime.toEpochMilli(),
+                    (int) session.maxInactiveInterval.getSeconds(),
+                    session.expiryTime(),
+                    CompactSessionSerializer.serialize(session.attributes));
+            session.saved();
+            return;
+        }
+        StringBuilder sql = new StringBuilder("update master_session set ");
+        List<Object> args = new ArrayList<>();
+        if (!session.id.equals(session.originalId)) {
+            sql.append("session_id = ?, ");
+            args.add(session.id);
+        }
+        if (session.maxInactiveIntervalChanged
+                || Duration.between(session.savedLastAccessedTime,
+                        session.lastAccessedTime).getSeconds() >= sessionProperties
+                                .getTouchInterval()) {
+            sql.append(
+                    "last_access_time = ?, max_inactive_interval = ?, expiry_time = ?, ");
+            args.add(session.lastAccessedTime.toEpochMilli());
+            args.add((int) session.maxInactiveInterval.getSeconds());
+            args.add(session.expiryTime());
+        }
+        if (session.attributesChanged) {
+            sql.append("attributes = ?, ");
+            args.add(CompactSessionSerializer.serialize(session.attributes));
+        }
+        if (args.isEmpty()) {
+            return;
+        }
+        sql.setLength(sql.length() - 2);
+        sql.append(" where session_id = ?");
+        args.add(session.originalId);
+        jdbcTemplate.update(sql.toString(), args.toArray());
+        session.saved();
+    }
+
+    @Override
+    public MasterSession findById(String id) {
+        List<MasterSession> sessions = jdbcTemplate.query(SELECT,
+                (rs, rowNum) -> new MasterSession(id,
+                        Instant.ofEpochMilli(rs.getLong(1)),
+                        Instant.ofEpochMilli(rs.getLong(2)),
+                        Duration.ofSeconds(rs.getInt(3)),
+                        CompactSessionSerializer
+                                .deserialize(rs.getBytes(4))),
+                id);
+        if (sessions.isEmpty()) {
+            return null;
+        }
+        MasterSession session = sessions.get(0);
+        if (session.isExpired()) {
+            deleteById(id);
+            return null;
+        }
+        return session;
+    }
+
+    @Override
+    public void deleteById(String id) {
+        jdbcTemplate.update(DELETE, id);
+    }
+
+    /**
+     * Deletes the expired sessions in batches
+     */
+    @Scheduled(fixedDelayString = "${multitenancy.mtapp.session.cleanupInterval:60000}")
+    public void cleanUpExpiredSessions() {
+        long now = System.currentTimeMillis();
+        int batchSize = Math.max(1, sessionProperties.getCleanupBatchSize());
+        int deleted = 0;
+        int batch;
+        do {
+            batch = jdbcTemplate.update(DELETE_EXPIRED, now, batchSize);
+            deleted += batch;
+        } while (batch == batchSize);
+        if (deleted > 0) {
+            LOG.info("Deleted " + deleted + " expired sessions");
+        }
+    }
+
+    /**
+     * A session of the {@link MasterSessionRepository}, which keeps track of
+     * what changed since it was read or last saved
+     */
+    public static final class MasterSession implements Session {
+
+        private String id;
+
+        private String originalId;
+
+        private boolean isNew;
+
+        private final Instant creationTime;
+
+        private Instant lastAccessedTime;
+
+        private Instant savedLastAccessedTime;
+
+        private Duration maxInactiveInterval;
+
+        private boolean maxInactiveIntervalChanged;
+
+        private final Map<String, Object> attributes;
+
+        private boolean attributesChanged;
+
+        MasterSession(Duration maxInactiveInterval) {
+            this.id = UUID.randomUUID().toString();
+            this.originalId = id;
+            this.isNew = true;
+            this.creationTime = Instant.now();
+            this.lastAccessedTime = creationTime;
+            this.savedLastAccessedTime = creationTime;
+            this.maxInactiveInterval = maxInactiveInterval;
+            this.attributes = new HashMap<>();
+        }
+
+        MasterSession(String id, Instant creationTime,
+                Instant lastAccessedTime, Duration maxInactiveInterval,
+                Map<String, Object> attributes) {
+            this.id = id;
+            this.originalId = id;
+            this.creationTime = creationTime;
+            this.lastAccessedTime = lastAccessedTime;
+            this.savedLastAccessedTime = lastAccessedTime;
+            this.maxInactiveInterval = maxInactiveInterval;
+            this.attributes = attributes;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public String changeSessionId() {
+            id = UUID.randomUUID().toString();
+            return id;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T getAttribute(String attributeName) {
+            return (T) attributes.get(attributeName);
+        }
+
+        @Override
+        public Set<String> getAttributeNames() {
+            return new HashSet<>(attributes.keySet());
+        }
+
+        @Override
+        public void setAttribute(String attributeName, Object attributeValue) {
+            if (attributeValue == null) {
+                removeAttribute(attributeName);
+                return;
+            }
+            attributes.put(attributeName, attributeValue);
+            attributesChanged = true;
+        }
+
+        @Override
+        public void removeAttribute(String attributeName) {
+            if (attributes.remove(attributeName) != null) {
+                attributesChanged = true;
+            }
+        }
+
+        @Override
+        public Instant getCreationTime() {
+            return creationTime;
+        }
+
+        @Override
+        public void setLastAccessedTime(Instant lastAccessedTime) {
+            this.lastAccessedTime = lastAccessedTime;
+        }
+
+        @Override
+        public Instant getLastAccessedTime() {
+            return lastAccessedTime;
+        }
+
+        @Override
+        public void setMaxInactiveInterval(Duration interval) {
+            if (!interval.equals(maxInactiveInterval)) {
+                maxInactiveInterval = interval;
+                maxInactiveIntervalChanged = true;
+            }
+        }
+
+        @Override
+        public Duration getMaxInactiveInterval() {
+            return maxInactiveInterval;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return !maxInactiveInterval.isNegative() && Instant.now()
+                    .isAfter(lastAccessedTime.plus(maxInactiveInterval));
+        }
+
+        /**
+         * @return the time in milliseconds at which the session expires as
+         *         last saved
+         */
+        long expiryTime() {
+            return maxInactiveInterval.isNegative() ? Long.MAX_VALUE
+                    : lastAccessedTime.plus(maxInactiveInterval).toEpochMilli();
+        }
+
+        void saved() {
+            originalId = id;
+            isNew = false;
+            savedLastAccessedTime = lastAccessedTime;
+            maxInactiveIntervalChanged = false;
+            attributesChanged = false;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.master.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.sunitkatkar.blogspot.master.model.MasterTenantJob;
+
+/**
+ * Repository for the {@link MasterTenantJob} JPA entity. The checkpoint of a
+ * tenant is written with a MySQL upsert, as the workers of a run write them
+ * concurrently.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Repository
+public interface MasterTenantJobRepository
+        extends JpaRepository<MasterTenantJob, Long> {
+
+    @Query("select p from MasterTenantJob p where p.jobName = :jobName order by p.tenantId")
+    List<MasterTenantJob> findByJobName(@Param("jobName") String jobName);
+
+    /**
+     * @param jobName
+     * @param runNumber
+     * @return the tenants the given run of the job already went through
+     */
+    @Query("select p.tenantId from MasterTenantJob p where p.jobName = :jobName and p.runNumber = :runNumber")
+    List<String> findTenantIdsOfRun(@Param("jobName") String jobName,
+            @Param("runNumber") long runNumber);
+
+    /**
+     * @param jobName
+     * @param runNumber
+     * @return the number of tenants on which the given run of the job failed
+     */
+    @Query("select count(p) from MasterTenantJob p where p.jobName = :jobName and p.runNumber = :runNumber and p.status = '"
+            + MasterTenantJob.FAILED + "'")
+    long countFailedOfRun(@Param("jobName") String jobName,
+            @Param("runNumber") long runNumber);
+
+    /**
+     * Records the outcome of the job on the tenant in the given run
+     * 
+     * @param jobName
+     * @param tenantId
+     * @param runNumber
+     * @param status
+     * @param durationMillis
+     * @param error
+     * @return
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "insert into master_tenant_job (job_name, tenant_id, run_number, status, duration_millis, error, completed_at) "
+            + "values (:jobName, :tenantId, :runNumber, :status, :durationMillis, :error, now()) "
+            + "on duplicate key update "
+            + "run_number = :runNumber, status = :status, duration_millis = :durationMillis, "
+            + "error = :error, completed_at = now()", nativeQuery = true)
+    int saveCheckpoint(@Param("jobName") String jobName,
+            @Param("tenantId") String tenantId,
+            @Param("runNumber") long runNumber, @Param("status") String status,
+            @Param("durationMillis") long durationMillis,
+            @Param("error") String error);
+}
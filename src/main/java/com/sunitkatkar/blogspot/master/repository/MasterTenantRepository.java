@@ -15,12 +15,17 @@
  */
 package com.sunitkatkar.blogspot.master.repository;
 
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.sunitkatkar.blogspot.master.model.MasterTenant;
+import com.sunitkatkar.blogspot.master.model.TenantStatus;
 
 /**
  * Repository for the {@link MasterTenant} JPA entity. Any custom methods, not
@@ -42,4 +47,119 @@ public interface MasterTenantRepository
      */
     @Query("select p from MasterTenant p where p.tenantId = :tenantId")
     MasterTenant findByTenantId(@Param("tenantId") String tenantId);
+
+    /**
+     * Tenants whose database schema is older than the given version
+     * 
+     * @param schemaVersion
+     * @return
+     */
+    @Query("select p from MasterTenant p where p.schemaVersion is null or p.schemaVersion < :schemaVersion")
+    List<MasterTenant> findBySchemaVersionBelow(
+            @Param("schemaVersion") int schemaVersion);
+
+    /**
+     * Records the schema version of a tenant database after migrating it
+     * 
+     * @param tenantId
+     * @param schemaVersion
+     * @return
+     */
+    @Transactional
+    @Modifying
+    @Query("update MasterTenant p set p.schemaVersion = :schemaVersion where p.tenantId = :tenantId")
+    int updateSchemaVersion(@Param("tenantId") String tenantId,
+            @Param("schemaVersion") int schemaVersion);
+
+    /**
+     * Tenants which are not {@link TenantStatus#ACTIVE}. Rows without a status
+     * are active.
+     * 
+     * @return
+     */
+    @Query("select p from MasterTenant p where p.status is not null and p.status <> com.sunitkatkar.blogspot.master.model.TenantStatus.ACTIVE")
+    List<MasterTenant> findInactive();
+
+    /**
+     * @param tenantId
+     * @param status
+     * @return
+     */
+    @Transactional
+    @Modifying
+    @Query("update MasterTenant p set p.status = :status where p.tenantId = :tenantId")
+    int updateStatus(@Param("tenantId") String tenantId,
+            @Param("status") TenantStatus status);
+
+    /**
+     * Tenant id, plan and rate limit override of every tenant, without loading
+     * the connection details
+     * 
+     * @return
+     */
+    @Query("select p.tenantId, p.plan, p.rateLimit from MasterTenant p")
+    List<Object[]> findRateLimits();
+
+    /**
+     * @param tenantId
+     * @param plan
+     * @param rateLimit
+     * @return
+     */
+    @Transactional
+    @Modifying
+    @Query("update MasterTenant p set p.plan = :plan, p.rateLimit = :rateLimit where p.tenantId = :tenantId")
+    int updateRateLimit(@Param("tenantId") String tenantId,
+            @Param("plan") String plan,
+            @Param("rateLimit") Integer rateLimit);
+
+    /**
+     * Tenant id, statement timeout and database time quota overrides of every
+     * tenant, without loading the connection details
+     * 
+     * @return
+     */
+    @Query("select p.tenantId, p.statementTimeout, p.dbQuota from MasterTenant p")
+    List<Object[]> findDbQuotas();
+
+    /**
+     * @param tenantId
+     * @param statementTimeout
+     * @return
+     */
+    @Transactional
+    @Modifying
+    @Query("update MasterTenant p set p.statementTimeout = :statementTimeout where p.tenantId = :tenantId")
+    int updateStatementTimeout(@Param("tenantId") String tenantId,
+            @Param("statementTimeout") Integer statementTimeout);
+
+    /**
+     * @param tenantId
+     * @param dbQuota
+     * @return
+     */
+    @Transactional
+    @Modifying
+    @Query("update MasterTenant p set p.dbQuota = :dbQuota where p.tenantId = :tenantId")
+    int updateDbQuota(@Param("tenantId") String tenantId,
+            @Param("dbQuota") Long dbQuota);
+
+    /**
+     * Records whether the tenant is to be served by its standby database,
+     * unless the row changed since it was read at the given version
+     * 
+     * @param tenantId
+     * @param onStandby
+     * @param version
+     *            the version of the row as read
+     * @return 0 if the row changed meanwhile, e.g. another node switched the
+     *         tenant first
+     */
+    @Transactional
+    @Modifying
+    @Query("update MasterTenant p set p.onStandby = :onStandby, p.version = p.version + 1 "
+            + "where p.tenantId = :tenantId and p.version = :version")
+    int updateOnStandby(@Param("tenantId") String tenantId,
+            @Param("onStandby") boolean onStandby,
+            @Param("version") int version);
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.master.repository;
+
+import java.util.Date;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.sunitkatkar.blogspot.master.model.MasterTenantStats;
+
+/**
+ * Repository for the {@link MasterTenantStats} JPA entity. The incremental
+ * updates are MySQL upserts so that concurrent updates for the same tenant
+ * never read-modify-write the row in Java and never race on the first insert.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Repository
+public interface MasterTenantStatsRepository
+        extends JpaRepository<MasterTenantStats, Long> {
+
+    @Query("select p from MasterTenantStats p where p.tenantId = :tenantId")
+    MasterTenantStats findByTenantId(@Param("tenantId") String tenantId);
+
+    /**
+     * Adds the given deltas to the user counts of the tenant
+     * 
+     * @param tenantId
+     * @param userDelta
+     * @param activeUserDelta
+     * @return
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "insert into master_tenant_stats (tenant_id, user_count, active_user_count, updated_at) "
+            + "values (:tenantId, greatest(:userDelta, 0), greatest(:activeUserDelta, 0), now()) "
+            + "on duplicate key update "
+            + "user_count = greatest(user_count + :userDelta, 0), "
+            + "active_user_count = greatest(active_user_count + :activeUserDelta, 0), "
+            + "updated_at = now()", nativeQuery = true)
+    int addUserCounts(@Param("tenantId") String tenantId,
+            @Param("userDelta") long userDelta,
+            @Param("activeUserDelta") long activeUserDelta);
+
+    /**
+     * Moves the last login time of the tenant forward, never backwards
+     * 
+     * @param tenantId
+     * @param lastLoginAt
+     * @return
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "insert into master_tenant_stats (tenant_id, user_count, active_user_count, last_login_at, updated_at) "
+            + "values (:tenantId, 0, 0, :lastLoginAt, now()) "
+            + "on duplicate key update "
+            + "last_login_at = greatest(coalesce(last_login_at, :lastLoginAt), :lastLoginAt), "
+            + "updated_at = now()", nativeQuery = true)
+    int advanceLastLogin(@Param("tenantId") String tenantId,
+            @Param("lastLoginAt") Date lastLoginAt);
+
+    /**
+     * Overwrites the user counts of the tenant with the exact values counted
+     * in the tenant database
+     * 
+     * @param tenantId
+     * @param userCount
+     * @param activeUserCount
+     * @return
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "insert into master_tenant_stats (tenant_id, user_count, active_user_count, reconciled_at, updated_at) "
+            + "values (:tenantId, :userCount, :activeUserCount, now(), now()) "
+            + "on duplicate key update "
+            + "user_count = :userCount, active_user_count = :activeUserCount, "
+            + "reconciled_at = now(), updated_at = now()", nativeQuery = true)
+    int replaceUserCounts(@Param("tenantId") String tenantId,
+            @Param("userCount") long userCount,
+            @Param("activeUserCount") long activeUserCount);
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.master.service;
+
+import java.util.List;
+
+import com.sunitkatkar.blogspot.master.model.MasterTenantStats;
+
+/**
+ * Service definition which maintains the {@link MasterTenantStats} summary of
+ * every tenant. Changes are applied incrementally as they happen and a
+ * periodic reconciler corrects any drift from the tenant databases.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+public interface MasterTenantStatsService {
+
+    List<MasterTenantStats> findAll();
+
+    MasterTenantStats findByTenantId(String tenantId);
+
+    /**
+     * Applies the effect of saving a user to the counts of the tenant
+     * 
+     * @param tenantId
+     * @param created
+     *            whether the user did not exist before
+     * @param wasActive
+     *            the active flag before the save, ignored for new users
+     * @param isActive
+     *            the active flag after the save
+     */
+    void recordUserSaved(String tenantId, boolean created, boolean wasActive,
+            boolean isActive);
+
+    /**
+     * Records a successful login. This only touches memory, the latest login
+     * per tenant is written to the master database by {@link #flushLogins()}.
+     * 
+     * @param tenantId
+     */
+    void recordLogin(String tenantId);
+
+    void flushLogins();
+
+    /**
+     * Recounts the users of every tenant and overwrites the incremental counts
+     */
+    void reconcileAll();
+}
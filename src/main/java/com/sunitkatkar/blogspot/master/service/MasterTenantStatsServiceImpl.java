@@ -0,0 +1,169 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.master.service;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.sunitkatkar.blogspot.master.model.MasterTenantStats;
+import com.sunitkatkar.blogspot.master.repository.MasterTenantStatsRepository;
+import com.sunitkatkar.blogspot.tenant.repository.UserRepository;
+import com.sunitkatkar.blogspot.tenant.service.TenantFanOutService;
+import com.sunitkatkar.blogspot.util.JobExecutor;
+
+/**
+ * Implementation of the {@link MasterTenantStatsService}.
+ * 
+ * <br/>
+ * <br/>
+ * Counts are only ever changed with single statement upserts, so concurrent
+ * updates from several nodes are safe. Logins are frequent and only the latest
+ * one matters, so they are coalesced in memory per tenant and written in one
+ * statement per tenant every <tt>loginFlushInterval</tt> milliseconds.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Service
+public class MasterTenantStatsServiceImpl implements MasterTenantStatsService {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(MasterTenantStatsServiceImpl.class);
+
+    @Autowired
+    private MasterTenantStatsRepository statsRepo;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TenantFanOutService tenantFanOutService;
+
+    /**
+     * Latest login time in epoch milliseconds per tenant, not yet written
+     */
+    private final Map<String, Long> pendingLogins = new ConcurrentHashMap<>();
+
+    /**
+     * Runs the scheduled reconciliation on its own thread
+     */
+    private final JobExecutor reconcileJob = new JobExecutor(
+            "tenant-stats-reconcile");
+
+    @Override
+    public List<MasterTenantStats> findAll() {
+        return statsRepo.findAll();
+    }
+
+    @Override
+    public MasterTenantStats findByTenantId(String tenantId) {
+        return statsRepo.findByTenantId(tenantId);
+    }
+
+    @Override
+    public void recordUserSaved(String tenantId, boolean created,
+            boolean wasActive, boolean isActive) {
+        long userDelta = created ? 1 : 0;
+        long activeDelta = (isActive ? 1 : 0)
+                - (!created && wasActive ? 1 : 0);
+        if (userDelta == 0 && activeDelta == 0) {
+            return;
+        }
+        try {
+            statsRepo.addUserCounts(tenantId, userDelta, activeDelta);
+        } catch (RuntimeException e) {
+            // Never fail the user update because of the summary, the
+            // reconciler fixes the counts later
+            LOG.warn("Could not update stats for tenant:" + tenantId, e);
+        }
+    }
+
+    @Override
+    public void recordLogin(String tenantId) {
+        pendingLogins.merge(tenantId, System.currentTimeMillis(), Math::max);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${multitenancy.mtapp.stats.loginFlushInterval:5000}")
+    public void flushLogins() {
+        for (String tenantId : pendingLogins.keySet()) {
+            Long lastLogin = pendingLogins.remove(tenantId);
+            if (lastLogin == null) {
+                continue;
+            }
+            try {
+                statsRepo.advanceLastLogin(tenantId, new Date(lastLogin));
+            } catch (RuntimeException e) {
+                LOG.warn("Could not flush last login for tenant:" + tenantId,
+                        e);
+                pendingLogins.merge(tenantId, lastLogin, Math::max);
+            }
+        }
+    }
+
+    /**
+     * Starts {@link #reconcileAll()} on its own thread. It counts the users
+     * of every tenant, which takes a while with many tenants.
+     */
+    @Scheduled(initialDelayString = "${multitenancy.mtapp.stats.reconcileInitialDelay:60000}", fixedDelayString = "${multitenancy.mtapp.stats.reconcileInterval:3600000}")
+    public void scheduleReconcileAll() {
+        reconcileJob.submit(this::reconcileAll);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reconcileJob.shutdown();
+    }
+
+    @Override
+    public void reconcileAll() {
+        long start = System.currentTimeMillis();
+        int[] reconciled = { 0 };
+        tenantFanOutService.execute(tenantFanOutService.findAllTenantIds(),
+                tenantId -> new long[] { userRepository.count(),
+                        userRepository.countByActive(true) },
+                0, result -> {
+                    if (!result.isSuccess()) {
+                        LOG.warn("Could not reconcile stats for tenant:"
+                                + result.getTenantId(), result.getError());
+                        return;
+                    }
+                    long[] counts = result.getValue();
+                    try {
+                        statsRepo.replaceUserCounts(result.getTenantId(),
+                                counts[0], counts[1]);
+                        reconciled[0]++;
+                    } catch (RuntimeException e) {
+                        LOG.warn("Could not store stats for tenant:"
+                                + result.getTenantId(), e);
+                    }
+                });
+        LOG.info("Reconciled stats of " + reconciled[0] + " tenants in "
+                + (System.currentTimeMillis() - start) + "ms");
+    }
+}
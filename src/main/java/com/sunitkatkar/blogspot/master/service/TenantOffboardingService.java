@@ -0,0 +1,68 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.master.service;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+import com.sunitkatkar.blogspot.master.model.TenantOffboardingResult;
+import com.sunitkatkar.blogspot.master.model.TenantStatus;
+
+/**
+ * Service definition for taking tenants out of service. Offboarding drains the
+ * tenant before its pool is closed, so that in-flight transactions are not cut
+ * off.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+public interface TenantOffboardingService {
+
+    /**
+     * Marks the tenant draining, waits for its in-flight transactions up to the
+     * drain timeout, closes its pool, optionally archives its data and finally
+     * sets the given status.
+     * 
+     * @param tenantId
+     * @param finalStatus
+     *            {@link TenantStatus#SUSPENDED} or
+     *            {@link TenantStatus#OFFBOARDED}
+     * @param archive
+     *            whether all tables of the tenant are written to the archive
+     *            directory
+     * @return the outcome with the duration of every step
+     * @throws IOException
+     * @throws SQLException
+     */
+    TenantOffboardingResult offboardTenant(String tenantId,
+            TenantStatus finalStatus, boolean archive)
+            throws SQLException, IOException;
+
+    /**
+     * Puts a suspended or offboarded tenant back into service. Its pool is
+     * created again on the first request.
+     * 
+     * @param tenantId
+     */
+    void reactivateTenant(String tenantId);
+
+    /**
+     * Applies status changes made by other nodes to this node
+     */
+    void syncTenantStatuses();
+}
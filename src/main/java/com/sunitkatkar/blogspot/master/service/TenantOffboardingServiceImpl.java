@@ -0,0 +1,309 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.master.service;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sunitkatkar.blogspot.master.config.TenantOffboardingConfigProperties;
+import com.sunitkatkar.blogspot.master.model.MasterTenant;
+import com.sunitkatkar.blogspot.master.model.TenantOffboardingResult;
+import com.sunitkatkar.blogspot.master.model.TenantStatus;
+import com.sunitkatkar.blogspot.master.repository.MasterTenantRepository;
+import com.sunitkatkar.blogspot.tenant.config.DataSourceBasedMultiTenantConnectionProviderImpl;
+import com.sunitkatkar.blogspot.tenant.config.TenantLifecycleStatus;
+import com.sunitkatkar.blogspot.util.JobExecutor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Implementation of the {@link TenantOffboardingService}.
+ * 
+ * <br/>
+ * <br/>
+ * The status is written to the master database before anything else, so that
+ * other nodes pick it up with {@link #syncTenantStatuses()} and stop taking
+ * requests for the tenant too. In-flight transactions keep the connection they
+ * already hold, so draining only has to wait for the active connection count
+ * of the pool to drop to zero. Every step is recorded in the
+ * <tt>tenant.offboarding.step</tt> timer.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Service
+public class TenantOffboardingServiceImpl implements TenantOffboardingService {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(TenantOffboardingServiceImpl.class);
+
+    private static final long DRAIN_POLL_MILLIS = 50;
+
+    @Autowired
+    private TenantOffboardingConfigProperties offboardingProperties;
+
+    @Autowired
+    private MasterTenantRepository masterTenantRepo;
+
+    @Autowired
+    private TenantLifecycleStatus tenantLifecycleStatus;
+
+    @Autowired
+    private DataSourceBasedMultiTenantConnectionProviderImpl connectionProvider;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Runs the scheduled status sync on its own thread
+     */
+    private final JobExecutor statusSyncJob = new JobExecutor(
+            "tenant-status-sync");
+
+    @Override
+    public TenantOffboardingResult offboardTenant(String tenantId,
+            TenantStatus finalStatus, boolean archive)
+            throws SQLException, IOException {
+        if (finalStatus != TenantStatus.SUSPENDED
+                && finalStatus != TenantStatus.OFFBOARDED) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid final status, status=%s", finalStatus));
+        }
+        MasterTenant masterTenant = masterTenantRepo.findByTenantId(tenantId);
+        if (masterTenant == null) {
+            throw new IllegalArgumentException(
+                    String.format("Tenant not found, tenant=%s", tenantId));
+        }
+
+        if (archive && masterTenant.isShared()) {
+            throw new IllegalArgumentException(String.format(
+                    "Tenants in a shared database cannot be archived, tenant=%s",
+                    tenantId));
+        }
+
+        TenantOffboardingResult result = new TenantOffboardingResult(
+                tenantId);
+        long start = System.nanoTime();
+        long phaseStart = start;
+
+        changeStatus(tenantId, TenantStatus.DRAINING);
+        phaseStart = endPhase(result, "markDraining", phaseStart);
+
+        long deadline = System.currentTimeMillis()
+                + offboardingProperties.getDrainTimeout();
+        int activeConnections = connectionProvider
+                .getActiveConnections(tenantId);
+        while (activeConnections > 0
+                && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(DRAIN_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            activeConnections = connectionProvider
+                    .getActiveConnections(tenantId);
+        }
+        result.setDrained(activeConnections == 0);
+        result.setAbandonedConnections(activeConnections);
+        if (activeConnections > 0) {
+            LOG.warn("Tenant:" + tenantId + " still has " + activeConnections
+                    + " active connections after the drain timeout");
+        }
+        phaseStart = endPhase(result, "drain", phaseStart);
+
+        // Drained above already, whatever is still in use is abandoned
+        connectionProvider.evictTenant(tenantId, 0);
+        phaseStart = endPhase(result, "closePool", phaseStart);
+
+        if (archive) {
+            result.setArchivePath(archiveTenant(masterTenant));
+            phaseStart = endPhase(result, "archive", phaseStart);
+        }
+
+        changeStatus(tenantId, finalStatus);
+        endPhase(result, "markFinalStatus", phaseStart);
+
+        result.setStatus(finalStatus);
+        result.setTotalMillis(
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        LOG.info("Offboarded tenant:" + tenantId + " as " + finalStatus
+                + " in " + result.getTotalMillis() + "ms "
+                + result.getPhaseMillis());
+        return result;
+    }
+
+    @Override
+    public void reactivateTenant(String tenantId) {
+        if (masterTenantRepo.findByTenantId(tenantId) == null) {
+            throw new IllegalArgumentException(
+                    String.format("Tenant not found, tenant=%s", tenantId));
+        }
+        changeStatus(tenantId, TenantStatus.ACTIVE);
+        LOG.info("Reactivated tenant:" + tenantId);
+    }
+
+    /**
+     * Starts {@link #syncTenantStatuses()} on its own thread, so that a slow
+     * master database does not delay the other scheduled tasks
+     */
+    @Scheduled(fixedDelayString = "${multitenancy.mtapp.offboarding.statusSyncInterval:10000}")
+    public void scheduleSyncTenantStatuses() {
+        statusSyncJob.submit(this::syncTenantStatuses);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        statusSyncJob.shutdown();
+    }
+
+    @Override
+    public void syncTenantStatuses() {
+        Map<String, TenantStatus> inactive = new HashMap<>();
+        for (MasterTenant masterTenant : masterTenantRepo.findInactive()) {
+            inactive.put(masterTenant.getTenantId(), masterTenant.getStatus());
+        }
+        for (String tenantId : new ArrayList<>(
+                tenantLifecycleStatus.getInactiveTenantIds())) {
+            if (!inactive.containsKey(tenantId)) {
+                tenantLifecycleStatus.setStatus(tenantId, TenantStatus.ACTIVE);
+            }
+        }
+        for (Map.Entry<String, TenantStatus> entry : inactive.entrySet()) {
+            tenantLifecycleStatus.setStatus(entry.getKey(), entry.getValue());
+            if (entry.getValue() != TenantStatus.DRAINING) {
+                connectionProvider.evictTenant(entry.getKey(),
+                        offboardingProperties.getDrainTimeout());
+            }
+        }
+    }
+
+    private void changeStatus(String tenantId, TenantStatus status) {
+        masterTenantRepo.updateStatus(tenantId, status);
+        tenantLifecycleStatus.setStatus(tenantId, status);
+    }
+
+    /**
+     * Writes every table of the tenant database to its own gzipped file with
+     * one JSON object per row. Rows are streamed from the server and written
+     * as they arrive, so memory use does not depend on the size of the tenant.
+     * 
+     * @param masterTenant
+     * @return the directory holding the archive
+     * @throws SQLException
+     * @throws IOException
+     */
+    private String archiveTenant(MasterTenant masterTenant)
+            throws SQLException, IOException {
+        File directory = new File(offboardingProperties.getArchiveDirectory(),
+                masterTenant.getTenantId() + "-" + System.currentTimeMillis());
+        if (!directory.mkdirs()) {
+            throw new IOException(
+                    "Could not create archive directory " + directory);
+        }
+        try (Connection connection = DriverManager.getConnection(
+                masterTenant.getUrl(), masterTenant.getUsername(),
+                masterTenant.getPassword())) {
+            connection.setReadOnly(true);
+            List<String> tables = new ArrayList<>();
+            try (ResultSet rs = connection.getMetaData().getTables(
+                    connection.getCatalog(), null, "%",
+                    new String[] { "TABLE" })) {
+                while (rs.next()) {
+                    tables.add(rs.getString("TABLE_NAME"));
+                }
+            }
+            for (String table : tables) {
+                long rows = archiveTable(connection, table,
+                        new File(directory, table + ".ndjson.gz"));
+                LOG.info("Archived " + rows + " rows of table:" + table
+                        + " for tenant:" + masterTenant.getTenantId());
+            }
+        }
+        return directory.getAbsolutePath();
+    }
+
+    private long archiveTable(Connection connection, String table, File file)
+            throws SQLException, IOException {
+        long rows = 0;
+        try (Statement statement = connection.createStatement(
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                OutputStream out = new GZIPOutputStream(
+                        new FileOutputStream(file));
+                JsonGenerator generator = objectMapper.getFactory()
+                        .createGenerator(out)) {
+            // The MySQL driver streams rows one by one only with this fetch
+            // size, otherwise the whole table is read into memory first
+            statement.setFetchSize(Integer.MIN_VALUE);
+            generator.setRootValueSeparator(new SerializedString("\n"));
+            try (ResultSet rs = statement
+                    .executeQuery("select * from `" + table + "`")) {
+                ResultSetMetaData metaData = rs.getMetaData();
+                int columns = metaData.getColumnCount();
+                while (rs.next()) {
+                    generator.writeStartObject();
+                    for (int i = 1; i <= columns; i++) {
+                        generator.writeFieldName(metaData.getColumnLabel(i));
+                        generator.writeObject(rs.getObject(i));
+                    }
+                    generator.writeEndObject();
+                    rows++;
+                }
+            }
+            generator.writeRaw('\n');
+        }
+        return rows;
+    }
+
+    private long endPhase(TenantOffboardingResult result, String phase,
+            long phaseStart) {
+        long now = System.nanoTime();
+        meterRegistry.timer("tenant.offboarding.step", "step", phase)
+                .record(now - phaseStart, TimeUnit.NANOSECONDS);
+        result.addPhase(phase, TimeUnit.NANOSECONDS.toMillis(now - phaseStart));
+        return now;
+    }
+}
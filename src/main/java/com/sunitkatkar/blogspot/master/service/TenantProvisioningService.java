@@ -0,0 +1,68 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.master.service;
+
+import java.sql.SQLException;
+
+import com.sunitkatkar.blogspot.master.model.MasterTenant;
+import com.sunitkatkar.blogspot.master.model.TenantProvisioningResult;
+
+/**
+ * Service definition for onboarding new tenants. A tenant is provisioned by
+ * cloning a pre-migrated template database, registering its
+ * {@link MasterTenant} row and starting its connection pool, so that it can
+ * take traffic right away without a rescan or a schema update.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+public interface TenantProvisioningService {
+
+    /**
+     * @param tenantId
+     *            the new tenant id, also used as its database name
+     * @return the provisioned tenant with the duration of every phase
+     * @throws IllegalArgumentException
+     *             if the tenant id is not a valid database name
+     * @throws IllegalStateException
+     *             if the tenant already exists
+     * @throws SQLException
+     *             if the tenant database could not be created
+     */
+    TenantProvisioningResult provisionTenant(String tenantId)
+            throws SQLException;
+
+    /**
+     * Registers a small tenant in the configured shared database instead of
+     * creating a database for it. Only the {@link MasterTenant} row is
+     * written, its users are told apart by their <tt>tenant</tt> column.
+     * 
+     * @param tenantId
+     *            the new tenant id
+     * @return the provisioned tenant with the duration of every phase
+     * @throws IllegalArgumentException
+     *             if the tenant id is not valid
+     * @throws IllegalStateException
+     *             if the tenant already exists or no shared database is
+     *             configured
+     * @throws SQLException
+     *             if the shared database could not be migrated
+     */
+    TenantProvisioningResult provisionSharedTenant(String tenantId)
+            throws SQLException;
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.master.service;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.sunitkatkar.blogspot.master.config.TenantProvisioningConfigProperties;
+import com.sunitkatkar.blogspot.master.model.MasterTenant;
+import com.sunitkatkar.blogspot.master.model.TenantProvisioningResult;
+import com.sunitkatkar.blogspot.master.repository.MasterTenantRepository;
+import com.sunitkatkar.blogspot.tenant.config.DataSourceBasedMultiTenantConnectionProviderImpl;
+import com.sunitkatkar.blogspot.tenant.config.SharedDatabaseConfigProperties;
+import com.sunitkatkar.blogspot.tenant.config.TenantSchemaStatus;
+import com.sunitkatkar.blogspot.tenant.service.TenantSchemaMigrationService;
+import com.sunitkatkar.blogspot.util.DataSourceUtil;
+
+/**
+ * Implementation of the {@link TenantProvisioningService}.
+ * 
+ * <br/>
+ * <br/>
+ * MySQL cannot create a database from a template, so the tables of the
+ * template are recreated from their <tt>SHOW CREATE TABLE</tt> output, which
+ * keeps indexes and foreign keys, and the seed tables are copied with
+ * <tt>INSERT ... SELECT</tt>. All of this runs on the database server without
+ * a round trip per row. The template is migrated at most once per schema
+ * version, so the cloned database is current and the migration of the new
+ * tenant is skipped entirely. Shared tenants only need their
+ * <tt>master_tenant</tt> row, as the shared database is migrated once.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Service
+public class TenantProvisioningServiceImpl
+        implements TenantProvisioningService {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(TenantProvisioningServiceImpl.class);
+
+    /**
+     * Tenant ids are used as database names, so only plain identifiers which
+     * fit the <tt>master_tenant.tenant_id</tt> column are accepted
+     */
+    private static final Pattern TENANT_ID = Pattern
+            .compile("[A-Za-z0-9_]{1,30}");
+
+    private static final Pattern AUTO_INCREMENT = Pattern
+            .compile("\\s*AUTO_INCREMENT=\\d+");
+
+    @Autowired
+    private TenantProvisioningConfigProperties provisioningProperties;
+
+    @Autowired
+    private SharedDatabaseConfigProperties sharedProperties;
+
+    @Autowired
+    private MasterTenantRepository masterTenantRepo;
+
+    @Autowired
+    private TenantSchemaMigrationService tenantSchemaMigrationService;
+
+    @Autowired
+    private TenantSchemaStatus tenantSchemaStatus;
+
+    @Autowired
+    private DataSourceBasedMultiTenantConnectionProviderImpl connectionProvider;
+
+    /**
+     * Schema version of the template database, -1 until it has been checked
+     */
+    private volatile int templateVersion = -1;
+
+    /**
+     * Schema version of the shared database, -1 until it has been checked
+     */
+    private volatile int sharedVersion = -1;
+
+    @Override
+    public TenantProvisioningResult provisionTenant(String tenantId)
+            throws SQLException {
+        checkNewTenantId(tenantId);
+
+        TenantProvisioningResult result = new TenantProvisioningResult(
+                tenantId);
+        long start = System.nanoTime();
+        long phaseStart = start;
+
+        int schemaVersion = ensureTemplateIsCurrent();
+        phaseStart = endPhase(result, "templateCheck", phaseStart);
+
+        String templateUrl = provisioningProperties.getTemplateUrl();
+        String templateDatabase = DataSourceUtil.databaseName(templateUrl);
+        String url = DataSourceUtil.replaceDatabaseName(templateUrl, tenantId);
+        result.setUrl(url);
+
+        boolean databaseCreated = false;
+        MasterTenant masterTenant = null;
+        try {
+            try (Connection connection = openTemplateConnection()) {
+                execute(connection, "create database `" + tenantId + "`");
+                databaseCreated = true;
+                phaseStart = endPhase(result, "createDatabase", phaseStart);
+
+                List<String> tables = findTables(connection,
+                        templateDatabase);
+                cloneTables(connection, templateDatabase, tenantId, tables);
+                phaseStart = endPhase(result, "cloneSchema", phaseStart);
+
+                copySeedTables(connection, templateDatabase, tenantId,
+                        tables);
+                phaseStart = endPhase(result, "copySeedData", phaseStart);
+            }
+
+            masterTenant = new MasterTenant();
+            masterTenant.setTenantId(tenantId);
+            masterTenant.setUrl(url);
+            masterTenant.setUsername(provisioningProperties.getUsername());
+            masterTenant.setPassword(provisioningProperties.getPassword());
+            masterTenant.setSchemaVersion(schemaVersion);
+            masterTenant = masterTenantRepo.save(masterTenant);
+            tenantSchemaStatus.setSchemaVersion(tenantId, schemaVersion);
+            phaseStart = endPhase(result, "registerMasterTenant", phaseStart);
+
+            connectionProvider.registerTenant(masterTenant);
+            endPhase(result, "warmPool", phaseStart);
+        } catch (SQLException | RuntimeException e) {
+            LOG.error("Provisioning failed for tenant:" + tenantId
+                    + ", rolling back", e);
+            rollback(tenantId, databaseCreated, masterTenant);
+            throw e;
+        }
+
+        result.setSchemaVersion(schemaVersion);
+        result.setTotalMillis(
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        LOG.info("Provisioned tenant:" + tenantId + " in "
+                + result.getTotalMillis() + "ms " + result.getPhaseMillis());
+        return result;
+    }
+
+    @Override
+    public TenantProvisioningResult provisionSharedTenant(String tenantId)
+            throws SQLException {
+        checkNewTenantId(tenantId);
+        if (sharedProperties.getUrl() == null) {
+            throw new IllegalStateException("No shared database is configured");
+        }
+
+        TenantProvisioningResult result = new TenantProvisioningResult(
+                tenantId);
+        result.setUrl(sharedProperties.getUrl());
+        long start = System.nanoTime();
+        long phaseStart = start;
+
+        int schemaVersion = ensureSharedDatabaseIsCurrent();
+        phaseStart = endPhase(result, "sharedDatabaseCheck", phaseStart);
+
+        MasterTenant masterTenant = new MasterTenant();
+        masterTenant.setTenantId(tenantId);
+        masterTenant.setUrl(sharedProperties.getUrl());
+        masterTenant.setUsername(sharedProperties.getUsername());
+        masterTenant.setPassword(sharedProperties.getPassword());
+        masterTenant.setShared(true);
+        masterTenant.setSchemaVersion(schemaVersion);
+        masterTenant = masterTenantRepo.save(masterTenant);
+        tenantSchemaStatus.setSchemaVersion(tenantId, schemaVersion);
+        phaseStart = endPhase(result, "registerMasterTenant", phaseStart);
+
+        try {
+            connectionProvider.registerTenant(masterTenant);
+        } catch (RuntimeException e) {
+            LOG.error("Provisioning failed for shared tenant:" + tenantId
+                    + ", rolling back", e);
+            rollback(tenantId, false, masterTenant);
+            throw e;
+        }
+        endPhase(result, "warmPool", phaseStart);
+
+        result.setSchemaVersion(schemaVersion);
+        result.setTotalMillis(
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        LOG.info("Provisioned shared tenant:" + tenantId + " in "
+                + result.getTotalMillis() + "ms " + result.getPhaseMillis());
+        return result;
+    }
+
+    private void checkNewTenantId(String tenantId) {
+        if (tenantId == null || !TENANT_ID.matcher(tenantId).matches()) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid tenant id, tenant=%s", tenantId));
+        }
+        if (masterTenantRepo.findByTenantId(tenantId) != null) {
+            throw new IllegalStateException(
+                    String.format("Tenant already exists, tenant=%s",
+                            tenantId));
+        }
+    }
+
+    /**
+     * Migrates the shared database when this build ships a newer schema
+     * version than the one last seen on it
+     * 
+     * @return the schema version of the shared database
+     * @throws SQLException
+     */
+    private synchronized int ensureSharedDatabaseIsCurrent()
+            throws SQLException {
+        if (sharedVersion < tenantSchemaMigrationService.getLatestVersion()) {
+            sharedVersion = tenantSchemaMigrationService.migrateDatabase(
+                    sharedProperties.getUrl(), sharedProperties.getUsername(),
+                    sharedProperties.getPassword(), "shared");
+        }
+        return sharedVersion;
+    }
+
+    /**
+     * Migrates the template when this build ships a newer schema version than
+     * the one last seen on it
+     * 
+     * @return the schema version of the template
+     * @throws SQLException
+     */
+    private synchronized int ensureTemplateIsCurrent() throws SQLException {
+        if (templateVersion < tenantSchemaMigrationService
+                .getLatestVersion()) {
+            templateVersion = tenantSchemaMigrationService.migrateDatabase(
+                    provisioningProperties.getTemplateUrl(),
+                    provisioningProperties.getUsername(),
+                    provisioningProperties.getPassword(), "template");
+        }
+        return templateVersion;
+    }
+
+    private List<String> findTables(Connection connection, String database)
+            throws SQLException {
+        List<String> tables = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "select table_name from information_schema.tables "
+                        + "where table_schema = ? and table_type = 'BASE TABLE'")) {
+            statement.setString(1, database);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    tables.add(rs.getString(1));
+                }
+            }
+        }
+        return tables;
+    }
+
+    private void cloneTables(Connection connection, String templateDatabase,
+            String tenantDatabase, List<String> tables) throws SQLException {
+        // Tables are created in any order, so foreign keys are only checked
+        // once all of them exist
+        connection.setCatalog(tenantDatabase);
+        execute(connection, "set foreign_key_checks = 0");
+        try (Statement statement = connection.createStatement()) {
+            for (String table : tables) {
+                String ddl;
+                try (ResultSet rs = statement.executeQuery("show create table `"
+                        + templateDatabase + "`.`" + table + "`")) {
+                    rs.next();
+                    ddl = rs.getString(2);
+                }
+                statement.execute(AUTO_INCREMENT.matcher(ddl).replaceAll(""));
+            }
+        } finally {
+            execute(connection, "set foreign_key_checks = 1");
+            connection.setCatalog(templateDatabase);
+        }
+    }
+
+    private void copySeedTables(Connection connection,
+            String templateDatabase, String tenantDatabase,
+            List<String> tables) throws SQLException {
+        for (String table : provisioningProperties.getSeedTables()) {
+            if (!tables.contains(table)) {
+                continue;
+            }
+            execute(connection, "insert into `" + tenantDatabase + "`.`"
+                    + table + "` select * from `" + templateDatabase + "`.`"
+                    + table + "`");
+        }
+    }
+
+    /**
+     * Best effort removal of everything created for a failed tenant
+     */
+    private void rollback(String tenantId, boolean databaseCreated,
+            MasterTenant masterTenant) {
+        if (masterTenant != null && masterTenant.getId() != null) {
+            try {
+                masterTenantRepo.delete(masterTenant);
+                tenantSchemaStatus.remove(tenantId);
+            } catch (RuntimeException e) {
+                LOG.error("Could not remove master_tenant row of tenant:"
+                        + tenantId, e);
+            }
+            // The tenant is new, so any pool of it was created by the
+            // registration or by a request which found the saved row. It is
+            // evicted once the row is gone, so a rescan cannot bring it back.
+            try {
+                connectionProvider.evictTenant(tenantId, 0);
+            } catch (RuntimeException e) {
+                LOG.error("Could not evict the pool of tenant:" + tenantId,
+                        e);
+            }
+        }
+        if (databaseCreated) {
+            try (Connection connection = openTemplateConnection()) {
+                execute(connection,
+                        "drop database if exists `" + tenantId + "`");
+            } catch (SQLException e) {
+                LOG.error("Could not drop database of tenant:" + tenantId, e);
+            }
+        }
+    }
+
+    private Connection openTemplateConnection() throws SQLException {
+        return DriverManager.getConnection(
+                provisioningProperties.getTemplateUrl(),
+                provisioningProperties.getUsername(),
+                provisioningProperties.getPassword());
+    }
+
+    private static void execute(Connection connection, String sql)
+            throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static long endPhase(TenantProvisioningResult result, String phase,
+            long phaseStart) {
+        long now = System.nanoTime();
+        result.addPhase(phase, TimeUnit.NANOSECONDS.toMillis(now - phaseStart));
+        return now;
+    }
+}
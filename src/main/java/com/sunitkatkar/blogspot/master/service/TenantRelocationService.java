@@ -0,0 +1,63 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.master.service;
+
+import java.sql.SQLException;
+
+import com.sunitkatkar.blogspot.master.model.TenantRelocationResult;
+
+/**
+ * Service definition for moving a tenant database to another database server
+ * while the application keeps running. Only the relocated tenant notices the
+ * move, as a short pause of its requests while its pool is switched.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+public interface TenantRelocationService {
+
+    /**
+     * Copies the tenant database to the target, catches up with the changes
+     * made meanwhile, freezes the tenant for the final catch-up and switches
+     * its pool to the target. The source database is left in place.
+     * 
+     * @param tenantId
+     * @param targetUrl
+     *            JDBC url of the new tenant database, which must not exist or
+     *            be empty
+     * @return the relocated tenant with the duration of every phase
+     * @throws IllegalArgumentException
+     *             if the tenant or the target url is invalid
+     * @throws IllegalStateException
+     *             if the tenant is not active, is in a shared database or on
+     *             its standby database, is already being relocated, the target database is not empty,
+     *             the target server does not accept the credentials of the
+     *             tenant or the tenant could not be frozen in time
+     * @throws SQLException
+     *             if copying the database failed
+     */
+    TenantRelocationResult relocateTenant(String tenantId, String targetUrl)
+            throws SQLException;
+
+    /**
+     * Switches the pools of this node to the databases in the
+     * <tt>master_tenant</tt> table, so that tenants relocated by another node
+     * move here as well
+     */
+    void followRelocations();
+}
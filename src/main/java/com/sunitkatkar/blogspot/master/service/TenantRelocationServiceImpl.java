@@ -0,0 +1,928 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.master.service;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.sunitkatkar.blogspot.master.config.TenantRelocationConfigProperties;
+import com.sunitkatkar.blogspot.master.model.MasterTenant;
+import com.sunitkatkar.blogspot.master.model.TenantRelocationResult;
+import com.sunitkatkar.blogspot.master.model.TenantStatus;
+import com.sunitkatkar.blogspot.master.repository.MasterTenantRepository;
+import com.sunitkatkar.blogspot.tenant.config.DataSourceBasedMultiTenantConnectionProviderImpl;
+import com.sunitkatkar.blogspot.util.DataSourceUtil;
+import com.sunitkatkar.blogspot.util.JobExecutor;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+/**
+ * Implementation of the {@link TenantRelocationService}.
+ * 
+ * <br/>
+ * <br/>
+ * The tables are created on the target from their <tt>SHOW CREATE TABLE</tt>
+ * output and their rows are streamed over in batches while the tenant keeps
+ * working on the source. The changes made meanwhile are captured without
+ * binary logs: before the copy starts, every table gets a change log table on
+ * the source, filled by triggers with the primary key of every inserted,
+ * updated or deleted row. A catch-up round copies the logged rows again and
+ * removes their log entries, unless the row changed once more in the
+ * meantime. So a round costs as much as the number of changed rows, not the
+ * size of the database. For a table without a primary key the log only
+ * records that it changed, and the whole table is copied again. The tenant
+ * user needs the <tt>TRIGGER</tt> privilege on its database, and with binary
+ * logging enabled <tt>log_bin_trust_function_creators</tt> has to be set.
+ * Changes made by cascading foreign key actions do not fire triggers, the
+ * tenant schema has none.
+ * 
+ * <br/>
+ * <br/>
+ * Once a catch-up round finds no changes, or after
+ * <tt>maxCatchUpRounds</tt>, the tenant is frozen: its new connection
+ * requests wait in the connection provider, and the connections in use are
+ * given up to <tt>freezeTimeout</tt> to be returned. The freeze only holds on
+ * this node, so the source is then fenced for all nodes: every table gets
+ * triggers which reject any write. Creating a trigger waits for the
+ * transactions in flight on its table, whichever node runs them, for at most
+ * <tt>freezeTimeout</tt>. A final catch-up round then copies the rows changed
+ * since the last round, the
+ * <tt>master_tenant</tt> row is pointed at the target, and the pool of the
+ * tenant is swapped in one step before the waiting requests are let through.
+ * The old pool is closed afterwards and the triggers and change logs are
+ * dropped from the source. The tenant keeps its database user, which is
+ * created on the target server if it does not exist there yet, so the
+ * relocation credentials are only used for copying. Other tenants are not
+ * affected at any time. The source database is left in place, fenced, to be
+ * dropped once the move is confirmed. Other application nodes switch their
+ * pool within <tt>followInterval</tt>, until then their writes fail rather
+ * than being lost on the source.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Service
+public class TenantRelocationServiceImpl implements TenantRelocationService {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(TenantRelocationServiceImpl.class);
+
+    private static final Pattern DATABASE_NAME = Pattern
+            .compile("[A-Za-z0-9_]{1,64}");
+
+    private static final Pattern AUTO_INCREMENT = Pattern
+            .compile("\\s*AUTO_INCREMENT=\\d+");
+
+    private static final long DRAIN_POLL_MILLIS = 20;
+
+    /**
+     * Prefix of the change log tables and triggers created on the source
+     */
+    private static final String CAPTURE_PREFIX = "_reloc_";
+
+    /**
+     * Version column of the change log tables, bumped on every change of a
+     * row which is already logged
+     */
+    private static final String LOG_VERSION = "_reloc_version";
+
+    /**
+     * Key column of the change log of a table without a primary key
+     */
+    private static final String LOG_DIRTY = "_reloc_dirty";
+
+    /**
+     * Prefix of the triggers which reject writes to a relocated source
+     */
+    private static final String FENCE_PREFIX = "_relocated_";
+
+    @Autowired
+    private TenantRelocationConfigProperties relocationProperties;
+
+    @Autowired
+    private MasterTenantRepository masterTenantRepo;
+
+    @Autowired
+    private DataSourceBasedMultiTenantConnectionProviderImpl connectionProvider;
+
+    /**
+     * Tenants being relocated on this node
+     */
+    private final Set<String> relocating = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Runs the scheduled relocation follow on its own thread
+     */
+    private final JobExecutor followJob = new JobExecutor(
+            "tenant-relocation-follow");
+
+    @Override
+    public TenantRelocationResult relocateTenant(String tenantId,
+            String targetUrl) throws SQLException {
+        MasterTenant masterTenant = masterTenantRepo.findByTenantId(tenantId);
+        if (masterTenant == null) {
+            throw new IllegalArgumentException(
+                    String.format("Unknown tenant, tenant=%s", tenantId));
+        }
+        if (masterTenant.getStatus() != TenantStatus.ACTIVE) {
+            throw new IllegalStateException(
+                    String.format("Tenant is %s, tenant=%s",
+                            masterTenant.getStatus(), tenantId));
+        }
+        if (masterTenant.isShared()) {
+            throw new IllegalStateException(String.format(
+                    "Tenant is in a shared database, tenant=%s", tenantId));
+        }
+        if (masterTenant.isOnStandby()) {
+            throw new IllegalStateException(String.format(
+                    "Tenant is on its standby database, tenant=%s", tenantId));
+        }
+        if (targetUrl == null || targetUrl.equals(masterTenant.getUrl())) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid target url, targetUrl=%s", targetUrl));
+        }
+        String targetDatabase = DataSourceUtil.databaseName(targetUrl);
+        if (!DATABASE_NAME.matcher(targetDatabase).matches()) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid target database name, database=%s",
+                    targetDatabase));
+        }
+        if (!relocating.add(tenantId)) {
+            throw new IllegalStateException(String.format(
+                    "Tenant is already being relocated, tenant=%s",
+                    tenantId));
+        }
+        try {
+            return relocate(masterTenant, targetUrl, targetDatabase);
+        } finally {
+            relocating.remove(tenantId);
+        }
+    }
+
+    private TenantRelocationResult relocate(MasterTenant masterTenant,
+            String targetUrl, String targetDatabase) throws SQLException {
+        String tenantId = masterTenant.getTenantId();
+        TenantRelocationResult result = new TenantRelocationResult(tenantId);
+        result.setSourceUrl(masterTenant.getUrl());
+        result.setTargetUrl(targetUrl);
+        long start = System.nanoTime();
+        long phaseStart = start;
+        LOG.info("Relocating tenant:" + tenantId + " from "
+                + masterTenant.getUrl() + " to " + targetUrl);
+
+        boolean databaseCreated = false;
+        DataSource previous;
+        try (Connection source = DriverManager.getConnection(
+                masterTenant.getUrl(), masterTenant.getUsername(),
+                masterTenant.getPassword())) {
+            List<TableInfo> tables = findTables(source,
+                    DataSourceUtil.databaseName(masterTenant.getUrl()));
+            databaseCreated = createDatabase(targetUrl, targetDatabase);
+            grantTenantUser(masterTenant, targetUrl, targetDatabase);
+            try (Connection target = openTarget(targetUrl)) {
+                // Tables and rows are copied in any order, foreign keys hold
+                // again once everything is copied
+                execute(target, "set foreign_key_checks = 0");
+                cloneTables(source, target, tables);
+                phaseStart = endPhase(result, "cloneSchema", phaseStart);
+
+                // Changes are logged from before the first row is read, so
+                // none made during the copy is missed
+                try {
+                    captureChanges(source, tables);
+                    phaseStart = endPhase(result, "captureChanges",
+                            phaseStart);
+
+                    for (TableInfo table : tables) {
+                        result.addRowsCopied(
+                                copyRows(source, target, table, null));
+                    }
+                    phaseStart = endPhase(result, "copy", phaseStart);
+
+                    int rounds = 0;
+                    int changed;
+                    do {
+                        changed = catchUp(source, target, tables);
+                        result.addRowsRecopied(changed);
+                        rounds++;
+                    } while (changed > 0 && rounds < relocationProperties
+                            .getMaxCatchUpRounds());
+                    phaseStart = endPhase(result, "catchUp", phaseStart);
+
+                    if (!connectionProvider.freezeTenant(tenantId,
+                            relocationProperties.getFreezeTimeout())) {
+                        throw new IllegalStateException(String.format(
+                                "Tenant is already frozen, tenant=%s",
+                                tenantId));
+                    }
+                    long freezeStart = System.nanoTime();
+                    boolean fenced = false;
+                    try {
+                        drain(tenantId, freezeStart);
+                        phaseStart = endPhase(result, "freezeAndDrain",
+                                phaseStart);
+
+                        fenced = true;
+                        fenceWrites(source, tables);
+                        phaseStart = endPhase(result, "fence", phaseStart);
+
+                        result.addRowsRecopied(
+                                catchUp(source, target, tables));
+                        rounds++;
+                        phaseStart = endPhase(result, "finalCatchUp",
+                                phaseStart);
+
+                        previous = switchTenant(masterTenant, targetUrl);
+                        phaseStart = endPhase(result, "switch", phaseStart);
+                        fenced = false;
+                    } finally {
+                        if (fenced) {
+                            // The tenant stays on the source
+                            dropFence(source, tables);
+                        }
+                        connectionProvider.unfreezeTenant(tenantId);
+                        result.setFreezeMillis(TimeUnit.NANOSECONDS
+                                .toMillis(System.nanoTime() - freezeStart));
+                    }
+                    result.setCatchUpRounds(rounds);
+                } finally {
+                    stopCapture(source, tables);
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            LOG.error("Relocation failed for tenant:" + tenantId
+                    + ", it stays on " + masterTenant.getUrl(), e);
+            if (databaseCreated) {
+                dropDatabase(targetUrl, targetDatabase);
+            }
+            throw e;
+        }
+
+        closeOldPool(previous);
+        endPhase(result, "drainOldPool", phaseStart);
+
+        result.setTotalMillis(
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        LOG.info("Relocated tenant:" + tenantId + " in "
+                + result.getTotalMillis() + "ms, frozen for "
+                + result.getFreezeMillis() + "ms " + result.getPhaseMillis());
+        return result;
+    }
+
+    /**
+     * Waits for the connections of the frozen tenant to be returned
+     */
+    private void drain(String tenantId, long freezeStart) {
+        long deadline = freezeStart + TimeUnit.MILLISECONDS
+                .toNanos(relocationProperties.getFreezeTimeout());
+        while (connectionProvider.getActiveConnections(tenantId) > 0) {
+            if (System.nanoTime() >= deadline) {
+                throw new IllegalStateException(String.format(
+                        "Tenant connections were not returned within %sms, tenant=%s",
+                        relocationProperties.getFreezeTimeout(), tenantId));
+            }
+            try {
+                Thread.sleep(DRAIN_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(String.format(
+                        "Interrupted while draining tenant=%s", tenantId));
+            }
+        }
+    }
+
+    /**
+     * Points the master_tenant row and the pool of the tenant at the target
+     * database, restoring the row if the new pool cannot be started. The
+     * tenant keeps its own credentials.
+     * 
+     * @return the previous data source of the tenant
+     */
+    private DataSource switchTenant(MasterTenant masterTenant,
+            String targetUrl) throws SQLException {
+        String url = masterTenant.getUrl();
+        masterTenant.setUrl(targetUrl);
+        MasterTenant saved = masterTenantRepo.save(masterTenant);
+        try {
+            return connectionProvider.swapDataSource(saved);
+        } catch (SQLException | RuntimeException e) {
+            saved.setUrl(url);
+            masterTenantRepo.save(saved);
+            throw e;
+        }
+    }
+
+    /**
+     * Creates the database user of the tenant on the target server if it does
+     * not exist yet and grants it the target database, then checks that the
+     * tenant credentials are accepted there. An existing user keeps its
+     * password, so the check fails if it differs from the one of the tenant.
+     */
+    private void grantTenantUser(MasterTenant masterTenant, String targetUrl,
+            String targetDatabase) throws SQLException {
+        String password = StringUtils.defaultString(masterTenant.getPassword());
+        try (Connection server = openTarget(
+                DataSourceUtil.replaceDatabaseName(targetUrl, ""))) {
+            // Connector/J fills in the parameters on the client, as MySQL
+            // cannot prepare account management statements
+            try (PreparedStatement statement = server.prepareStatement(
+                    "create user if not exists ?@'%' identified by ?")) {
+                statement.setString(1, masterTenant.getUsername());
+                statement.setString(2, password);
+                statement.execute();
+            }
+            try (PreparedStatement statement = server.prepareStatement(
+                    "grant all privileges on `" + targetDatabase
+                            + "`.* to ?@'%'")) {
+                statement.setString(1, masterTenant.getUsername());
+                statement.execute();
+            }
+        }
+        try (Connection connection = DriverManager.getConnection(targetUrl,
+                masterTenant.getUsername(), password)) {
+            LOG.info("Tenant user of tenant:" + masterTenant.getTenantId()
+                    + " can connect to " + targetUrl);
+        } catch (SQLException e) {
+            throw new IllegalStateException(String.format(
+                    "Tenant credentials are not accepted by the target database, tenant=%s",
+                    masterTenant.getTenantId()), e);
+        }
+    }
+
+    /**
+     * Starts {@link #followRelocations()} on its own thread, as replacing the
+     * pool of a relocated tenant waits for its borrowed connections
+     */
+    @Scheduled(initialDelayString = "${multitenancy.mtapp.relocation.followInterval:10000}", fixedDelayString = "${multitenancy.mtapp.relocation.followInterval:10000}")
+    public void scheduleFollowRelocations() {
+        followJob.submit(this::followRelocations);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        followJob.shutdown();
+    }
+
+    @Override
+    public void followRelocations() {
+        connectionProvider.followMasterTenants(
+                relocationProperties.getFollowDrainTimeout());
+    }
+
+    /**
+     * Adds triggers to every table of the source which reject inserts,
+     * updates and deletes from any connection. Creating a trigger needs an
+     * exclusive metadata lock, so it waits for the open transactions which
+     * used the table, on every node, for at most <tt>freezeTimeout</tt>.
+     */
+    private void fenceWrites(Connection source, List<TableInfo> tables)
+            throws SQLException {
+        execute(source, "set session lock_wait_timeout = " + Math.max(1,
+                TimeUnit.MILLISECONDS.toSeconds(
+                        relocationProperties.getFreezeTimeout())));
+        for (TableInfo table : tables) {
+            for (String event : new String[] { "insert", "update",
+                    "delete" }) {
+                execute(source, "create trigger `" + table.fenceName(event)
+                        + "` before " + event + " on `" + table.name
+                        + "` for each row signal sqlstate '45000' set message_text = "
+                        + "'Tenant database has been relocated, writes are rejected'");
+            }
+        }
+    }
+
+    private void dropFence(Connection source, List<TableInfo> tables) {
+        for (TableInfo table : tables) {
+            try {
+                for (String event : new String[] { "insert", "update",
+                        "delete" }) {
+                    execute(source, "drop trigger if exists `"
+                            + table.fenceName(event) + "`");
+                }
+            } catch (SQLException e) {
+                LOG.error("Could not drop the write fence of table:"
+                        + table.name + " from the source", e);
+            }
+        }
+    }
+
+    private void closeOldPool(DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource) {
+            HikariDataSource hikariDataSource = (HikariDataSource) dataSource;
+            HikariPoolMXBean pool = hikariDataSource.getHikariPoolMXBean();
+            if (pool != null) {
+                pool.softEvictConnections();
+            }
+            hikariDataSource.close();
+        }
+    }
+
+    private List<TableInfo> findTables(Connection connection, String database)
+            throws SQLException {
+        List<TableInfo> tables = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "select table_name from information_schema.tables "
+                        + "where table_schema = ? and table_type = 'BASE TABLE' "
+                        + "and table_name not like '\\_reloc\\_%'")) {
+            statement.setString(1, database);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    tables.add(new TableInfo(rs.getString(1), tables.size()));
+                }
+            }
+        }
+        for (TableInfo table : tables) {
+            table.columns = findColumns(connection,
+                    "select column_name from information_schema.columns "
+                            + "where table_schema = ? and table_name = ? order by ordinal_position",
+                    database, table.name);
+            table.keyColumns = findColumns(connection,
+                    "select column_name from information_schema.key_column_usage "
+                            + "where table_schema = ? and table_name = ? and constraint_name = 'PRIMARY' "
+                            + "order by ordinal_position",
+                    database, table.name);
+            table.keyTypes = findColumns(connection,
+                    "select c.column_type from information_schema.key_column_usage k "
+                            + "join information_schema.columns c on c.table_schema = k.table_schema "
+                            + "and c.table_name = k.table_name and c.column_name = k.column_name "
+                            + "where k.table_schema = ? and k.table_name = ? and k.constraint_name = 'PRIMARY' "
+                            + "order by k.ordinal_position",
+                    database, table.name);
+        }
+        return tables;
+    }
+
+    private List<String> findColumns(Connection connection, String sql,
+            String database, String table) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, database);
+            statement.setString(2, table);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    columns.add(rs.getString(1));
+                }
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * @return whether the database was created, false if it existed empty
+     */
+    private boolean createDatabase(String targetUrl, String targetDatabase)
+            throws SQLException {
+        try (Connection server = openTarget(
+                DataSourceUtil.replaceDatabaseName(targetUrl, ""))) {
+            try (PreparedStatement statement = server.prepareStatement(
+                    "select count(*) from information_schema.tables where table_schema = ?")) {
+                statement.setString(1, targetDatabase);
+                try (ResultSet rs = statement.executeQuery()) {
+                    rs.next();
+                    if (rs.getInt(1) > 0) {
+                        throw new IllegalStateException(String.format(
+                                "Target database is not empty, database=%s",
+                                targetDatabase));
+                    }
+                }
+            }
+            try (PreparedStatement statement = server.prepareStatement(
+                    "select count(*) from information_schema.schemata where schema_name = ?")) {
+                statement.setString(1, targetDatabase);
+                try (ResultSet rs = statement.executeQuery()) {
+                    rs.next();
+                    if (rs.getInt(1) > 0) {
+                        return false;
+                    }
+                }
+            }
+            execute(server, "create database `" + targetDatabase + "`");
+            return true;
+        }
+    }
+
+    private void dropDatabase(String targetUrl, String targetDatabase) {
+        try (Connection server = openTarget(
+                DataSourceUtil.replaceDatabaseName(targetUrl, ""))) {
+            execute(server,
+                    "drop database if exists `" + targetDatabase + "`");
+        } catch (SQLException e) {
+            LOG.error("Could not drop target database:" + targetDatabase, e);
+        }
+    }
+
+    private void cloneTables(Connection source, Connection target,
+            List<TableInfo> tables) throws SQLException {
+        try (Statement read = source.createStatement();
+                Statement write = target.createStatement()) {
+            for (TableInfo table : tables) {
+                String ddl;
+                try (ResultSet rs = read.executeQuery(
+                        "show create table `" + table.name + "`")) {
+                    rs.next();
+                    ddl = rs.getString(2);
+                }
+                write.execute(AUTO_INCREMENT.matcher(ddl).replaceAll(""));
+            }
+        }
+    }
+
+    /**
+     * Streams the rows of the table, or of one chunk of it, from the source
+     * into the target
+     * 
+     * @return the number of rows copied
+     */
+    private long copyRows(Connection source, Connection target,
+            TableInfo table, Chunk chunk) throws SQLException {
+        StringBuilder insert = new StringBuilder("insert into `")
+                .append(table.name).append("` (").append(table.columnList())
+                .append(") values (");
+        for (int i = 0; i < table.columns.size(); i++) {
+            insert.append(i == 0 ? "?" : ", ?");
+        }
+        insert.append(")");
+        long rows = 0;
+        target.setAutoCommit(false);
+        try (PreparedStatement read = source.prepareStatement(
+                "select " + table.columnList() + " from `" + table.name
+                        + "`" + (chunk == null ? "" : chunk.where()),
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                PreparedStatement write = target
+                        .prepareStatement(insert.toString())) {
+            // Streams the rows instead of reading the whole table into memory
+            read.setFetchSize(Integer.MIN_VALUE);
+            if (chunk != null) {
+                chunk.bind(read);
+            }
+            try (ResultSet rs = read.executeQuery()) {
+                int pending = 0;
+                while (rs.next()) {
+                    for (int i = 1; i <= table.columns.size(); i++) {
+                        write.setObject(i, rs.getObject(i));
+                    }
+                    write.addBatch();
+                    rows++;
+                    if (++pending == relocationProperties.getBatchSize()) {
+                        write.executeBatch();
+                        target.commit();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    write.executeBatch();
+                    target.commit();
+                }
+            }
+        } finally {
+            target.setAutoCommit(true);
+        }
+        return rows;
+    }
+
+    /**
+     * Creates a change log table and the triggers which fill it for every
+     * table on the source. Left overs of an earlier relocation which did not
+     * clean up are dropped first.
+     */
+    private void captureChanges(Connection source, List<TableInfo> tables)
+            throws SQLException {
+        stopCapture(source, tables);
+        dropFence(source, tables);
+        for (TableInfo table : tables) {
+            StringBuilder ddl = new StringBuilder("create table `")
+                    .append(table.logName()).append("` (");
+            if (table.keyColumns.isEmpty()) {
+                ddl.append("`").append(LOG_DIRTY).append("` tinyint not null, ");
+            }
+            for (int i = 0; i < table.keyColumns.size(); i++) {
+                ddl.append("`").append(table.keyColumns.get(i)).append("` ")
+                        .append(table.keyTypes.get(i)).append(" not null, ");
+            }
+            ddl.append("`").append(LOG_VERSION)
+                    .append("` bigint not null default 1, primary key (")
+                    .append(table.logKeyList()).append(")) engine=InnoDB");
+            execute(source, ddl.toString());
+            execute(source, "create trigger `" + table.triggerName("i")
+                    + "` after insert on `" + table.name + "` for each row "
+                    + table.logInsert("NEW"));
+            execute(source, "create trigger `" + table.triggerName("u")
+                    + "` after update on `" + table.name + "` for each row "
+                    + "begin " + table.logInsert("OLD") + "; "
+                    + table.logInsert("NEW") + "; end");
+            execute(source, "create trigger `" + table.triggerName("d")
+                    + "` after delete on `" + table.name + "` for each row "
+                    + table.logInsert("OLD"));
+        }
+    }
+
+    /**
+     * Drops the triggers and change log tables from the source. Failures are
+     * only logged, the relocation itself is done or already failed.
+     */
+    private void stopCapture(Connection source, List<TableInfo> tables) {
+        for (TableInfo table : tables) {
+            try {
+                for (String event : new String[] { "i", "u", "d" }) {
+                    execute(source, "drop trigger if exists `"
+                            + table.triggerName(event) + "`");
+                }
+                execute(source,
+                        "drop table if exists `" + table.logName() + "`");
+            } catch (SQLException e) {
+                LOG.error("Could not drop the change log of table:"
+                        + table.name + " from the source", e);
+            }
+        }
+    }
+
+    /**
+     * Copies the rows recorded in the change logs again and removes their
+     * entries. An entry whose row changed again while it was copied has a
+     * new version by then, so it stays for the next round. Entries are read
+     * in pages of <tt>catchUpBatchSize</tt> in key order, so every entry is
+     * looked at once per round.
+     * 
+     * @return the number of rows copied again, a table without a primary key
+     *         counts as one
+     */
+    private int catchUp(Connection source, Connection target,
+            List<TableInfo> tables) throws SQLException {
+        int changed = 0;
+        for (TableInfo table : tables) {
+            List<String> logKey = table.logKeyColumns();
+            String keyList = TableInfo.quote(logKey);
+            Object[] after = null;
+            while (true) {
+                List<Object[]> entries = new ArrayList<>();
+                try (PreparedStatement read = source.prepareStatement("select "
+                        + keyList + ", `" + LOG_VERSION + "` from `"
+                        + table.logName() + "`"
+                        + (after == null ? ""
+                                : " where (" + keyList + ") > "
+                                        + placeholders(logKey.size()))
+                        + " order by " + keyList + " limit "
+                        + relocationProperties.getCatchUpBatchSize())) {
+                    bind(read, 1, after);
+                    try (ResultSet rs = read.executeQuery()) {
+                        while (rs.next()) {
+                            Object[] entry = new Object[logKey.size() + 1];
+                            for (int i = 0; i < entry.length; i++) {
+                                entry[i] = rs.getObject(i + 1);
+                            }
+                            entries.add(entry);
+                        }
+                    }
+                }
+                for (Object[] entry : entries) {
+                    Object[] key = Arrays.copyOf(entry, logKey.size());
+                    Chunk chunk = table.keyColumns.isEmpty()
+                            ? new Chunk(table, null, null)
+                            : Chunk.row(table, key);
+                    try (PreparedStatement delete = target.prepareStatement(
+                            "delete from `" + table.name + "`"
+                                    + chunk.where())) {
+                        chunk.bind(delete);
+                        delete.executeUpdate();
+                    }
+                    copyRows(source, target, table, chunk);
+                    try (PreparedStatement consume = source.prepareStatement(
+                            "delete from `" + table.logName() + "` where ("
+                                    + keyList + ") = "
+                                    + placeholders(logKey.size()) + " and `"
+                                    + LOG_VERSION + "` = ?")) {
+                        bind(consume, 1, entry);
+                        consume.executeUpdate();
+                    }
+                    changed++;
+                }
+                if (entries.size() < relocationProperties
+                        .getCatchUpBatchSize()) {
+                    break;
+                }
+                after = Arrays.copyOf(entries.get(entries.size() - 1),
+                        logKey.size());
+            }
+        }
+        return changed;
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder values = new StringBuilder("(");
+        for (int i = 0; i < count; i++) {
+            values.append(i == 0 ? "?" : ", ?");
+        }
+        return values.append(")").toString();
+    }
+
+    private static int bind(PreparedStatement statement, int index,
+            Object[] values) throws SQLException {
+        if (values != null) {
+            for (Object value : values) {
+                statement.setObject(index++, value);
+            }
+        }
+        return index;
+    }
+
+    private Connection openTarget(String url) throws SQLException {
+        return DriverManager.getConnection(url,
+                relocationProperties.getUsername(),
+                relocationProperties.getPassword());
+    }
+
+    private static void execute(Connection connection, String sql)
+            throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static long endPhase(TenantRelocationResult result, String phase,
+            long phaseStart) {
+        long now = System.nanoTime();
+        result.addPhase(phase, TimeUnit.NANOSECONDS.toMillis(now - phaseStart));
+        return now;
+    }
+
+    /**
+     * Columns and primary key of one tenant table
+     */
+    private static class TableInfo {
+
+        private final String name;
+
+        /**
+         * Position of the table, which names its change log and triggers as
+         * table names may be too long for a prefix
+         */
+        private final int index;
+
+        private List<String> columns;
+
+        private List<String> keyColumns;
+
+        /**
+         * Column types of the primary key, e.g. <tt>int(11)</tt>
+         */
+        private List<String> keyTypes;
+
+        TableInfo(String name, int index) {
+            this.name = name;
+            this.index = index;
+        }
+
+        String columnList() {
+            return quote(columns);
+        }
+
+        String logName() {
+            return CAPTURE_PREFIX + "log_" + index;
+        }
+
+        String triggerName(String event) {
+            return CAPTURE_PREFIX + index + "_" + event;
+        }
+
+        String fenceName(String event) {
+            return FENCE_PREFIX + index + "_" + event;
+        }
+
+        /**
+         * @return the key columns of the change log
+         */
+        List<String> logKeyColumns() {
+            return keyColumns.isEmpty() ? Collections.singletonList(LOG_DIRTY)
+                    : keyColumns;
+        }
+
+        String logKeyList() {
+            return quote(logKeyColumns());
+        }
+
+        /**
+         * @param row
+         *            <tt>NEW</tt> or <tt>OLD</tt>
+         * @return the statement which logs the key of the row
+         */
+        String logInsert(String row) {
+            StringBuilder values = new StringBuilder();
+            if (keyColumns.isEmpty()) {
+                values.append("1");
+            }
+            for (String column : keyColumns) {
+                values.append(values.length() == 0 ? "" : ", ").append(row)
+                        .append(".`").append(column).append("`");
+            }
+            return "insert into `" + logName() + "` (" + logKeyList()
+                    + ") values (" + values + ") on duplicate key update `"
+                    + LOG_VERSION + "` = `" + LOG_VERSION + "` + 1";
+        }
+
+        static String quote(List<String> columns) {
+            StringBuilder list = new StringBuilder();
+            for (String column : columns) {
+                list.append(list.length() == 0 ? "`" : ", `").append(column)
+                        .append("`");
+            }
+            return list.toString();
+        }
+    }
+
+    /**
+     * Range of primary keys, lower bound exclusive and upper bound inclusive,
+     * or a single primary key. A missing bound is open.
+     */
+    private static class Chunk {
+
+        private final TableInfo table;
+
+        private final Object[] lower;
+
+        private final Object[] upper;
+
+        private final boolean single;
+
+        Chunk(TableInfo table, Object[] lower, Object[] upper) {
+            this(table, lower, upper, false);
+        }
+
+        private Chunk(TableInfo table, Object[] lower, Object[] upper,
+                boolean single) {
+            this.table = table;
+            this.lower = lower;
+            this.upper = upper;
+            this.single = single;
+        }
+
+        /**
+         * @return the chunk holding only the row with the given primary key
+         */
+        static Chunk row(TableInfo table, Object[] key) {
+            return new Chunk(table, null, key, true);
+        }
+
+        String where() {
+            if (lower == null && upper == null) {
+                return "";
+            }
+            String key = "(" + TableInfo.quote(table.keyColumns) + ")";
+            String values = placeholders(table.keyColumns.size());
+            if (single) {
+                return " where " + key + " = " + values;
+            }
+            StringBuilder where = new StringBuilder(" where ");
+            if (lower != null) {
+                where.append(key).append(" > ").append(values);
+            }
+            if (upper != null) {
+                where.append(lower != null ? " and " : "").append(key)
+                        .append(" <= ").append(values);
+            }
+            return where.toString();
+        }
+
+        void bind(PreparedStatement statement) throws SQLException {
+            TenantRelocationServiceImpl.bind(statement,
+                    TenantRelocationServiceImpl.bind(statement, 1, lower),
+                    upper);
+        }
+    }
+}
@@ -24,7 +24,9 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import com.sunitkatkar.blogspot.util.Span;
 import com.sunitkatkar.blogspot.util.TenantContextHolder;
+import com.sunitkatkar.blogspot.util.Tracer;
 
 /**
  * This is the filter which is called first when the user submits the login
@@ -36,7 +38,7 @@ import com.sunitkatkar.blogspot.util.TenantContextHolder;
  * @author Sunit Katkar
  * @version 1.0
  * @since 1.0 (May 2018)
- *
+ * 
  */
 public class CustomAuthenticationFilter
         extends UsernamePasswordAuthenticationFilter {
@@ -67,7 +69,10 @@ public class CustomAuthenticationFilter
 
         setDetails(request, authRequest);
 
-        return this.getAuthenticationManager().authenticate(authRequest);
+        try (Span span = Tracer.startSpan("authenticate")) {
+            span.tag("tenant", tenant);
+            return this.getAuthenticationManager().authenticate(authRequest);
+        }
     }
 
     /**
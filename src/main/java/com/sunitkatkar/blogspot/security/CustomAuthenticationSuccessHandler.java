@@ -0,0 +1,60 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.security;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.authentication.SimpleUrlAuthenticationSuccessHandler;
+
+import com.sunitkatkar.blogspot.master.service.MasterTenantStatsService;
+import com.sunitkatkar.blogspot.tenant.model.CustomUserDetails;
+
+/**
+ * Success handler which records the login in the per tenant summary before
+ * redirecting to the default target url.
+ * 
+ * @author Sunit Katkar
+ * @version 1.1
+ * @since 1.1 (Oct 2026)
+ */
+public class CustomAuthenticationSuccessHandler
+        extends SimpleUrlAuthenticationSuccessHandler {
+
+    private final MasterTenantStatsService masterTenantStatsService;
+
+    public CustomAuthenticationSuccessHandler(String defaultTargetUrl,
+            MasterTenantStatsService masterTenantStatsService) {
+        super(defaultTargetUrl);
+        this.masterTenantStatsService = masterTenantStatsService;
+    }
+
+    @Override
+    public void onAuthenticationSuccess(HttpServletRequest request,
+            HttpServletResponse response, Authentication authentication)
+            throws IOException, ServletException {
+        Object principal = authentication.getPrincipal();
+        if (principal instanceof CustomUserDetails) {
+            masterTenantStatsService
+                    .recordLogin(((CustomUserDetails) principal).getTenant());
+        }
+        super.onAuthenticationSuccess(request, response, authentication);
+    }
+}
@@ -19,25 +19,41 @@ package com.sunitkatkar.blogspot.security;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.authentication.SimpleUrlAuthenticationFailureHandler;
 import org.springframework.security.web.authentication.SimpleUrlAuthenticationSuccessHandler;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.context.NullSecurityContextRepository;
+
+import com.sunitkatkar.blogspot.master.repository.MasterOperatorRepository;
+import com.sunitkatkar.blogspot.master.service.MasterTenantStatsService;
+import com.sunitkatkar.blogspot.tenant.config.LoginAdmission;
+import com.sunitkatkar.blogspot.tenant.config.LoginAuditWriter;
+import com.sunitkatkar.blogspot.tenant.config.TenantLatencyRecorder;
+import com.sunitkatkar.blogspot.tenant.config.TenantRateLimiter;
 
 /**
  * Configuration of security related beans and methods. The access to different
  * urls within the application is defined here.
  * 
+ * <br/>
+ * <br/>
+ * The <tt>/admin</tt> endpoints act on all tenants, so they are a separate
+ * realm, see {@link OperatorSecurityConfig}. Tenant users never reach them,
+ * whatever roles their tenant database grants them.
+ * 
  * @author Sunit Katkar
  * @version 1.0
  * @since 1.0 (May 2018)
- *
+ * 
  */
 @Configuration
 @EnableWebSecurity
@@ -46,6 +62,21 @@ public class CustomSecurityConfig extends WebSecurityConfigurerAdapter {
     @Autowired
     private CustomUserDetailsService userDetailsService;
 
+    @Autowired
+    private MasterTenantStatsService masterTenantStatsService;
+
+    @Autowired
+    private TenantLatencyRecorder tenantLatencyRecorder;
+
+    @Autowired
+    private TenantRateLimiter tenantRateLimiter;
+
+    @Autowired
+    private LoginAuditWriter loginAuditWriter;
+
+    @Autowired
+    private LoginAdmission loginAdmission;
+
     /**
      * This is where access to various resources (urls) in the application is
      * defined
@@ -56,8 +87,15 @@ public class CustomSecurityConfig extends WebSecurityConfigurerAdapter {
         http
             .addFilterBefore(authenticationFilter(), 
                     UsernamePasswordAuthenticationFilter.class)
+            .addFilterBefore(latencyFilter(), 
+                    CustomAuthenticationFilter.class)
+            .addFilterBefore(rateLimitFilter(), 
+                    CustomAuthenticationFilter.class)
+            .addFilterBefore(loginAdmissionFilter(), 
+                    CustomAuthenticationFilter.class)
             .authorizeRequests()
                 .antMatchers("/css/**", "/index").permitAll()
+                .antMatchers("/actuator/health", "/actuator/prometheus").permitAll()
                 .antMatchers("/user/**").authenticated()
             .and()
             .formLogin().loginPage("/login")
@@ -85,6 +123,39 @@ public class CustomSecurityConfig extends WebSecurityConfigurerAdapter {
         return filter;
     }
 
+    /**
+     * The request latency filter wraps the custom authentication filter, so
+     * that login form submissions, which never reach a controller, are timed
+     * as well
+     * 
+     * @return
+     */
+    public TenantLatencyFilter latencyFilter() {
+        return new TenantLatencyFilter(tenantLatencyRecorder);
+    }
+
+    /**
+     * The rate limit filter runs inside the latency filter, so rejected
+     * requests show up in the latency histograms, and before the custom
+     * authentication filter, so login form submissions are limited as well
+     * 
+     * @return
+     */
+    public TenantRateLimitFilter rateLimitFilter() {
+        return new TenantRateLimitFilter(tenantRateLimiter);
+    }
+
+    /**
+     * The login admission filter runs after the rate limit filter and before
+     * the custom authentication filter, so a login attempt is shed before it
+     * waits for a connection of a saturated tenant pool
+     * 
+     * @return
+     */
+    public LoginAdmissionFilter loginAdmissionFilter() {
+        return new LoginAdmissionFilter(loginAdmission);
+    }
+
     @Autowired
     public void configureGlobal(AuthenticationManagerBuilder auth)
             throws Exception {
@@ -100,7 +171,7 @@ public class CustomSecurityConfig extends WebSecurityConfigurerAdapter {
     public AuthenticationProvider authProvider() {
         // The custom authentication provider defined for this app
         CustomUserDetailsAuthenticationProvider provider = new CustomUserDetailsAuthenticationProvider(
-                passwordEncoder(), userDetailsService);
+                passwordEncoder(), userDetailsService, loginAuditWriter);
         return provider;
     }
 
@@ -113,8 +184,15 @@ public class CustomSecurityConfig extends WebSecurityConfigurerAdapter {
         return new SimpleUrlAuthenticationFailureHandler("/login?error=true");
     }
 
+    /**
+     * The page to show after a successful login. The login is also recorded
+     * in the per tenant summary in the master database.
+     * 
+     * @return
+     */
     public SimpleUrlAuthenticationSuccessHandler successHandler() {
-        return new SimpleUrlAuthenticationSuccessHandler("/user/index");
+        return new CustomAuthenticationSuccessHandler("/user/index",
+                masterTenantStatsService);
     }
 
     @Bean(name = "passwordEncoder")
@@ -122,4 +200,55 @@ public class CustomSecurityConfig extends WebSecurityConfigurerAdapter {
         return new BCryptPasswordEncoder();
     }
 
+    /**
+     * Filter chain of the <tt>/admin</tt> endpoints. It is ordered before the
+     * tenant chain and authenticates every request with HTTP Basic against the
+     * platform operators in the master database, using its own authentication
+     * manager. The security context is never read from or stored in the HTTP
+     * session, so the session of a logged in tenant user grants nothing here.
+     * 
+     * @author Sunit Katkar
+     * @version 1.1
+     * @since 1.1 (Oct 2026)
+     */
+    @Configuration
+    @Order(1)
+    public static class OperatorSecurityConfig
+            extends WebSecurityConfigurerAdapter {
+
+        @Autowired
+        private MasterOperatorRepository masterOperatorRepository;
+
+        @Autowired
+        private PasswordEncoder passwordEncoder;
+
+        @Override
+        protected void configure(HttpSecurity http) throws Exception {
+            //@formatter:off
+            http
+                .antMatcher("/admin/**")
+                .authorizeRequests()
+                    .anyRequest().hasAuthority(OperatorUserDetailsService.OPERATOR)
+                .and()
+                .httpBasic()
+                .and()
+                .securityContext()
+                    .securityContextRepository(new NullSecurityContextRepository())
+                .and()
+                .sessionManagement()
+                    .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
+                .and()
+                .csrf().disable();
+            //@formatter:on
+        }
+
+        @Override
+        protected void configure(AuthenticationManagerBuilder auth)
+                throws Exception {
+            auth.userDetailsService(
+                    new OperatorUserDetailsService(masterOperatorRepository))
+                    .passwordEncoder(passwordEncoder);
+        }
+    }
+
 }
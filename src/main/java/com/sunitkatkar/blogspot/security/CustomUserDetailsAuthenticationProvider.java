@@ -19,12 +19,17 @@ import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.InternalAuthenticationServiceException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.authentication.dao.AbstractUserDetailsAuthenticationProvider;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
 import org.springframework.util.Assert;
 
+import com.sunitkatkar.blogspot.tenant.config.LoginAuditWriter;
+import com.sunitkatkar.blogspot.util.LoginEvent;
+
 /**
  * {@link CustomUserDetailsAuthenticationProvider} extends
  * {@link AbstractUserDetailsAuthenticationProvider} and delegates to the
@@ -59,6 +64,12 @@ public class CustomUserDetailsAuthenticationProvider
 
     private CustomUserDetailsService userDetailsService;
 
+    /**
+     * Queues every login attempt for the login audit, so that the login itself
+     * does not write to the tenant database
+     */
+    private LoginAuditWriter loginAuditWriter;
+
     /**
      * The password used to perform
      * {@link PasswordEncoder#matches(CharSequence, String)} on when the user is
@@ -70,9 +81,29 @@ public class CustomUserDetailsAuthenticationProvider
 
     public CustomUserDetailsAuthenticationProvider(
             PasswordEncoder passwordEncoder,
-            CustomUserDetailsService userDetailsService) {
+            CustomUserDetailsService userDetailsService,
+            LoginAuditWriter loginAuditWriter) {
         this.passwordEncoder = passwordEncoder;
         this.userDetailsService = userDetailsService;
+        this.loginAuditWriter = loginAuditWriter;
+    }
+
+    /**
+     * Authenticates as usual and records the outcome with the
+     * {@link LoginAuditWriter}. A failure is recorded with the simple name of
+     * the exception as reason.
+     */
+    @Override
+    public Authentication authenticate(Authentication authentication)
+            throws AuthenticationException {
+        try {
+            Authentication result = super.authenticate(authentication);
+            recordLogin(authentication, true, null);
+            return result;
+        } catch (AuthenticationException e) {
+            recordLogin(authentication, false, e.getClass().getSimpleName());
+            throw e;
+        }
     }
 
     /*
@@ -100,8 +131,8 @@ public class CustomUserDetailsAuthenticationProvider
 
         // If the password stored in the database and the user submitted
         // password do not match, then signal a login error
-        if (!passwordEncoder.matches(presentedPassword,
-                userDetails.getPassword())) {
+        if (!matches(presentedPassword, userDetails.getPassword(),
+                tenantOf(authentication))) {
             logger.debug(
                     "Authentication failed: password does not match stored value");
             throw new BadCredentialsException(messages.getMessage(
@@ -133,19 +164,27 @@ public class CustomUserDetailsAuthenticationProvider
         CustomAuthenticationToken auth = (CustomAuthenticationToken) authentication;
         UserDetails loadedUser;
 
+        LoginEvent event = new LoginEvent();
+        event.begin();
         try {
             loadedUser = this.userDetailsService
                     .loadUserByUsernameAndTenantname(
                             auth.getPrincipal().toString(), auth.getTenant());
+            commitEvent(event, LoginEvent.RETRIEVE_USER, auth.getTenant(),
+                    loadedUser != null);
         } catch (UsernameNotFoundException notFound) {
+            commitEvent(event, LoginEvent.RETRIEVE_USER, auth.getTenant(),
+                    false);
             if (authentication.getCredentials() != null) {
                 String presentedPassword = authentication.getCredentials()
                         .toString();
-                passwordEncoder.matches(presentedPassword,
-                        userNotFoundEncodedPassword);
+                matches(presentedPassword, userNotFoundEncodedPassword,
+                        auth.getTenant());
             }
             throw notFound;
         } catch (Exception repositoryProblem) {
+            commitEvent(event, LoginEvent.RETRIEVE_USER, auth.getTenant(),
+                    false);
             throw new InternalAuthenticationServiceException(
                     repositoryProblem.getMessage(), repositoryProblem);
         }
@@ -157,4 +196,56 @@ public class CustomUserDetailsAuthenticationProvider
         }
         return loadedUser;
     }
-}
\ No newline at end of file
+
+    /**
+     * Verifies the password and records the time the hash comparison takes
+     * in a {@link LoginEvent}
+     * 
+     * @param presentedPassword
+     * @param encodedPassword
+     * @param tenant
+     * @return
+     */
+    private boolean matches(String presentedPassword, String encodedPassword,
+            String tenant) {
+        LoginEvent event = new LoginEvent();
+        event.begin();
+        boolean matches = passwordEncoder.matches(presentedPassword,
+                encodedPassword);
+        commitEvent(event, LoginEvent.VERIFY_PASSWORD, tenant, matches);
+        return matches;
+    }
+
+    private static String tenantOf(
+            UsernamePasswordAuthenticationToken authentication) {
+        return authentication instanceof CustomAuthenticationToken
+                ? ((CustomAuthenticationToken) authentication).getTenant()
+                : null;
+    }
+
+    private void recordLogin(Authentication authentication, boolean success,
+            String reason) {
+        if (loginAuditWriter == null
+                || !(authentication instanceof CustomAuthenticationToken)) {
+            return;
+        }
+        Object details = authentication.getDetails();
+        String remoteAddress = details instanceof WebAuthenticationDetails
+                ? ((WebAuthenticationDetails) details).getRemoteAddress()
+                : null;
+        loginAuditWriter.record(
+                ((CustomAuthenticationToken) authentication).getTenant(),
+                authentication.getName(), success, reason, remoteAddress);
+    }
+
+    private static void commitEvent(LoginEvent event, String step,
+            String tenant, boolean success) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.step = step;
+            event.tenantId = tenant;
+            event.success = success;
+            event.commit();
+        }
+    }
+}
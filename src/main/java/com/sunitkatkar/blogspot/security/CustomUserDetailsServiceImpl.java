@@ -17,7 +17,12 @@
 package com.sunitkatkar.blogspot.security;
 
 import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -32,6 +37,9 @@ import com.sunitkatkar.blogspot.tenant.model.Role;
 import com.sunitkatkar.blogspot.tenant.model.User;
 import com.sunitkatkar.blogspot.tenant.service.UserService;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
 /**
  * {@link CustomUserDetailsService} contract defines a single method called
  * loadUserByUsernameAndTenantname.
@@ -43,10 +51,23 @@ import com.sunitkatkar.blogspot.tenant.service.UserService;
  * authentication. Authentication occurs via the
  * {@link CustomUserDetailsAuthenticationProvider}.
  * 
+ * <br/>
+ * <br/>
+ * Concurrent lookups of the same username in the same tenant, e.g. a retrying
+ * mobile client or several tabs logging in at once, share a single database
+ * call: the first caller loads the user and the others wait for its result.
+ * Only the lookup in flight is shared. As soon as it completes, successfully
+ * or not, the next lookup goes to the database again, so failures are never
+ * cached. Each caller gets its own copy of the user details, because Spring
+ * Security erases the password of the details it authenticated. The metrics
+ * <tt>user.lookup.loads</tt> and <tt>user.lookup.coalesced</tt> count the
+ * database calls and the lookups which shared one. They are not tagged by
+ * tenant, as the tenant comes from the login form.
+ * 
  * @author Sunit Katkar
  * @version 1.0
  * @since 1.0 (May 2018)
- *
+ * 
  */
 @Service("userDetailsService")
 public class CustomUserDetailsServiceImpl implements CustomUserDetailsService {
@@ -54,6 +75,26 @@ public class CustomUserDetailsServiceImpl implements CustomUserDetailsService {
     @Autowired
     private UserService userService;
 
+    /**
+     * Tenant and username as key and the lookup in flight as value
+     */
+    private final Map<LookupKey, CompletableFuture<CustomUserDetails>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter loads;
+
+    private final Counter coalesced;
+
+    @Autowired
+    public CustomUserDetailsServiceImpl(MeterRegistry meterRegistry) {
+        this.loads = Counter.builder("user.lookup.loads")
+                .description("User lookups which went to the database")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("user.lookup.coalesced")
+                .description(
+                        "User lookups which shared the database call of a concurrent identical lookup")
+                .register(meterRegistry);
+    }
+
     @Override
     public UserDetails loadUserByUsernameAndTenantname(String username,
             String tenant) throws UsernameNotFoundException {
@@ -61,6 +102,28 @@ public class CustomUserDetailsServiceImpl implements CustomUserDetailsService {
             throw new UsernameNotFoundException(
                     "Username and domain must be provided");
         }
+        LookupKey key = new LookupKey(tenant, username);
+        CompletableFuture<CustomUserDetails> lookup = new CompletableFuture<>();
+        CompletableFuture<CustomUserDetails> running = inFlight
+                .putIfAbsent(key, lookup);
+        if (running != null) {
+            coalesced.increment();
+            return copyOf(await(running));
+        }
+        try {
+            loads.increment();
+            CustomUserDetails loaded = load(username, tenant);
+            lookup.complete(loaded);
+            return copyOf(loaded);
+        } catch (RuntimeException | Error e) {
+            lookup.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, lookup);
+        }
+    }
+
+    private CustomUserDetails load(String username, String tenant) {
         // Look for the user based on the username and tenant by accessing the
         // UserRepository via the UserService
         User user = userService.findByUsernameAndTenantname(username, tenant);
@@ -84,4 +147,64 @@ public class CustomUserDetailsServiceImpl implements CustomUserDetailsService {
 
         return customUserDetails;
     }
+
+    /**
+     * Waits for a lookup of another thread and throws its exception, if any,
+     * as is
+     */
+    private static CustomUserDetails await(
+            CompletableFuture<CustomUserDetails> lookup) {
+        try {
+            return lookup.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private static CustomUserDetails copyOf(CustomUserDetails details) {
+        return new CustomUserDetails(details.getUsername(),
+                details.getPassword(), details.getAuthorities(),
+                details.getTenant());
+    }
+
+    /**
+     * Identifies a lookup, the tenant is part of it so that tenants never
+     * share a result
+     */
+    private static final class LookupKey {
+
+        private final String tenant;
+
+        private final String username;
+
+        LookupKey(String tenant, String username) {
+            this.tenant = tenant;
+            this.username = username;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof LookupKey)) {
+                return false;
+            }
+            LookupKey other = (LookupKey) obj;
+            return tenant.equals(other.tenant)
+                    && username.equals(other.username);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(tenant, username);
+        }
+    }
 }
\ No newline at end of file
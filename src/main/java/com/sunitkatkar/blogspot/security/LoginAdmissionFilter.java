@@ -0,0 +1,72 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.security;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.sunitkatkar.blogspot.tenant.config.LoginAdmission;
+
+/**
+ * Rejects login form submissions with <tt>503 Service Unavailable</tt> and a
+ * <tt>Retry-After</tt> header while the connection pool of the tenant is
+ * saturated, see {@link LoginAdmission}. Requests of users who are already
+ * logged in are not affected.
+ * 
+ * @author Sunit Katkar
+ * @version 1.1
+ * @since 1.1 (Oct 2026)
+ */
+public class LoginAdmissionFilter extends OncePerRequestFilter {
+
+    private static final String LOGIN = "/login";
+
+    private final LoginAdmission loginAdmission;
+
+    public LoginAdmissionFilter(LoginAdmission loginAdmission) {
+        this.loginAdmission = loginAdmission;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !(LOGIN.equals(request.getServletPath())
+                && "POST".equals(request.getMethod()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+            HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        int retryAfter = loginAdmission.shed(request.getParameter(
+                CustomAuthenticationFilter.SPRING_SECURITY_FORM_TENANT_NAME_KEY));
+        if (retryAfter > 0) {
+            response.setHeader(HttpHeaders.RETRY_AFTER,
+                    String.valueOf(retryAfter));
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(),
+                    "Tenant is busy, please retry the login later");
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.security;
+
+import java.util.Collections;
+
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import com.sunitkatkar.blogspot.master.model.MasterOperator;
+import com.sunitkatkar.blogspot.master.repository.MasterOperatorRepository;
+
+/**
+ * Loads the platform operators from the <tt>master_operator</tt> table of the
+ * master database. Every operator has the single authority
+ * {@link #OPERATOR}, which is never read from a tenant database.
+ * 
+ * <br/>
+ * <br/>
+ * It is deliberately not a bean, so that it is only used by the
+ * authentication manager of the <tt>/admin</tt> filter chain and never by the
+ * global one which authenticates the tenant users.
+ * 
+ * @author Sunit Katkar
+ * @version 1.1
+ * @since 1.1 (Oct 2026)
+ * 
+ */
+public class OperatorUserDetailsService implements UserDetailsService {
+
+    public static final String OPERATOR = "PLATFORM_OPERATOR";
+
+    private final MasterOperatorRepository masterOperatorRepository;
+
+    public OperatorUserDetailsService(
+            MasterOperatorRepository masterOperatorRepository) {
+        this.masterOperatorRepository = masterOperatorRepository;
+    }
+
+    @Override
+    public UserDetails loadUserByUsername(String username)
+            throws UsernameNotFoundException {
+        MasterOperator operator = masterOperatorRepository
+                .findByUsername(username);
+        if (operator == null) {
+            throw new UsernameNotFoundException(
+                    "Unknown operator " + username);
+        }
+        return new User(operator.getUsername(), operator.getPassword(),
+                operator.isEnabled(), true, true, true,
+                Collections.singletonList(new SimpleGrantedAuthority(OPERATOR)));
+    }
+}
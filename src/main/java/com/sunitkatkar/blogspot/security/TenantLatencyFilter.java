@@ -0,0 +1,96 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.security;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.sunitkatkar.blogspot.tenant.config.TenantLatencyRecorder;
+import com.sunitkatkar.blogspot.tenant.model.CustomUserDetails;
+
+/**
+ * Records the latency of every request in the {@link TenantLatencyRecorder}.
+ * The tenant and the endpoint are only known once the request has been
+ * handled: the tenant comes from the authenticated user, the endpoint from the
+ * path pattern of the handler, e.g. <tt>/user/{tenantId}</tt>, which keeps
+ * the number of endpoints bounded.
+ * 
+ * @author Sunit Katkar
+ * @version 1.1
+ * @since 1.1 (Oct 2026)
+ */
+public class TenantLatencyFilter extends OncePerRequestFilter {
+
+    /**
+     * Tenant of requests without an authenticated user
+     */
+    private static final String ANONYMOUS = "_anonymous";
+
+    /**
+     * Endpoint of requests which are not handled by a controller, e.g. the
+     * login form submission
+     */
+    private static final String UNMAPPED = "_unmapped";
+
+    private static final String LOGIN = "/login";
+
+    private final TenantLatencyRecorder tenantLatencyRecorder;
+
+    public TenantLatencyFilter(TenantLatencyRecorder tenantLatencyRecorder) {
+        this.tenantLatencyRecorder = tenantLatencyRecorder;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+            HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            tenantLatencyRecorder.record(tenantOf(), endpointOf(request),
+                    System.nanoTime() - start);
+        }
+    }
+
+    private static String tenantOf() {
+        Authentication authentication = SecurityContextHolder.getContext()
+                .getAuthentication();
+        Object principal = authentication == null ? null
+                : authentication.getPrincipal();
+        return principal instanceof CustomUserDetails
+                ? ((CustomUserDetails) principal).getTenant()
+                : ANONYMOUS;
+    }
+
+    private static String endpointOf(HttpServletRequest request) {
+        Object pattern = request
+                .getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern instanceof String) {
+            return (String) pattern;
+        }
+        return LOGIN.equals(request.getServletPath()) ? LOGIN : UNMAPPED;
+    }
+}
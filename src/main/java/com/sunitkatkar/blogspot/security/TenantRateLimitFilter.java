@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.security;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.sunitkatkar.blogspot.tenant.config.TenantRateLimiter;
+import com.sunitkatkar.blogspot.tenant.model.CustomUserDetails;
+
+/**
+ * Rejects requests of a tenant which is over its rate limit with
+ * <tt>429 Too Many Requests</tt> and a <tt>Retry-After</tt> header. The tenant
+ * is the one of the authenticated user, or for a login form submission the
+ * tenant field of the form. Other anonymous requests are not limited.
+ * 
+ * @author Sunit Katkar
+ * @version 1.1
+ * @since 1.1 (Oct 2026)
+ */
+public class TenantRateLimitFilter extends OncePerRequestFilter {
+
+    private static final String LOGIN = "/login";
+
+    private final TenantRateLimiter tenantRateLimiter;
+
+    public TenantRateLimitFilter(TenantRateLimiter tenantRateLimiter) {
+        this.tenantRateLimiter = tenantRateLimiter;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+            HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String tenant = authenticatedTenant();
+        boolean known = tenant != null;
+        if (tenant == null && LOGIN.equals(request.getServletPath())
+                && "POST".equals(request.getMethod())) {
+            tenant = request.getParameter(
+                    CustomAuthenticationFilter.SPRING_SECURITY_FORM_TENANT_NAME_KEY);
+            if (tenant == null) {
+                tenant = "";
+            }
+        }
+        if (tenant != null) {
+            long wait = tenantRateLimiter.tryAcquire(tenant, known);
+            if (wait > 0) {
+                long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(
+                        wait + TimeUnit.SECONDS.toNanos(1) - 1));
+                response.setHeader(HttpHeaders.RETRY_AFTER,
+                        String.valueOf(seconds));
+                response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(),
+                        "Request rate limit of tenant exceeded");
+                return;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private static String authenticatedTenant() {
+        Authentication authentication = SecurityContextHolder.getContext()
+                .getAuthentication();
+        Object principal = authentication == null ? null
+                : authentication.getPrincipal();
+        return principal instanceof CustomUserDetails
+                ? ((CustomUserDetails) principal).getTenant()
+                : null;
+    }
+}
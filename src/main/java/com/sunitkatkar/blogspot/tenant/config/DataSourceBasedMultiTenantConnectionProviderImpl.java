@@ -15,27 +15,54 @@
  */
 package com.sunitkatkar.blogspot.tenant.config;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.sql.DataSource;
 
+import org.apache.commons.lang3.StringUtils;
 import org.hibernate.engine.jdbc.connections.spi.AbstractDataSourceBasedMultiTenantConnectionProviderImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Configuration;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
 import com.sunitkatkar.blogspot.master.model.MasterTenant;
+import com.sunitkatkar.blogspot.master.model.TenantStatus;
 import com.sunitkatkar.blogspot.master.repository.MasterTenantRepository;
 import com.sunitkatkar.blogspot.tenant.model.CustomUserDetails;
+import com.sunitkatkar.blogspot.tenant.model.TenantPoolInfo;
 import com.sunitkatkar.blogspot.util.DataSourceUtil;
+import com.sunitkatkar.blogspot.util.Span;
+import com.sunitkatkar.blogspot.util.TenantConnectionEvent;
 import com.sunitkatkar.blogspot.util.TenantContextHolder;
+import com.sunitkatkar.blogspot.util.TenantRoutingEvent;
+import com.sunitkatkar.blogspot.util.Tracer;
+import com.sunitkatkar.blogspot.util.TenantUnavailableException;
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 
 /**
  * This class does the job of selecting the correct database based on the tenant id found by the
@@ -44,9 +71,8 @@ import com.sunitkatkar.blogspot.util.TenantContextHolder;
  * @author Sunit Katkar, sunitkatkar@gmail.com (https://sunitkatkar.blogspot.com/)
  * @since ver 1.0 (May 2018)
  * @version 1.0
- *
+ * 
  */
-@Configuration
 public class DataSourceBasedMultiTenantConnectionProviderImpl
         extends AbstractDataSourceBasedMultiTenantConnectionProviderImpl {
 
@@ -54,16 +80,90 @@ public class DataSourceBasedMultiTenantConnectionProviderImpl
 
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Interval in milliseconds at which an evicted pool is checked for
+     * connections still in use
+     */
+    private static final long DRAIN_POLL_MILLIS = 50;
+
     /**
      * Injected MasterTenantRepository to access the tenant information from the master_tenant table
      */
     @Autowired
     private MasterTenantRepository masterTenantRepo;
 
+    @Autowired
+    private TenantSchemaStatus tenantSchemaStatus;
+
+    @Autowired
+    private TenantMigrationConfigProperties migrationProperties;
+
+    @Autowired
+    private TenantLifecycleStatus tenantLifecycleStatus;
+
+    @Autowired
+    private SlowQueryRecorder slowQueryRecorder;
+
+    @Autowired
+    private TenantPoolMetricsTrackerFactory poolMetricsTrackerFactory;
+
+    @Autowired
+    private SharedDatabaseConfigProperties sharedProperties;
+
+    /**
+     * Map to store the tenant ids as key and the data source as the value. It
+     * is read concurrently by request threads and fan-out workers, while
+     * rescans of the master database are serialized.
+     */
+    private Map<String, DataSource> dataSourcesMtApp = new ConcurrentHashMap<>();
+
+    /**
+     * Tenant id as key and the creation and last use of its data source as
+     * value, for the pool admin end point
+     */
+    private Map<String, PoolUsage> poolUsage = new ConcurrentHashMap<>();
+
+    /**
+     * Url and user name of a shared database as key and its pool as value. The
+     * pool is also the value of every tenant of that database in
+     * <tt>dataSourcesMtApp</tt>.
+     */
+    private Map<String, DataSource> sharedDataSources = new ConcurrentHashMap<>();
+
+    /**
+     * Ids of the tenants which are served by a shared pool
+     */
+    private Set<String> sharedTenants = ConcurrentHashMap.newKeySet();
+
     /**
-     * Map to store the tenant ids as key and the data source as the value
+     * Cleared on shutdown, after which no tenant connections are handed out and
+     * no pools are created
      */
-    private Map<String, DataSource> dataSourcesMtApp = new TreeMap<>();
+    private volatile boolean accepting = true;
+
+    /**
+     * Tenant id as key and the write freeze of a tenant being relocated as
+     * value. New connections of a frozen tenant wait until the freeze is
+     * lifted.
+     */
+    private Map<String, TenantFreeze> frozenTenants = new ConcurrentHashMap<>();
+
+    /**
+     * Drains and closes the pools replaced by a switch of their tenant to
+     * another database. A drain can take as long as the longest request, so
+     * every pool gets a thread of its own.
+     */
+    private final transient ExecutorService retiringPools = Executors.newCachedThreadPool(new ThreadFactory() {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "tenant-pool-retire-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
 
     @Override
     protected DataSource selectAnyDataSource() {
@@ -71,34 +171,106 @@ public class DataSourceBasedMultiTenantConnectionProviderImpl
         // is empty. If it is then rescan master_tenant table for all tenant
         // entries.
         if (dataSourcesMtApp.isEmpty()) {
-            List<MasterTenant> masterTenants = masterTenantRepo.findAll();
-            LOG.info(">>>> selectAnyDataSource() -- Total tenants:" + masterTenants.size());
-            for (MasterTenant masterTenant : masterTenants) {
-                dataSourcesMtApp.put(masterTenant.getTenantId(),
-                        DataSourceUtil.createAndConfigureDataSource(masterTenant));
-            }
+            LOG.info(">>>> selectAnyDataSource() -- rescanning master db");
+            rescanMasterTenants();
         }
         return this.dataSourcesMtApp.values().iterator().next();
     }
 
+    /**
+     * Hands out tenant connections whose statements are timed by the
+     * {@link SlowQueryRecorder}. <tt>selectDataSource</tt> may replace a lost
+     * tenant id, so the tenant is read from the context afterwards.
+     */
+    @Override
+    public Connection getConnection(String tenantIdentifier) throws SQLException {
+        if (!frozenTenants.isEmpty()) {
+            awaitFreeze(TenantContextHolder.getTenant() != null ? TenantContextHolder.getTenant() : tenantIdentifier);
+        }
+        TenantConnectionEvent event = new TenantConnectionEvent();
+        event.begin();
+        Connection connection = null;
+        try (Span span = Tracer.startSpan("connection.acquire")) {
+            connection = super.getConnection(tenantIdentifier);
+        } finally {
+            commitConnectionEvent(event, TenantConnectionEvent.ACQUIRE, tenantIdentifier, connection != null);
+        }
+        String tenantId = TenantContextHolder.getTenant() != null ? TenantContextHolder.getTenant() : tenantIdentifier;
+        PoolUsage usage = poolUsage.get(tenantId);
+        if (usage != null) {
+            usage.lastUsedAt = System.currentTimeMillis();
+        }
+        return slowQueryRecorder.wrap(tenantId, connection);
+    }
+
+    @Override
+    public void releaseConnection(String tenantIdentifier, Connection connection) throws SQLException {
+        TenantConnectionEvent event = new TenantConnectionEvent();
+        event.begin();
+        boolean released = false;
+        try {
+            super.releaseConnection(tenantIdentifier, connection);
+            released = true;
+        } finally {
+            commitConnectionEvent(event, TenantConnectionEvent.RELEASE, tenantIdentifier, released);
+        }
+    }
+
+    private static void commitConnectionEvent(TenantConnectionEvent event, String action, String tenantIdentifier,
+            boolean success) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.tenantId = tenantIdentifier;
+            event.action = action;
+            event.success = success;
+            event.commit();
+        }
+    }
+
+    /**
+     * Resolves the data source of the tenant and records the resolution in a
+     * {@link TenantRoutingEvent} when a flight recording has enabled it
+     */
     @Override
     protected DataSource selectDataSource(String tenantIdentifier) {
+        TenantRoutingEvent event = new TenantRoutingEvent();
+        event.begin();
+        try (Span span = Tracer.startSpan("tenant.resolve")) {
+            return resolveDataSource(tenantIdentifier, event);
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                if (event.tenantId == null) {
+                    event.tenantId = tenantIdentifier;
+                }
+                event.commit();
+            }
+        }
+    }
+
+    private DataSource resolveDataSource(String tenantIdentifier, TenantRoutingEvent event) {
         // If the requested tenant id is not present check for it in the master
         // database 'master_tenant' table
 
         tenantIdentifier = initializeTenantIfLost(tenantIdentifier);
+        event.tenantId = tenantIdentifier;
+
+        if (!accepting) {
+            throw new TenantUnavailableException(tenantIdentifier,
+                    String.format("Application is shutting down, tenant=%s", tenantIdentifier));
+        }
+
+        if (!tenantLifecycleStatus.isActive(tenantIdentifier)) {
+            throw new TenantUnavailableException(tenantIdentifier,
+                    String.format("Tenant is %s, tenant=%s", tenantLifecycleStatus.getStatus(tenantIdentifier),
+                            tenantIdentifier));
+        }
 
         if (!this.dataSourcesMtApp.containsKey(tenantIdentifier)) {
-            List<MasterTenant> masterTenants = masterTenantRepo.findAll();
-            LOG.info(
-                    ">>>> selectDataSource() -- tenant:" + tenantIdentifier + " Total tenants:" + masterTenants.size());
-            for (MasterTenant masterTenant : masterTenants) {
-				if (this.dataSourcesMtApp.containsKey(masterTenant.getTenantId())) {
-					continue;
-				}
-                dataSourcesMtApp.put(masterTenant.getTenantId(),
-                        DataSourceUtil.createAndConfigureDataSource(masterTenant));
-            }
+            LOG.info(">>>> selectDataSource() -- tenant:" + tenantIdentifier + " not found, rescanning master db");
+            rescanMasterTenants();
+            event.rescanned = true;
+            event.poolCreated = this.dataSourcesMtApp.containsKey(tenantIdentifier);
         }
             //check again if tenant exist in map after rescan master_db, if not, throw UsernameNotFoundException
                     if (!this.dataSourcesMtApp.containsKey(tenantIdentifier)) {
@@ -109,9 +281,721 @@ public class DataSourceBasedMultiTenantConnectionProviderImpl
                                     + " tenant=%s",
                              tenantIdentifier));
         }
+        if (migrationProperties.isBlockUntilMigrated()) {
+            checkSchemaIsCurrent(tenantIdentifier);
+        }
         return this.dataSourcesMtApp.get(tenantIdentifier);
     }
 
+    /**
+     * @param tenantId
+     * @return the number of connections of the tenant pool which are currently
+     *         in use, 0 if the tenant has no started pool. For a shared tenant
+     *         this covers all tenants of its database.
+     */
+    public int getActiveConnections(String tenantId) {
+        HikariPoolMXBean pool = getPoolMXBean(tenantId);
+        return pool == null ? 0 : pool.getActiveConnections();
+    }
+
+    /**
+     * @param tenantId
+     * @return the number of threads waiting for a connection of the tenant
+     *         pool, 0 if the tenant has no started pool. For a shared tenant
+     *         this covers all tenants of its database.
+     */
+    public int getPendingThreads(String tenantId) {
+        HikariPoolMXBean pool = getPoolMXBean(tenantId);
+        return pool == null ? 0 : pool.getThreadsAwaitingConnection();
+    }
+
+    /**
+     * @param tenantId
+     * @return the name of the tenant pool, which for a shared tenant is the
+     *         pool of its database, <tt>null</tt> if the tenant has no data
+     *         source
+     */
+    public String getPoolName(String tenantId) {
+        DataSource dataSource = dataSourcesMtApp.get(tenantId);
+        return dataSource instanceof HikariDataSource ? ((HikariDataSource) dataSource).getPoolName() : null;
+    }
+
+    /**
+     * @return the number of tenant connections currently in use across all
+     *         pools
+     */
+    public int getActiveConnections() {
+        int active = 0;
+        for (DataSource dataSource : distinct(dataSourcesMtApp).values()) {
+            HikariPoolMXBean pool = dataSource instanceof HikariDataSource
+                    ? ((HikariDataSource) dataSource).getHikariPoolMXBean()
+                    : null;
+            active += pool == null ? 0 : pool.getActiveConnections();
+        }
+        return active;
+    }
+
+    /**
+     * Called for every entity manager and entity, so it never consults the
+     * master database. Tenants without a data source yet, e.g. one provisioned
+     * on another node whose pool is created with the first connection, are
+     * treated as shared: the tenant filter is harmless in a database of a
+     * single tenant, while leaving it off in a shared one is not. The set of
+     * shared tenants is kept current as pools are created by the rescan and the
+     * scheduled resync.
+     * 
+     * @param tenantId
+     * @return whether the tenant is served by the pool of a shared database,
+     *         or not known to have a database of its own yet
+     */
+    public boolean isSharedTenant(String tenantId) {
+        if (tenantId == null) {
+            return false;
+        }
+        return sharedTenants.contains(tenantId) || !dataSourcesMtApp.containsKey(tenantId);
+    }
+
+    /**
+     * Stops handing out tenant connections, first step of the shutdown. Requests
+     * which already hold a connection can finish their work.
+     */
+    public void stopAccepting() {
+        accepting = false;
+    }
+
+    /**
+     * Removes all tenant data sources so they can be closed. Only used on
+     * shutdown, after {@link #stopAccepting()}.
+     * 
+     * @return the removed data sources by tenant id, a shared pool under the
+     *         first of its tenants only
+     */
+    public synchronized Map<String, DataSource> detachDataSources() {
+        Map<String, DataSource> all = new HashMap<>(dataSourcesMtApp);
+        dataSourcesMtApp.keySet().removeAll(all.keySet());
+        poolUsage.keySet().removeAll(all.keySet());
+        sharedTenants.removeAll(all.keySet());
+        sharedDataSources.clear();
+        return distinct(all);
+    }
+
+    /**
+     * @return the entries of the map with each data source only once
+     */
+    private static Map<String, DataSource> distinct(Map<String, DataSource> dataSources) {
+        Map<DataSource, Boolean> seen = new IdentityHashMap<>();
+        Map<String, DataSource> distinct = new HashMap<>();
+        for (Map.Entry<String, DataSource> entry : dataSources.entrySet()) {
+            if (seen.put(entry.getValue(), Boolean.TRUE) == null) {
+                distinct.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * Makes new connection requests of the tenant wait, for at most
+     * <tt>maxWaitMillis</tt>, until {@link #unfreezeTenant(String)} is called.
+     * Connections already handed out are not affected, other tenants neither.
+     * 
+     * @param tenantId
+     * @param maxWaitMillis
+     * @return false if the tenant is already frozen
+     */
+    public boolean freezeTenant(String tenantId, long maxWaitMillis) {
+        return frozenTenants.putIfAbsent(tenantId, new TenantFreeze(maxWaitMillis)) == null;
+    }
+
+    /**
+     * Lifts the write freeze of the tenant and lets the waiting requests
+     * continue
+     * 
+     * @param tenantId
+     */
+    public void unfreezeTenant(String tenantId) {
+        TenantFreeze freeze = frozenTenants.remove(tenantId);
+        if (freeze != null) {
+            freeze.released.countDown();
+        }
+    }
+
+    private void awaitFreeze(String tenantId) {
+        TenantFreeze freeze = frozenTenants.get(tenantId);
+        if (freeze == null) {
+            return;
+        }
+        try {
+            long remaining = freeze.deadline - System.nanoTime();
+            if (remaining > 0 && freeze.released.await(remaining, TimeUnit.NANOSECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        throw new TenantUnavailableException(tenantId,
+                String.format("Tenant is being relocated, tenant=%s", tenantId));
+    }
+
+    /**
+     * Points the tenant at a new database. The pool of the new database is
+     * started before it replaces the current pool in one step, so no request
+     * ever sees the tenant without a pool.
+     * 
+     * @param masterTenant
+     *            the tenant with the url and credentials of the new database
+     * @return the previous data source of the tenant, to be drained and closed
+     *         by the caller, <tt>null</tt> if the tenant had none
+     * @throws SQLException
+     *             if the new database cannot be connected to, in which case
+     *             the current pool stays in place
+     */
+    public DataSource swapDataSource(MasterTenant masterTenant) throws SQLException {
+        String tenantId = masterTenant.getTenantId();
+        PoolUsage usage = new PoolUsage(masterTenant);
+        DataSource dataSource = DataSourceUtil.createAndConfigureDataSource(masterTenant, poolMetricsTrackerFactory);
+        try (Connection connection = dataSource.getConnection()) {
+            LOG.info("Started pool of the new database of tenant:" + tenantId);
+        } catch (SQLException e) {
+            ((HikariDataSource) dataSource).close();
+            throw e;
+        }
+        DataSource previous;
+        synchronized (this) {
+            previous = dataSourcesMtApp.put(tenantId, dataSource);
+            poolUsage.put(tenantId, usage);
+        }
+        LOG.info("Swapped data source of tenant:" + tenantId + " to " + masterTenant.getUrl());
+        return previous;
+    }
+
+    /**
+     * Checks that the tenant can be switched between its primary and standby
+     * database. Tenants in a shared database and tenants being relocated are
+     * not switched.
+     * 
+     * @param masterTenant
+     * @param toStandby
+     * @throws IllegalStateException
+     *             if the tenant is in a shared database or being relocated
+     * @throws IllegalArgumentException
+     *             if the tenant is to be switched to a standby it does not have
+     */
+    public void checkFailover(MasterTenant masterTenant, boolean toStandby) {
+        String tenantId = masterTenant.getTenantId();
+        if (masterTenant.isShared() || frozenTenants.containsKey(tenantId)) {
+            throw new IllegalStateException("Tenant cannot be failed over, tenant=" + tenantId);
+        }
+        if (toStandby && StringUtils.isBlank(masterTenant.getStandbyUrl())) {
+            throw new IllegalArgumentException("Tenant has no standby url, tenant=" + tenantId);
+        }
+    }
+
+    /**
+     * Points the pool of the tenant at the database the master_tenant row
+     * selects, its primary or its standby database, in the same way as
+     * {@link #swapDataSource(MasterTenant)}. Tenants without a pool on this
+     * node get the right database when their pool is created. Shared, frozen
+     * and inactive tenants are left alone.
+     * 
+     * @param masterTenant
+     *            the tenant as stored in the master database
+     * @return the previous data source of the tenant, to be closed by the
+     *         caller, <tt>null</tt> if the pool did not change
+     * @throws SQLException
+     *             if the database cannot be connected to, in which case the
+     *             current pool stays in place
+     */
+    public DataSource follow(MasterTenant masterTenant) throws SQLException {
+        String tenantId = masterTenant.getTenantId();
+        PoolUsage usage = poolUsage.get(tenantId);
+        if (usage == null || usage.shared || masterTenant.isShared()
+                || masterTenant.getStatus() != TenantStatus.ACTIVE || frozenTenants.containsKey(tenantId)) {
+            return null;
+        }
+        MasterTenant target = effective(masterTenant);
+        return usage.matches(target) ? null : swapDataSource(target);
+    }
+
+    /**
+     * @param tenantId
+     * @return whether the pool of the tenant on this node uses its standby
+     *         database
+     */
+    public boolean isOnStandby(String tenantId) {
+        PoolUsage usage = poolUsage.get(tenantId);
+        return usage != null && usage.onStandby;
+    }
+
+    /**
+     * @return a copy of the tenant pointing at its standby database
+     */
+    private static MasterTenant onStandby(MasterTenant masterTenant) {
+        MasterTenant standby = new MasterTenant();
+        standby.setTenantId(masterTenant.getTenantId());
+        standby.setUrl(masterTenant.getStandbyUrl());
+        standby.setStandbyUrl(masterTenant.getStandbyUrl());
+        standby.setUsername(masterTenant.getUsername());
+        standby.setPassword(masterTenant.getPassword());
+        standby.setStatus(masterTenant.getStatus());
+        standby.setShared(masterTenant.isShared());
+        standby.setOnStandby(true);
+        return standby;
+    }
+
+    /**
+     * @return the tenant with the url its pool is to use right now
+     */
+    private static MasterTenant effective(MasterTenant masterTenant) {
+        return masterTenant.isOnStandby() && StringUtils.isNotBlank(masterTenant.getStandbyUrl())
+                ? onStandby(masterTenant)
+                : masterTenant;
+    }
+
+    /**
+     * Removes the data source of a tenant and closes its pool. Idle connections
+     * are evicted first. Closing a Hikari pool aborts the connections still in
+     * use, so they get up to <tt>drainTimeout</tt> to be returned before the
+     * pool is closed. No new connections are handed out meanwhile, as the data
+     * source is already removed. A shared pool is only closed with its last
+     * tenant. The pool is drained outside of the lock of this provider, so
+     * other tenants can get their pools meanwhile.
+     * 
+     * @param tenantId
+     * @param drainTimeout
+     *            milliseconds to wait for connections in use, 0 to close the
+     *            pool right away, e.g. when the caller has drained it already
+     * @return whether the tenant had a data source
+     */
+    public boolean evictTenant(String tenantId, long drainTimeout) {
+        DataSource dataSource;
+        synchronized (this) {
+            if (!dataSourcesMtApp.containsKey(tenantId)) {
+                return false;
+            }
+            dataSource = detachTenant(tenantId);
+        }
+        if (dataSource != null) {
+            drainAndClose(tenantId, dataSource, deadline(drainTimeout));
+        }
+        return true;
+    }
+
+    /**
+     * Removes the data source of a tenant, which stops handing out its
+     * connections. Only called with the lock of this provider held.
+     * 
+     * @return the pool to be drained and closed by the caller, <tt>null</tt>
+     *         if the tenant had none or shares it with other tenants
+     */
+    private DataSource detachTenant(String tenantId) {
+        DataSource dataSource = dataSourcesMtApp.remove(tenantId);
+        if (dataSource == null) {
+            return null;
+        }
+        poolUsage.remove(tenantId);
+        if (sharedTenants.remove(tenantId) && !releaseSharedDataSource(dataSource)) {
+            LOG.info("Evicted tenant:" + tenantId + " from its shared data source");
+            return null;
+        }
+        return dataSource;
+    }
+
+    /**
+     * @return the deadline in {@link System#nanoTime()} of a drain starting
+     *         now
+     */
+    private static long deadline(long drainTimeout) {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, drainTimeout));
+    }
+
+    /**
+     * Evicts the idle connections of a detached pool, waits until the deadline
+     * for the connections in use to be returned and closes the pool
+     * 
+     * @param tenantId
+     *            the tenant the pool belonged to, for the log
+     * @param dataSource
+     * @param deadline
+     *            in {@link System#nanoTime()}
+     */
+    private static void drainAndClose(String tenantId, DataSource dataSource, long deadline) {
+        if (!(dataSource instanceof HikariDataSource)) {
+            return;
+        }
+        HikariDataSource hikariDataSource = (HikariDataSource) dataSource;
+        HikariPoolMXBean pool = hikariDataSource.getHikariPoolMXBean();
+        if (pool != null) {
+            pool.softEvictConnections();
+            int active = drain(pool, deadline);
+            if (active > 0) {
+                LOG.warn("Closing data source for tenant:" + tenantId + " with " + active
+                        + " connections still in use after the drain timeout");
+            }
+        }
+        hikariDataSource.close();
+        LOG.info("Evicted and closed data source for tenant:" + tenantId);
+    }
+
+    /**
+     * Waits up to the deadline for the connections of the pool in use to be
+     * returned
+     * 
+     * @return the number of connections still in use
+     */
+    private static int drain(HikariPoolMXBean pool, long deadline) {
+        int active = pool.getActiveConnections();
+        while (active > 0 && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(DRAIN_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            active = pool.getActiveConnections();
+        }
+        return active;
+    }
+
+    /**
+     * Drains and closes, in the background, a pool which
+     * {@link #swapDataSource(MasterTenant)} or {@link #follow(MasterTenant)}
+     * replaced. Requests which got their connection from it before the switch
+     * get up to <tt>drainTimeout</tt> to finish.
+     * 
+     * @param tenantId
+     * @param dataSource
+     *            the replaced pool, nothing is done for <tt>null</tt>
+     * @param drainTimeout
+     *            milliseconds to wait for the connections in use
+     */
+    public void retirePool(String tenantId, DataSource dataSource, long drainTimeout) {
+        if (dataSource == null) {
+            return;
+        }
+        long deadline = deadline(drainTimeout);
+        retiringPools.execute(() -> drainAndClose(tenantId, dataSource, deadline));
+    }
+
+    /**
+     * @return a snapshot of every tenant pool, ordered by tenant id
+     */
+    public List<TenantPoolInfo> getPoolInfos() {
+        List<TenantPoolInfo> infos = new ArrayList<>();
+        for (String tenantId : new TreeSet<>(dataSourcesMtApp.keySet())) {
+            TenantPoolInfo info = getPoolInfo(tenantId);
+            if (info != null) {
+                infos.add(info);
+            }
+        }
+        return infos;
+    }
+
+    /**
+     * @param tenantId
+     * @return a snapshot of the tenant pool, <tt>null</tt> if the tenant has no
+     *         data source on this node
+     */
+    public TenantPoolInfo getPoolInfo(String tenantId) {
+        DataSource dataSource = dataSourcesMtApp.get(tenantId);
+        if (!(dataSource instanceof HikariDataSource)) {
+            return null;
+        }
+        HikariDataSource hikariDataSource = (HikariDataSource) dataSource;
+        TenantPoolInfo info = new TenantPoolInfo();
+        info.setTenantId(tenantId);
+        info.setPoolName(hikariDataSource.getPoolName());
+        info.setMaximumPoolSize(hikariDataSource.getMaximumPoolSize());
+        info.setMinimumIdle(hikariDataSource.getMinimumIdle());
+        HikariPoolMXBean pool = hikariDataSource.getHikariPoolMXBean();
+        if (pool != null) {
+            info.setStarted(true);
+            info.setTotalConnections(pool.getTotalConnections());
+            info.setActiveConnections(pool.getActiveConnections());
+            info.setIdleConnections(pool.getIdleConnections());
+            info.setThreadsAwaitingConnection(pool.getThreadsAwaitingConnection());
+        }
+        PoolUsage usage = poolUsage.get(tenantId);
+        if (usage != null) {
+            info.setCreatedAt(new Date(usage.createdAt));
+            info.setLastUsedAt(usage.lastUsedAt == 0 ? null : new Date(usage.lastUsedAt));
+        }
+        return info;
+    }
+
+    /**
+     * Changes the size of a running tenant pool. Hikari applies a smaller
+     * maximum as connections are returned.
+     * 
+     * @param tenantId
+     * @param maximumPoolSize
+     * @param minimumIdle
+     * @return whether the tenant has a data source on this node
+     */
+    public boolean resizePool(String tenantId, int maximumPoolSize, int minimumIdle) {
+        if (maximumPoolSize < 1 || minimumIdle < 0 || minimumIdle > maximumPoolSize) {
+            throw new IllegalArgumentException(String.format("Invalid pool size, maximumPoolSize=%s, minimumIdle=%s",
+                    maximumPoolSize, minimumIdle));
+        }
+        DataSource dataSource = dataSourcesMtApp.get(tenantId);
+        if (!(dataSource instanceof HikariDataSource)) {
+            return false;
+        }
+        HikariConfigMXBean config = ((HikariDataSource) dataSource).getHikariConfigMXBean();
+        // Order the changes so that minimumIdle never exceeds the maximum
+        if (maximumPoolSize >= config.getMaximumPoolSize()) {
+            config.setMaximumPoolSize(maximumPoolSize);
+            config.setMinimumIdle(minimumIdle);
+        } else {
+            config.setMinimumIdle(minimumIdle);
+            config.setMaximumPoolSize(maximumPoolSize);
+        }
+        LOG.info("Resized pool of tenant:" + tenantId + " to maximumPoolSize:" + maximumPoolSize + ", minimumIdle:"
+                + minimumIdle);
+        return true;
+    }
+
+    /**
+     * Evicts the idle connections of a tenant pool right away and the
+     * connections in use when they are returned, e.g. after a database
+     * failover
+     * 
+     * @param tenantId
+     * @return whether the tenant has a started pool on this node
+     */
+    public boolean softEvictPool(String tenantId) {
+        HikariPoolMXBean pool = getPoolMXBean(tenantId);
+        if (pool == null) {
+            return false;
+        }
+        pool.softEvictConnections();
+        LOG.info("Soft evicted connections of tenant:" + tenantId);
+        return true;
+    }
+
+    /**
+     * Opens connections of a tenant pool up front, so that a burst of requests
+     * does not wait for connections to be created. The data source is created
+     * first if the tenant is in the master database but has none yet.
+     * 
+     * @param tenantId
+     * @param connections
+     *            number of connections to open, at most the pool size
+     * @return the number of connections which were opened at the same time
+     * @throws SQLException
+     */
+    public int warmPool(String tenantId, int connections) throws SQLException {
+        if (!dataSourcesMtApp.containsKey(tenantId)) {
+            rescanMasterTenants();
+        }
+        DataSource dataSource = dataSourcesMtApp.get(tenantId);
+        if (dataSource == null) {
+            throw new IllegalArgumentException(String.format("Tenant has no data source, tenant=%s", tenantId));
+        }
+        int limit = dataSource instanceof HikariDataSource
+                ? Math.min(connections, ((HikariDataSource) dataSource).getMaximumPoolSize())
+                : connections;
+        List<Connection> opened = new ArrayList<>();
+        try {
+            for (int i = 0; i < limit; i++) {
+                opened.add(dataSource.getConnection());
+            }
+        } finally {
+            for (Connection connection : opened) {
+                connection.close();
+            }
+        }
+        LOG.info("Warmed pool of tenant:" + tenantId + " with " + opened.size() + " connections");
+        return opened.size();
+    }
+
+    /**
+     * Brings the data sources in line with the master_tenant table: pools of
+     * tenants which are gone or not active are closed, pools whose url or
+     * credentials changed are recreated, and missing pools are created. The
+     * pools to close are detached while the lock is held and drained together
+     * after it is released.
+     * 
+     * @param drainTimeout
+     *            milliseconds to wait for the connections in use of the closed
+     *            pools
+     * @return the tenant ids under the keys <tt>added</tt>,
+     *         <tt>removed</tt> and <tt>recreated</tt>
+     */
+    public Map<String, List<String>> resyncMasterTenants(long drainTimeout) {
+        Map<String, MasterTenant> masterTenants = new HashMap<>();
+        for (MasterTenant masterTenant : masterTenantRepo.findAll()) {
+            masterTenants.put(masterTenant.getTenantId(), masterTenant);
+        }
+        Map<String, List<String>> changes = new LinkedHashMap<>();
+        changes.put("added", new ArrayList<>());
+        changes.put("removed", new ArrayList<>());
+        changes.put("recreated", new ArrayList<>());
+        Map<String, DataSource> detached = new HashMap<>();
+        synchronized (this) {
+            for (String tenantId : new ArrayList<>(dataSourcesMtApp.keySet())) {
+                MasterTenant masterTenant = masterTenants.get(tenantId);
+                PoolUsage usage = poolUsage.get(tenantId);
+                String change;
+                if (masterTenant == null || masterTenant.getStatus() != TenantStatus.ACTIVE) {
+                    change = "removed";
+                } else if (usage != null && !usage.matches(effective(masterTenant))) {
+                    change = "recreated";
+                } else {
+                    continue;
+                }
+                DataSource dataSource = detachTenant(tenantId);
+                if (dataSource != null) {
+                    detached.put(tenantId, dataSource);
+                }
+                changes.get(change).add(tenantId);
+            }
+            Set<String> before = new HashSet<>(dataSourcesMtApp.keySet());
+            rescanMasterTenants();
+            for (String tenantId : dataSourcesMtApp.keySet()) {
+                if (!before.contains(tenantId) && !changes.get("recreated").contains(tenantId)) {
+                    changes.get("added").add(tenantId);
+                }
+            }
+        }
+        long deadline = deadline(drainTimeout);
+        for (Map.Entry<String, DataSource> entry : detached.entrySet()) {
+            drainAndClose(entry.getKey(), entry.getValue(), deadline);
+        }
+        LOG.info("Resynced tenant data sources with master db: " + changes);
+        return changes;
+    }
+
+    /**
+     * Replaces the pools whose database changed in the master_tenant table
+     * since they were created, e.g. by a relocation or a failover on another
+     * node. Unlike
+     * {@link #resyncMasterTenants(long)} it leaves tenants which are not active
+     * to the status sync, so draining tenants keep their pool. The new pool is
+     * started before it replaces the old one, which is retired with
+     * {@link #retirePool(String, DataSource, long)}. Tenants frozen on this
+     * node are left to the relocation in progress.
+     * 
+     * @param drainTimeout
+     *            milliseconds the connections in use of a replaced pool get to
+     *            be returned
+     * @return the ids of the tenants whose pool was replaced
+     */
+    public List<String> followMasterTenants(long drainTimeout) {
+        List<String> replaced = new ArrayList<>();
+        for (MasterTenant masterTenant : masterTenantRepo.findAll()) {
+            String tenantId = masterTenant.getTenantId();
+            try {
+                DataSource previous = follow(masterTenant);
+                if (previous != null) {
+                    retirePool(tenantId, previous, drainTimeout);
+                    replaced.add(tenantId);
+                }
+            } catch (SQLException | RuntimeException e) {
+                LOG.warn("Could not switch tenant:" + tenantId + " to " + effective(masterTenant).getUrl()
+                        + ", retrying with the next sync", e);
+            }
+        }
+        if (!replaced.isEmpty()) {
+            LOG.info("Followed master db to new databases of tenants: " + replaced);
+        }
+        return replaced;
+    }
+
+    private DataSource createDataSource(MasterTenant masterTenant) {
+        if (!masterTenant.isShared()) {
+            MasterTenant target = effective(masterTenant);
+            poolUsage.put(masterTenant.getTenantId(), new PoolUsage(target));
+            return DataSourceUtil.createAndConfigureDataSource(target, poolMetricsTrackerFactory);
+        }
+        poolUsage.put(masterTenant.getTenantId(), new PoolUsage(masterTenant));
+        sharedTenants.add(masterTenant.getTenantId());
+        return sharedDataSources.computeIfAbsent(masterTenant.getUrl() + "|" + masterTenant.getUsername(),
+                key -> DataSourceUtil.createAndConfigureSharedDataSource(masterTenant,
+                        sharedProperties.getMaximumPoolSize(), sharedProperties.getMinimumIdle(),
+                        poolMetricsTrackerFactory));
+    }
+
+    /**
+     * Forgets a shared data source once no tenant uses it any more
+     * 
+     * @return whether the data source is no longer used and should be closed
+     */
+    private synchronized boolean releaseSharedDataSource(DataSource dataSource) {
+        if (dataSourcesMtApp.containsValue(dataSource)) {
+            return false;
+        }
+        sharedDataSources.values().remove(dataSource);
+        return true;
+    }
+
+    private HikariPoolMXBean getPoolMXBean(String tenantId) {
+        DataSource dataSource = dataSourcesMtApp.get(tenantId);
+        return dataSource instanceof HikariDataSource ? ((HikariDataSource) dataSource).getHikariPoolMXBean() : null;
+    }
+
+    /**
+     * Rejects tenants whose database has not been migrated to the schema
+     * version of this build. The master database is only consulted while the
+     * tenant is not current, e.g. when another node has just migrated it.
+     * 
+     * @param tenantIdentifier
+     */
+    private void checkSchemaIsCurrent(String tenantIdentifier) {
+        if (tenantSchemaStatus.isCurrent(tenantIdentifier)) {
+            return;
+        }
+        MasterTenant masterTenant = masterTenantRepo.findByTenantId(tenantIdentifier);
+        if (masterTenant != null && masterTenant.getSchemaVersion() != null) {
+            tenantSchemaStatus.setSchemaVersion(tenantIdentifier, masterTenant.getSchemaVersion());
+        }
+        if (!tenantSchemaStatus.isCurrent(tenantIdentifier)) {
+            LOG.warn("Rejecting tenant:" + tenantIdentifier + " which is not migrated to schema version:"
+                    + tenantSchemaStatus.getLatestVersion());
+            throw new TenantUnavailableException(tenantIdentifier,
+                    String.format("Tenant schema is being migrated, tenant=%s", tenantIdentifier));
+        }
+    }
+
+    /**
+     * Creates data sources for the tenants in the master_tenant table which do
+     * not have one yet. Synchronized so that concurrent misses do not create
+     * duplicate pools for the same tenant.
+     */
+    private synchronized void rescanMasterTenants() {
+        if (!accepting) {
+            return;
+        }
+        List<MasterTenant> masterTenants = masterTenantRepo.findAll();
+        LOG.info(">>>> rescanMasterTenants() -- Total tenants:" + masterTenants.size());
+        for (MasterTenant masterTenant : masterTenants) {
+            if (this.dataSourcesMtApp.containsKey(masterTenant.getTenantId())
+                    || masterTenant.getStatus() != TenantStatus.ACTIVE) {
+                continue;
+            }
+            dataSourcesMtApp.putIfAbsent(masterTenant.getTenantId(), createDataSource(masterTenant));
+        }
+    }
+
+    /**
+     * Registers the data source of a newly provisioned tenant without a rescan
+     * of the master database, and opens one connection so that the pool is
+     * started and filling up before the first request arrives.
+     * 
+     * @param masterTenant
+     * @return the data source of the tenant
+     */
+    public DataSource registerTenant(MasterTenant masterTenant) {
+        DataSource dataSource = dataSourcesMtApp.computeIfAbsent(masterTenant.getTenantId(),
+                tenantId -> createDataSource(masterTenant));
+        try (Connection connection = dataSource.getConnection()) {
+            LOG.info("Registered and warmed up data source for tenant:" + masterTenant.getTenantId());
+        } catch (SQLException e) {
+            LOG.warn("Registered data source for tenant:" + masterTenant.getTenantId()
+                    + " but warming it up failed", e);
+        }
+        return dataSource;
+    }
+
     /**
      * Initialize tenantId based on the logged in user if the tenant Id got lost in after form submission in a user
      * session.
@@ -137,4 +1021,52 @@ public class DataSourceBasedMultiTenantConnectionProviderImpl
         }
         return tenantIdentifier;
     }
+
+    /**
+     * Write freeze of one tenant
+     */
+    private static class TenantFreeze {
+
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        private final long deadline;
+
+        TenantFreeze(long maxWaitMillis) {
+            this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        }
+    }
+
+    /**
+     * When a tenant data source was created and last handed out a connection,
+     * and the master_tenant values it was created from
+     */
+    private static class PoolUsage {
+
+        private final long createdAt = System.currentTimeMillis();
+
+        private volatile long lastUsedAt;
+
+        private final String url;
+
+        private final String username;
+
+        private final String password;
+
+        private final boolean shared;
+
+        private final boolean onStandby;
+
+        PoolUsage(MasterTenant masterTenant) {
+            this.url = masterTenant.getUrl();
+            this.username = masterTenant.getUsername();
+            this.password = masterTenant.getPassword();
+            this.shared = masterTenant.isShared();
+            this.onStandby = masterTenant.isOnStandby();
+        }
+
+        boolean matches(MasterTenant masterTenant) {
+            return Objects.equals(url, masterTenant.getUrl()) && Objects.equals(username, masterTenant.getUsername())
+                    && Objects.equals(password, masterTenant.getPassword()) && shared == masterTenant.isShared();
+        }
+    }
 }
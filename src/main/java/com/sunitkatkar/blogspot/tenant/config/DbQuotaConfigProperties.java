@@ -0,0 +1,248 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Statement timeout and database time quota configuration properties which are
+ * read from the application.yml file. Timeouts and quotas can also be changed
+ * per tenant at runtime through the /admin/db-quota end point.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Configuration
+@ConfigurationProperties("multitenancy.mtapp.dbquota")
+public class DbQuotaConfigProperties {
+
+    /**
+     * Whether statement timeouts and the database time quota are applied
+     */
+    private boolean enabled = true;
+
+    /**
+     * Statement timeout in seconds for tenants without their own timeout, 0 for
+     * no timeout
+     */
+    private int defaultStatementTimeout = 30;
+
+    /**
+     * Tenant id as key and its statement timeout in seconds as value
+     */
+    private Map<String, Integer> statementTimeouts = new HashMap<>();
+
+    /**
+     * Statement timeout in seconds of a tenant which is over its quota, when it
+     * is shorter than the normal timeout of the tenant
+     */
+    private int degradedStatementTimeout = 5;
+
+    /**
+     * Length in milliseconds of the rolling window over which database time is
+     * summed up
+     */
+    private long window = 60000;
+
+    /**
+     * Database time in milliseconds a tenant may use within one window, for
+     * tenants without their own quota. 0 means no quota.
+     */
+    private long defaultQuota = 0;
+
+    /**
+     * Tenant id as key and its quota in milliseconds as value
+     */
+    private Map<String, Long> quotas = new HashMap<>();
+
+    /**
+     * Fraction of its normal request rate a tenant over its quota is allowed
+     */
+    private double throttleFactor = 0.1;
+
+    /**
+     * Time in milliseconds between two reloads of the statement timeouts and
+     * quotas of the tenants from the master database
+     */
+    private long reloadInterval = 30000;
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("DbQuotaConfigProperties [enabled=");
+        builder.append(enabled);
+        builder.append(", defaultStatementTimeout=");
+        builder.append(defaultStatementTimeout);
+        builder.append(", statementTimeouts=");
+        builder.append(statementTimeouts);
+        builder.append(", degradedStatementTimeout=");
+        builder.append(degradedStatementTimeout);
+        builder.append(", window=");
+        builder.append(window);
+        builder.append(", defaultQuota=");
+        builder.append(defaultQuota);
+        builder.append(", quotas=");
+        builder.append(quotas);
+        builder.append(", throttleFactor=");
+        builder.append(throttleFactor);
+        builder.append(", reloadInterval=");
+        builder.append(reloadInterval);
+        builder.append("]");
+        return builder.toString();
+    }
+
+    // Getters and Setters
+    /**
+     * @return the enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param enabled
+     *            the enabled to set
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return the defaultStatementTimeout
+     */
+    public int getDefaultStatementTimeout() {
+        return defaultStatementTimeout;
+    }
+
+    /**
+     * @param defaultStatementTimeout
+     *            the defaultStatementTimeout to set
+     */
+    public void setDefaultStatementTimeout(int defaultStatementTimeout) {
+        this.defaultStatementTimeout = defaultStatementTimeout;
+    }
+
+    /**
+     * @return the statementTimeouts
+     */
+    public Map<String, Integer> getStatementTimeouts() {
+        return statementTimeouts;
+    }
+
+    /**
+     * @param statementTimeouts
+     *            the statementTimeouts to set
+     */
+    public void setStatementTimeouts(Map<String, Integer> statementTimeouts) {
+        this.statementTimeouts = statementTimeouts;
+    }
+
+    /**
+     * @return the degradedStatementTimeout
+     */
+    public int getDegradedStatementTimeout() {
+        return degradedStatementTimeout;
+    }
+
+    /**
+     * @param degradedStatementTimeout
+     *            the degradedStatementTimeout to set
+     */
+    public void setDegradedStatementTimeout(int degradedStatementTimeout) {
+        this.degradedStatementTimeout = degradedStatementTimeout;
+    }
+
+    /**
+     * @return the window
+     */
+    public long getWindow() {
+        return window;
+    }
+
+    /**
+     * @param window
+     *            the window to set
+     */
+    public void setWindow(long window) {
+        this.window = window;
+    }
+
+    /**
+     * @return the defaultQuota
+     */
+    public long getDefaultQuota() {
+        return defaultQuota;
+    }
+
+    /**
+     * @param defaultQuota
+     *            the defaultQuota to set
+     */
+    public void setDefaultQuota(long defaultQuota) {
+        this.defaultQuota = defaultQuota;
+    }
+
+    /**
+     * @return the quotas
+     */
+    public Map<String, Long> getQuotas() {
+        return quotas;
+    }
+
+    /**
+     * @param quotas
+     *            the quotas to set
+     */
+    public void setQuotas(Map<String, Long> quotas) {
+        this.quotas = quotas;
+    }
+
+    /**
+     * @return the throttleFactor
+     */
+    public double getThrottleFactor() {
+        return throttleFactor;
+    }
+
+    /**
+     * @param throttleFactor
+     *            the throttleFactor to set
+     */
+    public void setThrottleFactor(double throttleFactor) {
+        this.throttleFactor = throttleFactor;
+    }
+
+    /**
+     * @return the reloadInterval
+     */
+    public long getReloadInterval() {
+        return reloadInterval;
+    }
+
+    /**
+     * @param reloadInterval
+     *            the reloadInterval to set
+     */
+    public void setReloadInterval(long reloadInterval) {
+        this.reloadInterval = reloadInterval;
+    }
+}
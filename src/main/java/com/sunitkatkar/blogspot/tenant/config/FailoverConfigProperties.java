@@ -0,0 +1,177 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Standby failover configuration properties which are read from the
+ * application.yml file
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Configuration
+@ConfigurationProperties("multitenancy.mtapp.failover")
+public class FailoverConfigProperties {
+
+    /**
+     * Whether the primary databases of tenants with a standby url are health
+     * checked and failed over
+     */
+    private boolean enabled = true;
+
+    /**
+     * Time in milliseconds between two health checks of the primary databases
+     */
+    private long checkInterval = 5000;
+
+    /**
+     * Time in milliseconds a health check may take to connect and validate the
+     * connection before the primary counts as unreachable
+     */
+    private int checkTimeout = 2000;
+
+    /**
+     * Number of threads checking primary databases at the same time
+     */
+    private int checkThreads = 4;
+
+    /**
+     * Number of failed health checks in a row after which a tenant is switched
+     * to its standby database
+     */
+    private int failureThreshold = 3;
+
+    /**
+     * Time in milliseconds the connections in use of the replaced pool get to
+     * be returned after a switch, before the pool is closed
+     */
+    private long drainTimeout = 10000;
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("FailoverConfigProperties [enabled=");
+        builder.append(enabled);
+        builder.append(", checkInterval=");
+        builder.append(checkInterval);
+        builder.append(", checkTimeout=");
+        builder.append(checkTimeout);
+        builder.append(", checkThreads=");
+        builder.append(checkThreads);
+        builder.append(", failureThreshold=");
+        builder.append(failureThreshold);
+        builder.append(", drainTimeout=");
+        builder.append(drainTimeout);
+        builder.append("]");
+        return builder.toString();
+    }
+
+    // Getters and Setters
+    /**
+     * @return the enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param enabled
+     *            the enabled to set
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return the checkInterval
+     */
+    public long getCheckInterval() {
+        return checkInterval;
+    }
+
+    /**
+     * @param checkInterval
+     *            the checkInterval to set
+     */
+    public void setCheckInterval(long checkInterval) {
+        this.checkInterval = checkInterval;
+    }
+
+    /**
+     * @return the checkTimeout
+     */
+    public int getCheckTimeout() {
+        return checkTimeout;
+    }
+
+    /**
+     * @param checkTimeout
+     *            the checkTimeout to set
+     */
+    public void setCheckTimeout(int checkTimeout) {
+        this.checkTimeout = checkTimeout;
+    }
+
+    /**
+     * @return the checkThreads
+     */
+    public int getCheckThreads() {
+        return checkThreads;
+    }
+
+    /**
+     * @param checkThreads
+     *            the checkThreads to set
+     */
+    public void setCheckThreads(int checkThreads) {
+        this.checkThreads = checkThreads;
+    }
+
+    /**
+     * @return the failureThreshold
+     */
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    /**
+     * @param failureThreshold
+     *            the failureThreshold to set
+     */
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    /**
+     * @return the drainTimeout
+     */
+    public long getDrainTimeout() {
+        return drainTimeout;
+    }
+
+    /**
+     * @param drainTimeout
+     *            the drainTimeout to set
+     */
+    public void setDrainTimeout(long drainTimeout) {
+        this.drainTimeout = drainTimeout;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Request latency histogram configuration properties which are read from the
+ * application.yml file
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Configuration
+@ConfigurationProperties("multitenancy.mtapp.latency")
+public class LatencyConfigProperties {
+
+    /**
+     * Highest latency in milliseconds which can be recorded, longer requests
+     * are recorded with this value
+     */
+    private long highestTrackableMillis = 60000;
+
+    /**
+     * Precision of the histograms, 2 keeps values within 1%
+     */
+    private int significantDigits = 2;
+
+    /**
+     * Time in milliseconds between two interval snapshots
+     */
+    private long snapshotInterval = 10000;
+
+    /**
+     * Number of interval snapshots which make up one reporting window
+     */
+    private int windowIntervals = 6;
+
+    /**
+     * Maximum number of tenant and endpoint combinations with their own
+     * histogram. Further combinations are recorded under the tenant
+     * <tt>_other</tt>.
+     */
+    private int maxTrackedKeys = 2000;
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("LatencyConfigProperties [highestTrackableMillis=");
+        builder.append(highestTrackableMillis);
+        builder.append(", significantDigits=");
+        builder.append(significantDigits);
+        builder.append(", snapshotInterval=");
+        builder.append(snapshotInterval);
+        builder.append(", windowIntervals=");
+        builder.append(windowIntervals);
+        builder.append(", maxTrackedKeys=");
+        builder.append(maxTrackedKeys);
+        builder.append("]");
+        return builder.toString();
+    }
+
+    // Getters and Setters
+    /**
+     * @return the highestTrackableMillis
+     */
+    public long getHighestTrackableMillis() {
+        return highestTrackableMillis;
+    }
+
+    /**
+     * @param highestTrackableMillis
+     *            the highestTrackableMillis to set
+     */
+    public void setHighestTrackableMillis(long highestTrackableMillis) {
+        this.highestTrackableMillis = highestTrackableMillis;
+    }
+
+    /**
+     * @return the significantDigits
+     */
+    public int getSignificantDigits() {
+        return significantDigits;
+    }
+
+    /**
+     * @param significantDigits
+     *            the significantDigits to set
+     */
+    public void setSignificantDigits(int significantDigits) {
+        this.significantDigits = significantDigits;
+    }
+
+    /**
+     * @return the snapshotInterval
+     */
+    public long getSnapshotInterval() {
+        return snapshotInterval;
+    }
+
+    /**
+     * @param snapshotInterval
+     *            the snapshotInterval to set
+     */
+    public void setSnapshotInterval(long snapshotInterval) {
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    /**
+     * @return the windowIntervals
+     */
+    public int getWindowIntervals() {
+        return windowIntervals;
+    }
+
+    /**
+     * @param windowIntervals
+     *            the windowIntervals to set
+     */
+    public void setWindowIntervals(int windowIntervals) {
+        this.windowIntervals = windowIntervals;
+    }
+
+    /**
+     * @return the maxTrackedKeys
+     */
+    public int getMaxTrackedKeys() {
+        return maxTrackedKeys;
+    }
+
+    /**
+     * @param maxTrackedKeys
+     *            the maxTrackedKeys to set
+     */
+    public void setMaxTrackedKeys(int maxTrackedKeys) {
+        this.maxTrackedKeys = maxTrackedKeys;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Decides whether a login attempt of a tenant is admitted, based on the state
+ * of the tenant connection pool.
+ * 
+ * <br/>
+ * <br/>
+ * A login needs a tenant connection to load the user. When the pool of the
+ * tenant is exhausted, further logins would queue up for a connection for up
+ * to the pool connection timeout and take connections away from the users who
+ * are already logged in. A login is therefore shed when
+ * <tt>maxPendingThreads</tt> threads are already waiting for a connection of
+ * the pool, or when its recent average acquire time is at least
+ * <tt>maxAcquireLatency</tt>. Both checks only read the pool statistics, so
+ * they cost nothing on the login path. Tenants without a started pool are
+ * always admitted. For a tenant of a shared database both checks look at the
+ * shared pool. A connection timeout counts as an acquire which took the whole
+ * connection timeout.
+ * 
+ * <br/>
+ * <br/>
+ * Shed logins are counted in <tt>login.shed</tt>, tagged by tenant and
+ * reason. Only tenants with a pool are ever shed, so the tag stays bounded.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Component
+public class LoginAdmission {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(LoginAdmission.class);
+
+    private final LoginAdmissionConfigProperties admissionProperties;
+
+    private final DataSourceBasedMultiTenantConnectionProviderImpl connectionProvider;
+
+    private final TenantPoolMetricsTrackerFactory poolMetricsTrackerFactory;
+
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public LoginAdmission(LoginAdmissionConfigProperties admissionProperties,
+            DataSourceBasedMultiTenantConnectionProviderImpl connectionProvider,
+            TenantPoolMetricsTrackerFactory poolMetricsTrackerFactory,
+            MeterRegistry meterRegistry) {
+        this.admissionProperties = admissionProperties;
+        this.connectionProvider = connectionProvider;
+        this.poolMetricsTrackerFactory = poolMetricsTrackerFactory;
+        this.meterRegistry = meterRegistry;
+        LOG.info("Login load shedding set up with: " + admissionProperties);
+    }
+
+    /**
+     * @param tenantId
+     * @return 0 if the login attempt is admitted, else the number of seconds
+     *         after which the client should retry
+     */
+    public int shed(String tenantId) {
+        if (!admissionProperties.isEnabled() || tenantId == null
+                || tenantId.isEmpty()) {
+            return 0;
+        }
+        String reason = null;
+        int maxPending = admissionProperties.getMaxPendingThreads();
+        long maxLatency = admissionProperties.getMaxAcquireLatency();
+        if (maxPending > 0 && connectionProvider
+                .getPendingThreads(tenantId) >= maxPending) {
+            reason = "pending";
+        } else if (maxLatency > 0
+                && poolMetricsTrackerFactory.getRecentAcquireMillis(
+                        connectionProvider.getPoolName(tenantId),
+                        admissionProperties.getLatencyWindow()) >= maxLatency) {
+            reason = "latency";
+        }
+        if (reason == null) {
+            return 0;
+        }
+        meterRegistry.counter("login.shed", "tenant", tenantId, "reason",
+                reason).increment();
+        LOG.debug("Shedding login of tenant:" + tenantId + ", reason:"
+                + reason);
+        return Math.max(1, admissionProperties.getRetryAfter());
+    }
+}
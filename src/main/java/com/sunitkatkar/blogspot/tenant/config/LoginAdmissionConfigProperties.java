@@ -0,0 +1,156 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Login load shedding configuration properties which are read from the
+ * application.yml file
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Configuration
+@ConfigurationProperties("multitenancy.mtapp.loginadmission")
+public class LoginAdmissionConfigProperties {
+
+    /**
+     * Whether login attempts are shed when the tenant pool is saturated
+     */
+    private boolean enabled = true;
+
+    /**
+     * Number of threads waiting for a connection of the tenant pool at which
+     * new login attempts of the tenant are shed, 0 to not look at it
+     */
+    private int maxPendingThreads = 2;
+
+    /**
+     * Recent average time in milliseconds to get a connection of the tenant
+     * pool at which new login attempts of the tenant are shed, 0 to not look at
+     * it
+     */
+    private long maxAcquireLatency = 1000;
+
+    /**
+     * Time in milliseconds after which the acquire time of a pool which did not
+     * hand out connections any more is no longer considered recent
+     */
+    private long latencyWindow = 5000;
+
+    /**
+     * Seconds sent in the <tt>Retry-After</tt> header of a shed login
+     * attempt
+     */
+    private int retryAfter = 5;
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("LoginAdmissionConfigProperties [enabled=");
+        builder.append(enabled);
+        builder.append(", maxPendingThreads=");
+        builder.append(maxPendingThreads);
+        builder.append(", maxAcquireLatency=");
+        builder.append(maxAcquireLatency);
+        builder.append(", latencyWindow=");
+        builder.append(latencyWindow);
+        builder.append(", retryAfter=");
+        builder.append(retryAfter);
+        builder.append("]");
+        return builder.toString();
+    }
+
+    // Getters and Setters
+    /**
+     * @return the enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param enabled
+     *            the enabled to set
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return the maxPendingThreads
+     */
+    public int getMaxPendingThreads() {
+        return maxPendingThreads;
+    }
+
+    /**
+     * @param maxPendingThreads
+     *            the maxPendingThreads to set
+     */
+    public void setMaxPendingThreads(int maxPendingThreads) {
+        this.maxPendingThreads = maxPendingThreads;
+    }
+
+    /**
+     * @return the maxAcquireLatency
+     */
+    public long getMaxAcquireLatency() {
+        return maxAcquireLatency;
+    }
+
+    /**
+     * @param maxAcquireLatency
+     *            the maxAcquireLatency to set
+     */
+    public void setMaxAcquireLatency(long maxAcquireLatency) {
+        this.maxAcquireLatency = maxAcquireLatency;
+    }
+
+    /**
+     * @return the latencyWindow
+     */
+    public long getLatencyWindow() {
+        return latencyWindow;
+    }
+
+    /**
+     * @param latencyWindow
+     *            the latencyWindow to set
+     */
+    public void setLatencyWindow(long latencyWindow) {
+        this.latencyWindow = latencyWindow;
+    }
+
+    /**
+     * @return the retryAfter
+     */
+    public int getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * @param retryAfter
+     *            the retryAfter to set
+     */
+    public void setRetryAfter(int retryAfter) {
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Login audit configuration properties which are read from the
+ * application.yml file
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Configuration
+@ConfigurationProperties("multitenancy.mtapp.loginaudit")
+public class LoginAuditConfigProperties {
+
+    /**
+     * What to do with a login event when the ring is full
+     */
+    public enum OverflowPolicy {
+        /**
+         * Drop the event being recorded and keep the queued ones
+         */
+        DROP_NEWEST,
+        /**
+         * Drop the oldest queued event to make room for the new one
+         */
+        DROP_OLDEST
+    }
+
+    /**
+     * Whether login attempts are written to the tenant databases at all
+     */
+    private boolean enabled = true;
+
+    /**
+     * Maximum number of login events waiting to be written, rounded up to the
+     * next power of two
+     */
+    private int capacity = 65536;
+
+    /**
+     * Number of queued events which triggers a flush, and the maximum number
+     * of rows written in one JDBC batch
+     */
+    private int batchSize = 500;
+
+    /**
+     * Time in milliseconds after which queued events are flushed even if
+     * fewer than <tt>batchSize</tt> are waiting
+     */
+    private long flushInterval = 1000;
+
+    /**
+     * Time in milliseconds the writer has on shutdown to flush the events
+     * still queued
+     */
+    private long shutdownTimeout = 10000;
+
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_NEWEST;
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("LoginAuditConfigProperties [enabled=");
+        builder.append(enabled);
+        builder.append(", capacity=");
+        builder.append(capacity);
+        builder.append(", batchSize=");
+        builder.append(batchSize);
+        builder.append(", flushInterval=");
+        builder.append(flushInterval);
+        builder.append(", shutdownTimeout=");
+        builder.append(shutdownTimeout);
+        builder.append(", overflowPolicy=");
+        builder.append(overflowPolicy);
+        builder.append("]");
+        return builder.toString();
+    }
+
+    // Getters and Setters
+    /**
+     * @return the enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param enabled
+     *            the enabled to set
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @param capacity
+     *            the capacity to set
+     */
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return the batchSize
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @param batchSize
+     *            the batchSize to set
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return the flushInterval
+     */
+    public long getFlushInterval() {
+        return flushInterval;
+    }
+
+    /**
+     * @param flushInterval
+     *            the flushInterval to set
+     */
+    public void setFlushInterval(long flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    /**
+     * @return the shutdownTimeout
+     */
+    public long getShutdownTimeout() {
+        return shutdownTimeout;
+    }
+
+    /**
+     * @param shutdownTimeout
+     *            the shutdownTimeout to set
+     */
+    public void setShutdownTimeout(long shutdownTimeout) {
+        this.shutdownTimeout = shutdownTimeout;
+    }
+
+    /**
+     * @return the overflowPolicy
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * @param overflowPolicy
+     *            the overflowPolicy to set
+     */
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+}
@@ -0,0 +1,410 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.config;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import com.sunitkatkar.blogspot.tenant.config.LoginAuditConfigProperties.OverflowPolicy;
+import com.sunitkatkar.blogspot.tenant.model.LoginAuditEvent;
+import com.sunitkatkar.blogspot.util.EventRing;
+import com.sunitkatkar.blogspot.util.TenantContextHolder;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Writes the login attempts of the tenant users to the <tt>login_audit</tt>
+ * table and the time of the last successful login to the user, without adding
+ * a database write to the login itself.
+ * 
+ * <br/>
+ * <br/>
+ * The authentication provider only puts a {@link LoginAuditEvent} into an
+ * {@link EventRing}. A single writer thread takes the events off the ring,
+ * groups them by tenant and writes each group in one transaction with JDBC
+ * batches, as soon as <tt>batchSize</tt> events are waiting or
+ * <tt>flushInterval</tt> has passed since the first of them. When the ring is
+ * full the <tt>overflowPolicy</tt> decides which event is dropped; dropped
+ * events are counted, never blocked on.
+ * 
+ * <br/>
+ * <br/>
+ * On shutdown no new events are accepted and the writer flushes everything
+ * still queued within <tt>shutdownTimeout</tt>. It runs in a higher lifecycle
+ * phase than the {@link TenantPoolShutdown}, so the tenant pools are still
+ * open while it does.
+ * 
+ * <br/>
+ * <br/>
+ * Published metrics: <tt>login.audit.written</tt>,
+ * <tt>login.audit.dropped</tt> (ring full, or tenant unknown or unavailable)
+ * and <tt>login.audit.failed</tt> (the write failed), plus the gauge
+ * <tt>login.audit.queued</tt>.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Component
+public class LoginAuditWriter implements SmartLifecycle {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(LoginAuditWriter.class);
+
+    private static final String INSERT_AUDIT = "insert into login_audit "
+            + "(tenant, username, success, reason, remote_address, login_at) "
+            + "values (?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_LAST_LOGIN = "update user "
+            + "set last_login_at = greatest(coalesce(last_login_at, ?), ?) "
+            + "where username = ? and tenant = ?";
+
+    /**
+     * Length of the varchar columns of <tt>login_audit</tt>. Longer values are
+     * cut so that a single event cannot fail the batch of its tenant.
+     */
+    private static final int MAX_VALUE_LENGTH = 255;
+
+    private static final int MAX_REASON_LENGTH = 100;
+
+    private static final int MAX_ADDRESS_LENGTH = 45;
+
+    /**
+     * Attempts of {@link OverflowPolicy#DROP_OLDEST} to make room before the
+     * new event is dropped after all
+     */
+    private static final int DROP_OLDEST_ATTEMPTS = 4;
+
+    private final LoginAuditConfigProperties loginAuditProperties;
+
+    private final DataSourceBasedMultiTenantConnectionProviderImpl connectionProvider;
+
+    private final EventRing<LoginAuditEvent> ring;
+
+    private final Counter written;
+
+    private final Counter dropped;
+
+    private final Counter failed;
+
+    private volatile boolean accepting;
+
+    private volatile boolean running;
+
+    private volatile Thread writer;
+
+    @Autowired
+    public LoginAuditWriter(LoginAuditConfigProperties loginAuditProperties,
+            DataSourceBasedMultiTenantConnectionProviderImpl connectionProvider,
+            MeterRegistry meterRegistry) {
+        this.loginAuditProperties = loginAuditProperties;
+        this.connectionProvider = connectionProvider;
+        this.ring = new EventRing<>(loginAuditProperties.getCapacity());
+        this.written = Counter.builder("login.audit.written")
+                .description("Login events written to the tenant databases")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("login.audit.dropped")
+                .description("Login events dropped before they were written")
+                .register(meterRegistry);
+        this.failed = Counter.builder("login.audit.failed")
+                .description("Login events whose write failed")
+                .register(meterRegistry);
+        Gauge.builder("login.audit.queued", ring, EventRing::size)
+                .description("Login events waiting to be written")
+                .register(meterRegistry);
+        LOG.info("Login audit set up with: " + loginAuditProperties);
+    }
+
+    /**
+     * Queues a login attempt, never blocks
+     * 
+     * @param tenantId
+     * @param username
+     * @param success
+     * @param reason
+     *            why the login failed, <tt>null</tt> if it succeeded
+     * @param remoteAddress
+     * @return false if the event was dropped
+     */
+    public boolean record(String tenantId, String username, boolean success,
+            String reason, String remoteAddress) {
+        if (!accepting || tenantId == null || username == null) {
+            return false;
+        }
+        LoginAuditEvent event = new LoginAuditEvent(
+                truncate(tenantId, MAX_VALUE_LENGTH),
+                truncate(username, MAX_VALUE_LENGTH), success,
+                truncate(reason, MAX_REASON_LENGTH),
+                truncate(remoteAddress, MAX_ADDRESS_LENGTH),
+                System.currentTimeMillis());
+        boolean queued = ring.offer(event);
+        if (!queued && loginAuditProperties
+                .getOverflowPolicy() == OverflowPolicy.DROP_OLDEST) {
+            for (int i = 0; i < DROP_OLDEST_ATTEMPTS && !queued; i++) {
+                if (ring.poll() != null) {
+                    dropped.increment();
+                }
+                queued = ring.offer(event);
+            }
+        }
+        if (!queued) {
+            dropped.increment();
+            return false;
+        }
+        if (ring.size() >= loginAuditProperties.getBatchSize()) {
+            Thread thread = writer;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void start() {
+        if (!loginAuditProperties.isEnabled()) {
+            return;
+        }
+        running = true;
+        accepting = true;
+        Thread thread = new Thread(this::writeLoop, "login-audit-writer");
+        thread.setDaemon(true);
+        writer = thread;
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        accepting = false;
+        running = false;
+        Thread thread = writer;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(loginAuditProperties.getShutdownTimeout());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            LOG.warn("Login audit writer did not flush within "
+                    + loginAuditProperties.getShutdownTimeout()
+                    + "ms, events still queued:" + ring.size());
+        }
+        writer = null;
+    }
+
+    @Override
+    public void stop(Runnable callback) {
+        try {
+            stop();
+        } finally {
+            callback.run();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return true;
+    }
+
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE;
+    }
+
+    private void writeLoop() {
+        int batchSize = Math.max(1, loginAuditProperties.getBatchSize());
+        long interval = TimeUnit.MILLISECONDS
+                .toNanos(loginAuditProperties.getFlushInterval());
+        List<LoginAuditEvent> pending = new ArrayList<>(batchSize);
+        long deadline = System.nanoTime() + interval;
+        while (true) {
+            // Read before draining, so that nothing queued before the stop is
+            // left behind
+            boolean stopping = !running;
+            LoginAuditEvent event;
+            while (pending.size() < batchSize
+                    && (event = ring.poll()) != null) {
+                pending.add(event);
+            }
+            long now = System.nanoTime();
+            if (pending.size() >= batchSize || (!pending.isEmpty()
+                    && (stopping || now - deadline >= 0))) {
+                flush(pending);
+                pending.clear();
+                deadline = System.nanoTime() + interval;
+                continue;
+            }
+            if (stopping) {
+                return;
+            }
+            if (pending.isEmpty()) {
+                deadline = now + interval;
+            }
+            LockSupport.parkNanos(this, deadline - now);
+        }
+    }
+
+    private void flush(List<LoginAuditEvent> events) {
+        Map<String, List<LoginAuditEvent>> byTenant = new LinkedHashMap<>();
+        for (LoginAuditEvent event : events) {
+            byTenant.computeIfAbsent(event.getTenantId(),
+                    tenantId -> new ArrayList<>()).add(event);
+        }
+        for (Map.Entry<String, List<LoginAuditEvent>> entry : byTenant
+                .entrySet()) {
+            try {
+                write(entry.getKey(), entry.getValue());
+            } catch (RuntimeException e) {
+                failed.increment(entry.getValue().size());
+                LOG.warn("Writing the login events of tenant:"
+                        + entry.getKey() + " failed", e);
+            }
+        }
+    }
+
+    private void write(String tenantId, List<LoginAuditEvent> events) {
+        TenantContextHolder.setTenantId(tenantId);
+        Connection connection = null;
+        try {
+            try {
+                connection = connectionProvider.getConnection(tenantId);
+            } catch (RuntimeException e) {
+                // The tenant does not exist, e.g. a mistyped tenant on the
+                // login page, or it is not active
+                dropped.increment(events.size());
+                LOG.debug("Dropping the login events of tenant:" + tenantId
+                        + ", " + e.getMessage());
+                return;
+            }
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                insertAudit(connection, events);
+                updateLastLogin(connection, events);
+                connection.commit();
+                written.increment(events.size());
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            failed.increment(events.size());
+            LOG.warn("Writing the login events of tenant:" + tenantId
+                    + " failed", e);
+        } finally {
+            if (connection != null) {
+                try {
+                    connectionProvider.releaseConnection(tenantId, connection);
+                } catch (SQLException e) {
+                    LOG.warn("Releasing the connection of tenant:" + tenantId
+                            + " failed", e);
+                }
+            }
+            TenantContextHolder.clear();
+        }
+    }
+
+    private static void insertAudit(Connection connection,
+            List<LoginAuditEvent> events) throws SQLException {
+        try (PreparedStatement statement = connection
+                .prepareStatement(INSERT_AUDIT)) {
+            for (LoginAuditEvent event : events) {
+                statement.setString(1, event.getTenantId());
+                statement.setString(2, event.getUsername());
+                statement.setBoolean(3, event.isSuccess());
+                if (event.getReason() == null) {
+                    statement.setNull(4, Types.VARCHAR);
+                } else {
+                    statement.setString(4, event.getReason());
+                }
+                if (event.getRemoteAddress() == null) {
+                    statement.setNull(5, Types.VARCHAR);
+                } else {
+                    statement.setString(5, event.getRemoteAddress());
+                }
+                statement.setTimestamp(6,
+                        new Timestamp(event.getTimestamp()));
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * Writes one row per user, with the latest of its successful logins. The
+     * update never moves the last login backwards.
+     */
+    private static void updateLastLogin(Connection connection,
+            List<LoginAuditEvent> events) throws SQLException {
+        Map<String, LoginAuditEvent> latest = new HashMap<>();
+        for (LoginAuditEvent event : events) {
+            if (event.isSuccess()) {
+                latest.merge(event.getUsername(), event,
+                        (a, b) -> a.getTimestamp() >= b.getTimestamp() ? a
+                                : b);
+            }
+        }
+        if (latest.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement statement = connection
+                .prepareStatement(UPDATE_LAST_LOGIN)) {
+            for (LoginAuditEvent event : latest.values()) {
+                Timestamp loginAt = new Timestamp(event.getTimestamp());
+                statement.setTimestamp(1, loginAt);
+                statement.setTimestamp(2, loginAt);
+                statement.setString(3, event.getUsername());
+                statement.setString(4, event.getTenantId());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value == null || value.length() <= maxLength ? value
+                : value.substring(0, maxLength);
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Per tenant request rate limit configuration properties which are read from
+ * the application.yml file. The plan and the rate limit override of each
+ * tenant are read from the master_tenant table.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Configuration
+@ConfigurationProperties("multitenancy.mtapp.ratelimit")
+public class RateLimitConfigProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Plan name as key and the requests per second allowed for a tenant on
+     * that plan as value
+     */
+    private Map<String, Integer> plans = new HashMap<>();
+
+    /**
+     * Plan of tenants without a plan, or with a plan not configured here. It
+     * also limits login attempts for unknown tenants, which share one bucket.
+     */
+    private String defaultPlan = "free";
+
+    /**
+     * Number of seconds worth of requests a tenant may send at once after
+     * being idle
+     */
+    private double burstSeconds = 1;
+
+    /**
+     * Time in milliseconds between two reloads of the tenant limits from the
+     * master database. Idle buckets are dropped at the same time.
+     */
+    private long reloadInterval = 30000;
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("RateLimitConfigProperties [enabled=");
+        builder.append(enabled);
+        builder.append(", plans=");
+        builder.append(plans);
+        builder.append(", defaultPlan=");
+        builder.append(defaultPlan);
+        builder.append(", burstSeconds=");
+        builder.append(burstSeconds);
+        builder.append(", reloadInterval=");
+        builder.append(reloadInterval);
+        builder.append("]");
+        return builder.toString();
+    }
+
+    // Getters and Setters
+    /**
+     * @return the enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param enabled
+     *            the enabled to set
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return the plans
+     */
+    public Map<String, Integer> getPlans() {
+        return plans;
+    }
+
+    /**
+     * @param plans
+     *            the plans to set
+     */
+    public void setPlans(Map<String, Integer> plans) {
+        this.plans = plans;
+    }
+
+    /**
+     * @return the defaultPlan
+     */
+    public String getDefaultPlan() {
+        return defaultPlan;
+    }
+
+    /**
+     * @param defaultPlan
+     *            the defaultPlan to set
+     */
+    public void setDefaultPlan(String defaultPlan) {
+        this.defaultPlan = defaultPlan;
+    }
+
+    /**
+     * @return the burstSeconds
+     */
+    public double getBurstSeconds() {
+        return burstSeconds;
+    }
+
+    /**
+     * @param burstSeconds
+     *            the burstSeconds to set
+     */
+    public void setBurstSeconds(double burstSeconds) {
+        this.burstSeconds = burstSeconds;
+    }
+
+    /**
+     * @return the reloadInterval
+     */
+    public long getReloadInterval() {
+        return reloadInterval;
+    }
+
+    /**
+     * @param reloadInterval
+     *            the reloadInterval to set
+     */
+    public void setReloadInterval(long reloadInterval) {
+        this.reloadInterval = reloadInterval;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import com.sunitkatkar.blogspot.util.TenantContextHolder;
+
+/**
+ * Hands every statement Hibernate prepares to the {@link SqlLogRecorder}. The
+ * statement is passed through unchanged.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+public class SamplingStatementInspector implements StatementInspector {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient SqlLogRecorder sqlLogRecorder;
+
+    /**
+     * Fixed name to record statements under, <tt>null</tt> to use the current
+     * tenant
+     */
+    private final String source;
+
+    public SamplingStatementInspector(SqlLogRecorder sqlLogRecorder,
+            String source) {
+        this.sqlLogRecorder = sqlLogRecorder;
+        this.source = source;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        sqlLogRecorder.record(
+                source != null ? source : TenantContextHolder.getTenant(), sql);
+        return sql;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Shared tenant database configuration properties which are read from the
+ * application.yml file
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Configuration
+@ConfigurationProperties("multitenancy.mtapp.shared")
+public class SharedDatabaseConfigProperties {
+
+    /**
+     * JDBC url of the database new shared tenants are provisioned into
+     */
+    private String url;
+
+    /** database user name */
+    private String username;
+
+    /** database password */
+    private String password;
+
+    /**
+     * Maximum number of connections of a shared pool. It serves all tenants
+     * of its database, so it is larger than a dedicated tenant pool.
+     */
+    private int maximumPoolSize = 40;
+
+    /**
+     * Minimum number of idle connections of a shared pool
+     */
+    private int minimumIdle = 10;
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("SharedDatabaseConfigProperties [url=");
+        builder.append(url);
+        builder.append(", username=");
+        builder.append(username);
+        builder.append(", maximumPoolSize=");
+        builder.append(maximumPoolSize);
+        builder.append(", minimumIdle=");
+        builder.append(minimumIdle);
+        builder.append("]");
+        return builder.toString();
+    }
+
+    // Getters and Setters
+    /**
+     * @return the url
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * @param url
+     *            the url to set
+     */
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    /**
+     * @return the username
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * @param username
+     *            the username to set
+     */
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    /**
+     * @return the password
+     */
+    public String getPassword() {
+        return password;
+    }
+
+    /**
+     * @param password
+     *            the password to set
+     */
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    /**
+     * @return the maximumPoolSize
+     */
+    public int getMaximumPoolSize() {
+        return maximumPoolSize;
+    }
+
+    /**
+     * @param maximumPoolSize
+     *            the maximumPoolSize to set
+     */
+    public void setMaximumPoolSize(int maximumPoolSize) {
+        this.maximumPoolSize = maximumPoolSize;
+    }
+
+    /**
+     * @return the minimumIdle
+     */
+    public int getMinimumIdle() {
+        return minimumIdle;
+    }
+
+    /**
+     * @param minimumIdle
+     *            the minimumIdle to set
+     */
+    public void setMinimumIdle(int minimumIdle) {
+        this.minimumIdle = minimumIdle;
+    }
+}
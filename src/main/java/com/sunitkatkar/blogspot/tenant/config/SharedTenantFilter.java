@@ -0,0 +1,189 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.config;
+
+import java.io.Serializable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.CallbackException;
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.Session;
+import org.hibernate.type.Type;
+import org.springframework.util.ClassUtils;
+
+import com.sunitkatkar.blogspot.tenant.model.Role;
+import com.sunitkatkar.blogspot.util.TenantContextHolder;
+
+/**
+ * Keeps the tenants of a shared database apart by their <tt>tenant</tt>
+ * column.
+ * 
+ * <br/>
+ * <br/>
+ * Every entity manager opened for a shared tenant has the
+ * <tt>{@value #FILTER_NAME}</tt> Hibernate filter enabled for that tenant, so
+ * all queries of entities with a <tt>tenant</tt> column only see its rows.
+ * Filters do not apply to loading by id or to writes, so as an interceptor
+ * this class also rejects loading and updating rows of another tenant and
+ * fills in the tenant of new rows. {@link Role}s are shared by all tenants
+ * of a database, so they are read only for a shared tenant. Tenants with their
+ * own database are left alone.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+public class SharedTenantFilter extends EmptyInterceptor {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Name of the filter, which entities with a <tt>tenant</tt> column define
+     * with a <tt>tenant</tt> parameter
+     */
+    public static final String FILTER_NAME = "tenantFilter";
+
+    private static final String TENANT_PROPERTY = "tenant";
+
+    private final transient DataSourceBasedMultiTenantConnectionProviderImpl connectionProvider;
+
+    public SharedTenantFilter(
+            DataSourceBasedMultiTenantConnectionProviderImpl connectionProvider) {
+        this.connectionProvider = connectionProvider;
+    }
+
+    /**
+     * Wraps the native entity manager factory so that the filter is enabled
+     * on every entity manager it creates, whether for a transaction or for a
+     * single repository call
+     * 
+     * @param entityManagerFactory
+     * @return
+     */
+    public EntityManagerFactory wrap(
+            EntityManagerFactory entityManagerFactory) {
+        return (EntityManagerFactory) Proxy.newProxyInstance(
+                entityManagerFactory.getClass().getClassLoader(),
+                ClassUtils.getAllInterfaces(entityManagerFactory),
+                (proxy, method, args) -> {
+                    Object result;
+                    try {
+                        result = method.invoke(entityManagerFactory, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                    if ("createEntityManager".equals(method.getName())
+                            && result instanceof Session) {
+                        enableFilter((Session) result);
+                    }
+                    return result;
+                });
+    }
+
+    private void enableFilter(Session session) {
+        String tenant = sharedTenant();
+        if (tenant != null) {
+            session.enableFilter(FILTER_NAME).setParameter(TENANT_PROPERTY,
+                    tenant);
+        }
+    }
+
+    @Override
+    public boolean onLoad(Object entity, Serializable id, Object[] state,
+            String[] propertyNames, Type[] types) {
+        checkTenant(entity, id, state, propertyNames);
+        return false;
+    }
+
+    @Override
+    public boolean onFlushDirty(Object entity, Serializable id,
+            Object[] currentState, Object[] previousState,
+            String[] propertyNames, Type[] types) {
+        checkNotRole(entity, id, sharedTenant());
+        checkTenant(entity, id, currentState, propertyNames);
+        return false;
+    }
+
+    @Override
+    public void onDelete(Object entity, Serializable id, Object[] state,
+            String[] propertyNames, Type[] types) {
+        checkNotRole(entity, id, sharedTenant());
+        checkTenant(entity, id, state, propertyNames);
+    }
+
+    @Override
+    public boolean onSave(Object entity, Serializable id, Object[] state,
+            String[] propertyNames, Type[] types) {
+        String tenant = sharedTenant();
+        checkNotRole(entity, id, tenant);
+        int index = indexOfTenant(propertyNames);
+        if (tenant == null || index < 0) {
+            return false;
+        }
+        if (state[index] == null) {
+            state[index] = tenant;
+            return true;
+        }
+        checkTenant(entity, id, state, propertyNames);
+        return false;
+    }
+
+    private void checkTenant(Object entity, Serializable id, Object[] state,
+            String[] propertyNames) {
+        String tenant = sharedTenant();
+        int index = indexOfTenant(propertyNames);
+        if (tenant != null && index >= 0 && !tenant.equals(state[index])) {
+            throw new CallbackException(String.format(
+                    "Row belongs to another tenant, entity=%s, id=%s, tenant=%s",
+                    entity.getClass().getSimpleName(), id, tenant));
+        }
+    }
+
+    /**
+     * Roles are shared by all tenants of a database, so one tenant must not
+     * change them for the others
+     */
+    private static void checkNotRole(Object entity, Serializable id,
+            String tenant) {
+        if (tenant != null && entity instanceof Role) {
+            throw new CallbackException(String.format(
+                    "Roles are read only for a shared tenant, id=%s, tenant=%s",
+                    id, tenant));
+        }
+    }
+
+    /**
+     * @return the current tenant if it is served by a shared database,
+     *         <tt>null</tt> otherwise
+     */
+    private String sharedTenant() {
+        String tenant = TenantContextHolder.getTenant();
+        return connectionProvider.isSharedTenant(tenant) ? tenant : null;
+    }
+
+    private static int indexOfTenant(String[] propertyNames) {
+        for (int i = 0; i < propertyNames.length; i++) {
+            if (TENANT_PROPERTY.equals(propertyNames[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Tenant pool shutdown configuration properties which are read from the
+ * application.yml file
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Configuration
+@ConfigurationProperties("multitenancy.mtapp.shutdown")
+public class ShutdownConfigProperties {
+
+    /**
+     * Time in milliseconds to wait for tenant connections in use to be returned
+     * before the pools are closed anyway
+     */
+    private long drainTimeout = 20000;
+
+    /**
+     * Number of threads closing tenant pools at the same time
+     */
+    private int closeThreads = 16;
+
+    /**
+     * Time in milliseconds to wait for all tenant pools to be closed
+     */
+    private long closeTimeout = 30000;
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("ShutdownConfigProperties [drainTimeout=");
+        builder.append(drainTimeout);
+        builder.append(", closeThreads=");
+        builder.append(closeThreads);
+        builder.append(", closeTimeout=");
+        builder.append(closeTimeout);
+        builder.append("]");
+        return builder.toString();
+    }
+
+    // Getters and Setters
+    /**
+     * @return the drainTimeout
+     */
+    public long getDrainTimeout() {
+        return drainTimeout;
+    }
+
+    /**
+     * @param drainTimeout
+     *            the drainTimeout to set
+     */
+    public void setDrainTimeout(long drainTimeout) {
+        this.drainTimeout = drainTimeout;
+    }
+
+    /**
+     * @return the closeThreads
+     */
+    public int getCloseThreads() {
+        return closeThreads;
+    }
+
+    /**
+     * @param closeThreads
+     *            the closeThreads to set
+     */
+    public void setCloseThreads(int closeThreads) {
+        this.closeThreads = closeThreads;
+    }
+
+    /**
+     * @return the closeTimeout
+     */
+    public long getCloseTimeout() {
+        return closeTimeout;
+    }
+
+    /**
+     * @param closeTimeout
+     *            the closeTimeout to set
+     */
+    public void setCloseTimeout(long closeTimeout) {
+        this.closeTimeout = closeTimeout;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Slow query log configuration properties which are read from the
+ * application.yml file
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Configuration
+@ConfigurationProperties("multitenancy.mtapp.slowquery")
+public class SlowQueryConfigProperties {
+
+    /**
+     * Whether tenant statements are timed at all
+     */
+    private boolean enabled = true;
+
+    /**
+     * Execution time in milliseconds from which a statement is recorded, for
+     * tenants without their own threshold
+     */
+    private long defaultThreshold = 500;
+
+    /**
+     * Tenant id as key and its threshold in milliseconds as value
+     */
+    private Map<String, Long> thresholds = new HashMap<>();
+
+    /**
+     * Maximum number of distinct statements kept per tenant. When it is
+     * reached the statement with the lowest maximum execution time is
+     * dropped.
+     */
+    private int maxStatementsPerTenant = 100;
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("SlowQueryConfigProperties [enabled=");
+        builder.append(enabled);
+        builder.append(", defaultThreshold=");
+        builder.append(defaultThreshold);
+        builder.append(", thresholds=");
+        builder.append(thresholds);
+        builder.append(", maxStatementsPerTenant=");
+        builder.append(maxStatementsPerTenant);
+        builder.append("]");
+        return builder.toString();
+    }
+
+    // Getters and Setters
+    /**
+     * @return the enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param enabled
+     *            the enabled to set
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return the defaultThreshold
+     */
+    public long getDefaultThreshold() {
+        return defaultThreshold;
+    }
+
+    /**
+     * @param defaultThreshold
+     *            the defaultThreshold to set
+     */
+    public void setDefaultThreshold(long defaultThreshold) {
+        this.defaultThreshold = defaultThreshold;
+    }
+
+    /**
+     * @return the thresholds
+     */
+    public Map<String, Long> getThresholds() {
+        return thresholds;
+    }
+
+    /**
+     * @param thresholds
+     *            the thresholds to set
+     */
+    public void setThresholds(Map<String, Long> thresholds) {
+        this.thresholds = thresholds;
+    }
+
+    /**
+     * @return the maxStatementsPerTenant
+     */
+    public int getMaxStatementsPerTenant() {
+        return maxStatementsPerTenant;
+    }
+
+    /**
+     * @param maxStatementsPerTenant
+     *            the maxStatementsPerTenant to set
+     */
+    public void setMaxStatementsPerTenant(int maxStatementsPerTenant) {
+        this.maxStatementsPerTenant = maxStatementsPerTenant;
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.sunitkatkar.blogspot.tenant.model.SlowQueryStats;
+import com.sunitkatkar.blogspot.util.Span;
+import com.sunitkatkar.blogspot.util.StatementDeadlineHolder;
+import com.sunitkatkar.blogspot.util.Tracer;
+
+/**
+ * Times the statements executed on tenant connections and keeps the ones which
+ * exceed the threshold of their tenant, grouped by their SQL.
+ * 
+ * <br/>
+ * <br/>
+ * Connections handed out by the
+ * {@link DataSourceBasedMultiTenantConnectionProviderImpl} are wrapped in a
+ * JDK proxy, which wraps the statements they create. The Hikari pools
+ * themselves are left untouched so their management and metrics keep working.
+ * Statements below the threshold cost two calls to
+ * <code>System.nanoTime()</code>.
+ * 
+ * <br/>
+ * <br/>
+ * The same proxies apply the statement timeout of the tenant to every new
+ * statement and report the execution times to the {@link TenantDbQuota}.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Component
+public class SlowQueryRecorder {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(SlowQueryRecorder.class);
+
+    private final SlowQueryConfigProperties slowQueryProperties;
+
+    private final TenantDbQuota tenantDbQuota;
+
+    /**
+     * Tenant id as key and its threshold in milliseconds as value
+     */
+    private final Map<String, Long> thresholds = new ConcurrentHashMap<>();
+
+    /**
+     * Tenant id as key and its slow statements by statement key as value
+     */
+    private final Map<String, Map<String, SlowQueryStats>> slowQueries = new ConcurrentHashMap<>();
+
+    @Autowired
+    public SlowQueryRecorder(SlowQueryConfigProperties slowQueryProperties,
+            TenantDbQuota tenantDbQuota) {
+        this.slowQueryProperties = slowQueryProperties;
+        this.tenantDbQuota = tenantDbQuota;
+        this.thresholds.putAll(slowQueryProperties.getThresholds());
+        LOG.info("Slow query log set up with: " + slowQueryProperties);
+    }
+
+    /**
+     * @param tenantId
+     * @param connection
+     * @return the connection with timed statements, or the connection itself
+     *         when both the slow query log and the database quota are
+     *         disabled and no statement deadline is set
+     */
+    public Connection wrap(String tenantId, Connection connection) {
+        if ((!slowQueryProperties.isEnabled() && !tenantDbQuota.isEnabled()
+                && !StatementDeadlineHolder.isSet()) || tenantId == null) {
+            return connection;
+        }
+        return (Connection) Proxy.newProxyInstance(
+                SlowQueryRecorder.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new ConnectionHandler(tenantId, connection));
+    }
+
+    /**
+     * @param tenantId
+     * @param limit
+     * @return the slow statements of the tenant, slowest first
+     */
+    public List<SlowQueryStats> getSlowest(String tenantId, int limit) {
+        Map<String, SlowQueryStats> statements = slowQueries.get(tenantId);
+        if (statements == null) {
+            return Collections.emptyList();
+        }
+        List<SlowQueryStats> slowest = new ArrayList<>(statements.values());
+        slowest.sort(Comparator.comparingLong(SlowQueryStats::getMaxMillis)
+                .reversed());
+        return slowest.size() > limit ? slowest.subList(0, limit) : slowest;
+    }
+
+    /**
+     * @param tenantId
+     * @return the threshold in milliseconds of the tenant
+     */
+    public long getThreshold(String tenantId) {
+        return thresholds.getOrDefault(tenantId,
+                slowQueryProperties.getDefaultThreshold());
+    }
+
+    /**
+     * @param tenantId
+     * @param millis
+     */
+    public void setThreshold(String tenantId, long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid threshold, threshold=%s", millis));
+        }
+        thresholds.put(tenantId, millis);
+    }
+
+    /**
+     * Forgets the slow statements recorded for the tenant
+     * 
+     * @param tenantId
+     */
+    public void clear(String tenantId) {
+        slowQueries.remove(tenantId);
+    }
+
+    void record(String tenantId, String sql, long nanos) {
+        if (tenantDbQuota.isEnabled()) {
+            tenantDbQuota.record(tenantId, nanos);
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        if (!slowQueryProperties.isEnabled() || sql == null
+                || millis < getThreshold(tenantId)) {
+            return;
+        }
+        Map<String, SlowQueryStats> statements = slowQueries
+                .computeIfAbsent(tenantId, id -> new ConcurrentHashMap<>());
+        String statementKey = Integer.toHexString(sql.hashCode());
+        SlowQueryStats stats = statements.get(statementKey);
+        if (stats == null) {
+            synchronized (statements) {
+                if (statements.size() >= slowQueryProperties
+                        .getMaxStatementsPerTenant()) {
+                    evictFastest(statements, millis);
+                }
+                if (statements.size() >= slowQueryProperties
+                        .getMaxStatementsPerTenant()) {
+                    return;
+                }
+                stats = statements.computeIfAbsent(statementKey,
+                        key -> new SlowQueryStats(key, sql, countBinds(sql)));
+            }
+        }
+        stats.record(millis);
+        LOG.warn("Slow statement " + statementKey + " for tenant:" + tenantId
+                + " took " + millis + "ms");
+    }
+
+    /**
+     * Makes room for a new statement by dropping the one with the lowest
+     * maximum, unless even that one is slower than the new statement
+     */
+    private static void evictFastest(Map<String, SlowQueryStats> statements,
+            long millis) {
+        SlowQueryStats fastest = null;
+        for (SlowQueryStats stats : statements.values()) {
+            if (fastest == null || stats.getMaxMillis() < fastest.getMaxMillis()) {
+                fastest = stats;
+            }
+        }
+        if (fastest != null && fastest.getMaxMillis() < millis) {
+            statements.remove(fastest.getStatementKey());
+        }
+    }
+
+    /**
+     * Counts the <tt>?</tt> placeholders outside of quoted literals
+     */
+    private static int countBinds(String sql) {
+        int binds = 0;
+        char quote = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            } else if (c == '?') {
+                binds++;
+            }
+        }
+        return binds;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args)
+            throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Wraps the statements created by a tenant connection
+     */
+    private class ConnectionHandler implements InvocationHandler {
+
+        private final String tenantId;
+
+        private final Connection connection;
+
+        ConnectionHandler(String tenantId, Connection connection) {
+            this.tenantId = tenantId;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args)
+                throws Throwable {
+            Object result = SlowQueryRecorder.invoke(connection, method, args);
+            if (result instanceof Statement) {
+                int timeout = tenantDbQuota.isEnabled()
+                        ? tenantDbQuota.getStatementTimeout(tenantId) : 0;
+                // The deadline of the work in progress only ever shortens
+                // the timeout of the tenant
+                int remaining = StatementDeadlineHolder.getRemainingSeconds();
+                if (remaining > 0 && (timeout <= 0 || remaining < timeout)) {
+                    timeout = remaining;
+                }
+                if (timeout > 0) {
+                    ((Statement) result).setQueryTimeout(timeout);
+                }
+                String sql = args != null && args.length > 0
+                        && args[0] instanceof String ? (String) args[0] : null;
+                Class<?> type = result instanceof CallableStatement
+                        ? CallableStatement.class
+                        : result instanceof PreparedStatement
+                                ? PreparedStatement.class : Statement.class;
+                return Proxy.newProxyInstance(
+                        SlowQueryRecorder.class.getClassLoader(),
+                        new Class<?>[] { type },
+                        new StatementHandler(tenantId, (Statement) result,
+                                sql));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Times the execute methods of a statement, and traces them when the
+     * request is traced. Plain statements get their SQL with the execute call,
+     * prepared statements when they are created.
+     */
+    private class StatementHandler implements InvocationHandler {
+
+        private final String tenantId;
+
+        private final Statement statement;
+
+        private final String preparedSql;
+
+        StatementHandler(String tenantId, Statement statement,
+                String preparedSql) {
+            this.tenantId = tenantId;
+            this.statement = statement;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args)
+                throws Throwable {
+            if (!method.getName().startsWith("execute")) {
+                return SlowQueryRecorder.invoke(statement, method, args);
+            }
+            String sql = args != null && args.length > 0
+                    && args[0] instanceof String ? (String) args[0]
+                            : preparedSql;
+            Span span = Tracer.startSpan("sql");
+            long start = System.nanoTime();
+            try {
+                return SlowQueryRecorder.invoke(statement, method, args);
+            } catch (SQLTimeoutException e) {
+                tenantDbQuota.recordTimeout(tenantId);
+                throw e;
+            } finally {
+                record(tenantId, sql, System.nanoTime() - start);
+                if (span.isRecording() && sql != null) {
+                    span.tag("tenant", tenantId).tag("db.statement.key",
+                            Integer.toHexString(sql.hashCode()));
+                }
+                span.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Sampled SQL logging configuration properties which are read from the
+ * application.yml file. The sample rates set here are the startup values,
+ * they can be changed per tenant at runtime through the /admin/sql end point.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Configuration
+@ConfigurationProperties("multitenancy.mtapp.sqllog")
+public class SqlLogConfigProperties {
+
+    /**
+     * Fraction of statements between 0 and 1 which are recorded for tenants
+     * without their own sample rate. 0 turns SQL logging off.
+     */
+    private double defaultSampleRate = 0;
+
+    /**
+     * Tenant id as key and its sample rate as value. The master database is
+     * configured with the key <tt>master</tt>.
+     */
+    private Map<String, Double> sampleRates = new HashMap<>();
+
+    /**
+     * Number of most recent sampled statements kept in memory
+     */
+    private int bufferSize = 1024;
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("SqlLogConfigProperties [defaultSampleRate=");
+        builder.append(defaultSampleRate);
+        builder.append(", sampleRates=");
+        builder.append(sampleRates);
+        builder.append(", bufferSize=");
+        builder.append(bufferSize);
+        builder.append("]");
+        return builder.toString();
+    }
+
+    // Getters and Setters
+    /**
+     * @return the defaultSampleRate
+     */
+    public double getDefaultSampleRate() {
+        return defaultSampleRate;
+    }
+
+    /**
+     * @param defaultSampleRate
+     *            the defaultSampleRate to set
+     */
+    public void setDefaultSampleRate(double defaultSampleRate) {
+        this.defaultSampleRate = defaultSampleRate;
+    }
+
+    /**
+     * @return the sampleRates
+     */
+    public Map<String, Double> getSampleRates() {
+        return sampleRates;
+    }
+
+    /**
+     * @param sampleRates
+     *            the sampleRates to set
+     */
+    public void setSampleRates(Map<String, Double> sampleRates) {
+        this.sampleRates = sampleRates;
+    }
+
+    /**
+     * @return the bufferSize
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @param bufferSize
+     *            the bufferSize to set
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+}
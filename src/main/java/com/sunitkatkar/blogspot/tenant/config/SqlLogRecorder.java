@@ -0,0 +1,182 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.config;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.sunitkatkar.blogspot.tenant.model.SqlLogEntry;
+
+/**
+ * Records a sample of the SQL statements of each tenant in a fixed size ring
+ * buffer, which replaces the always on <tt>show_sql</tt> output.
+ * 
+ * <br/>
+ * <br/>
+ * Writers claim a slot with a single atomic increment and never block each
+ * other or the readers. A reader walks back from the newest sequence and skips
+ * slots which have already been overwritten by a newer statement. With the
+ * default sample rate of 0 a statement costs a map lookup and nothing else.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Component
+public class SqlLogRecorder {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(SqlLogRecorder.class);
+
+    private final SqlLogConfigProperties sqlLogProperties;
+
+    private final AtomicReferenceArray<SqlLogEntry> buffer;
+
+    /**
+     * Sequence number of the next statement to be recorded
+     */
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    /**
+     * Tenant id as key and its sample rate as value, for tenants which do not
+     * use the default sample rate
+     */
+    private final Map<String, Double> sampleRates = new ConcurrentHashMap<>();
+
+    private volatile double defaultSampleRate;
+
+    @Autowired
+    public SqlLogRecorder(SqlLogConfigProperties sqlLogProperties) {
+        this.sqlLogProperties = sqlLogProperties;
+        this.buffer = new AtomicReferenceArray<>(
+                Math.max(1, sqlLogProperties.getBufferSize()));
+        this.defaultSampleRate = sqlLogProperties.getDefaultSampleRate();
+        this.sampleRates.putAll(sqlLogProperties.getSampleRates());
+        LOG.info("SQL logging set up with: " + sqlLogProperties);
+    }
+
+    /**
+     * Records the statement if it is picked by the sample rate of the tenant
+     * 
+     * @param tenantId
+     * @param sql
+     */
+    public void record(String tenantId, String sql) {
+        double rate = tenantId == null ? defaultSampleRate
+                : sampleRates.getOrDefault(tenantId, defaultSampleRate);
+        if (rate <= 0 || (rate < 1
+                && ThreadLocalRandom.current().nextDouble() >= rate)) {
+            return;
+        }
+        long sequence = nextSequence.getAndIncrement();
+        SqlLogEntry entry = new SqlLogEntry(sequence,
+                System.currentTimeMillis(), tenantId,
+                Thread.currentThread().getName(), sql);
+        buffer.set((int) (sequence % buffer.length()), entry);
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("[" + tenantId + "] " + sql);
+        }
+    }
+
+    /**
+     * @param tenantId
+     *            the tenant to return statements for, <tt>null</tt> for all
+     *            tenants
+     * @param limit
+     * @return the most recent sampled statements, newest first
+     */
+    public List<SqlLogEntry> getRecent(String tenantId, int limit) {
+        List<SqlLogEntry> entries = new ArrayList<>();
+        long newest = nextSequence.get() - 1;
+        long oldest = Math.max(0, newest - buffer.length() + 1);
+        for (long sequence = newest; sequence >= oldest
+                && entries.size() < limit; sequence--) {
+            SqlLogEntry entry = buffer
+                    .get((int) (sequence % buffer.length()));
+            // The slot is either not written yet or already reused
+            if (entry == null || entry.getSequence() != sequence) {
+                continue;
+            }
+            if (tenantId == null || tenantId.equals(entry.getTenantId())) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * @return the default sample rate under the key <tt>default</tt> and
+     *         every tenant specific sample rate
+     */
+    public Map<String, Double> getSampleRates() {
+        Map<String, Double> rates = new HashMap<>(sampleRates);
+        rates.put("default", defaultSampleRate);
+        return rates;
+    }
+
+    /**
+     * @param tenantId
+     * @param rate
+     *            between 0 and 1
+     */
+    public void setSampleRate(String tenantId, double rate) {
+        sampleRates.put(tenantId, checkRate(rate));
+        LOG.info("SQL sample rate of tenant:" + tenantId + " set to " + rate);
+    }
+
+    /**
+     * Makes the tenant use the default sample rate again
+     * 
+     * @param tenantId
+     */
+    public void resetSampleRate(String tenantId) {
+        Double configured = sqlLogProperties.getSampleRates().get(tenantId);
+        if (configured == null) {
+            sampleRates.remove(tenantId);
+        } else {
+            sampleRates.put(tenantId, configured);
+        }
+    }
+
+    /**
+     * @param rate
+     *            between 0 and 1
+     */
+    public void setDefaultSampleRate(double rate) {
+        defaultSampleRate = checkRate(rate);
+        LOG.info("Default SQL sample rate set to " + rate);
+    }
+
+    private static double checkRate(double rate) {
+        if (rate < 0 || rate > 1) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid sample rate, rate=%s", rate));
+        }
+        return rate;
+    }
+}
@@ -15,14 +15,17 @@
  */
 package com.sunitkatkar.blogspot.tenant.config;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceException;
 
 import org.hibernate.MultiTenancyStrategy;
 import org.hibernate.context.spi.CurrentTenantIdentifierResolver;
-import org.hibernate.engine.jdbc.connections.spi.MultiTenantConnectionProvider;
+import org.hibernate.jpa.boot.internal.EntityManagerFactoryBuilderImpl;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -69,9 +72,18 @@ public class TenantDatabaseConfig {
         return new HibernateJpaVendorAdapter();
     }
 
+    /**
+     * Note the <b>{@literal @}Qualifier</b> annotation. Without it the
+     * <tt>{@literal @}Primary</tt> master entity manager factory would be
+     * injected and tenant transactions would not bind the tenant entity
+     * manager.
+     * 
+     * @param tenantEntityManager
+     * @return
+     */
     @Bean(name = "tenantTransactionManager")
     public JpaTransactionManager transactionManager(
-            EntityManagerFactory tenantEntityManager) {
+            @Qualifier("tenantEntityManagerFactory") EntityManagerFactory tenantEntityManager) {
         JpaTransactionManager transactionManager = new JpaTransactionManager();
         transactionManager.setEntityManagerFactory(tenantEntityManager);
         return transactionManager;
@@ -84,7 +96,7 @@ public class TenantDatabaseConfig {
      */
     @Bean(name = "datasourceBasedMultitenantConnectionProvider")
     @ConditionalOnBean(name = "masterEntityManagerFactory")
-    public MultiTenantConnectionProvider multiTenantConnectionProvider() {
+    public DataSourceBasedMultiTenantConnectionProviderImpl multiTenantConnectionProvider() {
         // Autowires the multi connection provider
         return new DataSourceBasedMultiTenantConnectionProviderImpl();
     }
@@ -104,19 +116,34 @@ public class TenantDatabaseConfig {
      * JPA functionalities provided by the JPA persistence provider, i.e.
      * Hibernate in this case.
      * 
+     * Tenants in a shared database are kept apart by the
+     * {@link SharedTenantFilter}, which wraps the native factory so that its
+     * filter is enabled on every entity manager.
+     * 
      * @param connectionProvider
      * @param tenantResolver
+     * @param sqlLogRecorder
      * @return
      */
     @Bean(name = "tenantEntityManagerFactory")
     @ConditionalOnBean(name = "datasourceBasedMultitenantConnectionProvider")
     public LocalContainerEntityManagerFactoryBean entityManagerFactory(
             @Qualifier("datasourceBasedMultitenantConnectionProvider") 
-            MultiTenantConnectionProvider connectionProvider,
+            DataSourceBasedMultiTenantConnectionProviderImpl connectionProvider,
             @Qualifier("currentTenantIdentifierResolver") 
-            CurrentTenantIdentifierResolver tenantResolver) {
+            CurrentTenantIdentifierResolver tenantResolver,
+            SqlLogRecorder sqlLogRecorder) {
 
-        LocalContainerEntityManagerFactoryBean emfBean = new LocalContainerEntityManagerFactoryBean();
+        SharedTenantFilter sharedTenantFilter = new SharedTenantFilter(
+                connectionProvider);
+        LocalContainerEntityManagerFactoryBean emfBean = new LocalContainerEntityManagerFactoryBean() {
+            @Override
+            protected EntityManagerFactory createNativeEntityManagerFactory()
+                    throws PersistenceException {
+                return sharedTenantFilter
+                        .wrap(super.createNativeEntityManagerFactory());
+            }
+        };
         //All tenant related entities, repositories and service classes must be scanned
         emfBean.setPackagesToScan(
                 new String[] { User.class.getPackage().getName(),
@@ -138,9 +165,24 @@ public class TenantDatabaseConfig {
         // "org.hibernate.cfg.ImprovedNamingStrategy");
         properties.put(org.hibernate.cfg.Environment.DIALECT,
                 "org.hibernate.dialect.MySQL5Dialect");
-        properties.put(org.hibernate.cfg.Environment.SHOW_SQL, true);
-        properties.put(org.hibernate.cfg.Environment.FORMAT_SQL, true);
-        properties.put(org.hibernate.cfg.Environment.HBM2DDL_AUTO, "update");
+        // Statements are sampled into the SqlLogRecorder instead of printing
+        // and formatting every one of them with show_sql
+        properties.put(org.hibernate.cfg.Environment.STATEMENT_INSPECTOR,
+                new SamplingStatementInspector(sqlLogRecorder, null));
+        // Tenant schemas are managed by the TenantSchemaMigrationService.
+        // hbm2ddl would only inspect whichever tenant selectAnyDataSource()
+        // returns, and do so on a live connection at startup.
+        properties.put(org.hibernate.cfg.Environment.HBM2DDL_AUTO, "none");
+        // The factory statistics cannot tell tenants apart, so every session
+        // reports its own numbers to the TenantHibernateMetrics
+        properties.put(
+                org.hibernate.cfg.Environment.AUTO_SESSION_EVENTS_LISTENER,
+                TenantSessionMetricsListener.class.getName());
+        properties.put(EntityManagerFactoryBuilderImpl.INTEGRATOR_PROVIDER,
+                (IntegratorProvider) () -> Collections
+                        .singletonList(new TenantEntityLoadCounter()));
+        properties.put(org.hibernate.cfg.Environment.INTERCEPTOR,
+                sharedTenantFilter);
 
         emfBean.setJpaPropertyMap(properties);
         LOG.info("tenantEntityManagerFactory set up successfully!");
@@ -0,0 +1,363 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.config;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.sunitkatkar.blogspot.master.repository.MasterTenantRepository;
+import com.sunitkatkar.blogspot.tenant.model.DbQuotaUsage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Applies statement timeouts to tenant statements and keeps track of the
+ * database time each tenant uses over a rolling window.
+ * 
+ * <br/>
+ * <br/>
+ * The database time is the time spent in the execute methods of the tenant
+ * statements, as measured by the {@link SlowQueryRecorder}. A tenant which
+ * uses more than its quota within the window is degraded: its new statements
+ * get the shorter <tt>degradedStatementTimeout</tt>, and the
+ * {@link TenantRateLimiter} lets through only <tt>throttleFactor</tt> of its
+ * normal request rate. Both are lifted as soon as the window has rolled past
+ * enough of the expensive statements.
+ * 
+ * <br/>
+ * <br/>
+ * The timeout and quota of a tenant come from the <tt>statement_timeout</tt>
+ * and <tt>db_quota</tt> columns of its master_tenant row, or else from the
+ * configuration. Like the rate limits they are reloaded from the master
+ * database every <tt>reloadInterval</tt>, so an override made on one node
+ * reaches all nodes and survives a restart.
+ * 
+ * <br/>
+ * <br/>
+ * Published metrics, tagged by tenant: <tt>tenant.db.time</tt> (seconds of
+ * database time), <tt>tenant.db.statement.timeouts</tt> and
+ * <tt>tenant.db.quota.exceeded</tt> (times the tenant went over its quota),
+ * plus the gauge <tt>tenant.db.quota.over</tt> with the number of tenants
+ * over their quota right now.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Component
+public class TenantDbQuota {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(TenantDbQuota.class);
+
+    /**
+     * Number of slices of the rolling window. Database time drops out of the
+     * window one slice at a time.
+     */
+    private static final int SLICES = 12;
+
+    private final DbQuotaConfigProperties dbQuotaProperties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final MasterTenantRepository masterTenantRepo;
+
+    /**
+     * Tenant id as key and its statement timeout in seconds as value. Replaced
+     * as a whole on every reload.
+     */
+    private volatile Map<String, Integer> statementTimeouts;
+
+    /**
+     * Tenant id as key and its quota in milliseconds as value. Replaced as a
+     * whole on every reload.
+     */
+    private volatile Map<String, Long> quotas;
+
+    /**
+     * Tenant id as key and its database time over the window as value. Tenants
+     * without database time in the whole window are dropped.
+     */
+    private final Map<String, DbTimeWindow> windows = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TenantDbQuota(DbQuotaConfigProperties dbQuotaProperties,
+            MeterRegistry meterRegistry,
+            MasterTenantRepository masterTenantRepo) {
+        this.dbQuotaProperties = dbQuotaProperties;
+        this.meterRegistry = meterRegistry;
+        this.masterTenantRepo = masterTenantRepo;
+        this.statementTimeouts = new HashMap<>(
+                dbQuotaProperties.getStatementTimeouts());
+        this.quotas = new HashMap<>(dbQuotaProperties.getQuotas());
+        Gauge.builder("tenant.db.quota.over", windows,
+                w -> w.values().stream().filter(window -> window.overQuota)
+                        .count())
+                .description("Number of tenants over their database time quota")
+                .register(meterRegistry);
+        LOG.info("Statement timeouts and database time quotas set up with: "
+                + dbQuotaProperties);
+    }
+
+    public boolean isEnabled() {
+        return dbQuotaProperties.isEnabled();
+    }
+
+    /**
+     * @param tenantId
+     * @return the statement timeout in seconds to apply to a new statement of
+     *         the tenant, 0 for no timeout
+     */
+    public int getStatementTimeout(String tenantId) {
+        int timeout = statementTimeouts.getOrDefault(tenantId,
+                dbQuotaProperties.getDefaultStatementTimeout());
+        int degraded = dbQuotaProperties.getDegradedStatementTimeout();
+        if (degraded > 0 && isOverQuota(tenantId)
+                && (timeout == 0 || degraded < timeout)) {
+            return degraded;
+        }
+        return timeout;
+    }
+
+    /**
+     * @return the fraction of its request rate allowed to a tenant over its
+     *         quota
+     */
+    public double getThrottleFactor() {
+        return dbQuotaProperties.getThrottleFactor();
+    }
+
+    /**
+     * @param tenantId
+     * @return whether the tenant used more database time than its quota over
+     *         the current window
+     */
+    public boolean isOverQuota(String tenantId) {
+        DbTimeWindow window = windows.get(tenantId);
+        if (window == null || !window.overQuota) {
+            return false;
+        }
+        // The flag is only set when recording, clear it once the window has
+        // rolled past enough database time
+        long quota = getQuota(tenantId);
+        if (quota == 0 || window.total(System.currentTimeMillis()) <= quota) {
+            window.overQuota = false;
+        }
+        return window.overQuota;
+    }
+
+    /**
+     * Adds the execution time of one statement to the database time of the
+     * tenant
+     * 
+     * @param tenantId
+     * @param nanos
+     */
+    void record(String tenantId, long nanos) {
+        DbTimeWindow window = windows.get(tenantId);
+        if (window == null) {
+            window = windows.computeIfAbsent(tenantId, this::newWindow);
+        }
+        long now = System.currentTimeMillis();
+        window.add(now, nanos);
+        window.dbTime.increment(nanos / 1e9);
+        long quota = getQuota(tenantId);
+        if (quota > 0 && !window.overQuota && window.total(now) > quota) {
+            window.overQuota = true;
+            window.exceeded.increment();
+            LOG.warn("Tenant:" + tenantId + " is over its database time quota of "
+                    + quota + "ms per " + dbQuotaProperties.getWindow() + "ms");
+        }
+    }
+
+    /**
+     * Counts a statement of the tenant cancelled by its statement timeout
+     * 
+     * @param tenantId
+     */
+    void recordTimeout(String tenantId) {
+        meterRegistry.counter("tenant.db.statement.timeouts", "tenant", tenantId)
+                .increment();
+    }
+
+    /**
+     * @param tenantId
+     * @return the timeout, quota and current database time of the tenant
+     */
+    public DbQuotaUsage getUsage(String tenantId) {
+        DbTimeWindow window = windows.get(tenantId);
+        long used = window == null ? 0
+                : window.total(System.currentTimeMillis());
+        return new DbQuotaUsage(tenantId, getStatementTimeout(tenantId),
+                dbQuotaProperties.getWindow(), getQuota(tenantId), used,
+                isOverQuota(tenantId));
+    }
+
+    /**
+     * Changes the statement timeout override of a tenant in the master
+     * database and reloads the overrides right away
+     * 
+     * @param tenantId
+     * @param seconds
+     *            0 for no timeout
+     * @return whether the tenant exists
+     */
+    public boolean setStatementTimeout(String tenantId, int seconds) {
+        if (seconds < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid statement timeout, statementTimeout=%s", seconds));
+        }
+        if (masterTenantRepo.updateStatementTimeout(tenantId, seconds) == 0) {
+            return false;
+        }
+        reload();
+        return true;
+    }
+
+    /**
+     * Changes the quota override of a tenant in the master database and
+     * reloads the overrides right away
+     * 
+     * @param tenantId
+     * @param millis
+     *            0 for no quota
+     * @return whether the tenant exists
+     */
+    public boolean setQuota(String tenantId, long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid quota, quota=%s", millis));
+        }
+        if (masterTenantRepo.updateDbQuota(tenantId, millis) == 0) {
+            return false;
+        }
+        reload();
+        return true;
+    }
+
+    /**
+     * Reloads the statement timeout and quota overrides of all tenants from
+     * the master database, on top of the configured ones
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${multitenancy.mtapp.dbquota.reloadInterval:30000}")
+    public void reload() {
+        try {
+            List<Object[]> rows = masterTenantRepo.findDbQuotas();
+            Map<String, Integer> reloadedTimeouts = new HashMap<>(
+                    dbQuotaProperties.getStatementTimeouts());
+            Map<String, Long> reloadedQuotas = new HashMap<>(
+                    dbQuotaProperties.getQuotas());
+            for (Object[] row : rows) {
+                if (row[1] != null) {
+                    reloadedTimeouts.put((String) row[0], (Integer) row[1]);
+                }
+                if (row[2] != null) {
+                    reloadedQuotas.put((String) row[0], (Long) row[2]);
+                }
+            }
+            statementTimeouts = reloadedTimeouts;
+            quotas = reloadedQuotas;
+        } catch (RuntimeException e) {
+            LOG.warn("Could not reload tenant database quotas, keeping the previous ones", e);
+        }
+    }
+
+    /**
+     * Drops the windows of tenants which used no database time over the whole
+     * window, so that memory only grows with the active tenants
+     */
+    @Scheduled(fixedDelayString = "${multitenancy.mtapp.dbquota.window:60000}")
+    public void dropIdleWindows() {
+        long now = System.currentTimeMillis();
+        windows.values().removeIf(window -> window.total(now) == 0);
+    }
+
+    private long getQuota(String tenantId) {
+        return quotas.getOrDefault(tenantId,
+                dbQuotaProperties.getDefaultQuota());
+    }
+
+    private DbTimeWindow newWindow(String tenantId) {
+        return new DbTimeWindow(
+                Math.max(1, dbQuotaProperties.getWindow() / SLICES),
+                Counter.builder("tenant.db.time").baseUnit("seconds")
+                        .description("Time spent executing tenant statements")
+                        .tag("tenant", tenantId).register(meterRegistry),
+                meterRegistry.counter("tenant.db.quota.exceeded", "tenant",
+                        tenantId));
+    }
+
+    /**
+     * Database time of one tenant in slices of the rolling window. A statement
+     * takes milliseconds, so the lock is not a point of contention.
+     */
+    private static class DbTimeWindow {
+
+        private final long sliceMillis;
+
+        private final long[] sliceIds = new long[SLICES];
+
+        private final long[] sliceNanos = new long[SLICES];
+
+        private final Counter dbTime;
+
+        private final Counter exceeded;
+
+        private volatile boolean overQuota;
+
+        DbTimeWindow(long sliceMillis, Counter dbTime, Counter exceeded) {
+            this.sliceMillis = sliceMillis;
+            this.dbTime = dbTime;
+            this.exceeded = exceeded;
+        }
+
+        synchronized void add(long now, long nanos) {
+            long slice = now / sliceMillis;
+            int index = (int) (slice % SLICES);
+            if (sliceIds[index] != slice) {
+                sliceIds[index] = slice;
+                sliceNanos[index] = 0;
+            }
+            sliceNanos[index] += nanos;
+        }
+
+        /**
+         * @return the database time in milliseconds over the window ending now
+         */
+        synchronized long total(long now) {
+            long slice = now / sliceMillis;
+            long nanos = 0;
+            for (int i = 0; i < SLICES; i++) {
+                if (slice - sliceIds[i] < SLICES) {
+                    nanos += sliceNanos[i];
+                }
+            }
+            return TimeUnit.NANOSECONDS.toMillis(nanos);
+        }
+    }
+}
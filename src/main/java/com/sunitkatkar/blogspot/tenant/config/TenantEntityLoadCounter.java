@@ -0,0 +1,81 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.config;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostLoadEvent;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+/**
+ * Counts the entities loaded on the current thread for the
+ * {@link TenantSessionMetricsListener}. Session event listeners are not told
+ * about loads, so this post load listener is added to the tenant entity
+ * manager factory and the session listener takes the count when its session
+ * ends.
+ * 
+ * <br/>
+ * <br/>
+ * A session opened inside another one on the same thread takes the loads of
+ * the outer session made so far. Both belong to the tenant of the thread, so
+ * the totals of the tenant are still right.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+public class TenantEntityLoadCounter
+        implements Integrator, PostLoadEventListener {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final ThreadLocal<long[]> LOADS = ThreadLocal
+            .withInitial(() -> new long[1]);
+
+    @Override
+    public void integrate(Metadata metadata,
+            SessionFactoryImplementor sessionFactory,
+            SessionFactoryServiceRegistry serviceRegistry) {
+        serviceRegistry.getService(EventListenerRegistry.class)
+                .appendListeners(EventType.POST_LOAD, this);
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory,
+            SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    @Override
+    public void onPostLoad(PostLoadEvent event) {
+        LOADS.get()[0]++;
+    }
+
+    /**
+     * @return the number of entities loaded on the current thread since the
+     *         last call, which resets it
+     */
+    static long take() {
+        long[] loads = LOADS.get();
+        long taken = loads[0];
+        loads[0] = 0;
+        return taken;
+    }
+}
@@ -0,0 +1,409 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.config;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.sunitkatkar.blogspot.master.model.MasterTenant;
+import com.sunitkatkar.blogspot.master.model.TenantStatus;
+import com.sunitkatkar.blogspot.master.repository.MasterTenantRepository;
+import com.sunitkatkar.blogspot.tenant.model.TenantFailoverStatus;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Health checks the primary database of every tenant with a standby url and
+ * fails the tenant over to its standby database while the primary is down.
+ * 
+ * <br/>
+ * <br/>
+ * Every <tt>checkInterval</tt> the primary databases are connected to
+ * directly, not through the tenant pools, on <tt>checkThreads</tt> threads and
+ * with a timeout of <tt>checkTimeout</tt>. After <tt>failureThreshold</tt>
+ * failed checks in a row the decision to fail over is recorded in the
+ * <tt>on_standby</tt> column of <tt>master_tenant</tt>, with a conditional
+ * update on its version, so that only the first node to decide changes it.
+ * Every node, including the deciding one, then switches its pool to follow
+ * the column, see
+ * {@link DataSourceBasedMultiTenantConnectionProviderImpl#follow(MasterTenant)}.
+ * A switch starts the new pool before it replaces the current one in one step,
+ * so it never leaves the tenant without a pool. If the target database cannot
+ * be connected to, the pool stays where it is and the switch is retried on
+ * the next check.
+ * 
+ * <br/>
+ * <br/>
+ * Switching back is never automatic, as the writes made on the standby would
+ * be lost on the primary. Once they have been replicated back, an operator
+ * switches the tenant with <tt>POST /admin/tenants/{tenantId}/failover</tt>
+ * and <tt>toStandby=false</tt>. The primary keeps being checked meanwhile, so
+ * the status shows when it is reachable again.
+ * 
+ * <br/>
+ * <br/>
+ * The failover time is measured from the first failed check of the streak to
+ * the completed switch and published as the timer
+ * <tt>tenant.failover.time</tt>, tagged by tenant and target
+ * (<tt>standby</tt> or <tt>primary</tt>). Failed switches are counted in
+ * <tt>tenant.failover.errors</tt>. The check streaks are kept per node and in
+ * memory only. Tenants in a shared database are not failed over.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Component
+public class TenantFailoverMonitor {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(TenantFailoverMonitor.class);
+
+    @Autowired
+    private FailoverConfigProperties failoverProperties;
+
+    @Autowired
+    private DataSourceBasedMultiTenantConnectionProviderImpl connectionProvider;
+
+    @Autowired
+    private MasterTenantRepository masterTenantRepo;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Tenant id as key and its health check state as value. Only changed by
+     * the scheduled check, and by manual switches.
+     */
+    private final Map<String, FailoverState> states = new ConcurrentHashMap<>();
+
+    private ExecutorService checkers;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        checkers = Executors.newFixedThreadPool(
+                Math.max(1, failoverProperties.getCheckThreads()),
+                runnable -> {
+                    Thread thread = new Thread(runnable,
+                            "tenant-failover-check-"
+                                    + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        LOG.info("Standby failover set up with: " + failoverProperties);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        checkers.shutdownNow();
+    }
+
+    /**
+     * Checks the primary database of every tenant with a standby url, and of
+     * every tenant currently on its standby, fails over tenants whose streak
+     * reached the threshold and makes the pools follow the switches decided
+     * by other nodes
+     */
+    @Scheduled(fixedDelayString = "${multitenancy.mtapp.failover.checkInterval:5000}")
+    public void checkPrimaries() {
+        if (!failoverProperties.isEnabled()) {
+            return;
+        }
+        Map<MasterTenant, Future<Boolean>> checks = new LinkedHashMap<>();
+        Set<String> tenantIds = new TreeSet<>();
+        for (MasterTenant masterTenant : masterTenantRepo.findAll()) {
+            String tenantId = masterTenant.getTenantId();
+            if (masterTenant.getStatus() != TenantStatus.ACTIVE
+                    || masterTenant.isShared()
+                    || (StringUtils.isBlank(masterTenant.getStandbyUrl())
+                            && !masterTenant.isOnStandby())) {
+                continue;
+            }
+            tenantIds.add(tenantId);
+            checks.put(masterTenant,
+                    checkers.submit(() -> isReachable(masterTenant)));
+        }
+        states.keySet().retainAll(tenantIds);
+
+        for (Map.Entry<MasterTenant, Future<Boolean>> check : checks
+                .entrySet()) {
+            update(check.getKey(), await(check.getValue()));
+        }
+    }
+
+    /**
+     * Switches a tenant right away, regardless of the health checks, for all
+     * nodes. This is also how a tenant is switched back to its primary once
+     * the writes made on the standby have been replicated back. A tenant
+     * switched back to a primary which is still down is failed over again by
+     * the next checks.
+     * 
+     * @param tenantId
+     * @param toStandby
+     * @throws SQLException
+     *             if the target database cannot be connected to from this
+     *             node, the other nodes switch anyway
+     * @throws IllegalArgumentException
+     *             if there is no such tenant or it has no standby url
+     * @throws IllegalStateException
+     *             if the tenant is in a shared database, being relocated or
+     *             was switched by another node at the same time
+     */
+    public synchronized void switchNow(String tenantId, boolean toStandby)
+            throws SQLException {
+        MasterTenant masterTenant = masterTenantRepo.findByTenantId(tenantId);
+        if (masterTenant == null) {
+            throw new IllegalArgumentException(
+                    "Tenant not found in master db, tenant=" + tenantId);
+        }
+        FailoverState state = states.computeIfAbsent(tenantId,
+                id -> new FailoverState());
+        try {
+            doSwitch(masterTenant, state, toStandby,
+                    System.currentTimeMillis());
+        } catch (OptimisticLockingFailureException e) {
+            throw new IllegalStateException(e.getMessage());
+        }
+    }
+
+    /**
+     * @return the state of every tenant which is health checked, ordered by
+     *         tenant id
+     */
+    public List<TenantFailoverStatus> getStatuses() {
+        List<TenantFailoverStatus> statuses = new ArrayList<>();
+        for (String tenantId : new TreeSet<>(states.keySet())) {
+            FailoverState state = states.get(tenantId);
+            if (state != null) {
+                statuses.add(new TenantFailoverStatus(tenantId,
+                        connectionProvider.isOnStandby(tenantId),
+                        state.primaryReachable, state.failures,
+                        state.successes, state.lastCheckAt,
+                        state.lastSwitchAt, state.lastFailoverMillis,
+                        state.lastSwitchMillis, state.switches));
+            }
+        }
+        return statuses;
+    }
+
+    private synchronized void update(MasterTenant masterTenant,
+            boolean reachable) {
+        String tenantId = masterTenant.getTenantId();
+        FailoverState state = states.computeIfAbsent(tenantId,
+                id -> new FailoverState());
+        long now = System.currentTimeMillis();
+        state.lastCheckAt = now;
+        state.primaryReachable = reachable;
+        if (reachable) {
+            state.failures = 0;
+            if (state.successes++ == 0) {
+                state.streakStartedAt = now;
+            }
+        } else {
+            state.successes = 0;
+            if (state.failures++ == 0) {
+                state.streakStartedAt = now;
+                LOG.warn("Primary database of tenant:" + tenantId
+                        + " is unreachable");
+            }
+        }
+
+        if (!masterTenant.isOnStandby() && !reachable
+                && state.failures >= failoverProperties.getFailureThreshold()
+                && StringUtils.isNotBlank(masterTenant.getStandbyUrl())) {
+            tryFailover(masterTenant, state);
+            return;
+        }
+        if (masterTenant.isOnStandby() && reachable && state.successes == 1) {
+            LOG.warn("Primary database of tenant:" + tenantId
+                    + " is reachable again, the tenant stays on its standby until it is switched back");
+        }
+        try {
+            DataSource previous = connectionProvider.follow(masterTenant);
+            if (previous != null) {
+                LOG.warn("Switched tenant:" + tenantId + " to its "
+                        + (masterTenant.isOnStandby() ? "standby" : "primary")
+                        + " database as decided by another node");
+                connectionProvider.retirePool(tenantId, previous,
+                        failoverProperties.getDrainTimeout());
+            }
+        } catch (SQLException | RuntimeException e) {
+            meterRegistry.counter("tenant.failover.errors", "tenant", tenantId)
+                    .increment();
+            LOG.warn("Could not switch tenant:" + tenantId + " to its "
+                    + (masterTenant.isOnStandby() ? "standby" : "primary")
+                    + " database", e);
+        }
+    }
+
+    private void tryFailover(MasterTenant masterTenant, FailoverState state) {
+        try {
+            doSwitch(masterTenant, state, true, state.streakStartedAt);
+        } catch (OptimisticLockingFailureException e) {
+            // Another node decided first, its decision is followed with the
+            // next check
+            LOG.info(e.getMessage());
+        } catch (SQLException | RuntimeException e) {
+            meterRegistry.counter("tenant.failover.errors", "tenant",
+                    masterTenant.getTenantId()).increment();
+            LOG.warn("Could not switch tenant:" + masterTenant.getTenantId()
+                    + " to its standby database", e);
+        }
+    }
+
+    /**
+     * Records the switch in the master database unless it is already
+     * recorded there, then switches the pool of this node
+     * 
+     * @throws OptimisticLockingFailureException
+     *             if the master_tenant row changed since it was read
+     */
+    private void doSwitch(MasterTenant masterTenant, FailoverState state,
+            boolean toStandby, long detectedAt) throws SQLException {
+        String tenantId = masterTenant.getTenantId();
+        connectionProvider.checkFailover(masterTenant, toStandby);
+        long start = System.nanoTime();
+        if (masterTenant.isOnStandby() != toStandby) {
+            if (masterTenantRepo.updateOnStandby(tenantId, toStandby,
+                    masterTenant.getVersion()) == 0) {
+                throw new OptimisticLockingFailureException(
+                        "Tenant was changed by another node meanwhile, tenant="
+                                + tenantId);
+            }
+            masterTenant.setOnStandby(toStandby);
+            masterTenant.setVersion(masterTenant.getVersion() + 1);
+        }
+        DataSource previous = connectionProvider.follow(masterTenant);
+        long now = System.currentTimeMillis();
+        state.lastSwitchMillis = TimeUnit.NANOSECONDS
+                .toMillis(System.nanoTime() - start);
+        state.lastFailoverMillis = now - detectedAt;
+        state.lastSwitchAt = now;
+        state.switches++;
+        state.failures = 0;
+        state.successes = 0;
+        Timer.builder("tenant.failover.time")
+                .description(
+                        "Time from the first failed health check, or the manual switch, to the completed switch")
+                .tags("tenant", masterTenant.getTenantId(), "target",
+                        toStandby ? "standby" : "primary")
+                .register(meterRegistry)
+                .record(state.lastFailoverMillis, TimeUnit.MILLISECONDS);
+        LOG.warn("Switched tenant:" + masterTenant.getTenantId() + " to its "
+                + (toStandby ? "standby" : "primary") + " database in "
+                + state.lastFailoverMillis + "ms, the switch itself took "
+                + state.lastSwitchMillis + "ms");
+        // Requests still using the previous database get to finish, the pool
+        // is closed in the background as closing it can block while the
+        // database is down
+        connectionProvider.retirePool(tenantId, previous,
+                failoverProperties.getDrainTimeout());
+    }
+
+    private boolean isReachable(MasterTenant masterTenant) {
+        int timeout = failoverProperties.getCheckTimeout();
+        Properties info = new Properties();
+        info.setProperty("user", masterTenant.getUsername());
+        if (masterTenant.getPassword() != null) {
+            info.setProperty("password", masterTenant.getPassword());
+        }
+        info.setProperty("connectTimeout", String.valueOf(timeout));
+        info.setProperty("socketTimeout", String.valueOf(timeout));
+        try (Connection connection = DriverManager
+                .getConnection(masterTenant.getUrl(), info)) {
+            return connection.isValid(
+                    (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(timeout)));
+        } catch (SQLException e) {
+            LOG.debug("Health check of tenant:" + masterTenant.getTenantId()
+                    + " failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean await(Future<Boolean> check) {
+        try {
+            return check.get(2L * failoverProperties.getCheckTimeout(),
+                    TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            check.cancel(true);
+            return false;
+        } catch (ExecutionException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Health check streak and last switch of one tenant
+     */
+    private static class FailoverState {
+
+        private volatile boolean primaryReachable = true;
+
+        private volatile int failures;
+
+        private volatile int successes;
+
+        /**
+         * Time of the first check of the current streak of failures or
+         * successes
+         */
+        private volatile long streakStartedAt;
+
+        private volatile long lastCheckAt;
+
+        private volatile long lastSwitchAt;
+
+        private volatile long lastFailoverMillis;
+
+        private volatile long lastSwitchMillis;
+
+        private volatile int switches;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Cross tenant fan-out configuration properties which are read from the
+ * application.yml file
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Configuration
+@ConfigurationProperties("multitenancy.mtapp.fanout")
+public class TenantFanOutConfigProperties {
+
+    /**
+     * Number of worker threads shared by all fan-out executions. This is the
+     * global cap on the number of tenants queried at the same time.
+     */
+    private int threadPoolSize = 16;
+
+    /**
+     * Maximum number of tenants queried at the same time on a single database
+     * server, identified by the host and port of the tenant JDBC url.
+     */
+    private int maxConcurrencyPerServer = 4;
+
+    /**
+     * Time in milliseconds after which a single tenant is reported as timed
+     * out, when the caller does not pass its own timeout.
+     */
+    private long defaultTimeout = 30000;
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("TenantFanOutConfigProperties [threadPoolSize=");
+        builder.append(threadPoolSize);
+        builder.append(", maxConcurrencyPerServer=");
+        builder.append(maxConcurrencyPerServer);
+        builder.append(", defaultTimeout=");
+        builder.append(defaultTimeout);
+        builder.append("]");
+        return builder.toString();
+    }
+
+    // Getters and Setters
+    /**
+     * @return the threadPoolSize
+     */
+    public int getThreadPoolSize() {
+        return threadPoolSize;
+    }
+
+    /**
+     * @param threadPoolSize
+     *            the threadPoolSize to set
+     */
+    public void setThreadPoolSize(int threadPoolSize) {
+        this.threadPoolSize = threadPoolSize;
+    }
+
+    /**
+     * @return the maxConcurrencyPerServer
+     */
+    public int getMaxConcurrencyPerServer() {
+        return maxConcurrencyPerServer;
+    }
+
+    /**
+     * @param maxConcurrencyPerServer
+     *            the maxConcurrencyPerServer to set
+     */
+    public void setMaxConcurrencyPerServer(int maxConcurrencyPerServer) {
+        this.maxConcurrencyPerServer = maxConcurrencyPerServer;
+    }
+
+    /**
+     * @return the defaultTimeout
+     */
+    public long getDefaultTimeout() {
+        return defaultTimeout;
+    }
+
+    /**
+     * @param defaultTimeout
+     *            the defaultTimeout to set
+     */
+    public void setDefaultTimeout(long defaultTimeout) {
+        this.defaultTimeout = defaultTimeout;
+    }
+}
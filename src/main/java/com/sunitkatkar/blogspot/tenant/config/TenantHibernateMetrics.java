@@ -0,0 +1,88 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.config;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Per tenant counters of the tenant entity manager factory. The Hibernate
+ * statistics of the factory are shared by all tenants, so the numbers are
+ * collected per session by the {@link TenantSessionMetricsListener} and added
+ * here when the session ends.
+ * 
+ * <br/>
+ * <br/>
+ * Hibernate creates the listener itself, one per session, so it reaches this
+ * component through a static reference in the same way the tenant id is
+ * reached through the {@link com.sunitkatkar.blogspot.util.TenantContextHolder}.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Component
+public class TenantHibernateMetrics {
+
+    private static volatile TenantHibernateMetrics instance;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @PostConstruct
+    public void register() {
+        instance = this;
+    }
+
+    @PreDestroy
+    public void unregister() {
+        instance = null;
+    }
+
+    /**
+     * @return the registered instance, <tt>null</tt> outside of a running
+     *         application
+     */
+    static TenantHibernateMetrics getInstance() {
+        return instance;
+    }
+
+    /**
+     * Adds the numbers of one finished session to the counters of its tenant
+     */
+    void record(String tenantId, long entityLoads, long statements,
+            long flushes, long commits, long rollbacks) {
+        increment("tenant.hibernate.entity.loads", tenantId, entityLoads);
+        increment("tenant.hibernate.statements", tenantId, statements);
+        increment("tenant.hibernate.flushes", tenantId, flushes);
+        increment("tenant.hibernate.transactions.committed", tenantId,
+                commits);
+        increment("tenant.hibernate.transactions.rolledback", tenantId,
+                rollbacks);
+    }
+
+    private void increment(String name, String tenantId, long amount) {
+        if (amount > 0) {
+            meterRegistry.counter(name, "tenant", tenantId).increment(amount);
+        }
+    }
+}
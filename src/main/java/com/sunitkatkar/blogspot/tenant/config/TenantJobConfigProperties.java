@@ -0,0 +1,231 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Tenant job scheduler configuration properties which are read from the
+ * application.yml file
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Configuration
+@ConfigurationProperties("multitenancy.mtapp.jobs")
+public class TenantJobConfigProperties {
+
+    /**
+     * Whether tenant jobs are run on this node. A run is locked in the master
+     * database while a node works on it, so it may be enabled on several
+     * nodes. Off unless enabled explicitly.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Time in milliseconds between two checks for due jobs
+     */
+    private long checkInterval = 60000;
+
+    /**
+     * Time in milliseconds after startup before the first check for due jobs,
+     * which also resumes the runs interrupted by the last shutdown
+     */
+    private long initialDelay = 30000;
+
+    /**
+     * Maximum number of tenants on which jobs run at the same time, over all
+     * jobs and database servers
+     */
+    private int maxConcurrency = 8;
+
+    /**
+     * Maximum number of tenants of a single database server on which a job
+     * runs at the same time, identified by the host and port of the tenant
+     * JDBC url
+     */
+    private int maxConcurrencyPerServer = 2;
+
+    /**
+     * Time in milliseconds between the starts of two runs of a job, for jobs
+     * without their own interval
+     */
+    private long defaultInterval = 86400000;
+
+    /**
+     * Job name as key and its interval in milliseconds as value. An interval of
+     * 0 disables the job, it can still be run through the /admin/jobs end
+     * point.
+     */
+    private Map<String, Long> intervals = new HashMap<>();
+
+    /**
+     * Days without a login after which the <tt>deactivate-stale-users</tt> job
+     * deactivates a user, 0 to never deactivate users. Users who never logged
+     * in since the login audit was introduced are left alone.
+     */
+    private int staleUserDays = 0;
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("TenantJobConfigProperties [enabled=");
+        builder.append(enabled);
+        builder.append(", checkInterval=");
+        builder.append(checkInterval);
+        builder.append(", initialDelay=");
+        builder.append(initialDelay);
+        builder.append(", maxConcurrency=");
+        builder.append(maxConcurrency);
+        builder.append(", maxConcurrencyPerServer=");
+        builder.append(maxConcurrencyPerServer);
+        builder.append(", defaultInterval=");
+        builder.append(defaultInterval);
+        builder.append(", intervals=");
+        builder.append(intervals);
+        builder.append(", staleUserDays=");
+        builder.append(staleUserDays);
+        builder.append("]");
+        return builder.toString();
+    }
+
+    // Getters and Setters
+    /**
+     * @return the enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param enabled
+     *            the enabled to set
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return the checkInterval
+     */
+    public long getCheckInterval() {
+        return checkInterval;
+    }
+
+    /**
+     * @param checkInterval
+     *            the checkInterval to set
+     */
+    public void setCheckInterval(long checkInterval) {
+        this.checkInterval = checkInterval;
+    }
+
+    /**
+     * @return the initialDelay
+     */
+    public long getInitialDelay() {
+        return initialDelay;
+    }
+
+    /**
+     * @param initialDelay
+     *            the initialDelay to set
+     */
+    public void setInitialDelay(long initialDelay) {
+        this.initialDelay = initialDelay;
+    }
+
+    /**
+     * @return the maxConcurrency
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * @param maxConcurrency
+     *            the maxConcurrency to set
+     */
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * @return the maxConcurrencyPerServer
+     */
+    public int getMaxConcurrencyPerServer() {
+        return maxConcurrencyPerServer;
+    }
+
+    /**
+     * @param maxConcurrencyPerServer
+     *            the maxConcurrencyPerServer to set
+     */
+    public void setMaxConcurrencyPerServer(int maxConcurrencyPerServer) {
+        this.maxConcurrencyPerServer = maxConcurrencyPerServer;
+    }
+
+    /**
+     * @return the defaultInterval
+     */
+    public long getDefaultInterval() {
+        return defaultInterval;
+    }
+
+    /**
+     * @param defaultInterval
+     *            the defaultInterval to set
+     */
+    public void setDefaultInterval(long defaultInterval) {
+        this.defaultInterval = defaultInterval;
+    }
+
+    /**
+     * @return the intervals
+     */
+    public Map<String, Long> getIntervals() {
+        return intervals;
+    }
+
+    /**
+     * @param intervals
+     *            the intervals to set
+     */
+    public void setIntervals(Map<String, Long> intervals) {
+        this.intervals = intervals;
+    }
+
+    /**
+     * @return the staleUserDays
+     */
+    public int getStaleUserDays() {
+        return staleUserDays;
+    }
+
+    /**
+     * @param staleUserDays
+     *            the staleUserDays to set
+     */
+    public void setStaleUserDays(int staleUserDays) {
+        this.staleUserDays = staleUserDays;
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.sunitkatkar.blogspot.tenant.model.LatencySnapshot;
+
+/**
+ * Keeps a latency histogram per tenant and endpoint.
+ * 
+ * <br/>
+ * <br/>
+ * Requests record into an HdrHistogram {@link Recorder}, which is wait free
+ * and does not allocate. The recorder maps are nested by tenant and endpoint
+ * so that looking them up does not build a key either. Every snapshot interval
+ * the recorders are swapped and their interval histogram is added to the
+ * current window. After <tt>windowIntervals</tt> snapshots the current window
+ * becomes the previous one, and percentiles are reported over both.
+ * 
+ * <br/>
+ * <br/>
+ * Memory is bounded by <tt>maxTrackedKeys</tt>. A tenant and endpoint without
+ * requests for a whole window is dropped, and its histograms are reset and
+ * reused for the next new combination.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Component
+public class TenantLatencyRecorder {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(TenantLatencyRecorder.class);
+
+    /**
+     * Tenant of requests beyond <tt>maxTrackedKeys</tt>
+     */
+    public static final String OTHER = "_other";
+
+    private final LatencyConfigProperties latencyProperties;
+
+    private final long highestTrackableMicros;
+
+    /**
+     * Tenant id as key and the histograms of its endpoints as value
+     */
+    private final Map<String, Map<String, LatencyHistograms>> histograms = new ConcurrentHashMap<>();
+
+    private final AtomicInteger trackedKeys = new AtomicInteger();
+
+    /**
+     * Histograms dropped in the last snapshot. They are only reset and reused
+     * after the next snapshot, so the values of requests which looked them up
+     * just before they were dropped are not counted for another tenant.
+     */
+    private final List<LatencyHistograms> retired = new ArrayList<>();
+
+    private final Queue<LatencyHistograms> free = new ConcurrentLinkedQueue<>();
+
+    private final LatencyHistograms overflow;
+
+    @Autowired
+    public TenantLatencyRecorder(LatencyConfigProperties latencyProperties) {
+        this.latencyProperties = latencyProperties;
+        this.highestTrackableMicros = latencyProperties
+                .getHighestTrackableMillis() * 1000;
+        this.overflow = newHistograms();
+        LOG.info("Request latency histograms set up with: "
+                + latencyProperties);
+    }
+
+    /**
+     * @param tenantId
+     * @param endpoint
+     *            the mapped path pattern, so that the number of endpoints is
+     *            bounded
+     * @param nanos
+     */
+    public void record(String tenantId, String endpoint, long nanos) {
+        long micros = Math.min(Math.max(nanos / 1000, 0),
+                highestTrackableMicros);
+        histogramsFor(tenantId, endpoint).recorder.recordValue(micros);
+    }
+
+    private LatencyHistograms histogramsFor(String tenantId,
+            String endpoint) {
+        Map<String, LatencyHistograms> endpoints = histograms.get(tenantId);
+        LatencyHistograms found = endpoints == null ? null
+                : endpoints.get(endpoint);
+        if (found != null) {
+            return found;
+        }
+        if (trackedKeys.get() >= latencyProperties.getMaxTrackedKeys()) {
+            return overflow;
+        }
+        endpoints = histograms.computeIfAbsent(tenantId,
+                id -> new ConcurrentHashMap<>());
+        return endpoints.computeIfAbsent(endpoint, e -> {
+            trackedKeys.incrementAndGet();
+            LatencyHistograms reused = free.poll();
+            return reused != null ? reused : newHistograms();
+        });
+    }
+
+    private LatencyHistograms newHistograms() {
+        return new LatencyHistograms(highestTrackableMicros,
+                latencyProperties.getSignificantDigits());
+    }
+
+    /**
+     * Moves the values recorded since the last snapshot into the current
+     * window
+     */
+    @Scheduled(fixedRateString = "${multitenancy.mtapp.latency.snapshotInterval:10000}")
+    public synchronized void snapshot() {
+        for (LatencyHistograms latency : retired) {
+            latency.reset();
+        }
+        free.addAll(retired);
+        retired.clear();
+        overflow.snapshot(latencyProperties.getWindowIntervals());
+        for (Map<String, LatencyHistograms> endpoints : histograms.values()) {
+            for (Map.Entry<String, LatencyHistograms> entry : endpoints
+                    .entrySet()) {
+                LatencyHistograms latency = entry.getValue();
+                if (latency.snapshot(latencyProperties.getWindowIntervals())
+                        && latency.isIdle()) {
+                    endpoints.remove(entry.getKey());
+                    trackedKeys.decrementAndGet();
+                    retired.add(latency);
+                }
+            }
+        }
+        histograms.values().removeIf(Map::isEmpty);
+    }
+
+    /**
+     * @param tenantId
+     *            the tenant to report, <tt>null</tt> to merge all tenants
+     * @return the percentiles of every endpoint
+     */
+    public synchronized List<LatencySnapshot> getPercentiles(
+            String tenantId) {
+        Map<String, Histogram> merged = new TreeMap<>();
+        if (tenantId == null || OTHER.equals(tenantId)) {
+            overflow.addWindowTo(merged.computeIfAbsent(OTHER,
+                    e -> newHistogram()));
+        }
+        for (Map.Entry<String, Map<String, LatencyHistograms>> tenant : histograms
+                .entrySet()) {
+            if (tenantId != null && !tenantId.equals(tenant.getKey())) {
+                continue;
+            }
+            for (Map.Entry<String, LatencyHistograms> endpoint : tenant
+                    .getValue().entrySet()) {
+                endpoint.getValue().addWindowTo(merged.computeIfAbsent(
+                        endpoint.getKey(), e -> newHistogram()));
+            }
+        }
+        List<LatencySnapshot> snapshots = new ArrayList<>();
+        for (Map.Entry<String, Histogram> entry : merged.entrySet()) {
+            Histogram histogram = entry.getValue();
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+            snapshots.add(new LatencySnapshot(
+                    tenantId == null ? "*" : tenantId, entry.getKey(),
+                    histogram.getTotalCount(),
+                    toMillis(histogram.getValueAtPercentile(50)),
+                    toMillis(histogram.getValueAtPercentile(99)),
+                    toMillis(histogram.getValueAtPercentile(99.9)),
+                    toMillis(histogram.getMaxValue())));
+        }
+        return snapshots;
+    }
+
+    private Histogram newHistogram() {
+        return new Histogram(highestTrackableMicros,
+                latencyProperties.getSignificantDigits());
+    }
+
+    private static double toMillis(long micros) {
+        return micros / 1000.0;
+    }
+
+    /**
+     * The recorder of one tenant and endpoint with its current and previous
+     * window. Everything but the recorder is only used under the lock of the
+     * {@link TenantLatencyRecorder}.
+     */
+    private static class LatencyHistograms {
+
+        private final Recorder recorder;
+
+        private Histogram interval;
+
+        private Histogram current;
+
+        private Histogram previous;
+
+        private int intervals;
+
+        LatencyHistograms(long highestTrackableMicros,
+                int significantDigits) {
+            recorder = new Recorder(highestTrackableMicros,
+                    significantDigits);
+            current = new Histogram(highestTrackableMicros,
+                    significantDigits);
+            previous = new Histogram(highestTrackableMicros,
+                    significantDigits);
+        }
+
+        /**
+         * @return whether a window has just been completed
+         */
+        boolean snapshot(int windowIntervals) {
+            interval = recorder.getIntervalHistogram(interval);
+            current.add(interval);
+            if (++intervals < windowIntervals) {
+                return false;
+            }
+            Histogram completed = current;
+            current = previous;
+            current.reset();
+            previous = completed;
+            intervals = 0;
+            return true;
+        }
+
+        boolean isIdle() {
+            return previous.getTotalCount() == 0;
+        }
+
+        void addWindowTo(Histogram histogram) {
+            histogram.add(previous);
+            histogram.add(current);
+        }
+
+        void reset() {
+            recorder.reset();
+            current.reset();
+            previous.reset();
+            intervals = 0;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.config;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+import com.sunitkatkar.blogspot.master.model.TenantStatus;
+
+/**
+ * Keeps the lifecycle status of tenants which are not
+ * {@link TenantStatus#ACTIVE}, so that the
+ * {@link DataSourceBasedMultiTenantConnectionProviderImpl} can reject them
+ * without a database lookup. Active tenants are not stored, which keeps the
+ * map small and the check for normal traffic a single miss.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Component
+public class TenantLifecycleStatus {
+
+    /**
+     * Tenant id as key and its status as value, for inactive tenants only
+     */
+    private final Map<String, TenantStatus> inactiveTenants = new ConcurrentHashMap<>();
+
+    public TenantStatus getStatus(String tenantId) {
+        return inactiveTenants.getOrDefault(tenantId, TenantStatus.ACTIVE);
+    }
+
+    public void setStatus(String tenantId, TenantStatus status) {
+        if (status == TenantStatus.ACTIVE) {
+            inactiveTenants.remove(tenantId);
+        } else {
+            inactiveTenants.put(tenantId, status);
+        }
+    }
+
+    public boolean isActive(String tenantId) {
+        return !inactiveTenants.containsKey(tenantId);
+    }
+
+    /**
+     * @return the ids of all tenants which are not active
+     */
+    public Set<String> getInactiveTenantIds() {
+        return inactiveTenants.keySet();
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Tenant schema migration configuration properties which are read from the
+ * application.yml file
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Configuration
+@ConfigurationProperties("multitenancy.mtapp.migration")
+public class TenantMigrationConfigProperties {
+
+    /**
+     * Location of the versioned migration scripts. Scripts are named
+     * <tt>V&lt;version&gt;__&lt;description&gt;.sql</tt> and applied in
+     * ascending version order.
+     */
+    private String location = "classpath:db/tenant";
+
+    /**
+     * Maximum time in milliseconds for migrating a single tenant database
+     */
+    private long timeout = 600000;
+
+    /**
+     * Maximum time in seconds to wait for the migration lock of a tenant
+     * database which is being migrated by another node
+     */
+    private int lockTimeout = 60;
+
+    /**
+     * Whether requests for tenants whose schema is not current are rejected
+     */
+    private boolean blockUntilMigrated = true;
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("TenantMigrationConfigProperties [location=");
+        builder.append(location);
+        builder.append(", timeout=");
+        builder.append(timeout);
+        builder.append(", lockTimeout=");
+        builder.append(lockTimeout);
+        builder.append(", blockUntilMigrated=");
+        builder.append(blockUntilMigrated);
+        builder.append("]");
+        return builder.toString();
+    }
+
+    // Getters and Setters
+    /**
+     * @return the location
+     */
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * @param location
+     *            the location to set
+     */
+    public void setLocation(String location) {
+        this.location = location;
+    }
+
+    /**
+     * @return the timeout
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * @param timeout
+     *            the timeout to set
+     */
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * @return the lockTimeout
+     */
+    public int getLockTimeout() {
+        return lockTimeout;
+    }
+
+    /**
+     * @param lockTimeout
+     *            the lockTimeout to set
+     */
+    public void setLockTimeout(int lockTimeout) {
+        this.lockTimeout = lockTimeout;
+    }
+
+    /**
+     * @return the blockUntilMigrated
+     */
+    public boolean isBlockUntilMigrated() {
+        return blockUntilMigrated;
+    }
+
+    /**
+     * @param blockUntilMigrated
+     *            the blockUntilMigrated to set
+     */
+    public void setBlockUntilMigrated(boolean blockUntilMigrated) {
+        this.blockUntilMigrated = blockUntilMigrated;
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.config;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.sunitkatkar.blogspot.util.DataSourceUtil;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Publishes the metrics of every tenant connection pool with a
+ * <tt>tenant</tt> tag.
+ * 
+ * <br/>
+ * <br/>
+ * With thousands of tenants the number of series matters more than anything
+ * else, so the per tenant timers only publish count, sum and max. The
+ * histogram buckets needed for percentiles are published once, on the
+ * <tt>.all</tt> timers which are shared by all tenants. A closed pool is
+ * released by the gauges, which report 0 until the tenant gets a new pool.
+ * 
+ * <br/>
+ * <br/>
+ * Besides the metrics, a moving average of the connection acquire time is
+ * kept per pool for the {@link LoginAdmission}, see
+ * {@link #getRecentAcquireMillis(String, long)}. It is keyed by pool name, as
+ * all tenants of a shared database wait on the same pool. A connection
+ * timeout counts as an acquire which took the whole connection timeout, so a
+ * pool which only times out does not look idle.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Component
+public class TenantPoolMetricsTrackerFactory implements MetricsTrackerFactory {
+
+    private final MeterRegistry meterRegistry;
+
+    private final Timer acquireAll;
+
+    private final Timer usageAll;
+
+    /**
+     * Tenant id as key and the statistics of its current pool as value, empty
+     * while the tenant has no open pool
+     */
+    private final Map<String, AtomicReference<PoolStats>> pools = new ConcurrentHashMap<>();
+
+    /**
+     * Pool name as key and the recent acquire time of the pool as value
+     */
+    private final Map<String, AcquireLatency> acquireLatencies = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TenantPoolMetricsTrackerFactory(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.acquireAll = Timer.builder("tenant.pool.acquire.all")
+                .description("Time to get a connection from any tenant pool")
+                .publishPercentileHistogram().register(meterRegistry);
+        this.usageAll = Timer.builder("tenant.pool.usage.all")
+                .description("Time a tenant connection is held before it is returned")
+                .publishPercentileHistogram().register(meterRegistry);
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        String tenantId = DataSourceUtil.tenantIdOfPool(poolName);
+        AtomicReference<PoolStats> pool = pools.computeIfAbsent(tenantId,
+                id -> registerGauges(id, new AtomicReference<>()));
+        pool.set(poolStats);
+        AcquireLatency acquireLatency = acquireLatencies
+                .computeIfAbsent(poolName, name -> new AcquireLatency());
+        return new TenantPoolMetricsTracker(pool, poolStats, acquireLatency,
+                meterRegistry.timer("tenant.pool.acquire", "tenant", tenantId),
+                meterRegistry.timer("tenant.pool.usage", "tenant", tenantId),
+                meterRegistry.counter("tenant.pool.timeouts", "tenant",
+                        tenantId));
+    }
+
+    /**
+     * @param poolName
+     *            may be <tt>null</tt> for a tenant without a pool
+     * @param windowMillis
+     *            how old the last acquire may be
+     * @return the moving average of the connection acquire time of the pool
+     *         in milliseconds, 0 if the pool neither handed out a connection
+     *         nor timed out within the window
+     */
+    public long getRecentAcquireMillis(String poolName, long windowMillis) {
+        AcquireLatency acquireLatency = poolName == null ? null
+                : acquireLatencies.get(poolName);
+        if (acquireLatency == null || System.nanoTime()
+                - acquireLatency.lastNanos > TimeUnit.MILLISECONDS
+                        .toNanos(windowMillis)) {
+            return 0;
+        }
+        return TimeUnit.NANOSECONDS.toMillis((long) acquireLatency.average);
+    }
+
+    /**
+     * The gauges read the current pool of the tenant, so they keep working when
+     * the pool of a tenant is closed and created again
+     */
+    private AtomicReference<PoolStats> registerGauges(String tenantId,
+            AtomicReference<PoolStats> pool) {
+        Gauge.builder("tenant.pool.active", pool,
+                p -> p.get() == null ? 0 : p.get().getActiveConnections())
+                .tag("tenant", tenantId).register(meterRegistry);
+        Gauge.builder("tenant.pool.idle", pool,
+                p -> p.get() == null ? 0 : p.get().getIdleConnections())
+                .tag("tenant", tenantId).register(meterRegistry);
+        Gauge.builder("tenant.pool.pending", pool,
+                p -> p.get() == null ? 0 : p.get().getPendingThreads())
+                .tag("tenant", tenantId).register(meterRegistry);
+        return pool;
+    }
+
+    private class TenantPoolMetricsTracker implements IMetricsTracker {
+
+        private final AtomicReference<PoolStats> pool;
+
+        private final PoolStats poolStats;
+
+        private final AcquireLatency acquireLatency;
+
+        private final Timer acquire;
+
+        private final Timer usage;
+
+        private final Counter timeouts;
+
+        TenantPoolMetricsTracker(AtomicReference<PoolStats> pool,
+                PoolStats poolStats, AcquireLatency acquireLatency,
+                Timer acquire, Timer usage, Counter timeouts) {
+            this.pool = pool;
+            this.poolStats = poolStats;
+            this.acquireLatency = acquireLatency;
+            this.acquire = acquire;
+            this.usage = usage;
+            this.timeouts = timeouts;
+        }
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            acquire.record(elapsedAcquiredNanos, TimeUnit.NANOSECONDS);
+            acquireAll.record(elapsedAcquiredNanos, TimeUnit.NANOSECONDS);
+            acquireLatency.record(elapsedAcquiredNanos);
+        }
+
+        @Override
+        public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+            usage.record(elapsedBorrowedMillis, TimeUnit.MILLISECONDS);
+            usageAll.record(elapsedBorrowedMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            timeouts.increment();
+            acquireLatency.record(TimeUnit.MILLISECONDS
+                    .toNanos(DataSourceUtil.CONNECTION_TIMEOUT));
+        }
+
+        /**
+         * Only clears the pool when the tenant has not got a new one already
+         */
+        @Override
+        public void close() {
+            pool.compareAndSet(poolStats, null);
+        }
+    }
+
+    /**
+     * Exponentially weighted moving average of the acquire time. Concurrent
+     * updates may overwrite each other, which only loses a sample.
+     */
+    private static class AcquireLatency {
+
+        /**
+         * Weight of a new sample
+         */
+        private static final double ALPHA = 0.2;
+
+        private volatile double average;
+
+        private volatile long lastNanos;
+
+        void record(long elapsedNanos) {
+            average += ALPHA * (elapsedNanos - average);
+            lastNanos = System.nanoTime();
+        }
+    }
+}
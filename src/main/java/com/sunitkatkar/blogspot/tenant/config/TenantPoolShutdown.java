@@ -0,0 +1,207 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.config;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Shuts the tenant pools down when the application context is closed. The
+ * tenant data sources are not Spring beans, so nothing else closes them.
+ * 
+ * <br/>
+ * <br/>
+ * The shutdown has three phases, each of which is logged with its duration:
+ * <ol>
+ * <li>stop: no tenant connections are handed out and no pools are created
+ * any more</li>
+ * <li>drain: wait up to <tt>drainTimeout</tt> for the connections in use, i.e.
+ * the transactions in flight, to be returned</li>
+ * <li>close: close all pools at the same time on <tt>closeThreads</tt>
+ * threads, for at most <tt>closeTimeout</tt></li>
+ * </ol>
+ * It runs in a late lifecycle phase, so it is stopped before the other
+ * lifecycle beans and before any singleton is destroyed. Lifecycle beans which
+ * still write to the tenant databases while stopping use a higher phase, see
+ * {@link #PHASE}.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Component
+public class TenantPoolShutdown implements SmartLifecycle {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(TenantPoolShutdown.class);
+
+    /**
+     * Lifecycle beans with a higher phase are stopped before the tenant pools
+     * are closed
+     */
+    public static final int PHASE = Integer.MAX_VALUE - 1000;
+
+    private static final long DRAIN_POLL_MILLIS = 50;
+
+    @Autowired
+    private DataSourceBasedMultiTenantConnectionProviderImpl connectionProvider;
+
+    @Autowired
+    private ShutdownConfigProperties shutdownProperties;
+
+    private volatile boolean running;
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        long start = System.nanoTime();
+
+        long phaseStart = System.nanoTime();
+        connectionProvider.stopAccepting();
+        LOG.info("Tenant shutdown phase stop took " + elapsed(phaseStart)
+                + "ms");
+
+        phaseStart = System.nanoTime();
+        int active = drain();
+        LOG.info("Tenant shutdown phase drain took " + elapsed(phaseStart)
+                + "ms, connections still in use:" + active);
+
+        phaseStart = System.nanoTime();
+        Map<String, DataSource> dataSources = connectionProvider
+                .detachDataSources();
+        int notClosed = close(dataSources);
+        LOG.info("Tenant shutdown phase close took " + elapsed(phaseStart)
+                + "ms, pools:" + dataSources.size() + ", not closed in time:"
+                + notClosed);
+
+        LOG.info("Tenant shutdown took " + elapsed(start) + "ms");
+    }
+
+    @Override
+    public void stop(Runnable callback) {
+        try {
+            stop();
+        } finally {
+            callback.run();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return true;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    /**
+     * @return the number of connections still in use when the drain ended
+     */
+    private int drain() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS
+                .toNanos(shutdownProperties.getDrainTimeout());
+        int active = connectionProvider.getActiveConnections();
+        while (active > 0 && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(DRAIN_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            active = connectionProvider.getActiveConnections();
+        }
+        return active;
+    }
+
+    /**
+     * @return the number of pools which were not closed within the close
+     *         timeout
+     */
+    private int close(Map<String, DataSource> dataSources) {
+        if (dataSources.isEmpty()) {
+            return 0;
+        }
+        AtomicInteger pending = new AtomicInteger(dataSources.size());
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService closers = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(shutdownProperties.getCloseThreads(),
+                        dataSources.size())),
+                runnable -> {
+                    Thread thread = new Thread(runnable,
+                            "tenant-pool-close-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        for (Map.Entry<String, DataSource> entry : dataSources.entrySet()) {
+            closers.execute(() -> {
+                try {
+                    if (entry.getValue() instanceof HikariDataSource) {
+                        ((HikariDataSource) entry.getValue()).close();
+                    }
+                } catch (RuntimeException e) {
+                    LOG.warn("Closing the pool of tenant:" + entry.getKey()
+                            + " failed", e);
+                } finally {
+                    pending.decrementAndGet();
+                }
+            });
+        }
+        closers.shutdown();
+        try {
+            if (!closers.awaitTermination(shutdownProperties.getCloseTimeout(),
+                    TimeUnit.MILLISECONDS)) {
+                closers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            closers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        return pending.get();
+    }
+
+    private static long elapsed(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.config;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.sunitkatkar.blogspot.master.repository.MasterTenantRepository;
+
+/**
+ * Limits the request rate of each tenant with a token bucket.
+ * 
+ * <br/>
+ * <br/>
+ * Each bucket is a single {@link AtomicLong} holding the time at which the
+ * bucket is full again (the generic cell rate algorithm), so taking a token is
+ * one compare and set without locks, and refilling needs no timer. A bucket
+ * whose full time has passed is the same as a new bucket, which is why idle
+ * buckets are simply dropped. Memory is bounded by the number of tenants sending
+ * requests, tens of thousands of buckets are a few megabytes.
+ * 
+ * <br/>
+ * <br/>
+ * The rate of each tenant comes from the <tt>rate_limit</tt> column of its
+ * master_tenant row, or else from its plan. The limits are reloaded from the
+ * master database every <tt>reloadInterval</tt> and take effect on the next
+ * request. Login attempts for tenant ids which are not in the master database
+ * share one bucket, so made up tenant ids cannot grow the map. A tenant over
+ * its database time quota is throttled to a fraction of its rate, see
+ * {@link TenantDbQuota}.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Component
+public class TenantRateLimiter {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(TenantRateLimiter.class);
+
+    /**
+     * Bucket shared by login attempts for tenants unknown to the master
+     * database
+     */
+    public static final String UNKNOWN = "_unknown";
+
+    private final RateLimitConfigProperties rateLimitProperties;
+
+    private final MasterTenantRepository masterTenantRepo;
+
+    private final TenantDbQuota tenantDbQuota;
+
+    /**
+     * Tenant id as key and its requests per second as value. Replaced as a
+     * whole on every reload.
+     */
+    private volatile Map<String, Integer> limits = new HashMap<>();
+
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TenantRateLimiter(RateLimitConfigProperties rateLimitProperties,
+            MasterTenantRepository masterTenantRepo,
+            TenantDbQuota tenantDbQuota) {
+        this.rateLimitProperties = rateLimitProperties;
+        this.masterTenantRepo = masterTenantRepo;
+        this.tenantDbQuota = tenantDbQuota;
+    }
+
+    /**
+     * Takes one token from the bucket of the tenant
+     * 
+     * @param tenantId
+     * @param known
+     *            whether the tenant id comes from an authenticated user. A
+     *            tenant id taken from a login form is only trusted if it is in
+     *            the master database.
+     * @return 0 if the request is allowed, else the number of nanoseconds
+     *         after which it would be
+     */
+    public long tryAcquire(String tenantId, boolean known) {
+        if (!rateLimitProperties.isEnabled()) {
+            return 0;
+        }
+        Integer limit = limits.get(tenantId);
+        if (limit == null) {
+            if (!known) {
+                tenantId = UNKNOWN;
+            }
+            limit = planLimit(null);
+        }
+        if (limit <= 0) {
+            return 0;
+        }
+        if (tenantDbQuota.isOverQuota(tenantId)) {
+            limit = Math.max(1, (int) (limit
+                    * tenantDbQuota.getThrottleFactor()));
+        }
+        long interval = TimeUnit.SECONDS.toNanos(1) / limit;
+        // The bucket holds at least one token
+        long tolerance = Math.max(interval,
+                (long) (rateLimitProperties.getBurstSeconds()
+                        * TimeUnit.SECONDS.toNanos(1)));
+        AtomicLong bucket = buckets.get(tenantId);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(tenantId,
+                    key -> new AtomicLong(Long.MIN_VALUE));
+        }
+        long now = System.nanoTime();
+        while (true) {
+            long fullAt = bucket.get();
+            // Compare as a difference, nanoTime may be negative
+            long next = (fullAt == Long.MIN_VALUE || fullAt - now < 0 ? now
+                    : fullAt) + interval;
+            long wait = next - now - tolerance;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * @param tenantId
+     * @return the requests per second allowed for the tenant, 0 for no limit
+     */
+    public int getLimit(String tenantId) {
+        Integer limit = limits.get(tenantId);
+        return limit == null ? planLimit(null) : limit;
+    }
+
+    /**
+     * Reloads the plans and rate limits of all tenants from the master
+     * database and drops the buckets which are full
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${multitenancy.mtapp.ratelimit.reloadInterval:30000}")
+    public void reload() {
+        if (!rateLimitProperties.isEnabled()) {
+            return;
+        }
+        try {
+            List<Object[]> rows = masterTenantRepo.findRateLimits();
+            Map<String, Integer> reloaded = new HashMap<>(rows.size() * 2);
+            for (Object[] row : rows) {
+                Integer rateLimit = (Integer) row[2];
+                reloaded.put((String) row[0],
+                        rateLimit != null ? rateLimit : planLimit((String) row[1]));
+            }
+            limits = reloaded;
+        } catch (RuntimeException e) {
+            LOG.warn("Could not reload tenant rate limits, keeping the previous ones", e);
+        }
+        long now = System.nanoTime();
+        buckets.values().removeIf(bucket -> {
+            long fullAt = bucket.get();
+            return fullAt == Long.MIN_VALUE || fullAt - now < 0;
+        });
+    }
+
+    /**
+     * Changes the plan and rate limit override of a tenant in the master
+     * database and reloads the limits right away
+     * 
+     * @param tenantId
+     * @param plan
+     * @param rateLimit
+     *            requests per second, <code>null</code> for the plan limit
+     * @return whether the tenant exists
+     */
+    public boolean updateTenantLimit(String tenantId, String plan,
+            Integer rateLimit) {
+        if (rateLimit != null && rateLimit < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Rate limit must not be negative, rateLimit=%s", rateLimit));
+        }
+        if (plan != null && !rateLimitProperties.getPlans().containsKey(plan)) {
+            throw new IllegalArgumentException(
+                    String.format("Unknown plan, plan=%s", plan));
+        }
+        if (masterTenantRepo.updateRateLimit(tenantId, plan, rateLimit) == 0) {
+            return false;
+        }
+        reload();
+        return true;
+    }
+
+    /**
+     * @return the number of buckets in memory
+     */
+    public int getBucketCount() {
+        return buckets.size();
+    }
+
+    private int planLimit(String plan) {
+        Map<String, Integer> plans = rateLimitProperties.getPlans();
+        Integer limit = plan == null ? null : plans.get(plan);
+        if (limit == null) {
+            limit = plans.get(rateLimitProperties.getDefaultPlan());
+        }
+        return limit == null ? 0 : limit;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.config;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps track of the schema version of every tenant database known to this
+ * node. The {@link DataSourceBasedMultiTenantConnectionProviderImpl} consults
+ * it on every connection request, so it has no dependencies and a lookup is a
+ * single map access.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Component
+public class TenantSchemaStatus {
+
+    /**
+     * Tenant id as key and the applied schema version as value
+     */
+    private final Map<String, Integer> schemaVersions = new ConcurrentHashMap<>();
+
+    /**
+     * The version of the newest migration shipped with this build
+     */
+    private volatile int latestVersion;
+
+    public int getLatestVersion() {
+        return latestVersion;
+    }
+
+    public void setLatestVersion(int latestVersion) {
+        this.latestVersion = latestVersion;
+    }
+
+    public void setSchemaVersion(String tenantId, int schemaVersion) {
+        schemaVersions.put(tenantId, schemaVersion);
+    }
+
+    public Integer getSchemaVersion(String tenantId) {
+        return schemaVersions.get(tenantId);
+    }
+
+    public void remove(String tenantId) {
+        schemaVersions.remove(tenantId);
+    }
+
+    /**
+     * @param tenantId
+     * @return whether the tenant database has all migrations of this build
+     */
+    public boolean isCurrent(String tenantId) {
+        Integer schemaVersion = schemaVersions.get(tenantId);
+        return schemaVersion != null && schemaVersion >= latestVersion;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.config;
+
+import org.hibernate.BaseSessionEventListener;
+
+import com.sunitkatkar.blogspot.util.TenantContextHolder;
+
+/**
+ * Counts what a single tenant session does and hands the totals to the
+ * {@link TenantHibernateMetrics} when the session ends, so the shared meters
+ * are updated once per session rather than once per event. Registered with
+ * <tt>hibernate.session.events.auto</tt>, which creates one instance per
+ * session. Session listeners are not told about entity loads, those are
+ * counted by the {@link TenantEntityLoadCounter}.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+public class TenantSessionMetricsListener extends BaseSessionEventListener {
+
+    private static final long serialVersionUID = 1L;
+
+    private String tenantId = TenantContextHolder.getTenant();
+
+    private long statements;
+
+    private long flushes;
+
+    private long commits;
+
+    private long rollbacks;
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        statements++;
+    }
+
+    @Override
+    public void flushEnd(int numberOfEntities, int numberOfCollections) {
+        flushes++;
+    }
+
+    @Override
+    public void transactionCompletion(boolean successful) {
+        if (successful) {
+            commits++;
+        } else {
+            rollbacks++;
+        }
+    }
+
+    @Override
+    public void end() {
+        if (tenantId == null) {
+            tenantId = TenantContextHolder.getTenant();
+        }
+        long entityLoads = TenantEntityLoadCounter.take();
+        TenantHibernateMetrics metrics = TenantHibernateMetrics.getInstance();
+        if (metrics != null && tenantId != null) {
+            metrics.record(tenantId, entityLoads, statements, flushes,
+                    commits, rollbacks);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.config;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sunitkatkar.blogspot.util.Span;
+import com.sunitkatkar.blogspot.util.Trace;
+import com.sunitkatkar.blogspot.util.Tracer;
+
+/**
+ * Samples requests for the {@link Tracer} and exports the finished traces in
+ * the OTLP/JSON format, either appended to a local file, one trace per line,
+ * or posted to an OTLP/HTTP collector.
+ * 
+ * <br/>
+ * <br/>
+ * Tracing is kept within its overhead budget in three ways: at most
+ * <tt>maxTracesPerSecond</tt> traces are started whatever the sample rate, at
+ * most <tt>maxSpansPerTrace</tt> spans are kept per trace, and traces are
+ * serialized and written by a single background thread with a bounded queue
+ * which drops traces rather than slow down requests.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Component
+public class TraceExporter implements Tracer.TraceSink {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(TraceExporter.class);
+
+    @Autowired
+    private TracingConfigProperties tracingProperties;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private ThreadPoolExecutor executor;
+
+    private BufferedWriter fileWriter;
+
+    /**
+     * Second of the current trace budget and the traces started in it
+     */
+    private long budgetSecond;
+
+    private int budgetUsed;
+
+    private final AtomicLong droppedTraces = new AtomicLong();
+
+    @PostConstruct
+    public void start() throws IOException {
+        String exporter = tracingProperties.getExporter();
+        if ("none".equals(exporter)) {
+            LOG.info("Request tracing is off");
+            return;
+        }
+        if ("file".equals(exporter)) {
+            fileWriter = Files.newBufferedWriter(
+                    Paths.get(tracingProperties.getFile()),
+                    StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND);
+        } else if (!"otlp".equals(exporter)) {
+            throw new IllegalStateException(
+                    "Unknown trace exporter: " + exporter);
+        }
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(tracingProperties.getExportQueueSize()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "trace-exporter");
+                    thread.setDaemon(true);
+                    return thread;
+                }, (runnable, pool) -> droppedTraces.incrementAndGet());
+        Tracer.install(this);
+        LOG.info("Request tracing set up with: " + tracingProperties);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        Tracer.install(null);
+        if (executor != null) {
+            executor.shutdown();
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        if (fileWriter != null) {
+            fileWriter.close();
+        }
+        if (droppedTraces.get() > 0) {
+            LOG.warn("Dropped " + droppedTraces.get()
+                    + " traces because the exporter was behind");
+        }
+    }
+
+    @Override
+    public boolean sample() {
+        double rate = tracingProperties.getSampleRate();
+        if (rate <= 0 || (rate < 1
+                && ThreadLocalRandom.current().nextDouble() >= rate)) {
+            return false;
+        }
+        return withinBudget();
+    }
+
+    private synchronized boolean withinBudget() {
+        long second = System.currentTimeMillis() / 1000;
+        if (second != budgetSecond) {
+            budgetSecond = second;
+            budgetUsed = 0;
+        }
+        if (budgetUsed >= tracingProperties.getMaxTracesPerSecond()) {
+            return false;
+        }
+        budgetUsed++;
+        return true;
+    }
+
+    @Override
+    public int getMaxSpansPerTrace() {
+        return tracingProperties.getMaxSpansPerTrace();
+    }
+
+    @Override
+    public void export(Trace trace) {
+        executor.execute(() -> write(trace));
+    }
+
+    private void write(Trace trace) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(toOtlp(trace));
+            if (fileWriter != null) {
+                fileWriter.write(new String(json, StandardCharsets.UTF_8));
+                fileWriter.newLine();
+                fileWriter.flush();
+            } else {
+                post(json);
+            }
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Could not export trace:" + trace.getTraceId(), e);
+        }
+    }
+
+    private void post(byte[] json) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(
+                tracingProperties.getOtlpEndpoint()).openConnection();
+        try {
+            connection.setConnectTimeout(2000);
+            connection.setReadTimeout(5000);
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("Content-Type", "application/json");
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(json);
+            }
+            int status = connection.getResponseCode();
+            if (status >= 300) {
+                LOG.warn("Trace collector answered with status " + status);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Builds an OTLP/JSON <tt>ExportTraceServiceRequest</tt> with a single
+     * resource and scope
+     */
+    private Map<String, Object> toOtlp(Trace trace) {
+        List<Map<String, Object>> spans = new ArrayList<>();
+        for (Span span : trace.getSpans()) {
+            Map<String, Object> otlpSpan = new LinkedHashMap<>();
+            otlpSpan.put("traceId", trace.getTraceId());
+            otlpSpan.put("spanId", span.getSpanId());
+            if (span.getParentSpanId() != null) {
+                otlpSpan.put("parentSpanId", span.getParentSpanId());
+            }
+            otlpSpan.put("name", span.getName());
+            otlpSpan.put("kind", span.getParentSpanId() == null ? 2 : 1);
+            otlpSpan.put("startTimeUnixNano",
+                    String.valueOf(span.getStartEpochNanos()));
+            otlpSpan.put("endTimeUnixNano",
+                    String.valueOf(span.getEndEpochNanos()));
+            otlpSpan.put("attributes", attributes(span.getAttributes()));
+            spans.add(otlpSpan);
+        }
+        Map<String, Object> scope = new LinkedHashMap<>();
+        scope.put("scope", Collections.singletonMap("name",
+                Tracer.class.getName()));
+        scope.put("spans", spans);
+
+        Map<String, String> resourceAttributes = new LinkedHashMap<>();
+        resourceAttributes.put("service.name",
+                tracingProperties.getServiceName());
+        if (trace.getDroppedSpans() > 0) {
+            resourceAttributes.put("trace.dropped_spans",
+                    String.valueOf(trace.getDroppedSpans()));
+        }
+        Map<String, Object> resourceSpans = new LinkedHashMap<>();
+        resourceSpans.put("resource", Collections.singletonMap("attributes",
+                attributes(resourceAttributes)));
+        resourceSpans.put("scopeSpans", Collections.singletonList(scope));
+        return Collections.singletonMap("resourceSpans",
+                Collections.singletonList(resourceSpans));
+    }
+
+    private static List<Map<String, Object>> attributes(
+            Map<String, String> values) {
+        List<Map<String, Object>> attributes = new ArrayList<>();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            Map<String, Object> attribute = new LinkedHashMap<>();
+            attribute.put("key", entry.getKey());
+            attribute.put("value", Collections.singletonMap("stringValue",
+                    entry.getValue()));
+            attributes.add(attribute);
+        }
+        return attributes;
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Request tracing configuration properties which are read from the
+ * application.yml file
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Configuration
+@ConfigurationProperties("multitenancy.mtapp.tracing")
+public class TracingConfigProperties {
+
+    /**
+     * Where finished traces go: <tt>none</tt>, <tt>file</tt> or
+     * <tt>otlp</tt>. With <tt>none</tt> no request is traced.
+     */
+    private String exporter = "none";
+
+    /**
+     * Fraction of requests between 0 and 1 which are traced
+     */
+    private double sampleRate = 0.01;
+
+    /**
+     * Overhead budget: the maximum number of traces started per second,
+     * whatever the sample rate
+     */
+    private int maxTracesPerSecond = 20;
+
+    /**
+     * Overhead budget: spans beyond this number are counted but not kept
+     */
+    private int maxSpansPerTrace = 200;
+
+    /**
+     * Number of finished traces waiting for export. Traces are dropped when
+     * the exporter falls behind.
+     */
+    private int exportQueueSize = 1000;
+
+    /**
+     * File the <tt>file</tt> exporter appends to, one JSON trace per line
+     */
+    private String file = "traces.ndjson";
+
+    /**
+     * OTLP/HTTP JSON end point of the collector for the <tt>otlp</tt>
+     * exporter
+     */
+    private String otlpEndpoint = "http://localhost:4318/v1/traces";
+
+    /**
+     * Value of the <tt>service.name</tt> resource attribute
+     */
+    private String serviceName = "multitenancy-dynamic-tenant";
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("TracingConfigProperties [exporter=");
+        builder.append(exporter);
+        builder.append(", sampleRate=");
+        builder.append(sampleRate);
+        builder.append(", maxTracesPerSecond=");
+        builder.append(maxTracesPerSecond);
+        builder.append(", maxSpansPerTrace=");
+        builder.append(maxSpansPerTrace);
+        builder.append(", exportQueueSize=");
+        builder.append(exportQueueSize);
+        builder.append(", file=");
+        builder.append(file);
+        builder.append(", otlpEndpoint=");
+        builder.append(otlpEndpoint);
+        builder.append(", serviceName=");
+        builder.append(serviceName);
+        builder.append("]");
+        return builder.toString();
+    }
+
+    // Getters and Setters
+    /**
+     * @return the exporter
+     */
+    public String getExporter() {
+        return exporter;
+    }
+
+    /**
+     * @param exporter
+     *            the exporter to set
+     */
+    public void setExporter(String exporter) {
+        this.exporter = exporter;
+    }
+
+    /**
+     * @return the sampleRate
+     */
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * @param sampleRate
+     *            the sampleRate to set
+     */
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * @return the maxTracesPerSecond
+     */
+    public int getMaxTracesPerSecond() {
+        return maxTracesPerSecond;
+    }
+
+    /**
+     * @param maxTracesPerSecond
+     *            the maxTracesPerSecond to set
+     */
+    public void setMaxTracesPerSecond(int maxTracesPerSecond) {
+        this.maxTracesPerSecond = maxTracesPerSecond;
+    }
+
+    /**
+     * @return the maxSpansPerTrace
+     */
+    public int getMaxSpansPerTrace() {
+        return maxSpansPerTrace;
+    }
+
+    /**
+     * @param maxSpansPerTrace
+     *            the maxSpansPerTrace to set
+     */
+    public void setMaxSpansPerTrace(int maxSpansPerTrace) {
+        this.maxSpansPerTrace = maxSpansPerTrace;
+    }
+
+    /**
+     * @return the exportQueueSize
+     */
+    public int getExportQueueSize() {
+        return exportQueueSize;
+    }
+
+    /**
+     * @param exportQueueSize
+     *            the exportQueueSize to set
+     */
+    public void setExportQueueSize(int exportQueueSize) {
+        this.exportQueueSize = exportQueueSize;
+    }
+
+    /**
+     * @return the file
+     */
+    public String getFile() {
+        return file;
+    }
+
+    /**
+     * @param file
+     *            the file to set
+     */
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    /**
+     * @return the otlpEndpoint
+     */
+    public String getOtlpEndpoint() {
+        return otlpEndpoint;
+    }
+
+    /**
+     * @param otlpEndpoint
+     *            the otlpEndpoint to set
+     */
+    public void setOtlpEndpoint(String otlpEndpoint) {
+        this.otlpEndpoint = otlpEndpoint;
+    }
+
+    /**
+     * @return the serviceName
+     */
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    /**
+     * @param serviceName
+     *            the serviceName to set
+     */
+    public void setServiceName(String serviceName) {
+        this.serviceName = serviceName;
+    }
+}
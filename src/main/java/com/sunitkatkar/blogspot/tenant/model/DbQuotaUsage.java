@@ -0,0 +1,79 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.model;
+
+/**
+ * Statement timeout, quota and database time used by one tenant over the
+ * current rolling window
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+public class DbQuotaUsage {
+
+    private final String tenantId;
+
+    /**
+     * Statement timeout in seconds currently applied, the degraded one while
+     * the tenant is over its quota
+     */
+    private final int statementTimeout;
+
+    private final long windowMillis;
+
+    private final long quotaMillis;
+
+    private final long usedMillis;
+
+    private final boolean overQuota;
+
+    public DbQuotaUsage(String tenantId, int statementTimeout,
+            long windowMillis, long quotaMillis, long usedMillis,
+            boolean overQuota) {
+        this.tenantId = tenantId;
+        this.statementTimeout = statementTimeout;
+        this.windowMillis = windowMillis;
+        this.quotaMillis = quotaMillis;
+        this.usedMillis = usedMillis;
+        this.overQuota = overQuota;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public int getStatementTimeout() {
+        return statementTimeout;
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    public long getQuotaMillis() {
+        return quotaMillis;
+    }
+
+    public long getUsedMillis() {
+        return usedMillis;
+    }
+
+    public boolean isOverQuota() {
+        return overQuota;
+    }
+}
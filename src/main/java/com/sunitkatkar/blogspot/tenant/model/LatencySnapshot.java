@@ -0,0 +1,82 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.model;
+
+/**
+ * Latency percentiles of one tenant and endpoint, or of one endpoint across
+ * all tenants, over the current and the previous reporting window. All values
+ * are in milliseconds.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+public class LatencySnapshot {
+
+    private final String tenantId;
+
+    private final String endpoint;
+
+    private final long count;
+
+    private final double p50;
+
+    private final double p99;
+
+    private final double p999;
+
+    private final double max;
+
+    public LatencySnapshot(String tenantId, String endpoint, long count,
+            double p50, double p99, double p999, double max) {
+        this.tenantId = tenantId;
+        this.endpoint = endpoint;
+        this.count = count;
+        this.p50 = p50;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.max = max;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getP50() {
+        return p50;
+    }
+
+    public double getP99() {
+        return p99;
+    }
+
+    public double getP999() {
+        return p999;
+    }
+
+    public double getMax() {
+        return max;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.model;
+
+/**
+ * A login attempt of a tenant user, which is written to the
+ * <tt>login_audit</tt> table of the tenant and, when successful, to the
+ * <tt>last_login_at</tt> column of the user.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+public class LoginAuditEvent {
+
+    private final String tenantId;
+
+    private final String username;
+
+    private final boolean success;
+
+    /**
+     * Why the login failed, <tt>null</tt> for a successful login
+     */
+    private final String reason;
+
+    private final String remoteAddress;
+
+    /**
+     * Time of the attempt in epoch milliseconds
+     */
+    private final long timestamp;
+
+    public LoginAuditEvent(String tenantId, String username, boolean success,
+            String reason, String remoteAddress, long timestamp) {
+        this.tenantId = tenantId;
+        this.username = username;
+        this.success = success;
+        this.reason = reason;
+        this.remoteAddress = remoteAddress;
+        this.timestamp = timestamp;
+    }
+
+    // Getters
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public String getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
@@ -28,6 +28,10 @@ import javax.persistence.Id;
 import javax.persistence.ManyToMany;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.Filter;
+
+import com.sunitkatkar.blogspot.tenant.config.SharedTenantFilter;
+
 /**
  * Role entity to represent a ROLE of the {@link User} in the system.
  * 
@@ -39,6 +43,13 @@ import javax.persistence.Table;
  * <li>user_roles</li>
  * </ul>
  * 
+ * Roles are reference data seeded from the template database, and in a
+ * database shared by several tenants all of them use the same roles. So roles
+ * have no <tt>tenant</tt> column; instead the {@link SharedTenantFilter}
+ * rejects creating, changing and deleting them for a shared tenant. Rows of
+ * <tt>user_role</tt> are only reached through a {@link User}, which is
+ * filtered by tenant, as is the inverse {@link #getUsers()} collection.
+ * 
  * @author Sunit Katkar, sunitkatkar@gmail.com
  *         (https://sunitkatkar.blogspot.com/)
  * @since ver 1.0 (May 2018)
@@ -63,6 +74,7 @@ public class Role implements Serializable {
      * to many Users and many Users can belong to a Role.
      */
     @ManyToMany(mappedBy = "roles", fetch = FetchType.LAZY)
+    @Filter(name = SharedTenantFilter.FILTER_NAME, condition = "tenant = :tenant")
     private Set<User> users;
 
     // Getters and setters
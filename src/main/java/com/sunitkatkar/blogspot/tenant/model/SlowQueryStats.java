@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.model;
+
+import java.util.Date;
+
+/**
+ * Execution times of one statement shape of a tenant which has been slower than
+ * the slow query threshold. Only the SQL with its placeholders is kept, never
+ * the bound values.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+public class SlowQueryStats {
+
+    /**
+     * Short hash of the SQL which identifies the statement in the prepared
+     * statement cache and in logs
+     */
+    private final String statementKey;
+
+    private final String sql;
+
+    private final int bindCount;
+
+    private long count;
+
+    private long totalMillis;
+
+    private long maxMillis;
+
+    private long lastSeen;
+
+    public SlowQueryStats(String statementKey, String sql, int bindCount) {
+        this.statementKey = statementKey;
+        this.sql = sql;
+        this.bindCount = bindCount;
+    }
+
+    /**
+     * @param millis
+     *            execution time of one slow execution
+     */
+    public synchronized void record(long millis) {
+        count++;
+        totalMillis += millis;
+        maxMillis = Math.max(maxMillis, millis);
+        lastSeen = System.currentTimeMillis();
+    }
+
+    public String getStatementKey() {
+        return statementKey;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public int getBindCount() {
+        return bindCount;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long getTotalMillis() {
+        return totalMillis;
+    }
+
+    public synchronized long getMaxMillis() {
+        return maxMillis;
+    }
+
+    public synchronized long getAverageMillis() {
+        return count == 0 ? 0 : totalMillis / count;
+    }
+
+    public synchronized Date getLastSeen() {
+        return new Date(lastSeen);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.model;
+
+import java.util.Date;
+
+/**
+ * A sampled SQL statement as recorded by the
+ * {@link com.sunitkatkar.blogspot.tenant.config.SqlLogRecorder}. The statement
+ * is kept exactly as Hibernate generated it, without bind values and without
+ * any formatting.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+public class SqlLogEntry {
+
+    private final long sequence;
+
+    private final long timestamp;
+
+    private final String tenantId;
+
+    private final String thread;
+
+    private final String sql;
+
+    public SqlLogEntry(long sequence, long timestamp, String tenantId,
+            String thread, String sql) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.tenantId = tenantId;
+        this.thread = thread;
+        this.sql = sql;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Date getTimestamp() {
+        return new Date(timestamp);
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public String getThread() {
+        return thread;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+}
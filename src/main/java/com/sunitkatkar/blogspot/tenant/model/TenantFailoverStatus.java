@@ -0,0 +1,128 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.model;
+
+/**
+ * Snapshot of the health checks and standby failovers of one tenant, as
+ * reported by the /admin/failover end point.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+public class TenantFailoverStatus {
+
+    private final String tenantId;
+
+    /**
+     * Whether the tenant is served by its standby database
+     */
+    private final boolean onStandby;
+
+    /**
+     * Outcome of the last health check of the primary database
+     */
+    private final boolean primaryReachable;
+
+    private final int consecutiveFailures;
+
+    private final int consecutiveSuccesses;
+
+    /**
+     * Time of the last health check in epoch milliseconds, 0 if none
+     */
+    private final long lastCheckAt;
+
+    /**
+     * Time of the last switch in epoch milliseconds, 0 if none
+     */
+    private final long lastSwitchAt;
+
+    /**
+     * Time from the first health check which started the streak to the
+     * completed switch, for the last switch
+     */
+    private final long lastFailoverMillis;
+
+    /**
+     * Time the last switch itself took, i.e. starting the new pool
+     */
+    private final long lastSwitchMillis;
+
+    /**
+     * Number of switches since startup
+     */
+    private final int switches;
+
+    public TenantFailoverStatus(String tenantId, boolean onStandby,
+            boolean primaryReachable, int consecutiveFailures,
+            int consecutiveSuccesses, long lastCheckAt, long lastSwitchAt,
+            long lastFailoverMillis, long lastSwitchMillis, int switches) {
+        this.tenantId = tenantId;
+        this.onStandby = onStandby;
+        this.primaryReachable = primaryReachable;
+        this.consecutiveFailures = consecutiveFailures;
+        this.consecutiveSuccesses = consecutiveSuccesses;
+        this.lastCheckAt = lastCheckAt;
+        this.lastSwitchAt = lastSwitchAt;
+        this.lastFailoverMillis = lastFailoverMillis;
+        this.lastSwitchMillis = lastSwitchMillis;
+        this.switches = switches;
+    }
+
+    // Getters
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public boolean isOnStandby() {
+        return onStandby;
+    }
+
+    public boolean isPrimaryReachable() {
+        return primaryReachable;
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public int getConsecutiveSuccesses() {
+        return consecutiveSuccesses;
+    }
+
+    public long getLastCheckAt() {
+        return lastCheckAt;
+    }
+
+    public long getLastSwitchAt() {
+        return lastSwitchAt;
+    }
+
+    public long getLastFailoverMillis() {
+        return lastFailoverMillis;
+    }
+
+    public long getLastSwitchMillis() {
+        return lastSwitchMillis;
+    }
+
+    public int getSwitches() {
+        return switches;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.model;
+
+import java.util.Date;
+
+/**
+ * Snapshot of the connection pool of one tenant, as shown by the
+ * <tt>/admin/pools</tt> end point.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+public class TenantPoolInfo {
+
+    private String tenantId;
+
+    private String poolName;
+
+    /**
+     * Hikari starts a pool with its first connection, so a registered pool
+     * may not hold any connections yet
+     */
+    private boolean started;
+
+    private int maximumPoolSize;
+
+    private int minimumIdle;
+
+    private int totalConnections;
+
+    private int activeConnections;
+
+    private int idleConnections;
+
+    private int threadsAwaitingConnection;
+
+    private Date createdAt;
+
+    private Date lastUsedAt;
+
+    // Getters and setters
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public void setTenantId(String tenantId) {
+        this.tenantId = tenantId;
+    }
+
+    public String getPoolName() {
+        return poolName;
+    }
+
+    public void setPoolName(String poolName) {
+        this.poolName = poolName;
+    }
+
+    public boolean isStarted() {
+        return started;
+    }
+
+    public void setStarted(boolean started) {
+        this.started = started;
+    }
+
+    public int getMaximumPoolSize() {
+        return maximumPoolSize;
+    }
+
+    public void setMaximumPoolSize(int maximumPoolSize) {
+        this.maximumPoolSize = maximumPoolSize;
+    }
+
+    public int getMinimumIdle() {
+        return minimumIdle;
+    }
+
+    public void setMinimumIdle(int minimumIdle) {
+        this.minimumIdle = minimumIdle;
+    }
+
+    public int getTotalConnections() {
+        return totalConnections;
+    }
+
+    public void setTotalConnections(int totalConnections) {
+        this.totalConnections = totalConnections;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    public void setActiveConnections(int activeConnections) {
+        this.activeConnections = activeConnections;
+    }
+
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    public void setIdleConnections(int idleConnections) {
+        this.idleConnections = idleConnections;
+    }
+
+    public int getThreadsAwaitingConnection() {
+        return threadsAwaitingConnection;
+    }
+
+    public void setThreadsAwaitingConnection(int threadsAwaitingConnection) {
+        this.threadsAwaitingConnection = threadsAwaitingConnection;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Date getLastUsedAt() {
+        return lastUsedAt;
+    }
+
+    public void setLastUsedAt(Date lastUsedAt) {
+        this.lastUsedAt = lastUsedAt;
+    }
+}
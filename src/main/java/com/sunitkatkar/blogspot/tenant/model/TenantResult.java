@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.model;
+
+/**
+ * The outcome of running a task against a single tenant as part of a cross
+ * tenant fan-out. Exactly one of <code>value</code>, <code>error</code> or
+ * <code>timedOut</code> describes the outcome.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ * @param <T>
+ *            the type of the value returned by the task
+ */
+public class TenantResult<T> {
+
+    private final String tenantId;
+
+    private final T value;
+
+    private final Throwable error;
+
+    private final boolean timedOut;
+
+    private final long elapsedMillis;
+
+    private TenantResult(String tenantId, T value, Throwable error,
+            boolean timedOut, long elapsedMillis) {
+        this.tenantId = tenantId;
+        this.value = value;
+        this.error = error;
+        this.timedOut = timedOut;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public static <T> TenantResult<T> success(String tenantId, T value,
+            long elapsedMillis) {
+        return new TenantResult<>(tenantId, value, null, false,
+                elapsedMillis);
+    }
+
+    public static <T> TenantResult<T> failure(String tenantId,
+            Throwable error, long elapsedMillis) {
+        return new TenantResult<>(tenantId, null, error, false,
+                elapsedMillis);
+    }
+
+    public static <T> TenantResult<T> timeout(String tenantId,
+            long elapsedMillis) {
+        return new TenantResult<>(tenantId, null, null, true, elapsedMillis);
+    }
+
+    public boolean isSuccess() {
+        return error == null && !timedOut;
+    }
+
+    // Getters
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public T getValue() {
+        return value;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+}
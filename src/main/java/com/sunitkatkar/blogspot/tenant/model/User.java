@@ -32,8 +32,13 @@ import javax.persistence.ManyToMany;
 import javax.persistence.Table;
 import javax.validation.constraints.NotNull;
 
+import org.hibernate.annotations.Filter;
+import org.hibernate.annotations.FilterDef;
+import org.hibernate.annotations.ParamDef;
 import org.hibernate.validator.constraints.Length;
 
+import com.sunitkatkar.blogspot.tenant.config.SharedTenantFilter;
+
 /**
  * User entity to represent a {@link User} of the system.
  * 
@@ -45,6 +50,10 @@ import org.hibernate.validator.constraints.Length;
  * <li>user_roles</li>
  * </ul>
  * 
+ * In a database shared by several tenants the <tt>tenant</tt> column tells
+ * their users apart and the {@link SharedTenantFilter} restricts all queries
+ * to the current tenant.
+ * 
  * @author Sunit Katkar, sunitkatkar@gmail.com
  *         (https://sunitkatkar.blogspot.com/)
  * @since ver 1.0 (May 2018)
@@ -52,6 +61,8 @@ import org.hibernate.validator.constraints.Length;
  */
 @Entity
 @Table(name = "user")
+@FilterDef(name = SharedTenantFilter.FILTER_NAME, parameters = @ParamDef(name = "tenant", type = "string"))
+@Filter(name = SharedTenantFilter.FILTER_NAME, condition = "tenant = :tenant")
 public class User implements Serializable {
 
     private static final long serialVersionUID = 1L;
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.model;
+
+/**
+ * Read only projection of the {@link User} entity used for listing users. It is
+ * populated by a JPQL constructor expression, so neither the password nor the
+ * eagerly fetched {@link Role} collection is ever loaded, and the instances are
+ * not attached to the persistence context.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+public class UserSummary {
+
+    private final int id;
+
+    private final String username;
+
+    private final boolean active;
+
+    private final String tenant;
+
+    /**
+     * Constructor used by the JPQL <code>select new ...</code> expression
+     * 
+     * @param id
+     * @param username
+     * @param active
+     * @param tenant
+     */
+    public UserSummary(int id, String username, boolean active,
+            String tenant) {
+        this.id = id;
+        this.username = username;
+        this.active = active;
+        this.tenant = tenant;
+    }
+
+    // Getters
+
+    public int getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public String getTenant() {
+        return tenant;
+    }
+}
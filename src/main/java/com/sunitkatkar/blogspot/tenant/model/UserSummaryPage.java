@@ -0,0 +1,56 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.model;
+
+import java.util.List;
+
+/**
+ * One page of a keyset (seek) paginated user listing. The caller passes
+ * <code>nextAfterId</code> back as the <code>after</code> parameter to fetch
+ * the following page. It is <code>null</code> when there are no more rows.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+public class UserSummaryPage {
+
+    private final List<UserSummary> users;
+
+    private final Integer nextAfterId;
+
+    /**
+     * @param users
+     *            the users on this page, ordered by id
+     * @param limit
+     *            the requested page size
+     */
+    public UserSummaryPage(List<UserSummary> users, int limit) {
+        this.users = users;
+        // A short page means the end of the table has been reached
+        this.nextAfterId = users.size() < limit ? null
+                : users.get(users.size() - 1).getId();
+    }
+
+    public List<UserSummary> getUsers() {
+        return users;
+    }
+
+    public Integer getNextAfterId() {
+        return nextAfterId;
+    }
+}
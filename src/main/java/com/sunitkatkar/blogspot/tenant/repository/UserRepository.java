@@ -16,12 +16,26 @@
 
 package com.sunitkatkar.blogspot.tenant.repository;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.sunitkatkar.blogspot.tenant.model.User;
+import com.sunitkatkar.blogspot.tenant.model.UserSummary;
 
 /**
  * Repository for the {@link User} JPA entity. Any custom methods, not already
@@ -46,4 +60,70 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("select p from User p where p.username = :username and p.tenant = :tenant")
     User findByUsernameAndTenantname(@Param("username") String username,
             @Param("tenant") String tenant);
+
+    /**
+     * Reads only the active flag of a user, e.g. to compute the change in the
+     * number of active users before an update
+     * 
+     * @param id
+     * @return the active flag or <code>null</code> if the user does not exist
+     */
+    @Query("select p.active from User p where p.id = :id")
+    Boolean findActiveById(@Param("id") int id);
+
+    /**
+     * @param active
+     * @return the number of users with the given active flag
+     */
+    long countByActive(boolean active);
+
+    /**
+     * Keyset (seek) pagination on <code>user_id</code>. Only the rows after
+     * <code>afterId</code> are read via the primary key index, so the cost of a
+     * page does not grow with its position like an OFFSET query does. The
+     * pageable must be unsorted and is only used for its page size.
+     * 
+     * @param afterId
+     * @param pageable
+     * @return
+     */
+    @Query("select new com.sunitkatkar.blogspot.tenant.model.UserSummary(p.id, p.username, p.active, p.tenant) "
+            + "from User p where p.id > :afterId order by p.id asc")
+    List<UserSummary> findSummariesAfter(@Param("afterId") int afterId,
+            Pageable pageable);
+
+    /**
+     * Streams all users as projections. A fetch size of
+     * {@link Integer#MIN_VALUE} makes MySQL Connector/J use a forward-only
+     * streaming result set instead of buffering the whole table in memory.
+     * Must be called within a read-only transaction and the stream must be
+     * closed by the caller.
+     * 
+     * @return
+     */
+    @QueryHints(value = {
+            @QueryHint(name = HINT_FETCH_SIZE, value = ""
+                    + Integer.MIN_VALUE),
+            @QueryHint(name = HINT_READONLY, value = "true") })
+    @Query("select new com.sunitkatkar.blogspot.tenant.model.UserSummary(p.id, p.username, p.active, p.tenant) "
+            + "from User p order by p.id asc")
+    Stream<UserSummary> streamAllSummaries();
+
+    /**
+     * Deactivates the active users of the tenant whose last login is older
+     * than the cutoff. <tt>last_login_at</tt> is not mapped in {@link User},
+     * so this is a native query, and it filters on the tenant itself as the
+     * tenant filter of a shared database does not apply to native queries.
+     * Users without a recorded login are not touched.
+     * 
+     * @param tenant
+     * @param cutoff
+     * @return the number of users deactivated
+     */
+    @Transactional("tenantTransactionManager")
+    @Modifying
+    @Query(value = "update user set active = 0 "
+            + "where tenant = :tenant and active = 1 and last_login_at < :cutoff", nativeQuery = true)
+    int deactivateNotLoggedInSince(@Param("tenant") String tenant,
+            @Param("cutoff") Date cutoff);
 }
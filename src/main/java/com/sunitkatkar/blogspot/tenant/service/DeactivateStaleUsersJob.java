@@ -0,0 +1,79 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.service;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.sunitkatkar.blogspot.master.repository.MasterTenantStatsRepository;
+import com.sunitkatkar.blogspot.tenant.config.TenantJobConfigProperties;
+import com.sunitkatkar.blogspot.tenant.repository.UserRepository;
+
+/**
+ * {@link TenantJob} which deactivates the users who did not log in for
+ * <tt>staleUserDays</tt> days, as recorded by the login audit. The active user
+ * count of the tenant summary is adjusted right away.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Component
+public class DeactivateStaleUsersJob implements TenantJob {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(DeactivateStaleUsersJob.class);
+
+    public static final String NAME = "deactivate-stale-users";
+
+    @Autowired
+    private TenantJobConfigProperties jobProperties;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MasterTenantStatsRepository statsRepo;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void run(String tenantId) {
+        int days = jobProperties.getStaleUserDays();
+        if (days <= 0) {
+            return;
+        }
+        Date cutoff = new Date(
+                System.currentTimeMillis() - TimeUnit.DAYS.toMillis(days));
+        int deactivated = userRepository.deactivateNotLoggedInSince(tenantId,
+                cutoff);
+        if (deactivated > 0) {
+            LOG.info("Deactivated " + deactivated
+                    + " users without a login since " + cutoff
+                    + " of tenant:" + tenantId);
+            statsRepo.addUserCounts(tenantId, 0, -deactivated);
+        }
+    }
+}
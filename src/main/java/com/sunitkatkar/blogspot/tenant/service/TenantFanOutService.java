@@ -0,0 +1,72 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.sunitkatkar.blogspot.tenant.model.TenantResult;
+
+/**
+ * Service definition for running the same task on many tenants in parallel,
+ * e.g. "which tenants have user X". Tenants on the same database server are
+ * throttled so that one server is not flooded, and each tenant is bounded by a
+ * timeout.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+public interface TenantFanOutService {
+
+    /**
+     * @return the ids of all active tenants registered in the master database
+     */
+    List<String> findAllTenantIds();
+
+    /**
+     * Runs the task on every given tenant and hands each result to the
+     * consumer, on the calling thread, as soon as that tenant completes. Returns
+     * once every tenant has reported a result.
+     * 
+     * @param tenantIds
+     * @param task
+     * @param timeoutMillis
+     *            per tenant timeout, 0 for the configured default
+     * @param consumer
+     */
+    <T> void execute(Collection<String> tenantIds, TenantTask<T> task,
+            long timeoutMillis, Consumer<TenantResult<T>> consumer);
+
+    /**
+     * Same as {@link #execute(Collection, TenantTask, long, Consumer)} but
+     * collects the results in completion order.
+     */
+    <T> List<TenantResult<T>> executeAll(Collection<String> tenantIds,
+            TenantTask<T> task, long timeoutMillis);
+
+    /**
+     * Runs a native SQL query with positional parameters on every given tenant.
+     * The timeout is also applied as a JDBC query timeout so the database stops
+     * working on it. Native SQL bypasses the tenant filter, so tenants of a
+     * shared database are reported as failed instead of being queried.
+     */
+    void nativeQuery(Collection<String> tenantIds, String sql,
+            List<?> parameters, long timeoutMillis,
+            Consumer<TenantResult<List<?>>> consumer);
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Query;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import com.sunitkatkar.blogspot.master.model.MasterTenant;
+import com.sunitkatkar.blogspot.master.model.TenantStatus;
+import com.sunitkatkar.blogspot.master.repository.MasterTenantRepository;
+import com.sunitkatkar.blogspot.tenant.config.TenantFanOutConfigProperties;
+import com.sunitkatkar.blogspot.tenant.model.TenantResult;
+import com.sunitkatkar.blogspot.util.DataSourceUtil;
+import com.sunitkatkar.blogspot.util.StatementDeadlineHolder;
+import com.sunitkatkar.blogspot.util.TenantContextHolder;
+
+/**
+ * Implementation of the {@link TenantFanOutService}.
+ * 
+ * <br/>
+ * <br/>
+ * The requested tenants are grouped by database server. Each server gets at
+ * most <tt>maxConcurrencyPerServer</tt> lanes, and each lane runs the tenants
+ * of its server one after the other on the shared worker pool. This caps the
+ * load per server without parking worker threads on a semaphore. A tenant that
+ * exceeds its timeout is reported as timed out right away and its worker
+ * thread is interrupted; the lane moves on once the task actually returns.
+ * The statements of the task get a query timeout ending at the same time, so
+ * a stuck statement returns too. A lane held up by a task which neither
+ * returns nor reacts to the interrupt would still keep its queued tenants
+ * from starting, so the caller waits for the results no longer than all
+ * rounds of the fullest server take, and reports the tenants left over as
+ * timed out.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Service
+public class TenantFanOutServiceImpl implements TenantFanOutService {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(TenantFanOutServiceImpl.class);
+
+    private static final String QUERY_TIMEOUT_HINT = "javax.persistence.query.timeout";
+
+    @Autowired
+    private TenantFanOutConfigProperties fanOutProperties;
+
+    @Autowired
+    private MasterTenantRepository masterTenantRepo;
+
+    @Autowired
+    @Qualifier("tenantEntityManagerFactory")
+    private EntityManagerFactory tenantEntityManagerFactory;
+
+    private ExecutorService workers;
+
+    private ScheduledExecutorService timeouts;
+
+    @PostConstruct
+    public void init() {
+        LOG.info("Setting up tenant fan-out with: "
+                + fanOutProperties.toString());
+        workers = Executors.newFixedThreadPool(
+                fanOutProperties.getThreadPoolSize(),
+                daemonThreadFactory("tenant-fanout-"));
+        timeouts = Executors.newSingleThreadScheduledExecutor(
+                daemonThreadFactory("tenant-fanout-timeout-"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+        timeouts.shutdownNow();
+    }
+
+    @Override
+    public List<String> findAllTenantIds() {
+        List<String> tenantIds = new ArrayList<>();
+        for (MasterTenant masterTenant : masterTenantRepo.findAll()) {
+            if (masterTenant.getStatus() == TenantStatus.ACTIVE) {
+                tenantIds.add(masterTenant.getTenantId());
+            }
+        }
+        return tenantIds;
+    }
+
+    @Override
+    public <T> void execute(Collection<String> tenantIds, TenantTask<T> task,
+            long timeoutMillis, Consumer<TenantResult<T>> consumer) {
+        long timeout = timeoutMillis > 0 ? timeoutMillis
+                : fanOutProperties.getDefaultTimeout();
+
+        Map<String, String> tenantUrls = new HashMap<>();
+        for (MasterTenant masterTenant : masterTenantRepo.findAll()) {
+            tenantUrls.put(masterTenant.getTenantId(), masterTenant.getUrl());
+        }
+
+        // Results are handed over to the calling thread through this queue
+        BlockingQueue<TenantResult<T>> completed = new LinkedBlockingQueue<>();
+        Map<String, Queue<String>> tenantsPerServer = new HashMap<>();
+        Set<String> pending = new LinkedHashSet<>(tenantIds);
+        for (String tenantId : pending) {
+            String url = tenantUrls.get(tenantId);
+            if (url == null) {
+                completed.add(TenantResult.failure(tenantId,
+                        new IllegalArgumentException(
+                                "Tenant not found in master db, tenant="
+                                        + tenantId),
+                        0));
+                continue;
+            }
+            tenantsPerServer.computeIfAbsent(DataSourceUtil.serverKey(url),
+                    k -> new ConcurrentLinkedQueue<>()).add(tenantId);
+        }
+
+        int rounds = 0;
+        for (Queue<String> serverTenants : tenantsPerServer.values()) {
+            int lanes = Math.min(serverTenants.size(),
+                    fanOutProperties.getMaxConcurrencyPerServer());
+            rounds = Math.max(rounds,
+                    (serverTenants.size() + lanes - 1) / lanes);
+            for (int i = 0; i < lanes; i++) {
+                workers.execute(() -> {
+                    String tenantId;
+                    while ((tenantId = serverTenants.poll()) != null) {
+                        runForTenant(tenantId, task, timeout, completed);
+                    }
+                });
+            }
+        }
+
+        // One more round for lanes waiting on a worker held by another server
+        long deadline = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(timeout * (rounds + 1));
+        try {
+            while (!pending.isEmpty()) {
+                TenantResult<T> result = completed.poll(
+                        deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (result == null) {
+                    tenantsPerServer.values().forEach(Queue::clear);
+                    LOG.warn("Tenant fan-out gave up waiting after "
+                            + timeout * (rounds + 1) + "ms for tenants:"
+                            + pending);
+                    for (String tenantId : pending) {
+                        consumer.accept(
+                                TenantResult.timeout(tenantId, timeout));
+                    }
+                    return;
+                }
+                // A late result of a tenant already reported is dropped
+                if (pending.remove(result.getTenantId())) {
+                    consumer.accept(result);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // Stop the lanes from picking up further tenants
+            tenantsPerServer.values().forEach(Queue::clear);
+            throw new IllegalStateException("Tenant fan-out interrupted", e);
+        }
+    }
+
+    @Override
+    public <T> List<TenantResult<T>> executeAll(Collection<String> tenantIds,
+            TenantTask<T> task, long timeoutMillis) {
+        List<TenantResult<T>> results = new ArrayList<>(tenantIds.size());
+        execute(tenantIds, task, timeoutMillis, results::add);
+        return results;
+    }
+
+    @Override
+    public void nativeQuery(Collection<String> tenantIds, String sql,
+            List<?> parameters, long timeoutMillis,
+            Consumer<TenantResult<List<?>>> consumer) {
+        long timeout = timeoutMillis > 0 ? timeoutMillis
+                : fanOutProperties.getDefaultTimeout();
+        Set<String> sharedTenants = new HashSet<>();
+        for (MasterTenant masterTenant : masterTenantRepo.findAll()) {
+            if (masterTenant.isShared()) {
+                sharedTenants.add(masterTenant.getTenantId());
+            }
+        }
+        execute(tenantIds, tenantId -> {
+            // Native SQL is not filtered by tenant, so in a shared database it
+            // would see the rows of every tenant
+            if (sharedTenants.contains(tenantId)) {
+                throw new IllegalStateException(String.format(
+                        "Native queries are not supported for shared tenants, tenant=%s",
+                        tenantId));
+            }
+            // The entity manager picks up the tenant from the
+            // TenantContextHolder when it is created
+            EntityManager em = tenantEntityManagerFactory
+                    .createEntityManager();
+            try {
+                Query query = em.createNativeQuery(sql);
+                for (int i = 0; i < parameters.size(); i++) {
+                    query.setParameter(i + 1, parameters.get(i));
+                }
+                query.setHint(QUERY_TIMEOUT_HINT, (int) timeout);
+                List<?> rows = query.getResultList();
+                return rows;
+            } finally {
+                em.close();
+            }
+        }, timeout, consumer);
+    }
+
+    /**
+     * Runs the task for a single tenant on the current worker thread with the
+     * tenant context set, and publishes exactly one result for it.
+     */
+    private <T> void runForTenant(String tenantId, TenantTask<T> task,
+            long timeout, BlockingQueue<TenantResult<T>> completed) {
+        AtomicBoolean published = new AtomicBoolean();
+        Thread worker = Thread.currentThread();
+        long start = System.nanoTime();
+        ScheduledFuture<?> timer = timeouts.schedule(() -> {
+            synchronized (published) {
+                if (published.compareAndSet(false, true)) {
+                    LOG.warn("Tenant fan-out timed out after " + timeout
+                            + "ms for tenant:" + tenantId);
+                    completed.add(TenantResult.timeout(tenantId, timeout));
+                    worker.interrupt();
+                }
+            }
+        }, timeout, TimeUnit.MILLISECONDS);
+
+        TenantResult<T> result;
+        TenantContextHolder.setTenantId(tenantId);
+        StatementDeadlineHolder.setDeadline(
+                start + TimeUnit.MILLISECONDS.toNanos(timeout));
+        try {
+            T value = task.call(tenantId);
+            result = TenantResult.success(tenantId, value, elapsed(start));
+        } catch (Throwable e) {
+            // Every tenant must publish a result or the caller waits until the
+            // fan-out gives up
+            result = TenantResult.failure(tenantId, e, elapsed(start));
+        } finally {
+            StatementDeadlineHolder.clear();
+            TenantContextHolder.clear();
+        }
+
+        timer.cancel(false);
+        synchronized (published) {
+            if (published.compareAndSet(false, true)) {
+                completed.add(result);
+            }
+            // Swallow an interrupt meant for this tenant so it does not leak
+            // into the next tenant of the lane
+            Thread.interrupted();
+        }
+    }
+
+    private static long elapsed(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private static ThreadFactory daemonThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable,
+                    prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
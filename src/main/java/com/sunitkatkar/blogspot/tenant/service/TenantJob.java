@@ -0,0 +1,51 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.service;
+
+/**
+ * A recurring maintenance job which is run on every active tenant by the
+ * {@link TenantJobService}. Jobs are Spring beans and are picked up
+ * automatically. When <code>run</code> is invoked the {@link
+ * com.sunitkatkar.blogspot.util.TenantContextHolder} is already set to the
+ * given tenant, so repositories and services can be used as usual.
+ * 
+ * <br/>
+ * <br/>
+ * A run which is interrupted is resumed with the tenants it did not reach
+ * yet, but a tenant on which the job was in progress is run again. Jobs must
+ * therefore be idempotent per tenant.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+public interface TenantJob {
+
+    /**
+     * @return the unique name of the job, used for its interval in the
+     *         configuration and for its checkpoints
+     */
+    String getName();
+
+    /**
+     * @param tenantId
+     * @throws Exception
+     *             to record the job as failed on the tenant, the run goes on
+     *             with the other tenants
+     */
+    void run(String tenantId) throws Exception;
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.service;
+
+import java.util.List;
+
+import com.sunitkatkar.blogspot.master.model.MasterJobRun;
+import com.sunitkatkar.blogspot.master.model.MasterTenantJob;
+
+/**
+ * Service definition for running the {@link TenantJob}s on every active tenant
+ * at their configured interval. The number of tenants worked on at the same
+ * time is capped globally and per database server, and the progress of every
+ * run is checkpointed in the master database so that a restart resumes it.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+public interface TenantJobService {
+
+    /**
+     * @return the names of all known jobs
+     */
+    List<String> getJobNames();
+
+    /**
+     * @return the current or last run of every job which ever ran
+     */
+    List<MasterJobRun> findRuns();
+
+    /**
+     * @param jobName
+     * @return the outcome and duration of the last execution of the job on
+     *         each tenant
+     */
+    List<MasterTenantJob> findTenantJobs(String jobName);
+
+    /**
+     * Starts the jobs which are due in the background, and resumes the runs
+     * which did not complete
+     */
+    void runDueJobs();
+
+    /**
+     * Starts a run of the job in the background, or resumes its interrupted
+     * run, regardless of its interval
+     * 
+     * @param jobName
+     * @throws IllegalArgumentException
+     *             if there is no such job
+     * @throws IllegalStateException
+     *             if the job is already running on this node. A run which
+     *             another node holds the lock of is left to that node.
+     */
+    void runNow(String jobName);
+}
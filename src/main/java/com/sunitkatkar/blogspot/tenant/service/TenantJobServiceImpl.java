@@ -0,0 +1,514 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import com.sunitkatkar.blogspot.master.model.MasterJobRun;
+import com.sunitkatkar.blogspot.master.model.MasterTenant;
+import com.sunitkatkar.blogspot.master.model.MasterTenantJob;
+import com.sunitkatkar.blogspot.master.model.TenantStatus;
+import com.sunitkatkar.blogspot.master.repository.MasterJobRunRepository;
+import com.sunitkatkar.blogspot.master.repository.MasterTenantJobRepository;
+import com.sunitkatkar.blogspot.master.repository.MasterTenantRepository;
+import com.sunitkatkar.blogspot.tenant.config.ShutdownConfigProperties;
+import com.sunitkatkar.blogspot.tenant.config.TenantJobConfigProperties;
+import com.sunitkatkar.blogspot.tenant.config.TenantPoolShutdown;
+import com.sunitkatkar.blogspot.util.DataSourceUtil;
+import com.sunitkatkar.blogspot.util.TenantContextHolder;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Implementation of the {@link TenantJobService}.
+ * 
+ * <br/>
+ * <br/>
+ * Every run of a job has a run number in <tt>master_job_run</tt>. After each
+ * tenant the outcome is written to <tt>master_tenant_job</tt> with that run
+ * number, which is the checkpoint: when a run did not complete, the next check
+ * resumes it with the active tenants which have no row for its run number
+ * yet. Tenants on which the job failed are retried in the next run. While a
+ * node works on a run it holds a MySQL named lock for the job in the master
+ * database, so nodes do not start or resume the same run at the same time.
+ * The lock belongs to the master connection of the run, so when the node dies
+ * it is released and another node resumes the run.
+ * 
+ * <br/>
+ * <br/>
+ * Runs are started on their own threads, while the tenants are worked on by a
+ * pool of <tt>maxConcurrency</tt> workers shared by all jobs. As in the
+ * {@link TenantFanOutServiceImpl}, the tenants of a run are grouped by
+ * database server and each server gets at most
+ * <tt>maxConcurrencyPerServer</tt> lanes which work through its tenants one
+ * after the other.
+ * 
+ * <br/>
+ * <br/>
+ * On shutdown no further tenants are started and the tenants in progress get
+ * the <tt>drainTimeout</tt> of the shutdown to finish. This happens in a
+ * lifecycle phase before the {@link TenantPoolShutdown}, so their pools are
+ * still open. The duration of the job on each tenant is published as the
+ * timer <tt>tenant.job.duration</tt>, tagged by job, tenant and outcome.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Service
+public class TenantJobServiceImpl implements TenantJobService, SmartLifecycle {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(TenantJobServiceImpl.class);
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    /**
+     * Prefix of the named lock of a job in the master database
+     */
+    private static final String LOCK_PREFIX = "tenant_job:";
+
+    /**
+     * Longest name MySQL accepts for a named lock
+     */
+    private static final int MAX_LOCK_NAME = 64;
+
+    @Autowired
+    private TenantJobConfigProperties jobProperties;
+
+    @Autowired
+    private ShutdownConfigProperties shutdownProperties;
+
+    @Autowired
+    private MasterTenantRepository masterTenantRepo;
+
+    @Autowired
+    private MasterJobRunRepository jobRunRepo;
+
+    @Autowired
+    private MasterTenantJobRepository tenantJobRepo;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("masterDataSource")
+    private DataSource masterDataSource;
+
+    @Autowired(required = false)
+    private List<TenantJob> tenantJobs = new ArrayList<>();
+
+    /**
+     * Job name as key and the job as value
+     */
+    private final Map<String, TenantJob> jobs = new LinkedHashMap<>();
+
+    /**
+     * Names of the jobs with a run in progress on this node
+     */
+    private final Set<String> runningJobs = ConcurrentHashMap.newKeySet();
+
+    private ExecutorService workers;
+
+    private ExecutorService launcher;
+
+    private volatile boolean running;
+
+    @Override
+    public void start() {
+        for (TenantJob job : tenantJobs) {
+            if (jobs.putIfAbsent(job.getName(), job) != null) {
+                throw new IllegalStateException(
+                        "Duplicate tenant job name: " + job.getName());
+            }
+        }
+        workers = Executors.newFixedThreadPool(
+                Math.max(1, jobProperties.getMaxConcurrency()),
+                daemonThreadFactory("tenant-job-"));
+        launcher = Executors
+                .newCachedThreadPool(daemonThreadFactory("tenant-job-run-"));
+        running = true;
+        LOG.info("Tenant jobs " + jobs.keySet() + " set up with: "
+                + jobProperties);
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        workers.shutdown();
+        launcher.shutdown();
+        try {
+            if (!workers.awaitTermination(shutdownProperties.getDrainTimeout(),
+                    TimeUnit.MILLISECONDS)) {
+                LOG.warn("Tenant jobs still in progress after "
+                        + shutdownProperties.getDrainTimeout() + "ms");
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        launcher.shutdownNow();
+    }
+
+    @Override
+    public void stop(Runnable callback) {
+        try {
+            stop();
+        } finally {
+            callback.run();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return true;
+    }
+
+    @Override
+    public int getPhase() {
+        return TenantPoolShutdown.PHASE + 1;
+    }
+
+    @Override
+    public List<String> getJobNames() {
+        return new ArrayList<>(jobs.keySet());
+    }
+
+    @Override
+    public List<MasterJobRun> findRuns() {
+        return jobRunRepo.findAll();
+    }
+
+    @Override
+    public List<MasterTenantJob> findTenantJobs(String jobName) {
+        getJob(jobName);
+        return tenantJobRepo.findByJobName(jobName);
+    }
+
+    @Override
+    @Scheduled(initialDelayString = "${multitenancy.mtapp.jobs.initialDelay:30000}", fixedDelayString = "${multitenancy.mtapp.jobs.checkInterval:60000}")
+    public void runDueJobs() {
+        if (!jobProperties.isEnabled() || !running) {
+            return;
+        }
+        for (TenantJob job : jobs.values()) {
+            if (runningJobs.contains(job.getName())) {
+                continue;
+            }
+            try {
+                if (isDue(job, jobRunRepo.findByJobName(job.getName()))) {
+                    launch(job);
+                }
+            } catch (RuntimeException e) {
+                LOG.warn("Could not check tenant job:" + job.getName(), e);
+            }
+        }
+    }
+
+    @Override
+    public void runNow(String jobName) {
+        TenantJob job = getJob(jobName);
+        if (!running) {
+            throw new IllegalStateException("Tenant jobs are not running");
+        }
+        if (!launch(job)) {
+            throw new IllegalStateException(
+                    "Tenant job is already running: " + jobName);
+        }
+    }
+
+    private TenantJob getJob(String jobName) {
+        TenantJob job = jobs.get(jobName);
+        if (job == null) {
+            throw new IllegalArgumentException(
+                    "Unknown tenant job: " + jobName);
+        }
+        return job;
+    }
+
+    /**
+     * A run which did not complete is always due, so that it is resumed
+     */
+    private boolean isDue(TenantJob job, MasterJobRun run) {
+        if (run != null && run.getCompletedAt() == null) {
+            return true;
+        }
+        long interval = jobProperties.getIntervals().getOrDefault(
+                job.getName(), jobProperties.getDefaultInterval());
+        if (interval <= 0) {
+            return false;
+        }
+        return run == null || run.getStartedAt() == null
+                || System.currentTimeMillis()
+                        - run.getStartedAt().getTime() >= interval;
+    }
+
+    /**
+     * @return false if the job is already running
+     */
+    private boolean launch(TenantJob job) {
+        if (!runningJobs.add(job.getName())) {
+            return false;
+        }
+        try {
+            launcher.execute(() -> {
+                try {
+                    executeLocked(job);
+                } catch (RuntimeException e) {
+                    LOG.warn("Tenant job:" + job.getName() + " failed", e);
+                } finally {
+                    runningJobs.remove(job.getName());
+                }
+            });
+        } catch (RuntimeException e) {
+            runningJobs.remove(job.getName());
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * Runs the job while this node holds its lock in the master database. The
+     * lock is not waited for, a node which does not get it leaves the run to
+     * the node which has it.
+     */
+    private void executeLocked(TenantJob job) {
+        String lockName = lockName(job.getName());
+        try (Connection connection = masterDataSource.getConnection()) {
+            if (!acquireLock(connection, lockName)) {
+                LOG.info("Tenant job:" + job.getName()
+                        + " is running on another node");
+                return;
+            }
+            try {
+                execute(job);
+            } finally {
+                releaseLock(connection, lockName);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(
+                    "Could not lock tenant job:" + job.getName(), e);
+        }
+    }
+
+    /**
+     * @return the name of the lock of the job, hashed if the job name is too
+     *         long for a lock name
+     */
+    private static String lockName(String jobName) {
+        String name = LOCK_PREFIX + jobName;
+        return name.length() <= MAX_LOCK_NAME ? name
+                : LOCK_PREFIX + DigestUtils.md5DigestAsHex(
+                        jobName.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static boolean acquireLock(Connection connection, String lockName)
+            throws SQLException {
+        try (PreparedStatement statement = connection
+                .prepareStatement("select get_lock(?, 0)")) {
+            statement.setString(1, lockName);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    private static void releaseLock(Connection connection, String lockName)
+            throws SQLException {
+        try (PreparedStatement statement = connection
+                .prepareStatement("select release_lock(?)")) {
+            statement.setString(1, lockName);
+            statement.execute();
+        }
+    }
+
+    private void execute(TenantJob job) {
+        String jobName = job.getName();
+        MasterJobRun run = jobRunRepo.findByJobName(jobName);
+        if (run == null || run.getCompletedAt() != null) {
+            run = startRun(run, jobName);
+        } else {
+            LOG.info("Resuming run " + run.getRunNumber() + " of tenant job:"
+                    + jobName);
+        }
+        long runNumber = run.getRunNumber();
+        long start = System.currentTimeMillis();
+
+        Set<String> processed = new HashSet<>(
+                tenantJobRepo.findTenantIdsOfRun(jobName, runNumber));
+        Map<String, Queue<String>> tenantsPerServer = new HashMap<>();
+        int pending = 0;
+        for (MasterTenant masterTenant : masterTenantRepo.findAll()) {
+            if (masterTenant.getStatus() != TenantStatus.ACTIVE
+                    || processed.contains(masterTenant.getTenantId())) {
+                continue;
+            }
+            tenantsPerServer.computeIfAbsent(
+                    DataSourceUtil.serverKey(masterTenant.getUrl()),
+                    k -> new ConcurrentLinkedQueue<>())
+                    .add(masterTenant.getTenantId());
+            pending++;
+        }
+
+        CountDownLatch completed = new CountDownLatch(pending);
+        for (Queue<String> serverTenants : tenantsPerServer.values()) {
+            int lanes = Math.min(serverTenants.size(),
+                    Math.max(1, jobProperties.getMaxConcurrencyPerServer()));
+            for (int i = 0; i < lanes; i++) {
+                workers.execute(() -> {
+                    String tenantId;
+                    while ((tenantId = serverTenants.poll()) != null) {
+                        // On shutdown the remaining tenants are left to the
+                        // resumed run
+                        if (running) {
+                            runForTenant(job, runNumber, tenantId);
+                        }
+                        completed.countDown();
+                    }
+                });
+            }
+        }
+        try {
+            completed.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!running || Thread.currentThread().isInterrupted()) {
+            LOG.info("Run " + runNumber + " of tenant job:" + jobName
+                    + " interrupted, it is resumed after the next start");
+            return;
+        }
+
+        run.setCompletedAt(new Date());
+        run.setTenantCount(processed.size() + pending);
+        run.setFailedCount(
+                (int) tenantJobRepo.countFailedOfRun(jobName, runNumber));
+        jobRunRepo.save(run);
+        LOG.info("Run " + runNumber + " of tenant job:" + jobName + " went "
+                + "through " + pending + " tenants in "
+                + (System.currentTimeMillis() - start) + "ms, failed on "
+                + run.getFailedCount() + " tenants");
+    }
+
+    private MasterJobRun startRun(MasterJobRun run, String jobName) {
+        if (run == null) {
+            run = new MasterJobRun();
+            run.setJobName(jobName);
+        }
+        run.setRunNumber(run.getRunNumber() + 1);
+        run.setStartedAt(new Date());
+        run.setCompletedAt(null);
+        run.setTenantCount(0);
+        run.setFailedCount(0);
+        return jobRunRepo.save(run);
+    }
+
+    /**
+     * Runs the job for a single tenant on the current worker thread with the
+     * tenant context set, and records its checkpoint
+     */
+    private void runForTenant(TenantJob job, long runNumber, String tenantId) {
+        long start = System.nanoTime();
+        String error = null;
+        TenantContextHolder.setTenantId(tenantId);
+        try {
+            job.run(tenantId);
+        } catch (Throwable e) {
+            error = e.toString();
+            LOG.warn("Tenant job:" + job.getName() + " failed for tenant:"
+                    + tenantId, e);
+        } finally {
+            TenantContextHolder.clear();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (error != null && !running) {
+            // Most likely caused by the shutdown, the resumed run tries again
+            return;
+        }
+
+        Timer.builder("tenant.job.duration")
+                .description("Duration of a tenant job on one tenant")
+                .tags("job", job.getName(), "tenant", tenantId, "outcome",
+                        error == null ? "success" : "failure")
+                .register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        try {
+            tenantJobRepo.saveCheckpoint(job.getName(), tenantId, runNumber,
+                    error == null ? MasterTenantJob.SUCCESS
+                            : MasterTenantJob.FAILED,
+                    TimeUnit.NANOSECONDS.toMillis(elapsed),
+                    error == null || error.length() <= MAX_ERROR_LENGTH ? error
+                            : error.substring(0, MAX_ERROR_LENGTH));
+        } catch (RuntimeException e) {
+            // The tenant is run again when the run is resumed
+            LOG.warn("Could not checkpoint tenant job:" + job.getName()
+                    + " for tenant:" + tenantId, e);
+        }
+    }
+
+    private static ThreadFactory daemonThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable,
+                    prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.service;
+
+import java.sql.SQLException;
+
+import com.sunitkatkar.blogspot.master.model.MasterTenant;
+
+/**
+ * Service definition for the versioned schema migrations of the tenant
+ * databases. This replaces the Hibernate <tt>hbm2ddl.auto=update</tt> mode,
+ * which only ever inspected the first tenant database and did so lazily on a
+ * live connection.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+public interface TenantSchemaMigrationService {
+
+    /**
+     * @return the version of the newest migration shipped with this build
+     */
+    int getLatestVersion();
+
+    /**
+     * Migrates, in parallel, every tenant whose schema version recorded in the
+     * master database is older than {@link #getLatestVersion()}
+     */
+    void migratePending();
+
+    /**
+     * Applies all pending migrations to a single tenant database and records
+     * the new schema version in the tenant database and in the master database
+     * 
+     * @param masterTenant
+     * @return the schema version of the tenant database after migrating
+     * @throws SQLException
+     */
+    int migrate(MasterTenant masterTenant) throws SQLException;
+
+    /**
+     * Applies all pending migrations to a database which is not necessarily a
+     * registered tenant, e.g. the template used for provisioning new tenants.
+     * Nothing is recorded in the master database.
+     * 
+     * @param url
+     * @param username
+     * @param password
+     * @param name
+     *            name of the database used for logging
+     * @return the schema version of the database after migrating
+     * @throws SQLException
+     */
+    int migrateDatabase(String url, String username, String password,
+            String name) throws SQLException;
+}
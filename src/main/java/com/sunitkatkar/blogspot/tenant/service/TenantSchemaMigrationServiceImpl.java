@@ -0,0 +1,382 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StreamUtils;
+
+import com.sunitkatkar.blogspot.master.model.MasterTenant;
+import com.sunitkatkar.blogspot.master.model.TenantStatus;
+import com.sunitkatkar.blogspot.master.repository.MasterTenantRepository;
+import com.sunitkatkar.blogspot.tenant.config.TenantMigrationConfigProperties;
+import com.sunitkatkar.blogspot.tenant.config.TenantSchemaStatus;
+import com.sunitkatkar.blogspot.util.JobExecutor;
+
+/**
+ * Implementation of the {@link TenantSchemaMigrationService}.
+ * 
+ * <br/>
+ * <br/>
+ * Every tenant database has a <tt>schema_version</tt> table with one row per
+ * applied migration. A migration is recorded right after its script succeeds,
+ * so a failed run resumes with the first migration which is not recorded. A
+ * MySQL named lock per database keeps two nodes from migrating the same
+ * tenant database at the same time, while different databases on the same
+ * server are migrated in parallel. The resulting version is also stored in <tt>master_tenant</tt>, so
+ * that tenants which are already current are skipped without connecting to
+ * them.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Service
+public class TenantSchemaMigrationServiceImpl
+        implements TenantSchemaMigrationService {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(TenantSchemaMigrationServiceImpl.class);
+
+    private static final Pattern SCRIPT_NAME = Pattern
+            .compile("V(\\d+)__(.+)\\.sql");
+
+    /**
+     * Prefix of the named lock of a tenant database. MySQL named locks are
+     * server wide, so the name contains the database.
+     */
+    private static final String LOCK_PREFIX = "tenant_migration:";
+
+    /**
+     * Longest name MySQL accepts for a named lock
+     */
+    private static final int MAX_LOCK_NAME = 64;
+
+    private static final String CREATE_VERSION_TABLE = "create table if not exists schema_version ("
+            + "version int not null, description varchar(200) not null, "
+            + "checksum bigint not null, execution_time int not null, "
+            + "installed_on timestamp not null default current_timestamp, "
+            + "primary key (version)) engine=InnoDB";
+
+    @Autowired
+    private TenantMigrationConfigProperties migrationProperties;
+
+    @Autowired
+    private MasterTenantRepository masterTenantRepo;
+
+    @Autowired
+    private TenantFanOutService tenantFanOutService;
+
+    @Autowired
+    private TenantSchemaStatus tenantSchemaStatus;
+
+    /**
+     * The migrations shipped with this build in ascending version order
+     */
+    private List<Migration> migrations;
+
+    /**
+     * Runs the scheduled migration on its own thread
+     */
+    private final JobExecutor migrationJob = new JobExecutor(
+            "tenant-migration");
+
+    @PostConstruct
+    public void init() throws IOException {
+        LOG.info("Setting up tenant schema migrations with: "
+                + migrationProperties.toString());
+        migrations = loadMigrations();
+        int latestVersion = migrations.isEmpty() ? 0
+                : migrations.get(migrations.size() - 1).version;
+        tenantSchemaStatus.setLatestVersion(latestVersion);
+
+        // Tenants which the master database already records as migrated can
+        // take traffic right away, without connecting to their database
+        int current = 0;
+        for (MasterTenant masterTenant : masterTenantRepo.findAll()) {
+            if (masterTenant.getSchemaVersion() != null) {
+                tenantSchemaStatus.setSchemaVersion(masterTenant.getTenantId(),
+                        masterTenant.getSchemaVersion());
+                if (masterTenant.getSchemaVersion() >= latestVersion) {
+                    current++;
+                }
+            }
+        }
+        LOG.info("Latest tenant schema version:" + latestVersion + ", "
+                + current + " tenants are current");
+    }
+
+    @Override
+    public int getLatestVersion() {
+        return tenantSchemaStatus.getLatestVersion();
+    }
+
+    /**
+     * Starts {@link #migratePending()} on its own thread, migrating the
+     * tenants can take minutes
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${multitenancy.mtapp.migration.checkInterval:30000}")
+    public void scheduleMigratePending() {
+        migrationJob.submit(this::migratePending);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        migrationJob.shutdown();
+    }
+
+    @Override
+    public void migratePending() {
+        List<MasterTenant> pending = masterTenantRepo
+                .findBySchemaVersionBelow(getLatestVersion());
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<String, MasterTenant> pendingById = new HashMap<>();
+        for (MasterTenant masterTenant : pending) {
+            // Suspended tenants are kept current so they can be reactivated,
+            // offboarded ones may no longer have a database
+            if (masterTenant.getStatus() != TenantStatus.OFFBOARDED) {
+                pendingById.put(masterTenant.getTenantId(), masterTenant);
+            }
+        }
+        if (pendingById.isEmpty()) {
+            return;
+        }
+
+        LOG.info("Migrating " + pendingById.size()
+                + " tenants to schema version:" + getLatestVersion());
+        long start = System.currentTimeMillis();
+        int[] outcome = { 0, 0 };
+        tenantFanOutService.execute(pendingById.keySet(),
+                tenantId -> migrate(pendingById.get(tenantId)),
+                migrationProperties.getTimeout(), result -> {
+                    if (result.isSuccess()) {
+                        outcome[0]++;
+                    } else {
+                        outcome[1]++;
+                        LOG.error("Migration failed for tenant:"
+                                + result.getTenantId()
+                                + (result.isTimedOut() ? " (timed out)" : ""),
+                                result.getError());
+                    }
+                });
+        LOG.info("Tenant migration finished in "
+                + (System.currentTimeMillis() - start) + "ms, migrated:"
+                + outcome[0] + " failed:" + outcome[1]);
+    }
+
+    @Override
+    public int migrate(MasterTenant masterTenant) throws SQLException {
+        String tenantId = masterTenant.getTenantId();
+        int schemaVersion = migrateDatabase(masterTenant.getUrl(),
+                masterTenant.getUsername(), masterTenant.getPassword(),
+                tenantId);
+        masterTenantRepo.updateSchemaVersion(tenantId, schemaVersion);
+        tenantSchemaStatus.setSchemaVersion(tenantId, schemaVersion);
+        return schemaVersion;
+    }
+
+    @Override
+    public int migrateDatabase(String url, String username, String password,
+            String tenantId) throws SQLException {
+        int schemaVersion = 0;
+        try (Connection connection = DriverManager.getConnection(url,
+                username, password)) {
+            String lockName = lockName(connection.getCatalog());
+            acquireLock(connection, lockName, tenantId);
+            try {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(CREATE_VERSION_TABLE);
+                }
+                Map<Integer, Long> applied = findAppliedMigrations(connection);
+                for (Migration migration : migrations) {
+                    Long checksum = applied.get(migration.version);
+                    if (checksum != null) {
+                        if (checksum.longValue() != migration.checksum) {
+                            LOG.warn("Checksum mismatch of applied migration "
+                                    + migration + " for tenant:" + tenantId);
+                        }
+                        schemaVersion = migration.version;
+                        continue;
+                    }
+                    long start = System.currentTimeMillis();
+                    ScriptUtils.executeSqlScript(connection,
+                            migration.resource);
+                    int executionTime = (int) (System.currentTimeMillis()
+                            - start);
+                    recordMigration(connection, migration, executionTime);
+                    schemaVersion = migration.version;
+                    LOG.info("Applied migration " + migration + " to tenant:"
+                            + tenantId + " in " + executionTime + "ms");
+                }
+                // A newer build may have migrated this tenant further
+                for (Integer version : applied.keySet()) {
+                    schemaVersion = Math.max(schemaVersion, version);
+                }
+            } finally {
+                releaseLock(connection, lockName);
+            }
+        }
+        return schemaVersion;
+    }
+
+    /**
+     * @param database
+     * @return the name of the migration lock of the database, hashed if the
+     *         database name is too long for a lock name
+     */
+    static String lockName(String database) {
+        String name = LOCK_PREFIX + database;
+        return name.length() <= MAX_LOCK_NAME ? name
+                : LOCK_PREFIX + DigestUtils.md5DigestAsHex(
+                        database.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void acquireLock(Connection connection, String lockName,
+            String tenantId) throws SQLException {
+        try (PreparedStatement statement = connection
+                .prepareStatement("select get_lock(?, ?)")) {
+            statement.setString(1, lockName);
+            statement.setInt(2, migrationProperties.getLockTimeout());
+            try (ResultSet rs = statement.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException(
+                            "Could not acquire migration lock for tenant:"
+                                    + tenantId);
+                }
+            }
+        }
+    }
+
+    private void releaseLock(Connection connection, String lockName)
+            throws SQLException {
+        try (PreparedStatement statement = connection
+                .prepareStatement("select release_lock(?)")) {
+            statement.setString(1, lockName);
+            statement.executeQuery().close();
+        }
+    }
+
+    private Map<Integer, Long> findAppliedMigrations(Connection connection)
+            throws SQLException {
+        Map<Integer, Long> applied = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery(
+                        "select version, checksum from schema_version")) {
+            while (rs.next()) {
+                applied.put(rs.getInt(1), rs.getLong(2));
+            }
+        }
+        return applied;
+    }
+
+    private void recordMigration(Connection connection, Migration migration,
+            int executionTime) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "insert into schema_version (version, description, checksum, execution_time) "
+                        + "values (?, ?, ?, ?)")) {
+            statement.setInt(1, migration.version);
+            statement.setString(2, migration.description);
+            statement.setLong(3, migration.checksum);
+            statement.setInt(4, executionTime);
+            statement.executeUpdate();
+        }
+    }
+
+    private List<Migration> loadMigrations() throws IOException {
+        Resource[] resources = new PathMatchingResourcePatternResolver()
+                .getResources(migrationProperties.getLocation() + "/*.sql");
+        List<Migration> loaded = new ArrayList<>();
+        for (Resource resource : resources) {
+            Matcher matcher = SCRIPT_NAME.matcher(resource.getFilename());
+            if (!matcher.matches()) {
+                LOG.warn("Ignoring migration script with invalid name:"
+                        + resource.getFilename());
+                continue;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(StreamUtils.copyToByteArray(resource.getInputStream()));
+            loaded.add(new Migration(Integer.parseInt(matcher.group(1)),
+                    matcher.group(2).replace('_', ' '), crc.getValue(),
+                    resource));
+        }
+        loaded.sort(Comparator.comparingInt(m -> m.version));
+        for (int i = 1; i < loaded.size(); i++) {
+            if (loaded.get(i).version == loaded.get(i - 1).version) {
+                throw new IllegalStateException(
+                        "Duplicate tenant migration version:"
+                                + loaded.get(i).version);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * A single versioned migration script
+     */
+    private static final class Migration {
+
+        private final int version;
+
+        private final String description;
+
+        private final long checksum;
+
+        private final Resource resource;
+
+        private Migration(int version, String description, long checksum,
+                Resource resource) {
+            this.version = version;
+            this.description = description;
+            this.checksum = checksum;
+            this.resource = resource;
+        }
+
+        @Override
+        public String toString() {
+            return "V" + version + " (" + description + ")";
+        }
+    }
+}
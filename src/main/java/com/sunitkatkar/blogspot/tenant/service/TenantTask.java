@@ -0,0 +1,35 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.tenant.service;
+
+/**
+ * A unit of work executed for one tenant by the {@link TenantFanOutService}.
+ * When <code>call</code> is invoked the {@link
+ * com.sunitkatkar.blogspot.util.TenantContextHolder} is already set to the
+ * given tenant, so repositories and services can be used as usual.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ * @param <T>
+ *            the type of the value returned for each tenant
+ */
+@FunctionalInterface
+public interface TenantTask<T> {
+
+    T call(String tenantId) throws Exception;
+}
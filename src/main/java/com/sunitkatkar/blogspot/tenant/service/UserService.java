@@ -16,11 +16,13 @@
 package com.sunitkatkar.blogspot.tenant.service;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import com.sunitkatkar.blogspot.tenant.model.User;
+import com.sunitkatkar.blogspot.tenant.model.UserSummary;
 
 /**
  * Service definition which accesses the {@link com.example.model.User} entity.
@@ -43,5 +45,14 @@ public interface UserService {
     User findByUsernameAndTenantname(@Param("username") String username,
             @Param("tenant") String tenant);
 
+    /**
+     * Loads every user with its roles into memory. Prefer
+     * {@link #findUserSummaries(int, int)} or
+     * {@link #exportUserSummaries(Consumer)} for tenants with many users.
+     */
     List<User> findAllUsers();
+
+    List<UserSummary> findUserSummaries(int afterId, int limit);
+
+    void exportUserSummaries(Consumer<UserSummary> consumer);
 }
@@ -16,18 +16,25 @@
 package com.sunitkatkar.blogspot.tenant.service;
 
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.sunitkatkar.blogspot.master.service.MasterTenantStatsService;
 import com.sunitkatkar.blogspot.tenant.model.User;
+import com.sunitkatkar.blogspot.tenant.model.UserSummary;
 import com.sunitkatkar.blogspot.tenant.repository.UserRepository;
+import com.sunitkatkar.blogspot.util.TenantContextHolder;
 
 /**
  * Implementation of the {@link UserService} which accesses the {@link User}
@@ -52,12 +59,26 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private MasterTenantStatsService masterTenantStatsService;
+
     @Override
     public User save(User user) {
+        // Capture the previous active flag so the tenant summary in the
+        // master database can be updated with a delta
+        Boolean wasActive = user.getId() == 0 ? null
+                : userRepository.findActiveById(user.getId());
+
         // Encrypt the password
         user.setPassword(passwordEncoder.encode(user.getPassword()));
         User justSavedUser = userRepository.save(user);
         LOG.info("User:" + justSavedUser.getUsername() + " saved.");
+
+        String tenant = TenantContextHolder.getTenant() != null
+                ? TenantContextHolder.getTenant()
+                : justSavedUser.getTenant();
+        masterTenantStatsService.recordUserSaved(tenant, wasActive == null,
+                Boolean.TRUE.equals(wasActive), justSavedUser.isActive());
         return justSavedUser;
     }
 
@@ -93,4 +114,24 @@ public class UserServiceImpl implements UserService {
     public List<User> findAllUsers() {
         return userRepository.findAll();
     }
+
+    @Override
+    public List<UserSummary> findUserSummaries(int afterId, int limit) {
+        return userRepository.findSummariesAfter(afterId,
+                PageRequest.of(0, limit));
+    }
+
+    /**
+     * The stream is backed by an open JDBC cursor, so the transaction has to
+     * stay open until every row has been handed to the consumer. Rows are not
+     * accumulated, which keeps memory flat regardless of the tenant size.
+     */
+    @Override
+    @Transactional(value = "tenantTransactionManager", readOnly = true)
+    public void exportUserSummaries(Consumer<UserSummary> consumer) {
+        try (Stream<UserSummary> users = userRepository
+                .streamAllSummaries()) {
+            users.forEach(consumer);
+        }
+    }
 }
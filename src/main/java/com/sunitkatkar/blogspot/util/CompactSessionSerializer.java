@@ -0,0 +1,221 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.web.csrf.DefaultCsrfToken;
+
+import com.sunitkatkar.blogspot.tenant.model.CustomUserDetails;
+
+/**
+ * Serializes the attributes of an HTTP session into a compact binary form for
+ * the session table in the master database.
+ * 
+ * <br/>
+ * <br/>
+ * The attributes every logged in session has are written field by field: the
+ * security context of a {@link CustomUserDetails} login needs the username,
+ * tenant and authorities only, compared to more than a kilobyte with Java
+ * serialization. The authentication details of the login request, its remote
+ * address and session id, are not kept. The password hash is never written, the principal read back
+ * has its credentials erased. Strings and CSRF tokens are written directly as
+ * well, any other attribute falls back to Java serialization.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+public final class CompactSessionSerializer {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int JAVA = 0;
+
+    private static final int SECURITY_CONTEXT = 1;
+
+    private static final int STRING = 2;
+
+    private static final int CSRF_TOKEN = 3;
+
+    private CompactSessionSerializer() {
+    }
+
+    /**
+     * @param attributes
+     *            session attributes, all of which must be serializable
+     * @return the attributes in binary form
+     */
+    public static byte[] serialize(Map<String, Object> attributes) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeShort(attributes.size());
+            for (Map.Entry<String, Object> attribute : attributes.entrySet()) {
+                out.writeUTF(attribute.getKey());
+                writeValue(out, attribute.getValue());
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException(
+                    "Session attributes could not be serialized", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param data
+     *            attributes written by {@link #serialize(Map)}
+     * @return the session attributes
+     */
+    public static Map<String, Object> deserialize(byte[] data) {
+        try (DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(data))) {
+            int version = in.readUnsignedByte();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException(String.format(
+                        "Unknown session format, version=%s", version));
+            }
+            int size = in.readUnsignedShort();
+            Map<String, Object> attributes = new HashMap<>(size * 2);
+            for (int i = 0; i < size; i++) {
+                attributes.put(in.readUTF(), readValue(in));
+            }
+            return attributes;
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalArgumentException(
+                    "Session attributes could not be deserialized", e);
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Object value)
+            throws IOException {
+        if (isCompactSecurityContext(value)) {
+            Authentication authentication = ((SecurityContext) value)
+                    .getAuthentication();
+            CustomUserDetails user = (CustomUserDetails) authentication
+                    .getPrincipal();
+            out.writeByte(SECURITY_CONTEXT);
+            out.writeUTF(user.getUsername());
+            out.writeUTF(user.getTenant() == null ? "" : user.getTenant());
+            Collection<? extends GrantedAuthority> authorities = authentication
+                    .getAuthorities();
+            out.writeShort(authorities.size());
+            for (GrantedAuthority authority : authorities) {
+                out.writeUTF(authority.getAuthority());
+            }
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            out.writeUTF((String) value);
+        } else if (value != null && value.getClass() == DefaultCsrfToken.class) {
+            DefaultCsrfToken token = (DefaultCsrfToken) value;
+            out.writeByte(CSRF_TOKEN);
+            out.writeUTF(token.getHeaderName());
+            out.writeUTF(token.getParameterName());
+            out.writeUTF(token.getToken());
+        } else {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream objects = new ObjectOutputStream(bytes)) {
+                objects.writeObject(value);
+            }
+            out.writeByte(JAVA);
+            out.writeInt(bytes.size());
+            bytes.writeTo(out);
+        }
+    }
+
+    private static Object readValue(DataInputStream in)
+            throws IOException, ClassNotFoundException {
+        int type = in.readUnsignedByte();
+        switch (type) {
+        case SECURITY_CONTEXT:
+            String username = in.readUTF();
+            String tenant = in.readUTF();
+            int count = in.readUnsignedShort();
+            List<GrantedAuthority> authorities = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                authorities.add(new SimpleGrantedAuthority(in.readUTF()));
+            }
+            // The password hash is not stored, the User class only needs a
+            // non null value before the credentials are erased
+            CustomUserDetails user = new CustomUserDetails(username, "",
+                    authorities, tenant);
+            user.eraseCredentials();
+            return new SecurityContextImpl(
+                    new UsernamePasswordAuthenticationToken(user, null,
+                            authorities));
+        case STRING:
+            return in.readUTF();
+        case CSRF_TOKEN:
+            return new DefaultCsrfToken(in.readUTF(), in.readUTF(),
+                    in.readUTF());
+        case JAVA:
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            try (ObjectInputStream objects = new ObjectInputStream(
+                    new ByteArrayInputStream(bytes))) {
+                return objects.readObject();
+            }
+        default:
+            throw new IOException(
+                    String.format("Unknown session attribute type, type=%s",
+                            type));
+        }
+    }
+
+    /**
+     * Only the exact classes created by a form login are written field by
+     * field, anything else could carry state which would be lost
+     */
+    private static boolean isCompactSecurityContext(Object value) {
+        if (value == null || value.getClass() != SecurityContextImpl.class) {
+            return false;
+        }
+        Authentication authentication = ((SecurityContext) value)
+                .getAuthentication();
+        if (authentication == null || authentication
+                .getClass() != UsernamePasswordAuthenticationToken.class
+                || !authentication.isAuthenticated()
+                || authentication.getPrincipal() == null
+                || authentication.getPrincipal()
+                        .getClass() != CustomUserDetails.class) {
+            return false;
+        }
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            if (authority.getClass() != SimpleGrantedAuthority.class) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
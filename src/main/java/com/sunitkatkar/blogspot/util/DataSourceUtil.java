@@ -15,6 +15,9 @@
  */
 package com.sunitkatkar.blogspot.util;
 
+import java.net.URI;
+import java.net.URISyntaxException;
+
 import javax.sql.DataSource;
 
 import org.slf4j.Logger;
@@ -22,6 +25,7 @@ import org.slf4j.LoggerFactory;
 
 import com.sunitkatkar.blogspot.master.model.MasterTenant;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
 
 /**
  * Utility class for DataSource
@@ -30,13 +34,20 @@ import com.zaxxer.hikari.HikariDataSource;
  *         (https://sunitkatkar.blogspot.com/)
  * @since ver 1.0 (May 2018)
  * @version 1.0
- *
+ * 
  */
 public final class DataSourceUtil {
 
     private static final Logger LOG = LoggerFactory
             .getLogger(DataSourceUtil.class);
 
+    private static final String POOL_NAME_SUFFIX = "-connection-pool";
+
+    /**
+     * Maximum waiting time in milliseconds for a connection from a tenant pool
+     */
+    public static final long CONNECTION_TIMEOUT = 20000;
+
     /**
      * Utility method to create and configure a data source
      * 
@@ -45,6 +56,21 @@ public final class DataSourceUtil {
      */
     public static DataSource createAndConfigureDataSource(
             MasterTenant masterTenant) {
+        return createAndConfigureDataSource(masterTenant, null);
+    }
+
+    /**
+     * Utility method to create and configure a data source which reports its
+     * metrics to the given factory
+     * 
+     * @param masterTenant
+     * @param metricsTrackerFactory
+     *            may be <tt>null</tt>
+     * @return
+     */
+    public static DataSource createAndConfigureDataSource(
+            MasterTenant masterTenant,
+            MetricsTrackerFactory metricsTrackerFactory) {
         HikariDataSource ds = new HikariDataSource();
         ds.setUsername(masterTenant.getUsername());
         ds.setPassword(masterTenant.getPassword());
@@ -54,7 +80,7 @@ public final class DataSourceUtil {
         // HikariCP settings - could come from the master_tenant table but
         // hardcoded here for brevity
         // Maximum waiting time for a connection from the pool
-        ds.setConnectionTimeout(20000);
+        ds.setConnectionTimeout(CONNECTION_TIMEOUT);
 
         // Minimum number of idle connections in the pool
         ds.setMinimumIdle(10);
@@ -64,14 +90,120 @@ public final class DataSourceUtil {
 
         // Maximum time that a connection is allowed to sit idle in the pool
         ds.setIdleTimeout(300000);
-        ds.setConnectionTimeout(20000);
 
         // Setting up a pool name for each tenant datasource
         String tenantId = masterTenant.getTenantId();
-        String tenantConnectionPoolName = tenantId + "-connection-pool";
+        String tenantConnectionPoolName = tenantId + POOL_NAME_SUFFIX;
         ds.setPoolName(tenantConnectionPoolName);
+        if (metricsTrackerFactory != null) {
+            ds.setMetricsTrackerFactory(metricsTrackerFactory);
+        }
         LOG.info("Configured datasource:" + masterTenant.getTenantId()
                 + ". Connection poolname:" + tenantConnectionPoolName);
         return ds;
     }
+
+    /**
+     * Creates the data source of a database shared by many small tenants. The
+     * pool is named after the database, e.g.
+     * <tt>shared-tenants_shared_1-connection-pool</tt>, since it does not
+     * belong to any single tenant.
+     * 
+     * @param masterTenant
+     *            any tenant of the shared database
+     * @param maximumPoolSize
+     * @param minimumIdle
+     * @param metricsTrackerFactory
+     *            may be <tt>null</tt>
+     * @return
+     */
+    public static DataSource createAndConfigureSharedDataSource(
+            MasterTenant masterTenant, int maximumPoolSize, int minimumIdle,
+            MetricsTrackerFactory metricsTrackerFactory) {
+        HikariDataSource ds = (HikariDataSource) createAndConfigureDataSource(
+                masterTenant, metricsTrackerFactory);
+        ds.setMaximumPoolSize(maximumPoolSize);
+        ds.setMinimumIdle(minimumIdle);
+        String sharedConnectionPoolName = "shared-"
+                + databaseName(masterTenant.getUrl()) + POOL_NAME_SUFFIX;
+        ds.setPoolName(sharedConnectionPoolName);
+        LOG.info("Configured shared datasource:" + masterTenant.getUrl()
+                + ". Connection poolname:" + sharedConnectionPoolName);
+        return ds;
+    }
+
+    /**
+     * @param poolName
+     * @return the tenant id of a pool created by this class, e.g.
+     *         <tt>tenant_1</tt> for <tt>tenant_1-connection-pool</tt>
+     */
+    public static String tenantIdOfPool(String poolName) {
+        return poolName.endsWith(POOL_NAME_SUFFIX)
+                ? poolName.substring(0,
+                        poolName.length() - POOL_NAME_SUFFIX.length())
+                : poolName;
+    }
+
+    /**
+     * Identifies the database server of a tenant by the host and port of its
+     * JDBC url, e.g. <tt>jdbc:mysql://db1:3306/tenant_1</tt> gives
+     * <tt>db1:3306</tt>. Urls which cannot be parsed, like multi host urls,
+     * fall back to everything before the database name.
+     * 
+     * @param jdbcUrl
+     * @return
+     */
+    public static String serverKey(String jdbcUrl) {
+        try {
+            URI uri = new URI(jdbcUrl.substring(jdbcUrl.indexOf(':') + 1));
+            if (uri.getHost() != null) {
+                return uri.getPort() == -1 ? uri.getHost()
+                        : uri.getHost() + ":" + uri.getPort();
+            }
+        } catch (URISyntaxException e) {
+            // fall through
+        }
+        int databaseStart = jdbcUrl.lastIndexOf('/');
+        return databaseStart > 0 ? jdbcUrl.substring(0, databaseStart)
+                : jdbcUrl;
+    }
+
+    /**
+     * @param jdbcUrl
+     * @return the database name of a JDBC url, e.g. <tt>tenant_1</tt> for
+     *         <tt>jdbc:mysql://db1:3306/tenant_1?useSSL=false</tt>
+     */
+    public static String databaseName(String jdbcUrl) {
+        int hostStart = jdbcUrl.indexOf("//");
+        int databaseStart = jdbcUrl.indexOf('/', hostStart + 2);
+        if (hostStart < 0 || databaseStart < 0) {
+            throw new IllegalArgumentException(
+                    "JDBC url has no database name: " + jdbcUrl);
+        }
+        int databaseEnd = jdbcUrl.indexOf('?', databaseStart);
+        return databaseEnd < 0 ? jdbcUrl.substring(databaseStart + 1)
+                : jdbcUrl.substring(databaseStart + 1, databaseEnd);
+    }
+
+    /**
+     * Points a JDBC url at another database on the same server, e.g.
+     * <tt>jdbc:mysql://db1:3306/tenant_template?useSSL=false</tt> and
+     * <tt>tenant_9</tt> give <tt>jdbc:mysql://db1:3306/tenant_9?useSSL=false</tt>
+     * 
+     * @param jdbcUrl
+     * @param databaseName
+     * @return
+     */
+    public static String replaceDatabaseName(String jdbcUrl,
+            String databaseName) {
+        int hostStart = jdbcUrl.indexOf("//");
+        int databaseStart = jdbcUrl.indexOf('/', hostStart + 2);
+        if (hostStart < 0 || databaseStart < 0) {
+            throw new IllegalArgumentException(
+                    "JDBC url has no database name: " + jdbcUrl);
+        }
+        int databaseEnd = jdbcUrl.indexOf('?', databaseStart);
+        return jdbcUrl.substring(0, databaseStart + 1) + databaseName
+                + (databaseEnd < 0 ? "" : jdbcUrl.substring(databaseEnd));
+    }
 }
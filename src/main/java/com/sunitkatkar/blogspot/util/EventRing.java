@@ -0,0 +1,139 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue on a ring of slots, for any number of producers and
+ * consumers. Every slot carries a sequence number which tells whether it is
+ * free for the producer or filled for the consumer at a given position, so a
+ * producer or consumer only needs one compare-and-set on the shared position
+ * to claim a slot. Nothing is allocated per element and a full ring rejects
+ * elements instead of blocking, leaving the overflow policy to the caller.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ * @param <T>
+ *            the type of the elements
+ */
+public final class EventRing<T> {
+
+    private final AtomicReferenceArray<T> elements;
+
+    private final AtomicLongArray sequences;
+
+    private final int mask;
+
+    /**
+     * Position of the next element to take
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * Position of the next element to add
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * @param capacity
+     *            rounded up to the next power of two
+     */
+    public EventRing(int capacity) {
+        if (capacity < 2 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException(
+                    "Invalid ring capacity: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        elements = new AtomicReferenceArray<>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * @param element
+     * @return false if the ring is full
+     */
+    public boolean offer(T element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.set(index, element);
+                    // Publishes the element to the consumers
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // The slot still holds the element of the previous lap
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * @return the oldest element or <tt>null</tt> if the ring is empty
+     */
+    public T poll() {
+        long position = head.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    T element = elements.get(index);
+                    elements.set(index, null);
+                    // Frees the slot for the producers of the next lap
+                    sequences.set(index, position + mask + 1);
+                    return element;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    /**
+     * @return the number of elements, which may be outdated as soon as it is
+     *         returned
+     */
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
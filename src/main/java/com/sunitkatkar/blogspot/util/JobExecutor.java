@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.util;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs a long scheduled job on a thread of its own, so that it does not hold
+ * a thread of the task scheduler. At most one run is in progress, a run
+ * requested while the previous one has not finished is skipped.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+public class JobExecutor {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(JobExecutor.class);
+
+    private final String name;
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * @param name
+     *            name of the job, also the name of its thread
+     */
+    public JobExecutor(String name) {
+        this.name = name;
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, name);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Starts a run of the job, unless the previous run is still in progress
+     * 
+     * @param job
+     * @return whether the run was started
+     */
+    public boolean submit(Runnable job) {
+        try {
+            executor.execute(() -> {
+                try {
+                    job.run();
+                } catch (RuntimeException e) {
+                    LOG.error("Job failed:" + name, e);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            LOG.debug("Previous run still in progress, skipped job:" + name);
+            return false;
+        }
+    }
+
+    /**
+     * Lets the run in progress finish and starts no further runs
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event for the two expensive steps of a login: loading
+ * the user from the tenant database and verifying the password hash.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Name("com.sunitkatkar.blogspot.Login")
+@Label("Login Step")
+@Category({ "Multitenancy", "Security" })
+@Description("Retrieval of the user or verification of the password during a login")
+public class LoginEvent extends Event {
+
+    public static final String RETRIEVE_USER = "retrieveUser";
+
+    public static final String VERIFY_PASSWORD = "verifyPassword";
+
+    @Label("Tenant")
+    public String tenantId;
+
+    @Label("Step")
+    public String step;
+
+    @Label("Success")
+    public boolean success;
+}
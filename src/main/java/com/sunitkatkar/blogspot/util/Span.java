@@ -0,0 +1,146 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.util;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A timed operation within a {@link Trace}, e.g. the authentication of a
+ * request or a single SQL statement. Spans are started through the
+ * {@link Tracer} and must be closed on the thread which started them,
+ * preferably with try-with-resources.
+ * 
+ * <br/>
+ * <br/>
+ * Requests which are not sampled get the shared {@link #NOOP} span, so
+ * instrumented code does not allocate anything for them.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+public class Span implements AutoCloseable {
+
+    /**
+     * Span of requests which are not traced
+     */
+    public static final Span NOOP = new Span(null, null, null);
+
+    private final Trace trace;
+
+    private final String spanId;
+
+    private final String parentSpanId;
+
+    private final String name;
+
+    private final long startEpochNanos;
+
+    private final long startNanoTime;
+
+    private long durationNanos;
+
+    private Map<String, String> attributes;
+
+    Span(Trace trace, String parentSpanId, String name) {
+        this.trace = trace;
+        this.parentSpanId = parentSpanId;
+        this.name = name;
+        if (trace == null) {
+            this.spanId = null;
+            this.startEpochNanos = 0;
+            this.startNanoTime = 0;
+        } else {
+            this.spanId = String.format("%016x",
+                    ThreadLocalRandom.current().nextLong());
+            this.startEpochNanos = System.currentTimeMillis() * 1000000;
+            this.startNanoTime = System.nanoTime();
+        }
+    }
+
+    /**
+     * @return whether the span belongs to a sampled trace. Callers can skip
+     *         computing attributes when it does not.
+     */
+    public boolean isRecording() {
+        return trace != null;
+    }
+
+    /**
+     * Adds an attribute to the span
+     * 
+     * @param key
+     * @param value
+     * @return this span
+     */
+    public Span tag(String key, String value) {
+        if (trace != null && value != null) {
+            if (attributes == null) {
+                attributes = new LinkedHashMap<>();
+            }
+            attributes.put(key, value);
+        }
+        return this;
+    }
+
+    /**
+     * Ends the span. Spans without a tenant are tagged with the tenant of the
+     * current thread at this point, which is when it is most likely known.
+     */
+    @Override
+    public void close() {
+        if (trace == null) {
+            return;
+        }
+        durationNanos = System.nanoTime() - startNanoTime;
+        if (attributes == null || !attributes.containsKey("tenant")) {
+            tag("tenant", TenantContextHolder.getTenant());
+        }
+        trace.finish(this);
+    }
+
+    public String getSpanId() {
+        return spanId;
+    }
+
+    public String getParentSpanId() {
+        return parentSpanId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getStartEpochNanos() {
+        return startEpochNanos;
+    }
+
+    public long getEndEpochNanos() {
+        return startEpochNanos + durationNanos;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public Map<String, String> getAttributes() {
+        return attributes == null ? Collections.emptyMap() : attributes;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deadline for the SQL statements run on the current thread, like the tenant
+ * in the {@link TenantContextHolder}. Work which must end by a given time,
+ * e.g. a tenant of a fan-out, sets it so that the statements created on its
+ * tenant connections get a query timeout which ends at the deadline. Without
+ * it a statement stuck on the database would hold the worker thread, as JDBC
+ * calls do not react to an interrupt.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+public class StatementDeadlineHolder {
+
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+    /**
+     * @param deadlineNanos
+     *            the deadline in {@link System#nanoTime()}
+     */
+    public static void setDeadline(long deadlineNanos) {
+        DEADLINE.set(deadlineNanos);
+    }
+
+    public static boolean isSet() {
+        return DEADLINE.get() != null;
+    }
+
+    /**
+     * @return the seconds left until the deadline, rounded up and at least 1
+     *         as a query timeout of 0 means none, or 0 without a deadline
+     */
+    public static int getRemainingSeconds() {
+        Long deadline = DEADLINE.get();
+        if (deadline == null) {
+            return 0;
+        }
+        long remaining = TimeUnit.NANOSECONDS
+                .toMillis(deadline - System.nanoTime());
+        return (int) Math.max(1, (remaining + 999) / 1000);
+    }
+
+    public static void clear() {
+        DEADLINE.remove();
+    }
+}
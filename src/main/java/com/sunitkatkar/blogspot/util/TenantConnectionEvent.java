@@ -0,0 +1,52 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event for getting a tenant connection from its pool or
+ * handing it back. The duration of an acquire includes the wait for a free
+ * connection.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Name("com.sunitkatkar.blogspot.TenantConnection")
+@Label("Tenant Connection")
+@Category({ "Multitenancy", "Connection Pool" })
+@Description("Acquisition or release of a tenant connection")
+public class TenantConnectionEvent extends Event {
+
+    public static final String ACQUIRE = "acquire";
+
+    public static final String RELEASE = "release";
+
+    @Label("Tenant")
+    public String tenantId;
+
+    @Label("Action")
+    public String action;
+
+    @Label("Success")
+    public boolean success;
+}
@@ -54,6 +54,7 @@ public class TenantContextHolder {
 
     public static void setTenantId(String tenant) {
         CONTEXT.set(tenant);
+        commitEvent(TenantContextEvent.SET, tenant);
     }
 
     public static String getTenant() {
@@ -61,6 +62,23 @@ public class TenantContextHolder {
     }
 
     public static void clear() {
+        commitEvent(TenantContextEvent.CLEAR, CONTEXT.get());
         CONTEXT.remove();
     }
+
+    /**
+     * Records the change in a {@link TenantContextEvent} when a flight
+     * recording has enabled it
+     * 
+     * @param action
+     * @param tenant
+     */
+    private static void commitEvent(String action, String tenant) {
+        TenantContextEvent event = new TenantContextEvent();
+        if (event.isEnabled()) {
+            event.tenantId = tenant;
+            event.action = action;
+            event.commit();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event for resolving the data source of a tenant,
+ * including the rescan of the master database and the creation of a pool when
+ * the tenant is not known yet.
+ * 
+ * <br/>
+ * <br/>
+ * Like all events in this package it is disabled unless a recording enables
+ * it. The fields are only filled in when <code>shouldCommit()</code> returns
+ * true, so a disabled event costs a few field writes which the JIT usually
+ * removes along with the allocation.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Name("com.sunitkatkar.blogspot.TenantRouting")
+@Label("Tenant Routing")
+@Category({ "Multitenancy", "Routing" })
+@Description("Resolution of the data source of a tenant")
+public class TenantRoutingEvent extends Event {
+
+    @Label("Tenant")
+    public String tenantId;
+
+    @Label("Rescanned")
+    @Description("Whether the master database was rescanned for the tenant")
+    public boolean rescanned;
+
+    @Label("Pool Created")
+    @Description("Whether a new connection pool was created for the tenant")
+    public boolean poolCreated;
+}
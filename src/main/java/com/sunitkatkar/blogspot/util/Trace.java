@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The spans of one sampled request. A trace is confined to the thread which
+ * handles the request and is handed to the exporter once its root span is
+ * closed.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+public class Trace {
+
+    private final String traceId = String.format("%016x%016x",
+            ThreadLocalRandom.current().nextLong(),
+            ThreadLocalRandom.current().nextLong());
+
+    private final int maxSpans;
+
+    private final Deque<Span> open = new ArrayDeque<>();
+
+    private final List<Span> spans = new ArrayList<>();
+
+    private int droppedSpans;
+
+    Trace(int maxSpans) {
+        this.maxSpans = maxSpans;
+    }
+
+    Span start(String name) {
+        Span parent = open.peek();
+        Span span = new Span(this, parent == null ? null : parent.getSpanId(),
+                name);
+        open.push(span);
+        return span;
+    }
+
+    void finish(Span span) {
+        open.remove(span);
+        if (spans.size() < maxSpans) {
+            spans.add(span);
+        } else {
+            droppedSpans++;
+        }
+        // A root span finishes the trace even if a child was never closed, so
+        // that the trace does not leak into the next request on this thread
+        if (open.isEmpty() || span.getParentSpanId() == null) {
+            open.clear();
+            Tracer.finish(this);
+        }
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    /**
+     * @return the finished spans, the root span last
+     */
+    public List<Span> getSpans() {
+        return spans;
+    }
+
+    /**
+     * @return the number of spans which were not kept because of the span
+     *         limit
+     */
+    public int getDroppedSpans() {
+        return droppedSpans;
+    }
+}
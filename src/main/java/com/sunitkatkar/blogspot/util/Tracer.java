@@ -0,0 +1,122 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.util;
+
+/**
+ * Entry point of the in-process request tracing. The trace of the current
+ * request is kept in a ThreadLocal, in the same way as the tenant id in the
+ * {@link TenantContextHolder}, so code in any layer can add a span without
+ * the trace being passed to it:
+ * 
+ * <pre>
+ * try (Span span = Tracer.startSpan("tenant.resolve")) {
+ *     ...
+ * }
+ * </pre>
+ * 
+ * Until a {@link TraceSink} is installed, or when the request was not sampled,
+ * every span is the shared {@link Span#NOOP} span.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+public final class Tracer {
+
+    /**
+     * Decides which requests are traced and receives the finished traces
+     */
+    public interface TraceSink {
+
+        /**
+         * @return whether a new request is traced
+         */
+        boolean sample();
+
+        int getMaxSpansPerTrace();
+
+        /**
+         * Called on the request thread, so it should only queue the trace
+         * 
+         * @param trace
+         */
+        void export(Trace trace);
+    }
+
+    private static final ThreadLocal<Trace> CURRENT = new ThreadLocal<>();
+
+    private static volatile TraceSink sink;
+
+    private Tracer() {
+    }
+
+    /**
+     * @param traceSink
+     *            the sink to use, <tt>null</tt> turns tracing off
+     */
+    public static void install(TraceSink traceSink) {
+        sink = traceSink;
+    }
+
+    /**
+     * Starts the root span of a request if the request is sampled. Within an
+     * already traced request, e.g. an error dispatch, this starts a child span
+     * instead.
+     * 
+     * @param name
+     * @return the span to close when the request is done
+     */
+    public static Span startTrace(String name) {
+        Trace trace = CURRENT.get();
+        if (trace != null) {
+            return trace.start(name);
+        }
+        TraceSink traceSink = sink;
+        if (traceSink == null || !traceSink.sample()) {
+            return Span.NOOP;
+        }
+        trace = new Trace(traceSink.getMaxSpansPerTrace());
+        CURRENT.set(trace);
+        return trace.start(name);
+    }
+
+    /**
+     * @param name
+     * @return a child of the innermost open span of the current trace, or
+     *         {@link Span#NOOP} when the current request is not traced
+     */
+    public static Span startSpan(String name) {
+        Trace trace = CURRENT.get();
+        return trace == null ? Span.NOOP : trace.start(name);
+    }
+
+    /**
+     * @return whether the current request is traced, so that callers can skip
+     *         building span names and attributes when it is not
+     */
+    public static boolean isTracing() {
+        return CURRENT.get() != null;
+    }
+
+    static void finish(Trace trace) {
+        CURRENT.remove();
+        TraceSink traceSink = sink;
+        if (traceSink != null) {
+            traceSink.export(trace);
+        }
+    }
+}
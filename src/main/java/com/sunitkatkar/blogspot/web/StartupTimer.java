@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.web;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.support.ServletRequestHandledEvent;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Measures how long after the JVM start the application is ready and serves
+ * its first request, which is the number the <tt>fastboot</tt> profile and the
+ * AppCDS archive are meant to bring down. Both are logged and exported as the
+ * <tt>application.startup.time</tt> gauge, so instances started with and
+ * without them can be compared. Requests to the actuator endpoints, like the
+ * health probes of a load balancer, are not counted as the first request, as
+ * they may come in before the application serves any user. The
+ * <tt>StartupBenchmark</tt> test compares the time to the first request of
+ * these startup options.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Component
+public class StartupTimer {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(StartupTimer.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${management.endpoints.web.base-path:/actuator}")
+    private String actuatorPath;
+
+    private final long jvmStartTime = ManagementFactory.getRuntimeMXBean()
+            .getStartTime();
+
+    private final AtomicLong readyMillis = new AtomicLong(-1);
+
+    private final AtomicLong firstRequestMillis = new AtomicLong(-1);
+
+    @PostConstruct
+    public void register() {
+        Gauge.builder("application.startup.time", readyMillis, AtomicLong::get)
+                .tag("phase", "ready").baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("application.startup.time", firstRequestMillis,
+                AtomicLong::get).tag("phase", "firstRequest")
+                .baseUnit("milliseconds").register(meterRegistry);
+    }
+
+    @EventListener
+    public void onApplicationReady(ApplicationReadyEvent event) {
+        readyMillis.set(System.currentTimeMillis() - jvmStartTime);
+        LOG.info("Application ready " + readyMillis.get()
+                + "ms after JVM start, profiles:" + Arrays.toString(
+                        event.getApplicationContext().getEnvironment()
+                                .getActiveProfiles()));
+    }
+
+    /**
+     * Called for every request, only the first one which is not to an actuator
+     * endpoint is recorded
+     */
+    @EventListener
+    public void onRequestHandled(ServletRequestHandledEvent event) {
+        if (firstRequestMillis.get() < 0
+                && !event.getRequestUrl().startsWith(actuatorPath)
+                && firstRequestMillis.compareAndSet(
+                -1, System.currentTimeMillis() - jvmStartTime)) {
+            LOG.info("First request " + event.getRequestUrl() + " served "
+                    + firstRequestMillis.get() + "ms after JVM start, took "
+                    + event.getProcessingTimeMillis() + "ms");
+        }
+    }
+}
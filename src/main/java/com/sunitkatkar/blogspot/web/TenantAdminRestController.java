@@ -0,0 +1,620 @@
+package com.sunitkatkar.blogspot.web;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.sunitkatkar.blogspot.master.model.MasterJobRun;
+import com.sunitkatkar.blogspot.master.model.MasterTenantJob;
+import com.sunitkatkar.blogspot.master.model.MasterTenantStats;
+import com.sunitkatkar.blogspot.master.model.TenantOffboardingResult;
+import com.sunitkatkar.blogspot.master.model.TenantProvisioningResult;
+import com.sunitkatkar.blogspot.master.model.TenantRelocationResult;
+import com.sunitkatkar.blogspot.master.model.TenantStatus;
+import com.sunitkatkar.blogspot.master.service.MasterTenantStatsService;
+import com.sunitkatkar.blogspot.master.service.TenantOffboardingService;
+import com.sunitkatkar.blogspot.master.service.TenantProvisioningService;
+import com.sunitkatkar.blogspot.master.service.TenantRelocationService;
+import com.sunitkatkar.blogspot.tenant.config.DataSourceBasedMultiTenantConnectionProviderImpl;
+import com.sunitkatkar.blogspot.tenant.config.SlowQueryRecorder;
+import com.sunitkatkar.blogspot.tenant.config.SqlLogRecorder;
+import com.sunitkatkar.blogspot.tenant.config.TenantDbQuota;
+import com.sunitkatkar.blogspot.tenant.config.TenantFailoverMonitor;
+import com.sunitkatkar.blogspot.tenant.config.TenantLatencyRecorder;
+import com.sunitkatkar.blogspot.tenant.config.TenantRateLimiter;
+import com.sunitkatkar.blogspot.tenant.model.DbQuotaUsage;
+import com.sunitkatkar.blogspot.tenant.model.LatencySnapshot;
+import com.sunitkatkar.blogspot.tenant.model.SlowQueryStats;
+import com.sunitkatkar.blogspot.tenant.model.SqlLogEntry;
+import com.sunitkatkar.blogspot.tenant.model.TenantFailoverStatus;
+import com.sunitkatkar.blogspot.tenant.model.TenantPoolInfo;
+import com.sunitkatkar.blogspot.tenant.service.TenantJobService;
+
+/**
+ * Rest Controller to handle all requests to the /admin end point, which are
+ * about managing the tenants themselves. Only platform operators from the
+ * master database can call them, see
+ * {@link com.sunitkatkar.blogspot.security.CustomSecurityConfig.OperatorSecurityConfig}.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@RestController
+public class TenantAdminRestController {
+
+    /**
+     * Milliseconds the connections in use get before a pool is closed, unless
+     * the request says otherwise
+     */
+    private static final long DEFAULT_DRAIN_TIMEOUT = 10000;
+
+    @Autowired
+    private MasterTenantStatsService masterTenantStatsService;
+
+    @Autowired
+    private TenantProvisioningService tenantProvisioningService;
+
+    @Autowired
+    private TenantOffboardingService tenantOffboardingService;
+
+    @Autowired
+    private TenantRelocationService tenantRelocationService;
+
+    @Autowired
+    private SqlLogRecorder sqlLogRecorder;
+
+    @Autowired
+    private SlowQueryRecorder slowQueryRecorder;
+
+    @Autowired
+    private TenantLatencyRecorder tenantLatencyRecorder;
+
+    @Autowired
+    private DataSourceBasedMultiTenantConnectionProviderImpl connectionProvider;
+
+    @Autowired
+    private TenantRateLimiter tenantRateLimiter;
+
+    @Autowired
+    private TenantDbQuota tenantDbQuota;
+
+    @Autowired
+    private TenantJobService tenantJobService;
+
+    @Autowired
+    private TenantFailoverMonitor tenantFailoverMonitor;
+
+    /**
+     * @return the user summary of every tenant
+     */
+    @GetMapping("/admin/stats")
+    public List<MasterTenantStats> getTenantStats() {
+        return masterTenantStatsService.findAll();
+    }
+
+    /**
+     * @param tenantId
+     * @return the user summary of a single tenant
+     */
+    @GetMapping("/admin/stats/{tenantId}")
+    public ResponseEntity<MasterTenantStats> getTenantStats(
+            @PathVariable("tenantId") String tenantId) {
+        MasterTenantStats stats = masterTenantStatsService
+                .findByTenantId(tenantId);
+        return stats == null ? ResponseEntity.notFound().build()
+                : ResponseEntity.ok(stats);
+    }
+
+    /**
+     * Recounts the users of every tenant right away instead of waiting for the
+     * scheduled reconciler
+     */
+    @PostMapping("/admin/stats/reconcile")
+    public void reconcileTenantStats() {
+        masterTenantStatsService.reconcileAll();
+    }
+
+    /**
+     * Creates a new tenant from the template database, or in the shared
+     * database for small tenants. The tenant can take traffic as soon as this
+     * returns.
+     * 
+     * @param tenantId
+     * @param shared
+     *            whether the tenant is placed in the shared database
+     * @return the provisioned tenant with the duration of every phase
+     * @throws SQLException
+     */
+    @PostMapping("/admin/tenants/{tenantId}")
+    public ResponseEntity<?> provisionTenant(
+            @PathVariable("tenantId") String tenantId,
+            @RequestParam(value = "shared", defaultValue = "false") boolean shared)
+            throws SQLException {
+        try {
+            TenantProvisioningResult result = shared
+                    ? tenantProvisioningService.provisionSharedTenant(tenantId)
+                    : tenantProvisioningService.provisionTenant(tenantId);
+            return ResponseEntity.status(HttpStatus.CREATED).body(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(e.getMessage());
+        }
+    }
+
+    /**
+     * Takes a tenant out of service after its in-flight transactions have
+     * finished or the drain timeout has passed
+     * 
+     * @param tenantId
+     * @param status
+     *            SUSPENDED or OFFBOARDED
+     * @param archive
+     *            whether the tenant data is archived before the final status
+     *            is set
+     * @return the outcome with the duration of every step
+     * @throws SQLException
+     * @throws IOException
+     */
+    @PostMapping("/admin/tenants/{tenantId}/offboard")
+    public ResponseEntity<?> offboardTenant(
+            @PathVariable("tenantId") String tenantId,
+            @RequestParam(value = "status", defaultValue = "SUSPENDED") TenantStatus status,
+            @RequestParam(value = "archive", defaultValue = "false") boolean archive)
+            throws SQLException, IOException {
+        try {
+            TenantOffboardingResult result = tenantOffboardingService
+                    .offboardTenant(tenantId, status, archive);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Moves a tenant database to another database server while the tenant
+     * keeps serving traffic. Requests of the tenant only wait during the short
+     * switch at the end.
+     * 
+     * @param tenantId
+     * @param targetUrl
+     *            JDBC url of the new tenant database, which must not exist or
+     *            be empty
+     * @return the outcome with the duration of every phase
+     * @throws SQLException
+     */
+    @PostMapping("/admin/tenants/{tenantId}/relocate")
+    public ResponseEntity<?> relocateTenant(
+            @PathVariable("tenantId") String tenantId,
+            @RequestParam("targetUrl") String targetUrl) throws SQLException {
+        try {
+            TenantRelocationResult result = tenantRelocationService
+                    .relocateTenant(tenantId, targetUrl);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(e.getMessage());
+        }
+    }
+
+    /**
+     * @param tenantId
+     */
+    @PostMapping("/admin/tenants/{tenantId}/reactivate")
+    public ResponseEntity<?> reactivateTenant(
+            @PathVariable("tenantId") String tenantId) {
+        try {
+            tenantOffboardingService.reactivateTenant(tenantId);
+            return ResponseEntity.noContent().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * @param tenantId
+     *            optional, all tenants when not given
+     * @param limit
+     * @return the most recent sampled SQL statements, newest first
+     */
+    @GetMapping("/admin/sql")
+    public List<SqlLogEntry> getSqlLog(
+            @RequestParam(value = "tenantId", required = false) String tenantId,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return sqlLogRecorder.getRecent(tenantId, Math.max(0, limit));
+    }
+
+    /**
+     * @return the default and the tenant specific SQL sample rates
+     */
+    @GetMapping("/admin/sql/sampling")
+    public Map<String, Double> getSqlSampleRates() {
+        return sqlLogRecorder.getSampleRates();
+    }
+
+    /**
+     * Sets the SQL sample rate of tenants without their own rate
+     * 
+     * @param rate
+     *            between 0 (off) and 1 (every statement)
+     */
+    @PutMapping("/admin/sql/sampling")
+    public ResponseEntity<?> setDefaultSqlSampleRate(
+            @RequestParam("rate") double rate) {
+        try {
+            sqlLogRecorder.setDefaultSampleRate(rate);
+            return ResponseEntity.noContent().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * @param tenantId
+     * @param rate
+     *            between 0 (off) and 1 (every statement)
+     */
+    @PutMapping("/admin/sql/sampling/{tenantId}")
+    public ResponseEntity<?> setSqlSampleRate(
+            @PathVariable("tenantId") String tenantId,
+            @RequestParam("rate") double rate) {
+        try {
+            sqlLogRecorder.setSampleRate(tenantId, rate);
+            return ResponseEntity.noContent().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Puts the tenant back on its configured or the default SQL sample rate
+     * 
+     * @param tenantId
+     */
+    @DeleteMapping("/admin/sql/sampling/{tenantId}")
+    public ResponseEntity<?> resetSqlSampleRate(
+            @PathVariable("tenantId") String tenantId) {
+        sqlLogRecorder.resetSampleRate(tenantId);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * @param tenantId
+     * @param limit
+     * @return the slowest statement shapes of the tenant, slowest first
+     */
+    @GetMapping("/admin/slow-queries/{tenantId}")
+    public List<SlowQueryStats> getSlowQueries(
+            @PathVariable("tenantId") String tenantId,
+            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return slowQueryRecorder.getSlowest(tenantId, Math.max(0, limit));
+    }
+
+    /**
+     * @param tenantId
+     * @param threshold
+     *            in milliseconds
+     */
+    @PutMapping("/admin/slow-queries/{tenantId}/threshold")
+    public ResponseEntity<?> setSlowQueryThreshold(
+            @PathVariable("tenantId") String tenantId,
+            @RequestParam("threshold") long threshold) {
+        try {
+            slowQueryRecorder.setThreshold(tenantId, threshold);
+            return ResponseEntity.noContent().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * @param tenantId
+     */
+    @DeleteMapping("/admin/slow-queries/{tenantId}")
+    public ResponseEntity<?> clearSlowQueries(
+            @PathVariable("tenantId") String tenantId) {
+        slowQueryRecorder.clear(tenantId);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * @param tenantId
+     *            optional, the endpoints of all tenants are merged when not
+     *            given
+     * @return p50, p99 and p999 latency per endpoint over the last one to two
+     *         reporting windows
+     */
+    @GetMapping("/admin/latency")
+    public List<LatencySnapshot> getLatency(
+            @RequestParam(value = "tenantId", required = false) String tenantId) {
+        return tenantLatencyRecorder.getPercentiles(tenantId);
+    }
+
+    /**
+     * @return size, usage, creation and last use of every tenant pool
+     */
+    @GetMapping("/admin/pools")
+    public List<TenantPoolInfo> getPools() {
+        return connectionProvider.getPoolInfos();
+    }
+
+    /**
+     * @param tenantId
+     * @return size, usage, creation and last use of the tenant pool
+     */
+    @GetMapping("/admin/pools/{tenantId}")
+    public ResponseEntity<TenantPoolInfo> getPool(
+            @PathVariable("tenantId") String tenantId) {
+        TenantPoolInfo info = connectionProvider.getPoolInfo(tenantId);
+        return info == null ? ResponseEntity.notFound().build()
+                : ResponseEntity.ok(info);
+    }
+
+    /**
+     * @param tenantId
+     * @param max
+     *            maximum pool size
+     * @param minIdle
+     *            minimum number of idle connections, defaults to the maximum
+     */
+    @PutMapping("/admin/pools/{tenantId}/size")
+    public ResponseEntity<?> resizePool(
+            @PathVariable("tenantId") String tenantId,
+            @RequestParam("max") int max,
+            @RequestParam(value = "minIdle", required = false) Integer minIdle) {
+        try {
+            boolean resized = connectionProvider.resizePool(tenantId, max,
+                    minIdle == null ? max : minIdle);
+            return resized ? ResponseEntity.noContent().build()
+                    : ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Replaces the connections of the tenant pool as they become idle
+     * 
+     * @param tenantId
+     */
+    @PostMapping("/admin/pools/{tenantId}/soft-evict")
+    public ResponseEntity<?> softEvictPool(
+            @PathVariable("tenantId") String tenantId) {
+        return connectionProvider.softEvictPool(tenantId)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Closes the tenant pool. It is created again on the next request of the
+     * tenant.
+     * 
+     * @param tenantId
+     * @param drainTimeout
+     *            milliseconds to wait for the connections in use before the
+     *            pool is closed
+     */
+    @DeleteMapping("/admin/pools/{tenantId}")
+    public ResponseEntity<?> closePool(
+            @PathVariable("tenantId") String tenantId,
+            @RequestParam(value = "drainTimeout", defaultValue = ""
+                    + DEFAULT_DRAIN_TIMEOUT) long drainTimeout) {
+        if (drainTimeout < 0) {
+            return ResponseEntity.badRequest()
+                    .body("drainTimeout must not be negative");
+        }
+        return connectionProvider.evictTenant(tenantId, drainTimeout)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * @param tenantId
+     * @param connections
+     *            number of connections to open
+     * @return the pool after warming
+     * @throws SQLException
+     */
+    @PostMapping("/admin/pools/{tenantId}/warm")
+    public ResponseEntity<?> warmPool(
+            @PathVariable("tenantId") String tenantId,
+            @RequestParam(value = "connections", defaultValue = "1") int connections)
+            throws SQLException {
+        if (connections < 1) {
+            return ResponseEntity.badRequest()
+                    .body("connections must be at least 1");
+        }
+        try {
+            connectionProvider.warmPool(tenantId, connections);
+            return ResponseEntity.ok(connectionProvider.getPoolInfo(tenantId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Re-reads the master_tenant table and closes, recreates or creates tenant
+     * pools to match it
+     * 
+     * @param drainTimeout
+     *            milliseconds to wait for the connections in use before the
+     *            pools are closed
+     * @return the tenant ids whose pool was added, removed or recreated
+     */
+    @PostMapping("/admin/pools/resync")
+    public ResponseEntity<?> resyncPools(
+            @RequestParam(value = "drainTimeout", defaultValue = ""
+                    + DEFAULT_DRAIN_TIMEOUT) long drainTimeout) {
+        if (drainTimeout < 0) {
+            return ResponseEntity.badRequest()
+                    .body("drainTimeout must not be negative");
+        }
+        return ResponseEntity
+                .ok(connectionProvider.resyncMasterTenants(drainTimeout));
+    }
+
+    /**
+     * @param tenantId
+     * @return the requests per second allowed for the tenant, 0 for no limit
+     */
+    @GetMapping("/admin/tenants/{tenantId}/rate-limit")
+    public int getRateLimit(@PathVariable("tenantId") String tenantId) {
+        return tenantRateLimiter.getLimit(tenantId);
+    }
+
+    /**
+     * @param tenantId
+     * @param plan
+     *            one of the configured plans, the default plan if not given
+     * @param rateLimit
+     *            requests per second overriding the plan, the plan limit if not
+     *            given
+     */
+    @PutMapping("/admin/tenants/{tenantId}/rate-limit")
+    public ResponseEntity<?> setRateLimit(
+            @PathVariable("tenantId") String tenantId,
+            @RequestParam(value = "plan", required = false) String plan,
+            @RequestParam(value = "rateLimit", required = false) Integer rateLimit) {
+        try {
+            return tenantRateLimiter.updateTenantLimit(tenantId, plan,
+                    rateLimit) ? ResponseEntity.noContent().build()
+                            : ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * @param tenantId
+     * @return the statement timeout, quota and database time used by the
+     *         tenant over the current window
+     */
+    @GetMapping("/admin/db-quota/{tenantId}")
+    public DbQuotaUsage getDbQuota(@PathVariable("tenantId") String tenantId) {
+        return tenantDbQuota.getUsage(tenantId);
+    }
+
+    /**
+     * Overrides the statement timeout and quota of a tenant in the master
+     * database, from where all nodes pick them up
+     * 
+     * @param tenantId
+     * @param statementTimeout
+     *            in seconds, 0 for no timeout
+     * @param quota
+     *            database time in milliseconds per window, 0 for no quota
+     */
+    @PutMapping("/admin/db-quota/{tenantId}")
+    public ResponseEntity<?> setDbQuota(
+            @PathVariable("tenantId") String tenantId,
+            @RequestParam(value = "statementTimeout", required = false) Integer statementTimeout,
+            @RequestParam(value = "quota", required = false) Long quota) {
+        try {
+            if (statementTimeout != null && !tenantDbQuota
+                    .setStatementTimeout(tenantId, statementTimeout)) {
+                return ResponseEntity.notFound().build();
+            }
+            if (quota != null && !tenantDbQuota.setQuota(tenantId, quota)) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.noContent().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * @return the current or last run of every tenant job
+     */
+    @GetMapping("/admin/jobs")
+    public List<MasterJobRun> getJobRuns() {
+        return tenantJobService.findRuns();
+    }
+
+    /**
+     * @param jobName
+     * @return the outcome and duration of the last execution of the job on
+     *         each tenant
+     */
+    @GetMapping("/admin/jobs/{jobName}")
+    public ResponseEntity<?> getTenantJobs(
+            @PathVariable("jobName") String jobName) {
+        try {
+            List<MasterTenantJob> tenantJobs = tenantJobService
+                    .findTenantJobs(jobName);
+            return ResponseEntity.ok(tenantJobs);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Starts a run of the job in the background, regardless of its interval
+     * 
+     * @param jobName
+     */
+    @PostMapping("/admin/jobs/{jobName}/run")
+    public ResponseEntity<?> runJob(@PathVariable("jobName") String jobName) {
+        try {
+            tenantJobService.runNow(jobName);
+            return ResponseEntity.accepted().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(e.getMessage());
+        }
+    }
+
+    /**
+     * @return the health checks and standby failovers of every tenant with a
+     *         standby url
+     */
+    @GetMapping("/admin/failover")
+    public List<TenantFailoverStatus> getFailoverStatuses() {
+        return tenantFailoverMonitor.getStatuses();
+    }
+
+    /**
+     * Switches the tenant to its standby database or back to its primary
+     * database right away, on all nodes, e.g. for a planned maintenance of the
+     * primary. Tenants are only switched back to their primary this way, once
+     * the writes made on the standby have been replicated back.
+     * 
+     * @param tenantId
+     * @param toStandby
+     * @throws SQLException
+     */
+    @PostMapping("/admin/tenants/{tenantId}/failover")
+    public ResponseEntity<?> failoverTenant(
+            @PathVariable("tenantId") String tenantId,
+            @RequestParam(value = "toStandby", defaultValue = "true") boolean toStandby)
+            throws SQLException {
+        try {
+            tenantFailoverMonitor.switchNow(tenantId, toStandby);
+            return ResponseEntity.noContent().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.web;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.sunitkatkar.blogspot.util.Span;
+import com.sunitkatkar.blogspot.util.Tracer;
+
+/**
+ * Starts the trace of a sampled request. It runs in front of the Spring
+ * Security filter chain, so the root span covers authentication, tenant
+ * resolution, the handler and the view rendering.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+public class TracingFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+            HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try (Span span = Tracer.startTrace("http " + request.getMethod())) {
+            try {
+                filterChain.doFilter(request, response);
+            } finally {
+                if (span.isRecording()) {
+                    Object pattern = request.getAttribute(
+                            HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                    span.tag("http.route",
+                            pattern != null ? pattern.toString()
+                                    : request.getServletPath())
+                            .tag("http.status_code",
+                                    String.valueOf(response.getStatus()));
+                }
+            }
+        }
+    }
+}
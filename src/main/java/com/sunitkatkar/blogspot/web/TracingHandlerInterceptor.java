@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.web;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+import com.sunitkatkar.blogspot.util.Span;
+import com.sunitkatkar.blogspot.util.Tracer;
+
+/**
+ * Adds a span for the rendering of the view of a traced request, which starts
+ * after the handler returns and ends when the request is complete.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+public class TracingHandlerInterceptor implements HandlerInterceptor {
+
+    private static final String RENDER_SPAN = TracingHandlerInterceptor.class
+            .getName() + ".RENDER_SPAN";
+
+    @Override
+    public void postHandle(HttpServletRequest request,
+            HttpServletResponse response, Object handler,
+            ModelAndView modelAndView) {
+        if (modelAndView == null) {
+            return;
+        }
+        Span span = Tracer.startSpan("view.render");
+        if (span.isRecording()) {
+            span.tag("view", modelAndView.getViewName());
+            request.setAttribute(RENDER_SPAN, span);
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request,
+            HttpServletResponse response, Object handler, Exception ex) {
+        Object span = request.getAttribute(RENDER_SPAN);
+        if (span instanceof Span) {
+            request.removeAttribute(RENDER_SPAN);
+            ((Span) span).close();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 onwards - Sunit Katkar (sunitkatkar@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sunitkatkar.blogspot.web;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.autoproxy.BeanNameAutoProxyCreator;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.sunitkatkar.blogspot.util.Span;
+import com.sunitkatkar.blogspot.util.Tracer;
+
+/**
+ * Wires the request tracing into the web layer and the services. Nothing here
+ * costs more than a ThreadLocal lookup for requests which are not sampled.
+ * 
+ * @author Sunit Katkar, sunitkatkar@gmail.com
+ *         (https://sunitkatkar.blogspot.com/)
+ * @since ver 1.1 (Oct 2026)
+ * @version 1.1
+ */
+@Configuration
+public class TracingWebConfig implements WebMvcConfigurer {
+
+    /**
+     * Registers the {@link TracingFilter} ahead of the Spring Security filter
+     * chain
+     * 
+     * @return
+     */
+    @Bean
+    public FilterRegistrationBean<TracingFilter> tracingFilter() {
+        FilterRegistrationBean<TracingFilter> registration = new FilterRegistrationBean<>(
+                new TracingFilter());
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 100);
+        return registration;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new TracingHandlerInterceptor());
+    }
+
+    /**
+     * Puts every call to the tenant services in a span named after the
+     * service interface and method, e.g. <tt>UserService.save</tt>
+     * 
+     * @return
+     */
+    @Bean
+    public static BeanNameAutoProxyCreator tracingServiceProxyCreator() {
+        BeanNameAutoProxyCreator proxyCreator = new BeanNameAutoProxyCreator();
+        proxyCreator.setBeanNames("userServiceImpl", "roleServiceImpl");
+        proxyCreator.setInterceptorNames("tracingServiceInterceptor");
+        return proxyCreator;
+    }
+
+    @Bean
+    public MethodInterceptor tracingServiceInterceptor() {
+        return invocation -> {
+            if (!Tracer.isTracing()) {
+                return invocation.proceed();
+            }
+            Span span = Tracer.startSpan(invocation.getMethod()
+                    .getDeclaringClass().getSimpleName() + "."
+                    + invocation.getMethod().getName());
+            try {
+                return invocation.proceed();
+            } finally {
+                span.close();
+            }
+        };
+    }
+}
@@ -1,20 +1,32 @@
 package com.sunitkatkar.blogspot.web;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
-import java.util.stream.Collectors;
+
+import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sunitkatkar.blogspot.util.TenantContextHolder;
-import com.sunitkatkar.blogspot.tenant.model.User;
+import com.sunitkatkar.blogspot.tenant.model.CustomUserDetails;
+import com.sunitkatkar.blogspot.tenant.model.UserSummary;
+import com.sunitkatkar.blogspot.tenant.model.UserSummaryPage;
 import com.sunitkatkar.blogspot.tenant.service.UserService;
 
 /**
- * Rest Controller to handle all requests to the /user end point
+ * Rest Controller to handle all requests to the /user end point. The tenant in
+ * the path must be the tenant of the logged in user, other tenants are
+ * rejected with 403.
  * 
  * @author Sunit Katkar, sunitkatkar@gmail.com
  *         (https://sunitkatkar.blogspot.com/)
@@ -24,22 +36,106 @@ import com.sunitkatkar.blogspot.tenant.service.UserService;
 @RestController
 public class UserRestController {
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    /**
+     * Number of NDJSON lines written between two flushes of the response
+     */
+    private static final int EXPORT_FLUSH_INTERVAL = 500;
+
+    private static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
+     * Returns one keyset paginated page of users. Pass the returned
+     * <code>nextAfterId</code> as <code>after</code> to get the next page.
+     * 
+     * @param user
+     *            the logged in user
      * @param tenantId
+     * @param after
+     *            the last user id of the previous page, 0 for the first page
+     * @param limit
+     *            the page size, capped at {@value #MAX_PAGE_SIZE}
      * @return
      */
     @GetMapping("/user/{tenantId}")
     @ResponseBody
-    public List<String> getUsersForTenant(
-            @PathVariable("tenantId") String tenantId) {
+    public UserSummaryPage getUsersForTenant(
+            @AuthenticationPrincipal CustomUserDetails user,
+            @PathVariable("tenantId") String tenantId,
+            @RequestParam(name = "after", defaultValue = "0") int after,
+            @RequestParam(name = "limit", defaultValue = ""
+                    + DEFAULT_PAGE_SIZE) int limit) {
+        useTenantOf(user, tenantId);
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<UserSummary> users = userService.findUserSummaries(after,
+                pageSize);
+        return new UserSummaryPage(users, pageSize);
+    }
+
+    /**
+     * Streams every user of the tenant as newline delimited JSON. Rows are
+     * written to the response as they are read from the database cursor, so
+     * nothing is buffered beyond the servlet output buffer.
+     * 
+     * @param user
+     *            the logged in user
+     * @param tenantId
+     * @param response
+     * @throws IOException
+     */
+    @GetMapping("/user/{tenantId}/export")
+    public void exportUsersForTenant(
+            @AuthenticationPrincipal CustomUserDetails user,
+            @PathVariable("tenantId") String tenantId,
+            HttpServletResponse response) throws IOException {
+        useTenantOf(user, tenantId);
+        response.setContentType(NDJSON_CONTENT_TYPE);
+        response.setCharacterEncoding("UTF-8");
+        OutputStream out = response.getOutputStream();
+        int[] written = { 0 };
+        try {
+            userService.exportUserSummaries(summary -> {
+                try {
+                    out.write(objectMapper.writeValueAsBytes(summary));
+                    out.write('\n');
+                    if (++written[0] % EXPORT_FLUSH_INTERVAL == 0) {
+                        out.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // Client went away, stop reading from the cursor
+            throw e.getCause();
+        }
+        out.flush();
+    }
+
+    /**
+     * Sets the tenant of the request, after checking that it is the tenant the
+     * user logged in to. The tenant in the path alone must never select the
+     * database.
+     * 
+     * @param user
+     * @param tenantId
+     */
+    private static void useTenantOf(CustomUserDetails user, String tenantId) {
+        if (user == null || !tenantId.equals(user.getTenant())) {
+            throw new AccessDeniedException(String.format(
+                    "User does not belong to the tenant, tenant=%s",
+                    tenantId));
+        }
         TenantContextHolder.setTenantId(tenantId);
-        List<User> users = userService.findAllUsers();
-        List<String> userList = users.stream().map(result -> result.toString())
-                .collect(Collectors.toList());
-        return userList;
     }
 
 }
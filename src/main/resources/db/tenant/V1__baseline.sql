@@ -0,0 +1,33 @@
+-- Baseline of the tenant schema as previously created by hbm2ddl update for
+-- the User and Role entities. Uses "if not exists" so that tenant databases
+-- created by hbm2ddl are baselined without changes.
+
+create table if not exists hibernate_sequence (
+    next_val bigint
+) engine=InnoDB;
+
+insert into hibernate_sequence (next_val)
+    select 1 from dual where not exists (select * from hibernate_sequence);
+
+create table if not exists user (
+    user_id integer not null,
+    active bit not null,
+    password varchar(255),
+    tenant varchar(255),
+    username varchar(255),
+    primary key (user_id)
+) engine=InnoDB;
+
+create table if not exists role (
+    role_id integer not null,
+    role varchar(255),
+    primary key (role_id)
+) engine=InnoDB;
+
+create table if not exists user_role (
+    user_id integer not null,
+    role_id integer not null,
+    primary key (user_id, role_id),
+    constraint fk_user_role_role foreign key (role_id) references role (role_id),
+    constraint fk_user_role_user foreign key (user_id) references user (user_id)
+) engine=InnoDB;
@@ -0,0 +1,13 @@
+-- Supports UserRepository.findByUsernameAndTenantname which runs on every login.
+-- MySQL has no "create index if not exists", so the index is only created when
+-- information_schema does not list it yet. A rerun after a partial failure is
+-- then a no-op.
+set @ddl = (select if(count(*) = 0,
+    'create index idx_user_username_tenant on user (username, tenant)',
+    'do 0')
+    from information_schema.statistics
+    where table_schema = database() and table_name = 'user'
+        and index_name = 'idx_user_username_tenant');
+prepare ddl from @ddl;
+execute ddl;
+deallocate prepare ddl;
@@ -0,0 +1,23 @@
+-- In a database shared by several tenants every query on user is filtered by
+-- tenant. These back the keyset pagination and the active user counts. Each
+-- index is only created when information_schema does not list it yet, so a
+-- rerun after a partial failure is a no-op.
+set @ddl = (select if(count(*) = 0,
+    'create index idx_user_tenant_id on user (tenant, user_id)',
+    'do 0')
+    from information_schema.statistics
+    where table_schema = database() and table_name = 'user'
+        and index_name = 'idx_user_tenant_id');
+prepare ddl from @ddl;
+execute ddl;
+deallocate prepare ddl;
+
+set @ddl = (select if(count(*) = 0,
+    'create index idx_user_tenant_active on user (tenant, active)',
+    'do 0')
+    from information_schema.statistics
+    where table_schema = database() and table_name = 'user'
+        and index_name = 'idx_user_tenant_active');
+prepare ddl from @ddl;
+execute ddl;
+deallocate prepare ddl;
@@ -0,0 +1,25 @@
+-- Login attempts and the last login time of every user, written in batches by
+-- the LoginAuditWriter. last_login_at is not mapped in the User entity so that
+-- saving a user never overwrites it. The table and the column are only created
+-- when they do not exist yet, so a rerun after a partial failure is a no-op.
+create table if not exists login_audit (
+    id bigint not null auto_increment,
+    tenant varchar(255),
+    username varchar(255),
+    success bit not null,
+    reason varchar(100),
+    remote_address varchar(45),
+    login_at datetime(3) not null,
+    primary key (id),
+    key idx_login_audit_tenant_username (tenant, username, login_at)
+) engine=InnoDB;
+
+set @ddl = (select if(count(*) = 0,
+    'alter table user add column last_login_at datetime(3) null',
+    'do 0')
+    from information_schema.columns
+    where table_schema = database() and table_name = 'user'
+        and column_name = 'last_login_at');
+prepare ddl from @ddl;
+execute ddl;
+deallocate prepare ddl;
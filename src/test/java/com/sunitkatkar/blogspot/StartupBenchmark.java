@@ -0,0 +1,138 @@
+package com.sunitkatkar.blogspot;
+
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures the time from launching the application to its first served
+ * request, for a plain start, a start with the <tt>fastboot</tt> profile and
+ * a start with the <tt>fastboot</tt> profile and the AppCDS archive. The
+ * request is the login page, as a user would load it.
+ *
+ * <br/>
+ * <br/>
+ * Needs the output of <tt>mvn -Pappcds package</tt> and the master database
+ * of <tt>application.yml</tt>, then run it with <tt>mvn -Pbenchmark test</tt>.
+ * The archive is only used by the JVM which created it, so the application is
+ * started with the <tt>java</tt> on the path like the training run, or with
+ * <tt>-Dbenchmark.startup.java</tt>. The median of
+ * <tt>-Dbenchmark.startup.runs</tt> starts of each variant is logged, nothing
+ * is asserted.
+ */
+public class StartupBenchmark {
+
+	private static final Logger LOG = LoggerFactory.getLogger(StartupBenchmark.class);
+
+	private static final File APPCDS_DIRECTORY = new File("target/appcds");
+
+	private static final long START_TIMEOUT = TimeUnit.MINUTES.toMillis(3);
+
+	@Test
+	public void timeToFirstRequest() throws Exception {
+		File[] jars = APPCDS_DIRECTORY.listFiles((dir, name) -> name.endsWith("-appcds.jar"));
+		File archive = new File(APPCDS_DIRECTORY, "app.jsa");
+		assumeTrue("Build the archive with mvn -Pappcds package first",
+				jars != null && jars.length == 1 && archive.isFile());
+		int runs = Integer.getInteger("benchmark.startup.runs", 3);
+
+		long baseline = median(jars[0], runs, "baseline");
+		long fastboot = median(jars[0], runs, "fastboot", "-Dspring.profiles.active=fastboot");
+		long appcds = median(jars[0], runs, "appcds", "-XX:SharedArchiveFile=" + archive.getName(),
+				"-Dspring.profiles.active=fastboot");
+		LOG.info("Time to first request: baseline " + baseline + " ms, fastboot " + fastboot + " ms ("
+				+ percent(fastboot, baseline) + "), fastboot with AppCDS " + appcds + " ms ("
+				+ percent(appcds, baseline) + ")");
+	}
+
+	/**
+	 * @return the median time to the first request of the runs in
+	 *         milliseconds
+	 */
+	private static long median(File jar, int runs, String variant, String... jvmOptions) throws Exception {
+		List<Long> times = new ArrayList<>();
+		for (int run = 1; run <= runs; run++) {
+			long time = timeToFirstRequest(jar, new File(APPCDS_DIRECTORY, variant + "-" + run + ".log"),
+					jvmOptions);
+			LOG.info(variant + " run " + run + ": " + time + " ms");
+			times.add(time);
+		}
+		Collections.sort(times);
+		return times.get(times.size() / 2);
+	}
+
+	private static long timeToFirstRequest(File jar, File log, String... jvmOptions) throws Exception {
+		int port = freePort();
+		List<String> command = new ArrayList<>();
+		command.add(System.getProperty("benchmark.startup.java", "java"));
+		command.addAll(Arrays.asList(jvmOptions));
+		command.add("-jar");
+		command.add(jar.getName());
+		command.add("--server.port=" + port);
+		command.add("--management.server.port=" + freePort());
+
+		long start = System.nanoTime();
+		Process process = new ProcessBuilder(command).directory(APPCDS_DIRECTORY).redirectErrorStream(true)
+				.redirectOutput(log).start();
+		try {
+			URL url = new URL("http://localhost:" + port + "/login");
+			while (!respond(url)) {
+				if (!process.isAlive()) {
+					throw new IllegalStateException("Application exited, see " + log);
+				}
+				if (System.nanoTime() - start > TimeUnit.MILLISECONDS.toNanos(START_TIMEOUT)) {
+					throw new IllegalStateException("Application did not start, see " + log);
+				}
+				Thread.sleep(10);
+			}
+			return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		} finally {
+			process.destroy();
+			if (!process.waitFor(30, TimeUnit.SECONDS)) {
+				process.destroyForcibly();
+			}
+		}
+	}
+
+	/**
+	 * @return whether the application answered the request, whatever the
+	 *         status
+	 */
+	private static boolean respond(URL url) {
+		try {
+			HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+			connection.setConnectTimeout(1000);
+			connection.setReadTimeout((int) START_TIMEOUT);
+			try {
+				return connection.getResponseCode() > 0;
+			} finally {
+				connection.disconnect();
+			}
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private static int freePort() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+
+	private static String percent(long time, long baseline) {
+		return (time - baseline) * 100 / baseline + "%";
+	}
+}
@@ -0,0 +1,96 @@
+package com.sunitkatkar.blogspot.master.repository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.sunitkatkar.blogspot.master.config.SessionConfigProperties;
+import com.sunitkatkar.blogspot.master.repository.MasterSessionRepository.MasterSession;
+import com.sunitkatkar.blogspot.util.CompactSessionSerializer;
+
+/**
+ * Measures the session store cost per request against an in-memory H2
+ * database in MySQL mode, standing in for the master database. Not part of the
+ * unit tests, run it with <tt>mvn -Pbenchmark test</tt>. The numbers are
+ * logged, nothing is asserted.
+ */
+public class MasterSessionRepositoryBenchmark {
+
+	private static final Logger LOG = LoggerFactory.getLogger(MasterSessionRepositoryBenchmark.class);
+
+	private static final int WARMUP = 2000;
+
+	private static final int ITERATIONS = 10000;
+
+	private MasterSessionRepository repository;
+
+	@Before
+	public void setUp() {
+		SingleConnectionDataSource dataSource = new SingleConnectionDataSource(
+				"jdbc:h2:mem:sessions_benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "", true);
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("drop table if exists master_session");
+		repository = new MasterSessionRepository(jdbcTemplate, new SessionConfigProperties());
+		repository.initializeSchema();
+	}
+
+	@Test
+	public void sessionSize() throws Exception {
+		Map<String, Object> attributes = MasterSessionRepositoryTests.loggedInAttributes();
+		byte[] compact = CompactSessionSerializer.serialize(attributes);
+		ByteArrayOutputStream java = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(java)) {
+			out.writeObject(new HashMap<>(attributes));
+		}
+		LOG.info("Logged in session: compact " + compact.length + " bytes, Java serialization " + java.size()
+				+ " bytes");
+	}
+
+	@Test
+	public void requestCost() {
+		MasterSession session = repository.createSession();
+		MasterSessionRepositoryTests.loggedInAttributes().forEach(session::setAttribute);
+		repository.save(session);
+		String id = session.getId();
+
+		// Read only request: the last access time moves less than the touch
+		// interval, nothing is written
+		Runnable readOnly = () -> {
+			MasterSession s = repository.findById(id);
+			s.setLastAccessedTime(Instant.now());
+			repository.save(s);
+		};
+		// Request which changes an attribute
+		Runnable write = () -> {
+			MasterSession s = repository.findById(id);
+			s.setLastAccessedTime(Instant.now());
+			s.setAttribute("lastPage", "/user/index");
+			repository.save(s);
+		};
+		LOG.info("Read only request: " + measure(readOnly) + " us");
+		LOG.info("Request writing an attribute: " + measure(write) + " us");
+	}
+
+	/**
+	 * @return the average time of one run in microseconds
+	 */
+	private static long measure(Runnable request) {
+		for (int i = 0; i < WARMUP; i++) {
+			request.run();
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			request.run();
+		}
+		return (System.nanoTime() - start) / ITERATIONS / 1000;
+	}
+}
@@ -0,0 +1,137 @@
+package com.sunitkatkar.blogspot.master.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.web.csrf.DefaultCsrfToken;
+
+import com.sunitkatkar.blogspot.master.config.SessionConfigProperties;
+import com.sunitkatkar.blogspot.master.repository.MasterSessionRepository.MasterSession;
+import com.sunitkatkar.blogspot.tenant.model.CustomUserDetails;
+import com.sunitkatkar.blogspot.util.CompactSessionSerializer;
+
+/**
+ * Round trips sessions through the {@link MasterSessionRepository} and the
+ * {@link CompactSessionSerializer} against an in-memory H2 database in MySQL
+ * mode, standing in for the master database. The cost per request is measured
+ * by {@link MasterSessionRepositoryBenchmark}.
+ */
+public class MasterSessionRepositoryTests {
+
+	private static final String SECURITY_CONTEXT = "SPRING_SECURITY_CONTEXT";
+
+	private static final String CSRF_TOKEN = "org.springframework.security.web.csrf.HttpSessionCsrfTokenRepository.CSRF_TOKEN";
+
+	private JdbcTemplate jdbcTemplate;
+
+	private MasterSessionRepository repository;
+
+	@Before
+	public void setUp() {
+		SingleConnectionDataSource dataSource = new SingleConnectionDataSource(
+				"jdbc:h2:mem:sessions;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "", true);
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("drop table if exists master_session");
+		SessionConfigProperties properties = new SessionConfigProperties();
+		repository = new MasterSessionRepository(jdbcTemplate, properties);
+		repository.initializeSchema();
+	}
+
+	@Test
+	public void loggedInSessionIsCompactAndHasNoPasswordHash() throws Exception {
+		Map<String, Object> attributes = loggedInAttributes();
+		byte[] compact = CompactSessionSerializer.serialize(attributes);
+
+		ByteArrayOutputStream java = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(java)) {
+			out.writeObject(new HashMap<>(attributes));
+		}
+		assertTrue(compact.length * 5 < java.size());
+		assertFalse(new String(compact, "ISO-8859-1").contains("$2a$10$"));
+
+		Map<String, Object> read = CompactSessionSerializer.deserialize(compact);
+		CustomUserDetails user = (CustomUserDetails) ((SecurityContext) read.get(SECURITY_CONTEXT))
+				.getAuthentication().getPrincipal();
+		assertEquals("alice", user.getUsername());
+		assertEquals("tenant_1", user.getTenant());
+		assertNull(user.getPassword());
+		assertEquals(1, user.getAuthorities().size());
+		assertEquals("token", ((DefaultCsrfToken) read.get(CSRF_TOKEN)).getToken());
+	}
+
+	@Test
+	public void savedSessionIsFoundWithItsAttributes() {
+		MasterSession session = repository.createSession();
+		loggedInAttributes().forEach(session::setAttribute);
+		repository.save(session);
+		String id = session.getId();
+
+		MasterSession found = repository.findById(id);
+		CustomUserDetails user = (CustomUserDetails) ((SecurityContext) found.getAttribute(SECURITY_CONTEXT))
+				.getAuthentication().getPrincipal();
+		assertEquals("alice", user.getUsername());
+		assertEquals("token", ((DefaultCsrfToken) found.getAttribute(CSRF_TOKEN)).getToken());
+
+		// A read only request moves the last access time less than the touch
+		// interval, so nothing is written
+		found.setLastAccessedTime(Instant.now());
+		repository.save(found);
+		Long lastAccess = jdbcTemplate.queryForObject(
+				"select last_access_time from master_session where session_id = ?", Long.class, id);
+		assertEquals(session.getLastAccessedTime().toEpochMilli(), lastAccess.longValue());
+
+		found.setAttribute("lastPage", "/user/index");
+		repository.save(found);
+		assertEquals("/user/index", repository.findById(id).getAttribute("lastPage"));
+	}
+
+	@Test
+	public void changedSessionIdAndExpiredSessions() {
+		MasterSession session = repository.createSession();
+		session.setAttribute("lastPage", "/index");
+		repository.save(session);
+		String oldId = session.getId();
+		session.changeSessionId();
+		repository.save(session);
+		assertNull(repository.findById(oldId));
+		assertEquals("/index", repository.findById(session.getId()).getAttribute("lastPage"));
+
+		for (int i = 0; i < 1200; i++) {
+			jdbcTemplate.update("insert into master_session values (?, 0, 0, 1, 1000, ?)", "expired-" + i,
+					CompactSessionSerializer.serialize(new HashMap<>()));
+		}
+		repository.cleanUpExpiredSessions();
+		assertEquals(Integer.valueOf(1),
+				jdbcTemplate.queryForObject("select count(*) from master_session", Integer.class));
+	}
+
+	static Map<String, Object> loggedInAttributes() {
+		GrantedAuthority authority = new SimpleGrantedAuthority("USER");
+		CustomUserDetails user = new CustomUserDetails("alice",
+				"$2a$10$abcdefghijklmnopqrstuuABCDEFGHIJKLMNOPQRSTUVWXYZ01234", Arrays.asList(authority),
+				"tenant_1");
+		Map<String, Object> attributes = new HashMap<>();
+		attributes.put(SECURITY_CONTEXT, new SecurityContextImpl(
+				new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities())));
+		attributes.put(CSRF_TOKEN, new DefaultCsrfToken("X-CSRF-TOKEN", "_csrf", "token"));
+		return attributes;
+	}
+}
@@ -0,0 +1,225 @@
+package com.sunitkatkar.blogspot.master.service;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.h2.tools.SimpleResultSet;
+
+import com.sunitkatkar.blogspot.util.DataSourceUtil;
+
+/**
+ * Stands in for a MySQL server with an in-memory H2 database in MySQL mode,
+ * for urls like <tt>jdbc:mysql-standin://standin/tenant_template</tt>. Each
+ * MySQL database is a schema of the H2 database. The statements H2 does not
+ * know are emulated:
+ * <ul>
+ * <li><tt>create database</tt> and <tt>drop database</tt> create and drop the
+ * schema</li>
+ * <li><tt>setCatalog</tt> switches the schema</li>
+ * <li><tt>show create table</tt> is taken from the <tt>SCRIPT</tt> of the
+ * table, without the schema, as MySQL prints it</li>
+ * <li>foreign keys created while <tt>foreign_key_checks</tt> is off are added
+ * once it is turned on again, so tables may be created in any order</li>
+ * <li>base tables have the table type <tt>TABLE</tt> in H2</li>
+ * </ul>
+ */
+public class MySqlStandInDriver implements Driver {
+
+	public static final String URL_PREFIX = "jdbc:mysql-standin:";
+
+	public static final String H2_URL = "jdbc:h2:mem:mysql_standin;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+	private static final Pattern CREATE_DATABASE = Pattern.compile("(?i)create database (`\\w+`)");
+
+	private static final Pattern DROP_DATABASE = Pattern.compile("(?i)drop database if exists (`\\w+`)");
+
+	private static final Pattern SHOW_CREATE_TABLE = Pattern.compile("(?i)show create table `(\\w+)`\\.`(\\w+)`");
+
+	private static final Pattern FOREIGN_KEY_CHECKS = Pattern.compile("(?i)set foreign_key_checks = ([01])");
+
+	private static final Driver INSTANCE = new MySqlStandInDriver();
+
+	/**
+	 * Registers the driver once
+	 */
+	public static synchronized void register() throws SQLException {
+		for (Driver driver : Collections.list(DriverManager.getDrivers())) {
+			if (driver instanceof MySqlStandInDriver) {
+				return;
+			}
+		}
+		DriverManager.registerDriver(INSTANCE);
+	}
+
+	@Override
+	public Connection connect(String url, Properties info) throws SQLException {
+		if (!acceptsURL(url)) {
+			return null;
+		}
+		Connection connection = DriverManager.getConnection(H2_URL, "sa", "");
+		execute(connection, "set schema `" + DataSourceUtil.databaseName(url) + "`");
+		return (Connection) Proxy.newProxyInstance(MySqlStandInDriver.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, new ConnectionHandler(connection));
+	}
+
+	@Override
+	public boolean acceptsURL(String url) {
+		return url != null && url.startsWith(URL_PREFIX);
+	}
+
+	@Override
+	public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+		return new DriverPropertyInfo[0];
+	}
+
+	@Override
+	public int getMajorVersion() {
+		return 1;
+	}
+
+	@Override
+	public int getMinorVersion() {
+		return 0;
+	}
+
+	@Override
+	public boolean jdbcCompliant() {
+		return false;
+	}
+
+	@Override
+	public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	private static class ConnectionHandler implements InvocationHandler {
+
+		private final Connection connection;
+
+		/**
+		 * Foreign keys held back while the checks are off
+		 */
+		private final List<String> foreignKeys = new ArrayList<>();
+
+		private boolean foreignKeyChecks = true;
+
+		ConnectionHandler(Connection connection) {
+			this.connection = connection;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "setCatalog":
+				execute(connection, "set schema `" + args[0] + "`");
+				return null;
+			case "prepareStatement":
+				args[0] = ((String) args[0]).replace("'BASE TABLE'", "'TABLE'");
+				return MySqlStandInDriver.invoke(connection, method, args);
+			case "createStatement":
+				Statement statement = (Statement) MySqlStandInDriver.invoke(connection, method, args);
+				return Proxy.newProxyInstance(MySqlStandInDriver.class.getClassLoader(),
+						new Class<?>[] { Statement.class }, (p, m, a) -> {
+							if (("execute".equals(m.getName()) || "executeQuery".equals(m.getName()))
+									&& a.length == 1) {
+								Object result = emulate(statement, (String) a[0]);
+								if (result != null) {
+									return result;
+								}
+							}
+							return MySqlStandInDriver.invoke(statement, m, a);
+						});
+			default:
+				return MySqlStandInDriver.invoke(connection, method, args);
+			}
+		}
+
+		/**
+		 * @return the result of the emulated statement, <tt>null</tt> if H2
+		 *         runs it as it is
+		 */
+		private Object emulate(Statement statement, String sql) throws SQLException {
+			Matcher matcher = CREATE_DATABASE.matcher(sql);
+			if (matcher.matches()) {
+				return statement.execute("create schema " + matcher.group(1));
+			}
+			matcher = DROP_DATABASE.matcher(sql);
+			if (matcher.matches()) {
+				return statement.execute("drop schema if exists " + matcher.group(1) + " cascade");
+			}
+			matcher = FOREIGN_KEY_CHECKS.matcher(sql);
+			if (matcher.matches()) {
+				foreignKeyChecks = "1".equals(matcher.group(1));
+				if (foreignKeyChecks) {
+					for (String foreignKey : foreignKeys) {
+						statement.execute(foreignKey);
+					}
+					foreignKeys.clear();
+				}
+				return false;
+			}
+			matcher = SHOW_CREATE_TABLE.matcher(sql);
+			if (matcher.matches()) {
+				return showCreateTable(statement, matcher.group(1), matcher.group(2));
+			}
+			return null;
+		}
+
+		private ResultSet showCreateTable(Statement statement, String database, String table) throws SQLException {
+			// H2 qualifies every name with the schema in upper case
+			Pattern schema = Pattern.compile("(?i)\\b" + database + "\\.");
+			List<String> ddl = new ArrayList<>();
+			try (ResultSet rs = statement.executeQuery(
+					"script nodata nopasswords nosettings table `" + database + "`.`" + table + "`")) {
+				while (rs.next()) {
+					String line = schema.matcher(rs.getString(1)).replaceAll("");
+					if (line.startsWith("CREATE USER") || line.startsWith("CREATE SCHEMA") || line.startsWith("--")) {
+						continue;
+					}
+					if (line.contains(" FOREIGN KEY") && !foreignKeyChecks) {
+						foreignKeys.add(line);
+					} else {
+						ddl.add(line);
+					}
+				}
+			}
+			SimpleResultSet result = new SimpleResultSet();
+			result.addColumn("Table", Types.VARCHAR, 64, 0);
+			result.addColumn("Create Table", Types.VARCHAR, Integer.MAX_VALUE, 0);
+			result.addRow(table, String.join("\n", ddl));
+			return result;
+		}
+	}
+
+	private static void execute(Connection connection, String sql) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute(sql);
+		}
+	}
+
+	private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getTargetException();
+		}
+	}
+}
@@ -0,0 +1,293 @@
+package com.sunitkatkar.blogspot.master.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.sunitkatkar.blogspot.master.config.TenantProvisioningConfigProperties;
+import com.sunitkatkar.blogspot.master.model.MasterTenant;
+import com.sunitkatkar.blogspot.master.model.TenantProvisioningResult;
+import com.sunitkatkar.blogspot.master.repository.MasterTenantRepository;
+import com.sunitkatkar.blogspot.tenant.config.DataSourceBasedMultiTenantConnectionProviderImpl;
+import com.sunitkatkar.blogspot.tenant.config.SharedDatabaseConfigProperties;
+import com.sunitkatkar.blogspot.tenant.config.TenantSchemaStatus;
+import com.sunitkatkar.blogspot.tenant.service.TenantSchemaMigrationService;
+
+/**
+ * Runs the provisioning flow with an in-memory H2 database in MySQL mode
+ * standing in for the template server, see the {@link MySqlStandInDriver}. The
+ * master database, the migration and the connection provider are mocks, so
+ * each step of the flow and its rollback can be checked.
+ */
+public class TenantProvisioningServiceTests {
+
+	private static final String TEMPLATE_URL = MySqlStandInDriver.URL_PREFIX + "//standin/tenant_template";
+
+	private static final String SHARED_URL = "jdbc:mysql://shared:3306/shared_tenants";
+
+	private static final int SCHEMA_VERSION = 4;
+
+	private Connection keepAlive;
+
+	private MasterTenantRepository masterTenantRepo;
+
+	private TenantSchemaMigrationService migrationService;
+
+	private TenantSchemaStatus schemaStatus;
+
+	private DataSourceBasedMultiTenantConnectionProviderImpl connectionProvider;
+
+	private TenantProvisioningServiceImpl service;
+
+	@Before
+	public void setUp() throws SQLException {
+		MySqlStandInDriver.register();
+		keepAlive = DriverManager.getConnection(MySqlStandInDriver.H2_URL, "sa", "");
+		for (String database : Arrays.asList("tenant_template", "acme", "globex")) {
+			execute("drop schema if exists `" + database + "` cascade");
+		}
+		execute("create schema `tenant_template`");
+		execute("set schema `tenant_template`");
+		execute("create table `schema_version` (`version` int not null, primary key (`version`))");
+		execute("insert into `schema_version` values (" + SCHEMA_VERSION + ")");
+		execute("create table `role` (`role_id` int not null, `role` varchar(255), primary key (`role_id`))");
+		execute("insert into `role` values (1, 'ROLE_USER'), (2, 'ROLE_ADMIN')");
+		execute("create table `user` (`user_id` int not null, `username` varchar(255), primary key (`user_id`))");
+		execute("create index `idx_username` on `user` (`username`)");
+		execute("insert into `user` values (1, 'template_admin')");
+		// Sorts first, so its foreign keys are cloned before the tables they refer to
+		execute("create table `a_user_role` (`user_id` int not null, `role_id` int not null, "
+				+ "primary key (`user_id`, `role_id`), "
+				+ "foreign key (`user_id`) references `user` (`user_id`), "
+				+ "foreign key (`role_id`) references `role` (`role_id`))");
+		execute("set schema `public`");
+
+		TenantProvisioningConfigProperties provisioningProperties = new TenantProvisioningConfigProperties();
+		provisioningProperties.setTemplateUrl(TEMPLATE_URL);
+		provisioningProperties.setUsername("sa");
+		provisioningProperties.setPassword("");
+		SharedDatabaseConfigProperties sharedProperties = new SharedDatabaseConfigProperties();
+		sharedProperties.setUrl(SHARED_URL);
+		sharedProperties.setUsername("shared");
+		sharedProperties.setPassword("secret");
+
+		masterTenantRepo = mock(MasterTenantRepository.class);
+		when(masterTenantRepo.save(any(MasterTenant.class))).thenAnswer(invocation -> {
+			MasterTenant masterTenant = invocation.getArgument(0);
+			masterTenant.setId(1L);
+			return masterTenant;
+		});
+		migrationService = mock(TenantSchemaMigrationService.class);
+		when(migrationService.getLatestVersion()).thenReturn(SCHEMA_VERSION);
+		when(migrationService.migrateDatabase(anyString(), anyString(), anyString(), anyString()))
+				.thenReturn(SCHEMA_VERSION);
+		schemaStatus = new TenantSchemaStatus();
+		schemaStatus.setLatestVersion(SCHEMA_VERSION);
+		connectionProvider = mock(DataSourceBasedMultiTenantConnectionProviderImpl.class);
+
+		service = new TenantProvisioningServiceImpl();
+		ReflectionTestUtils.setField(service, "provisioningProperties", provisioningProperties);
+		ReflectionTestUtils.setField(service, "sharedProperties", sharedProperties);
+		ReflectionTestUtils.setField(service, "masterTenantRepo", masterTenantRepo);
+		ReflectionTestUtils.setField(service, "tenantSchemaMigrationService", migrationService);
+		ReflectionTestUtils.setField(service, "tenantSchemaStatus", schemaStatus);
+		ReflectionTestUtils.setField(service, "connectionProvider", connectionProvider);
+	}
+
+	@After
+	public void tearDown() throws SQLException {
+		keepAlive.close();
+	}
+
+	@Test
+	public void sharedTenantIsRegisteredAndWarmed() throws SQLException {
+		TenantProvisioningResult result = service.provisionSharedTenant("acme");
+
+		ArgumentCaptor<MasterTenant> saved = ArgumentCaptor.forClass(MasterTenant.class);
+		verify(masterTenantRepo).save(saved.capture());
+		MasterTenant masterTenant = saved.getValue();
+		assertEquals("acme", masterTenant.getTenantId());
+		assertEquals(SHARED_URL, masterTenant.getUrl());
+		assertEquals("shared", masterTenant.getUsername());
+		assertTrue(masterTenant.isShared());
+		assertEquals(Integer.valueOf(SCHEMA_VERSION), masterTenant.getSchemaVersion());
+		verify(connectionProvider).registerTenant(masterTenant);
+
+		assertTrue(schemaStatus.isCurrent("acme"));
+		assertEquals(SHARED_URL, result.getUrl());
+		assertEquals(SCHEMA_VERSION, result.getSchemaVersion());
+		assertTrue(result.getPhaseMillis().containsKey("registerMasterTenant"));
+		assertTrue(result.getPhaseMillis().containsKey("warmPool"));
+	}
+
+	@Test
+	public void sharedDatabaseIsMigratedOnce() throws SQLException {
+		service.provisionSharedTenant("acme");
+		service.provisionSharedTenant("globex");
+
+		verify(migrationService, times(1)).migrateDatabase(eq(SHARED_URL), anyString(), anyString(), anyString());
+		verify(connectionProvider, times(2)).registerTenant(any(MasterTenant.class));
+	}
+
+	@Test
+	public void sharedTenantIsRemovedWhenRegistrationFails() throws SQLException {
+		when(connectionProvider.registerTenant(any(MasterTenant.class)))
+				.thenThrow(new IllegalStateException("pool failed"));
+		try {
+			service.provisionSharedTenant("acme");
+			fail("Registration failure should be rethrown");
+		} catch (IllegalStateException e) {
+			assertEquals("pool failed", e.getMessage());
+		}
+		verify(masterTenantRepo).delete(any(MasterTenant.class));
+		verify(connectionProvider).evictTenant("acme", 0);
+		assertNull(schemaStatus.getSchemaVersion("acme"));
+	}
+
+	@Test
+	public void dedicatedTenantIsClonedFromTheTemplate() throws SQLException {
+		TenantProvisioningResult result = service.provisionTenant("acme");
+
+		String url = MySqlStandInDriver.URL_PREFIX + "//standin/acme";
+		ArgumentCaptor<MasterTenant> saved = ArgumentCaptor.forClass(MasterTenant.class);
+		verify(masterTenantRepo).save(saved.capture());
+		MasterTenant masterTenant = saved.getValue();
+		assertEquals("acme", masterTenant.getTenantId());
+		assertEquals(url, masterTenant.getUrl());
+		assertEquals(Integer.valueOf(SCHEMA_VERSION), masterTenant.getSchemaVersion());
+		assertFalse(masterTenant.isShared());
+		verify(connectionProvider).registerTenant(masterTenant);
+		verify(connectionProvider, never()).evictTenant(anyString(), anyLong());
+		assertTrue(schemaStatus.isCurrent("acme"));
+		assertEquals(url, result.getUrl());
+		for (String phase : Arrays.asList("templateCheck", "createDatabase", "cloneSchema", "copySeedData",
+				"registerMasterTenant", "warmPool")) {
+			assertTrue(phase, result.getPhaseMillis().containsKey(phase));
+		}
+
+		// Seed tables are copied, the others only created
+		assertEquals(SCHEMA_VERSION, count("select `version` from `acme`.`schema_version`"));
+		assertEquals(2, count("select count(*) from `acme`.`role`"));
+		assertEquals(0, count("select count(*) from `acme`.`user`"));
+		assertEquals(1, count("select count(*) from information_schema.indexes "
+				+ "where table_schema = 'acme' and index_name = 'idx_username'"));
+		// The foreign keys were added once all tables existed
+		execute("insert into `acme`.`user` values (7, 'alice')");
+		execute("insert into `acme`.`a_user_role` values (7, 1)");
+		try {
+			execute("insert into `acme`.`a_user_role` values (8, 1)");
+			fail("Foreign key of the template was not cloned");
+		} catch (SQLException e) {
+			// expected
+		}
+		// The template is left as it was
+		assertEquals(1, count("select count(*) from `tenant_template`.`user`"));
+	}
+
+	@Test
+	public void failedRegistrationEvictsThePoolAndDropsTheDatabase() throws SQLException {
+		when(connectionProvider.registerTenant(any(MasterTenant.class)))
+				.thenThrow(new IllegalStateException("pool failed"));
+		try {
+			service.provisionTenant("acme");
+			fail("Registration failure should be rethrown");
+		} catch (IllegalStateException e) {
+			assertEquals("pool failed", e.getMessage());
+		}
+
+		verify(masterTenantRepo).delete(any(MasterTenant.class));
+		verify(connectionProvider).evictTenant("acme", 0);
+		assertNull(schemaStatus.getSchemaVersion("acme"));
+		assertEquals(0, count("select count(*) from information_schema.schemata where schema_name = 'acme'"));
+	}
+
+	@Test
+	public void invalidTenantIdIsRejected() throws SQLException {
+		try {
+			service.provisionTenant("acme; drop database master");
+			fail("Tenant id should be rejected");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage().contains("Invalid tenant id"));
+		}
+		verify(migrationService, never()).migrateDatabase(anyString(), anyString(), anyString(), anyString());
+	}
+
+	@Test
+	public void existingTenantIsRejected() throws SQLException {
+		when(masterTenantRepo.findByTenantId("acme")).thenReturn(new MasterTenant());
+		try {
+			service.provisionSharedTenant("acme");
+			fail("Existing tenant should be rejected");
+		} catch (IllegalStateException e) {
+			assertTrue(e.getMessage().contains("already exists"));
+		}
+		verify(masterTenantRepo, never()).save(any(MasterTenant.class));
+	}
+
+	@Test
+	public void failedDatabaseCreationLeavesNoTenantBehind() throws SQLException {
+		// A database of the same name is already on the template server, so
+		// the flow fails in its first step there
+		execute("create schema `acme`");
+		execute("create table `acme`.`other` (`id` int)");
+		execute("create schema `globex`");
+		try {
+			service.provisionTenant("acme");
+			fail("Database creation should fail for an existing database");
+		} catch (SQLException e) {
+			// expected
+		}
+		verify(migrationService).migrateDatabase(eq(TEMPLATE_URL), eq("sa"), eq(""), eq("template"));
+		verify(masterTenantRepo, never()).save(any(MasterTenant.class));
+		verify(connectionProvider, never()).registerTenant(any(MasterTenant.class));
+		assertFalse(schemaStatus.isCurrent("acme"));
+		// The database was not created by the flow, so it is not dropped
+		assertEquals(0, count("select count(*) from `acme`.`other`"));
+
+		// The template is only migrated once for later tenants
+		try {
+			service.provisionTenant("globex");
+			fail("Database creation should fail for an existing database");
+		} catch (SQLException e) {
+			// expected
+		}
+		verify(migrationService, times(1)).migrateDatabase(eq(TEMPLATE_URL), anyString(), anyString(), anyString());
+	}
+
+	private void execute(String sql) throws SQLException {
+		try (Statement statement = keepAlive.createStatement()) {
+			statement.execute(sql);
+		}
+	}
+
+	private int count(String sql) throws SQLException {
+		try (Statement statement = keepAlive.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+			rs.next();
+			return rs.getInt(1);
+		}
+	}
+}
@@ -0,0 +1,245 @@
+package com.sunitkatkar.blogspot.master.service;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.sunitkatkar.blogspot.master.config.TenantRelocationConfigProperties;
+
+/**
+ * Runs the catch-up of a relocation between two in-memory H2 databases in
+ * MySQL mode, standing in for the source and the target server. H2 has no
+ * MySQL triggers, so the change log is filled the way the capture triggers
+ * would fill it.
+ */
+public class TenantRelocationCatchUpTests {
+
+	private static final String LOG = "_reloc_log_0";
+
+	private Connection source;
+
+	private Connection target;
+
+	private TenantRelocationConfigProperties properties;
+
+	private TenantRelocationServiceImpl service;
+
+	/**
+	 * Run on the source while a row is being copied, like a write of another
+	 * request which fires the capture trigger
+	 */
+	private String concurrentWrite;
+
+	@Before
+	public void setUp() throws SQLException {
+		source = streamingStandIn(DriverManager.getConnection(
+				"jdbc:h2:mem:reloc_source;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", ""));
+		target = DriverManager.getConnection("jdbc:h2:mem:reloc_target;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+		for (Connection connection : Arrays.asList(source, target)) {
+			execute(connection, "drop table if exists `item`");
+			execute(connection, "drop table if exists `note`");
+			execute(connection, "create table `item` (`id` int not null, `name` varchar(50), primary key (`id`))");
+			execute(connection, "create table `note` (`text` varchar(50))");
+		}
+		execute(source, "drop table if exists `" + LOG + "`");
+		execute(source, "create table `" + LOG + "` (`id` int not null, "
+				+ "`_reloc_version` bigint not null default 1, primary key (`id`))");
+
+		properties = new TenantRelocationConfigProperties();
+		properties.setBatchSize(100);
+		properties.setCatchUpBatchSize(100);
+		service = new TenantRelocationServiceImpl();
+		ReflectionTestUtils.setField(service, "relocationProperties", properties);
+	}
+
+	@After
+	public void tearDown() throws SQLException {
+		source.close();
+		target.close();
+	}
+
+	@Test
+	public void loggedRowsAreCopiedAgainAndTheirEntriesConsumed() throws Exception {
+		// Bulk copy of the target, after which the source changed: 2 was
+		// updated, 4 deleted and 5 inserted
+		for (int id = 1; id <= 4; id++) {
+			insertItem(target, id, "old " + id);
+		}
+		insertItem(source, 1, "old 1");
+		insertItem(source, 2, "new 2");
+		insertItem(source, 3, "old 3");
+		insertItem(source, 5, "new 5");
+		log(2, 4, 5);
+
+		assertEquals(3, catchUp(itemTable()));
+
+		assertEquals(items(source), items(target));
+		assertEquals(0, count(source, LOG));
+	}
+
+	@Test
+	public void entriesAreReadInPages() throws Exception {
+		properties.setCatchUpBatchSize(2);
+		for (int id = 1; id <= 5; id++) {
+			insertItem(source, id, "new " + id);
+		}
+		log(1, 2, 3, 4, 5);
+
+		assertEquals(5, catchUp(itemTable()));
+
+		assertEquals(items(source), items(target));
+		assertEquals(0, count(source, LOG));
+	}
+
+	@Test
+	public void rowChangedWhileCopiedIsKeptForTheNextRound() throws Exception {
+		insertItem(source, 1, "first");
+		log(1);
+		concurrentWrite = "update `item` set `name` = 'second' where `id` = 1; "
+				+ "update `" + LOG + "` set `_reloc_version` = `_reloc_version` + 1 where `id` = 1";
+
+		assertEquals(1, catchUp(itemTable()));
+		// The copy may have missed the second write, so its entry stays
+		assertEquals(1, count(source, LOG));
+
+		concurrentWrite = null;
+		assertEquals(1, catchUp(itemTable()));
+		assertEquals("second", items(target).get(1));
+		assertEquals(0, count(source, LOG));
+	}
+
+	@Test
+	public void tableWithoutPrimaryKeyIsCopiedAgainAsAWhole() throws Exception {
+		execute(source, "drop table `" + LOG + "`");
+		execute(source, "create table `" + LOG + "` (`_reloc_dirty` tinyint not null, "
+				+ "`_reloc_version` bigint not null default 1, primary key (`_reloc_dirty`))");
+		execute(target, "insert into `note` values ('deleted on the source')");
+		execute(source, "insert into `note` values ('a'), ('b')");
+		execute(source, "insert into `" + LOG + "` (`_reloc_dirty`, `_reloc_version`) values (1, 3)");
+
+		Object table = table("note", Collections.singletonList("text"), Collections.emptyList(),
+				Collections.emptyList());
+		assertEquals(1, catchUp(table));
+
+		assertEquals(2, count(target, "note"));
+		assertEquals(0, count(source, LOG));
+	}
+
+	private int catchUp(Object table) {
+		return (Integer) ReflectionTestUtils.invokeMethod(service, "catchUp", source, target,
+				Collections.singletonList(table));
+	}
+
+	private Object itemTable() throws Exception {
+		return table("item", Arrays.asList("id", "name"), Collections.singletonList("id"),
+				Collections.singletonList("int"));
+	}
+
+	private static Object table(String name, List<String> columns, List<String> keyColumns,
+			List<String> keyTypes) throws Exception {
+		Constructor<?> constructor = Class.forName(TenantRelocationServiceImpl.class.getName() + "$TableInfo")
+				.getDeclaredConstructor(String.class, int.class);
+		constructor.setAccessible(true);
+		Object table = constructor.newInstance(name, 0);
+		ReflectionTestUtils.setField(table, "columns", columns);
+		ReflectionTestUtils.setField(table, "keyColumns", keyColumns);
+		ReflectionTestUtils.setField(table, "keyTypes", keyTypes);
+		return table;
+	}
+
+	private void log(int... ids) throws SQLException {
+		for (int id : ids) {
+			execute(source, "insert into `" + LOG + "` (`id`) values (" + id + ")");
+		}
+	}
+
+	private static void insertItem(Connection connection, int id, String name) throws SQLException {
+		try (PreparedStatement insert = connection.prepareStatement("insert into `item` values (?, ?)")) {
+			insert.setInt(1, id);
+			insert.setString(2, name);
+			insert.executeUpdate();
+		}
+	}
+
+	private static Map<Integer, String> items(Connection connection) throws SQLException {
+		Map<Integer, String> items = new LinkedHashMap<>();
+		try (Statement statement = connection.createStatement();
+				ResultSet rs = statement.executeQuery("select `id`, `name` from `item` order by `id`")) {
+			while (rs.next()) {
+				items.put(rs.getInt(1), rs.getString(2));
+			}
+		}
+		return items;
+	}
+
+	private static int count(Connection connection, String table) throws SQLException {
+		try (Statement statement = connection.createStatement();
+				ResultSet rs = statement.executeQuery("select count(*) from `" + table + "`")) {
+			rs.next();
+			return rs.getInt(1);
+		}
+	}
+
+	private static void execute(Connection connection, String sql) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute(sql);
+		}
+	}
+
+	/**
+	 * H2 rejects the fetch size with which MySQL streams a result set, so it is
+	 * ignored. Reading a row of <tt>item</tt> runs the concurrent write, if
+	 * any, before the row is read.
+	 */
+	private Connection streamingStandIn(Connection connection) {
+		return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+				(proxy, method, args) -> {
+					Object result = invoke(connection, method, args);
+					if (!(result instanceof PreparedStatement)) {
+						return result;
+					}
+					PreparedStatement statement = (PreparedStatement) result;
+					String sql = (String) args[0];
+					return Proxy.newProxyInstance(getClass().getClassLoader(),
+							new Class<?>[] { PreparedStatement.class }, (p, m, a) -> {
+								if ("setFetchSize".equals(m.getName()) && (Integer) a[0] < 0) {
+									return null;
+								}
+								if ("executeQuery".equals(m.getName()) && concurrentWrite != null
+										&& sql.startsWith("select `id`, `name` from `item`")) {
+									for (String write : concurrentWrite.split("; ")) {
+										execute(connection, write);
+									}
+								}
+								return invoke(statement, m, a);
+							});
+				});
+	}
+
+	private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getTargetException();
+		}
+	}
+}
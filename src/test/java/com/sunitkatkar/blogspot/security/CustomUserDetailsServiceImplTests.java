@@ -0,0 +1,200 @@
+package com.sunitkatkar.blogspot.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.sunitkatkar.blogspot.tenant.model.CustomUserDetails;
+import com.sunitkatkar.blogspot.tenant.model.Role;
+import com.sunitkatkar.blogspot.tenant.model.User;
+import com.sunitkatkar.blogspot.tenant.service.UserService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class CustomUserDetailsServiceImplTests {
+
+	private static final int CALLERS = 8;
+
+	private UserService userService;
+
+	private SimpleMeterRegistry meterRegistry;
+
+	private CustomUserDetailsServiceImpl service;
+
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() {
+		userService = mock(UserService.class);
+		meterRegistry = new SimpleMeterRegistry();
+		service = new CustomUserDetailsServiceImpl(meterRegistry);
+		ReflectionTestUtils.setField(service, "userService", userService);
+		executor = Executors.newFixedThreadPool(CALLERS);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void concurrentLookupsShareOneLoad() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		when(userService.findByUsernameAndTenantname("alice", "tenant_1")).thenAnswer(invocation -> {
+			release.await();
+			return user("alice");
+		});
+
+		List<Future<CustomUserDetails>> lookups = lookUpConcurrently("alice", "tenant_1");
+		awaitCoalesced(CALLERS - 1);
+		release.countDown();
+
+		List<CustomUserDetails> results = new ArrayList<>();
+		for (Future<CustomUserDetails> lookup : lookups) {
+			results.add(lookup.get(5, TimeUnit.SECONDS));
+		}
+		verify(userService, times(1)).findByUsernameAndTenantname("alice", "tenant_1");
+		assertEquals(1, meterRegistry.counter("user.lookup.loads").count(), 0);
+
+		// Spring Security erases the password of the details it authenticated,
+		// which must not reach the other callers
+		for (int i = 1; i < results.size(); i++) {
+			assertNotSame(results.get(0), results.get(i));
+		}
+		results.get(0).eraseCredentials();
+		assertNull(results.get(0).getPassword());
+		for (int i = 1; i < results.size(); i++) {
+			assertEquals("secret", results.get(i).getPassword());
+			assertEquals("tenant_1", results.get(i).getTenant());
+		}
+	}
+
+	@Test
+	public void callersWaitingOnAFailedLoadGetItsException() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		IllegalStateException failure = new IllegalStateException("tenant database down");
+		when(userService.findByUsernameAndTenantname("alice", "tenant_1")).thenAnswer(invocation -> {
+			release.await();
+			throw failure;
+		});
+
+		List<Future<CustomUserDetails>> lookups = lookUpConcurrently("alice", "tenant_1");
+		awaitCoalesced(CALLERS - 1);
+		release.countDown();
+
+		for (Future<CustomUserDetails> lookup : lookups) {
+			try {
+				lookup.get(5, TimeUnit.SECONDS);
+				fail("Lookup should have failed");
+			} catch (ExecutionException e) {
+				assertSame(failure, e.getCause());
+			}
+		}
+		verify(userService, times(1)).findByUsernameAndTenantname("alice", "tenant_1");
+	}
+
+	@Test
+	public void failuresAreNotCached() {
+		when(userService.findByUsernameAndTenantname("alice", "tenant_1"))
+				.thenThrow(new IllegalStateException("tenant database down")).thenReturn(user("alice"));
+		try {
+			service.loadUserByUsernameAndTenantname("alice", "tenant_1");
+			fail("Lookup should have failed");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		assertEquals("alice", service.loadUserByUsernameAndTenantname("alice", "tenant_1").getUsername());
+		verify(userService, times(2)).findByUsernameAndTenantname("alice", "tenant_1");
+	}
+
+	@Test
+	public void unknownUserIsLookedUpAgainNextTime() {
+		for (int i = 0; i < 2; i++) {
+			try {
+				service.loadUserByUsernameAndTenantname("bob", "tenant_1");
+				fail("Lookup should have failed");
+			} catch (UsernameNotFoundException e) {
+				// expected
+			}
+		}
+		verify(userService, times(2)).findByUsernameAndTenantname("bob", "tenant_1");
+	}
+
+	@Test
+	public void tenantsNeverShareALookup() throws Exception {
+		CountDownLatch loading = new CountDownLatch(2);
+		CountDownLatch release = new CountDownLatch(1);
+		when(userService.findByUsernameAndTenantname(anyString(), anyString())).thenAnswer(invocation -> {
+			loading.countDown();
+			release.await();
+			return user(invocation.getArgument(0));
+		});
+
+		Future<CustomUserDetails> first = executor
+				.submit(() -> (CustomUserDetails) service.loadUserByUsernameAndTenantname("alice", "tenant_1"));
+		Future<CustomUserDetails> second = executor
+				.submit(() -> (CustomUserDetails) service.loadUserByUsernameAndTenantname("alice", "tenant_2"));
+		// Both are in the database at the same time
+		assertTrue(loading.await(5, TimeUnit.SECONDS));
+		release.countDown();
+
+		assertEquals("tenant_1", first.get(5, TimeUnit.SECONDS).getTenant());
+		assertEquals("tenant_2", second.get(5, TimeUnit.SECONDS).getTenant());
+		assertEquals(0, meterRegistry.counter("user.lookup.coalesced").count(), 0);
+	}
+
+	private List<Future<CustomUserDetails>> lookUpConcurrently(String username, String tenant) {
+		List<Future<CustomUserDetails>> lookups = new ArrayList<>();
+		for (int i = 0; i < CALLERS; i++) {
+			lookups.add(executor
+					.submit(() -> (CustomUserDetails) service.loadUserByUsernameAndTenantname(username, tenant)));
+		}
+		return lookups;
+	}
+
+	/**
+	 * Waits until the other callers joined the lookup in flight
+	 */
+	private void awaitCoalesced(int callers) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (meterRegistry.counter("user.lookup.coalesced").count() < callers) {
+			assertTrue("Lookups were not coalesced", System.currentTimeMillis() < deadline);
+			Thread.sleep(5);
+		}
+	}
+
+	private static User user(String username) {
+		Role role = new Role();
+		role.setRole("ROLE_USER");
+		User user = new User();
+		user.setUsername(username);
+		user.setPassword("secret");
+		user.setActive(true);
+		user.setRoles(Collections.singleton(role));
+		return user;
+	}
+}
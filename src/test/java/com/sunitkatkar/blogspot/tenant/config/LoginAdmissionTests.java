@@ -0,0 +1,151 @@
+package com.sunitkatkar.blogspot.tenant.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * The pool statistics come from a mocked connection provider and the acquire
+ * times are recorded on the real metrics tracker factory, the way Hikari does.
+ */
+public class LoginAdmissionTests {
+
+	private static final String POOL = "tenant_1-connection-pool";
+
+	private LoginAdmissionConfigProperties properties;
+
+	private DataSourceBasedMultiTenantConnectionProviderImpl connectionProvider;
+
+	private TenantPoolMetricsTrackerFactory trackerFactory;
+
+	private SimpleMeterRegistry meterRegistry;
+
+	private LoginAdmission admission;
+
+	@Before
+	public void setUp() {
+		properties = new LoginAdmissionConfigProperties();
+		properties.setMaxPendingThreads(2);
+		properties.setMaxAcquireLatency(1000);
+		properties.setLatencyWindow(5000);
+		properties.setRetryAfter(5);
+		connectionProvider = mock(DataSourceBasedMultiTenantConnectionProviderImpl.class);
+		when(connectionProvider.getPoolName("tenant_1")).thenReturn(POOL);
+		meterRegistry = new SimpleMeterRegistry();
+		trackerFactory = new TenantPoolMetricsTrackerFactory(meterRegistry);
+		admission = new LoginAdmission(properties, connectionProvider, trackerFactory, meterRegistry);
+	}
+
+	@Test
+	public void loginIsAdmittedBelowTheThresholds() {
+		when(connectionProvider.getPendingThreads("tenant_1")).thenReturn(1);
+		tracker(POOL).recordConnectionAcquiredNanos(millis(500));
+		assertEquals(0, admission.shed("tenant_1"));
+	}
+
+	@Test
+	public void loginIsShedWhenThreadsWaitForThePool() {
+		when(connectionProvider.getPendingThreads("tenant_1")).thenReturn(2);
+		assertEquals(5, admission.shed("tenant_1"));
+		assertEquals(1, shed("tenant_1", "pending"), 0);
+	}
+
+	@Test
+	public void loginIsShedWhenConnectionsAreSlowToGet() {
+		IMetricsTracker tracker = tracker(POOL);
+		for (int i = 0; i < 20; i++) {
+			tracker.recordConnectionAcquiredNanos(millis(1500));
+		}
+		assertEquals(5, admission.shed("tenant_1"));
+		assertEquals(1, shed("tenant_1", "latency"), 0);
+	}
+
+	@Test
+	public void connectionTimeoutCountsAsSlowAcquire() {
+		// Only timeouts, no connection was handed out
+		tracker(POOL).recordConnectionTimeout();
+		assertEquals(5, admission.shed("tenant_1"));
+	}
+
+	@Test
+	public void latencyOutsideTheWindowIsIgnored() throws InterruptedException {
+		properties.setLatencyWindow(50);
+		tracker(POOL).recordConnectionTimeout();
+		Thread.sleep(100);
+		assertEquals(0, admission.shed("tenant_1"));
+	}
+
+	@Test
+	public void tenantsOfASharedDatabaseLookAtTheSharedPool() {
+		String sharedPool = "shared_1-connection-pool";
+		when(connectionProvider.getPoolName("tenant_a")).thenReturn(sharedPool);
+		when(connectionProvider.getPoolName("tenant_b")).thenReturn(sharedPool);
+		tracker(sharedPool).recordConnectionTimeout();
+
+		assertEquals(5, admission.shed("tenant_a"));
+		assertEquals(5, admission.shed("tenant_b"));
+		// The pool of another tenant is not affected
+		assertEquals(0, admission.shed("tenant_1"));
+	}
+
+	@Test
+	public void tenantWithoutPoolIsAdmitted() {
+		assertEquals(0, admission.shed("tenant_9"));
+	}
+
+	@Test
+	public void nothingIsCheckedWhenDisabledOrWithoutTenant() {
+		properties.setEnabled(false);
+		assertEquals(0, admission.shed("tenant_1"));
+		properties.setEnabled(true);
+		assertEquals(0, admission.shed(""));
+		assertEquals(0, admission.shed(null));
+		verify(connectionProvider, never()).getPendingThreads(anyString());
+	}
+
+	@Test
+	public void thresholdOfZeroIsNotLookedAt() {
+		properties.setMaxPendingThreads(0);
+		properties.setMaxAcquireLatency(0);
+		when(connectionProvider.getPendingThreads("tenant_1")).thenReturn(100);
+		tracker(POOL).recordConnectionTimeout();
+		assertEquals(0, admission.shed("tenant_1"));
+	}
+
+	@Test
+	public void clientIsToldToRetryAfterAtLeastASecond() {
+		properties.setRetryAfter(0);
+		when(connectionProvider.getPendingThreads("tenant_1")).thenReturn(2);
+		assertEquals(1, admission.shed("tenant_1"));
+	}
+
+	private IMetricsTracker tracker(String poolName) {
+		return trackerFactory.create(poolName, new PoolStats(0) {
+
+			@Override
+			protected void update() {
+			}
+		});
+	}
+
+	private double shed(String tenantId, String reason) {
+		return meterRegistry.counter("login.shed", "tenant", tenantId, "reason", reason).count();
+	}
+
+	private static long millis(long millis) {
+		return TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+}
@@ -0,0 +1,220 @@
+package com.sunitkatkar.blogspot.tenant.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceException;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.hibernate.CallbackException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import com.sunitkatkar.blogspot.tenant.model.Role;
+import com.sunitkatkar.blogspot.tenant.model.User;
+import com.sunitkatkar.blogspot.util.TenantContextHolder;
+
+/**
+ * Runs the tenant entities against an in-memory H2 database shared by
+ * tenant_a and tenant_b, with the filter set up like in the
+ * {@link TenantDatabaseConfig}.
+ */
+public class SharedTenantFilterTests {
+
+	private LocalContainerEntityManagerFactoryBean emfBean;
+
+	private EntityManagerFactory entityManagerFactory;
+
+	private JdbcTemplate jdbcTemplate;
+
+	private int userOfTenantB;
+
+	@Before
+	public void setUp() {
+		JdbcDataSource dataSource = new JdbcDataSource();
+		dataSource.setURL("jdbc:h2:mem:shared_tenants;MODE=MySQL;DB_CLOSE_DELAY=-1");
+		dataSource.setUser("sa");
+		jdbcTemplate = new JdbcTemplate(dataSource);
+
+		// Neither tenant has a pool of its own, so both are shared
+		SharedTenantFilter sharedTenantFilter = new SharedTenantFilter(
+				new DataSourceBasedMultiTenantConnectionProviderImpl());
+		emfBean = new LocalContainerEntityManagerFactoryBean() {
+			@Override
+			protected EntityManagerFactory createNativeEntityManagerFactory() throws PersistenceException {
+				return sharedTenantFilter.wrap(super.createNativeEntityManagerFactory());
+			}
+		};
+		emfBean.setDataSource(dataSource);
+		emfBean.setPackagesToScan(User.class.getPackage().getName());
+		emfBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+		Map<String, Object> properties = new HashMap<>();
+		properties.put(org.hibernate.cfg.Environment.DIALECT, "org.hibernate.dialect.H2Dialect");
+		properties.put(org.hibernate.cfg.Environment.HBM2DDL_AUTO, "create-drop");
+		properties.put(org.hibernate.cfg.Environment.INTERCEPTOR, sharedTenantFilter);
+		emfBean.setJpaPropertyMap(properties);
+		emfBean.afterPropertiesSet();
+		entityManagerFactory = emfBean.getNativeEntityManagerFactory();
+
+		jdbcTemplate.update("insert into role (role_id, role) values (1, 'ROLE_USER')");
+		saveUser("tenant_a", "alice", null);
+		saveUser("tenant_a", "anna", null);
+		userOfTenantB = saveUser("tenant_b", "bob", null).getId();
+	}
+
+	@After
+	public void tearDown() {
+		TenantContextHolder.clear();
+		emfBean.destroy();
+	}
+
+	@Test
+	public void queriesOnlySeeTheCurrentTenant() {
+		assertEquals(Collections.singletonList("bob"), usernames("tenant_b"));
+		assertEquals(2, usernames("tenant_a").size());
+		assertTrue(usernames("tenant_a").containsAll(Arrays.asList("alice", "anna")));
+		assertEquals(3, jdbcTemplate.queryForObject("select count(*) from user", Integer.class).intValue());
+	}
+
+	@Test
+	public void findOfAnotherTenantIsRejected() {
+		TenantContextHolder.setTenantId("tenant_b");
+		EntityManager em = entityManagerFactory.createEntityManager();
+		try {
+			assertNotNull(em.find(User.class, userOfTenantB));
+		} finally {
+			em.close();
+		}
+
+		TenantContextHolder.setTenantId("tenant_a");
+		em = entityManagerFactory.createEntityManager();
+		try {
+			em.find(User.class, userOfTenantB);
+			fail("User of tenant_b was loaded for tenant_a");
+		} catch (PersistenceException e) {
+			assertRejected(e);
+		} finally {
+			em.close();
+		}
+	}
+
+	@Test
+	public void newRowGetsTheCurrentTenant() {
+		int id = saveUser("tenant_a", "amy", null).getId();
+		assertEquals("tenant_a",
+				jdbcTemplate.queryForObject("select tenant from user where user_id = ?", String.class, id));
+
+		try {
+			saveUser("tenant_a", "mallory", "tenant_b");
+			fail("User was saved for another tenant");
+		} catch (PersistenceException e) {
+			assertRejected(e);
+		}
+		assertEquals(0, jdbcTemplate
+				.queryForObject("select count(*) from user where username = 'mallory'", Integer.class).intValue());
+	}
+
+	@Test
+	public void rolesAreReadOnly() {
+		TenantContextHolder.setTenantId("tenant_a");
+		EntityManager em = entityManagerFactory.createEntityManager();
+		try {
+			em.getTransaction().begin();
+			Role role = new Role();
+			role.setRole("ROLE_ADMIN");
+			em.persist(role);
+			fail("Role was created by a shared tenant");
+		} catch (PersistenceException e) {
+			assertRejected(e);
+		} finally {
+			em.getTransaction().rollback();
+			em.close();
+		}
+
+		em = entityManagerFactory.createEntityManager();
+		try {
+			em.getTransaction().begin();
+			em.find(Role.class, 1).setRole("ROLE_ROOT");
+			em.flush();
+			fail("Role was changed by a shared tenant");
+		} catch (PersistenceException e) {
+			assertRejected(e);
+		} finally {
+			em.getTransaction().rollback();
+			em.close();
+		}
+
+		em = entityManagerFactory.createEntityManager();
+		try {
+			em.getTransaction().begin();
+			em.remove(em.find(Role.class, 1));
+			em.flush();
+			fail("Role was deleted by a shared tenant");
+		} catch (PersistenceException e) {
+			assertRejected(e);
+		} finally {
+			em.getTransaction().rollback();
+			em.close();
+		}
+		assertEquals("ROLE_USER",
+				jdbcTemplate.queryForObject("select role from role where role_id = 1", String.class));
+	}
+
+	private User saveUser(String tenantId, String username, String tenant) {
+		TenantContextHolder.setTenantId(tenantId);
+		EntityManager em = entityManagerFactory.createEntityManager();
+		try {
+			em.getTransaction().begin();
+			User user = new User();
+			user.setUsername(username);
+			user.setPassword("secret");
+			user.setActive(true);
+			user.setTenant(tenant);
+			user.setRoles(Collections.singleton(em.find(Role.class, 1)));
+			em.persist(user);
+			em.getTransaction().commit();
+			return user;
+		} finally {
+			if (em.getTransaction().isActive()) {
+				em.getTransaction().rollback();
+			}
+			em.close();
+			TenantContextHolder.clear();
+		}
+	}
+
+	private List<String> usernames(String tenantId) {
+		TenantContextHolder.setTenantId(tenantId);
+		EntityManager em = entityManagerFactory.createEntityManager();
+		try {
+			return em.createQuery("select u from User u", User.class).getResultList().stream()
+					.map(User::getUsername).collect(Collectors.toList());
+		} finally {
+			em.close();
+			TenantContextHolder.clear();
+		}
+	}
+
+	private static void assertRejected(PersistenceException e) {
+		Throwable cause = e;
+		while (cause != null && !(cause instanceof CallbackException)) {
+			cause = cause.getCause();
+		}
+		assertNotNull("Not rejected by the filter: " + e, cause);
+	}
+}
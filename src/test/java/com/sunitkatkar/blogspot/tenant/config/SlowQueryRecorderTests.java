@@ -0,0 +1,117 @@
+package com.sunitkatkar.blogspot.tenant.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sunitkatkar.blogspot.tenant.model.SlowQueryStats;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class SlowQueryRecorderTests {
+
+	private SlowQueryConfigProperties properties;
+
+	private DbQuotaConfigProperties dbQuotaProperties;
+
+	private SlowQueryRecorder recorder;
+
+	@Before
+	public void setUp() {
+		properties = new SlowQueryConfigProperties();
+		properties.setEnabled(true);
+		properties.setDefaultThreshold(100);
+		properties.setThresholds(Collections.singletonMap("tenant_2", 10L));
+		properties.setMaxStatementsPerTenant(2);
+		dbQuotaProperties = new DbQuotaConfigProperties();
+		dbQuotaProperties.setEnabled(false);
+		// The master repository is only used to change and reload quotas
+		recorder = new SlowQueryRecorder(properties,
+				new TenantDbQuota(dbQuotaProperties, new SimpleMeterRegistry(), null));
+	}
+
+	@Test
+	public void onlyStatementsOverTheThresholdAreRecorded() {
+		recorder.record("tenant_1", "select 1", millis(99));
+		recorder.record("tenant_2", "select 1", millis(99));
+		assertTrue(recorder.getSlowest("tenant_1", 10).isEmpty());
+		assertEquals(1, recorder.getSlowest("tenant_2", 10).size());
+
+		recorder.record("tenant_1", "select 1", millis(100));
+		recorder.record("tenant_1", "select 1", millis(300));
+		SlowQueryStats stats = recorder.getSlowest("tenant_1", 10).get(0);
+		assertEquals(2, stats.getCount());
+		assertEquals(300, stats.getMaxMillis());
+		assertEquals(200, stats.getAverageMillis());
+	}
+
+	@Test
+	public void fastestStatementIsEvictedForASlowerOne() {
+		recorder.record("tenant_1", "select a", millis(200));
+		recorder.record("tenant_1", "select b", millis(300));
+		// Faster than both, so it is not kept
+		recorder.record("tenant_1", "select c", millis(150));
+		assertEquals(Arrays.asList("select b", "select a"), sql(recorder.getSlowest("tenant_1", 10)));
+
+		recorder.record("tenant_1", "select d", millis(250));
+		assertEquals(Arrays.asList("select b", "select d"), sql(recorder.getSlowest("tenant_1", 10)));
+		assertEquals(Collections.singletonList("select b"), sql(recorder.getSlowest("tenant_1", 1)));
+
+		// Known statements are still counted when the tenant is full
+		recorder.record("tenant_1", "select d", millis(120));
+		assertEquals(2, recorder.getSlowest("tenant_1", 10).get(1).getCount());
+	}
+
+	@Test
+	public void bindsInQuotedLiteralsAreNotCounted() {
+		recorder.record("tenant_1", "select * from user where username = ? and tenant = ?", millis(200));
+		recorder.record("tenant_1", "select '?', \"a?\", `b?` from user where id in (?, ?, ?)", millis(300));
+
+		List<SlowQueryStats> slowest = recorder.getSlowest("tenant_1", 10);
+		assertEquals(3, slowest.get(0).getBindCount());
+		assertEquals(2, slowest.get(1).getBindCount());
+	}
+
+	@Test
+	public void executedStatementsAreTimed() throws Exception {
+		properties.setDefaultThreshold(0);
+		try (Connection h2 = DriverManager.getConnection("jdbc:h2:mem:slow_queries;MODE=MySQL", "sa", "")) {
+			assertSame(h2, recorder.wrap(null, h2));
+			Connection connection = recorder.wrap("tenant_1", h2);
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("create table item (id int)");
+			}
+			try (PreparedStatement statement = connection.prepareStatement("insert into item values (?)")) {
+				statement.setInt(1, 1);
+				statement.executeUpdate();
+			}
+		}
+		assertEquals(Arrays.asList("create table item (id int)", "insert into item values (?)"),
+				recorder.getSlowest("tenant_1", 10).stream().map(SlowQueryStats::getSql).sorted()
+						.collect(Collectors.toList()));
+
+		recorder.clear("tenant_1");
+		assertTrue(recorder.getSlowest("tenant_1", 10).isEmpty());
+	}
+
+	private static long millis(long millis) {
+		return TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+
+	private static List<String> sql(List<SlowQueryStats> slowest) {
+		return slowest.stream().map(SlowQueryStats::getSql).collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,101 @@
+package com.sunitkatkar.blogspot.tenant.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.sunitkatkar.blogspot.tenant.model.SqlLogEntry;
+
+public class SqlLogRecorderTests {
+
+	private SqlLogConfigProperties properties;
+
+	private SqlLogRecorder recorder;
+
+	@Before
+	public void setUp() {
+		properties = new SqlLogConfigProperties();
+		properties.setBufferSize(4);
+		properties.setDefaultSampleRate(1);
+		properties.setSampleRates(Collections.singletonMap("tenant_3", 0.0));
+		recorder = new SqlLogRecorder(properties);
+	}
+
+	@Test
+	public void recentStatementsAreNewestFirst() {
+		recorder.record("tenant_1", "select 1");
+		recorder.record("tenant_2", "select 2");
+		recorder.record("tenant_1", "select 3");
+
+		assertEquals(Arrays.asList("select 3", "select 2", "select 1"), sql(recorder.getRecent(null, 10)));
+		assertEquals(Arrays.asList("select 3", "select 1"), sql(recorder.getRecent("tenant_1", 10)));
+		assertEquals(Collections.singletonList("select 3"), sql(recorder.getRecent(null, 1)));
+	}
+
+	@Test
+	public void overwrittenStatementsAreSkipped() {
+		for (int i = 0; i < 6; i++) {
+			recorder.record("tenant_1", "select " + i);
+		}
+		// The first two were overwritten by the second lap
+		List<SqlLogEntry> recent = recorder.getRecent(null, 10);
+		assertEquals(Arrays.asList("select 5", "select 4", "select 3", "select 2"), sql(recent));
+		assertEquals(5, recent.get(0).getSequence());
+
+		// A writer which took the next sequence but has not stored its entry
+		// yet leaves the entry of the previous lap in the slot
+		((AtomicLong) ReflectionTestUtils.getField(recorder, "nextSequence")).getAndIncrement();
+		assertEquals(Arrays.asList("select 5", "select 4", "select 3"), sql(recorder.getRecent(null, 10)));
+	}
+
+	@Test
+	public void statementsAreSampledPerTenant() {
+		recorder.record("tenant_3", "select 1");
+		assertTrue(recorder.getRecent(null, 10).isEmpty());
+
+		recorder.setSampleRate("tenant_3", 1);
+		recorder.record("tenant_3", "select 2");
+		assertEquals(Collections.singletonList("select 2"), sql(recorder.getRecent("tenant_3", 10)));
+
+		// Back to the configured rate, not the default one
+		recorder.resetSampleRate("tenant_3");
+		recorder.record("tenant_3", "select 3");
+		assertEquals(Double.valueOf(0), recorder.getSampleRates().get("tenant_3"));
+		assertEquals(1, recorder.getRecent("tenant_3", 10).size());
+
+		recorder.setDefaultSampleRate(0);
+		recorder.record("tenant_1", "select 4");
+		assertTrue(recorder.getRecent("tenant_1", 10).isEmpty());
+	}
+
+	@Test
+	public void invalidSampleRateIsRejected() {
+		try {
+			recorder.setSampleRate("tenant_1", 1.5);
+			fail("Sample rate above 1 was accepted");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			recorder.setDefaultSampleRate(-0.1);
+			fail("Negative sample rate was accepted");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		assertEquals(Double.valueOf(1), recorder.getSampleRates().get("default"));
+	}
+
+	private static List<String> sql(List<SqlLogEntry> entries) {
+		return entries.stream().map(SqlLogEntry::getSql).collect(Collectors.toList());
+	}
+}
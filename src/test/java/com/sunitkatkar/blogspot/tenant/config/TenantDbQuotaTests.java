@@ -0,0 +1,157 @@
+package com.sunitkatkar.blogspot.tenant.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sunitkatkar.blogspot.master.repository.MasterTenantRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class TenantDbQuotaTests {
+
+	private DbQuotaConfigProperties properties;
+
+	private SimpleMeterRegistry meterRegistry;
+
+	private MasterTenantRepository masterTenantRepo;
+
+	private TenantDbQuota dbQuota;
+
+	@Before
+	public void setUp() {
+		properties = new DbQuotaConfigProperties();
+		properties.setDefaultStatementTimeout(30);
+		properties.setDegradedStatementTimeout(5);
+		properties.setDefaultQuota(100);
+		properties.setWindow(60000);
+		properties.setStatementTimeouts(Collections.singletonMap("tenant_2", 60));
+		meterRegistry = new SimpleMeterRegistry();
+		masterTenantRepo = mock(MasterTenantRepository.class);
+		dbQuota = new TenantDbQuota(properties, meterRegistry, masterTenantRepo);
+	}
+
+	@Test
+	public void tenantOverQuotaGetsTheDegradedTimeout() {
+		dbQuota.record("tenant_1", millis(60));
+		assertFalse(dbQuota.isOverQuota("tenant_1"));
+		assertEquals(30, dbQuota.getStatementTimeout("tenant_1"));
+
+		dbQuota.record("tenant_1", millis(60));
+		assertTrue(dbQuota.isOverQuota("tenant_1"));
+		assertEquals(5, dbQuota.getStatementTimeout("tenant_1"));
+		assertEquals(1, meterRegistry.counter("tenant.db.quota.exceeded", "tenant", "tenant_1").count(), 0);
+		assertEquals(0.12, meterRegistry.counter("tenant.db.time", "tenant", "tenant_1").count(), 0.001);
+
+		// Other tenants are not affected
+		assertFalse(dbQuota.isOverQuota("tenant_2"));
+		assertEquals(60, dbQuota.getStatementTimeout("tenant_2"));
+	}
+
+	@Test
+	public void quotaIsLiftedOnceTheWindowRolledPast() throws InterruptedException {
+		properties.setWindow(120);
+		dbQuota.record("tenant_1", millis(150));
+		assertTrue(dbQuota.isOverQuota("tenant_1"));
+		Thread.sleep(200);
+		assertFalse(dbQuota.isOverQuota("tenant_1"));
+		assertEquals(0, dbQuota.getUsage("tenant_1").getUsedMillis());
+
+		dbQuota.dropIdleWindows();
+		assertEquals(0, meterRegistry.get("tenant.db.quota.over").gauge().value(), 0);
+	}
+
+	@Test
+	public void concurrentStatementsAddUpExactly() throws Exception {
+		properties.setDefaultQuota(0);
+		int threads = 8;
+		CountDownLatch go = new CountDownLatch(1);
+		List<Thread> started = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			Thread thread = new Thread(() -> {
+				try {
+					go.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int i = 0; i < 1000; i++) {
+					dbQuota.record("tenant_1", millis(1));
+				}
+			});
+			thread.start();
+			started.add(thread);
+		}
+		go.countDown();
+		for (Thread thread : started) {
+			thread.join();
+		}
+		assertEquals(8000, dbQuota.getUsage("tenant_1").getUsedMillis());
+		// Without a quota a tenant is never over it
+		assertFalse(dbQuota.isOverQuota("tenant_1"));
+	}
+
+	@Test
+	public void overridesAreReloadedFromTheMasterDb() {
+		List<Object[]> rows = Arrays.asList(new Object[] { "tenant_1", 10, 500L },
+				new Object[] { "tenant_2", null, null });
+		when(masterTenantRepo.findDbQuotas()).thenReturn(rows);
+		dbQuota.reload();
+
+		assertEquals(10, dbQuota.getStatementTimeout("tenant_1"));
+		assertEquals(500, dbQuota.getUsage("tenant_1").getQuotaMillis());
+		// No override, so the configured values apply
+		assertEquals(60, dbQuota.getStatementTimeout("tenant_2"));
+		assertEquals(100, dbQuota.getUsage("tenant_2").getQuotaMillis());
+	}
+
+	@Test
+	public void failedReloadKeepsThePreviousOverrides() {
+		List<Object[]> rows = Collections.singletonList(new Object[] { "tenant_1", 10, null });
+		when(masterTenantRepo.findDbQuotas()).thenReturn(rows)
+				.thenThrow(new IllegalStateException("master db down"));
+		dbQuota.reload();
+		dbQuota.reload();
+		assertEquals(10, dbQuota.getStatementTimeout("tenant_1"));
+	}
+
+	@Test
+	public void overridesAreWrittenToTheMasterDb() {
+		when(masterTenantRepo.updateDbQuota("tenant_1", 500L)).thenReturn(1);
+		when(masterTenantRepo.findDbQuotas())
+				.thenReturn(Collections.singletonList(new Object[] { "tenant_1", null, 500L }));
+		assertTrue(dbQuota.setQuota("tenant_1", 500));
+		assertEquals(500, dbQuota.getUsage("tenant_1").getQuotaMillis());
+
+		// Unknown tenant
+		assertFalse(dbQuota.setStatementTimeout("tenant_9", 10));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void negativeQuotaIsRejected() {
+		try {
+			dbQuota.setQuota("tenant_1", -1);
+		} finally {
+			verify(masterTenantRepo, never()).updateDbQuota(anyString(), anyLong());
+		}
+	}
+
+	private static long millis(long millis) {
+		return TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+}
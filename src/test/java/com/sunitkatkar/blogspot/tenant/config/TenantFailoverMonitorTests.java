@@ -0,0 +1,277 @@
+package com.sunitkatkar.blogspot.tenant.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.sql.DataSource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.sunitkatkar.blogspot.master.model.MasterTenant;
+import com.sunitkatkar.blogspot.master.model.TenantStatus;
+import com.sunitkatkar.blogspot.master.repository.MasterTenantRepository;
+import com.sunitkatkar.blogspot.tenant.model.TenantFailoverStatus;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * The primary database is an in-memory H2 database while it is up, and a url
+ * no driver accepts while it is down. The pools are left to a mocked
+ * connection provider.
+ */
+public class TenantFailoverMonitorTests {
+
+	private static final String UP = "jdbc:h2:mem:failover_primary";
+
+	private static final String DOWN = "jdbc:unreachable://db1:3306/tenant_1";
+
+	private FailoverConfigProperties properties;
+
+	private DataSourceBasedMultiTenantConnectionProviderImpl connectionProvider;
+
+	private MasterTenantRepository masterTenantRepo;
+
+	private SimpleMeterRegistry meterRegistry;
+
+	private TenantFailoverMonitor monitor;
+
+	private MasterTenant tenant;
+
+	/**
+	 * Whether the tenant was on its standby, for every time the pool was told
+	 * to follow it. The tenant is changed in place by the monitor, so this is
+	 * recorded at the time of the call.
+	 */
+	private final List<Boolean> followed = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Makes the next switch of the pool to the standby fail
+	 */
+	private volatile boolean standbyDown;
+
+	/**
+	 * Returned by the pool when it is told to follow the tenant while set,
+	 * as the pool the switch replaced
+	 */
+	private volatile DataSource replacedPool;
+
+	@Before
+	public void setUp() throws SQLException {
+		properties = new FailoverConfigProperties();
+		properties.setEnabled(true);
+		properties.setCheckTimeout(1000);
+		properties.setCheckThreads(2);
+		properties.setFailureThreshold(3);
+		connectionProvider = mock(DataSourceBasedMultiTenantConnectionProviderImpl.class);
+		masterTenantRepo = mock(MasterTenantRepository.class);
+		when(connectionProvider.follow(any(MasterTenant.class))).thenAnswer(invocation -> {
+			MasterTenant masterTenant = invocation.getArgument(0);
+			followed.add(masterTenant.isOnStandby());
+			if (masterTenant.isOnStandby() && standbyDown) {
+				standbyDown = false;
+				throw new SQLException("standby down");
+			}
+			return replacedPool;
+		});
+		meterRegistry = new SimpleMeterRegistry();
+
+		tenant = new MasterTenant();
+		tenant.setTenantId("tenant_1");
+		tenant.setUrl(UP);
+		tenant.setUsername("sa");
+		tenant.setPassword("");
+		tenant.setStandbyUrl("jdbc:mysql://db2:3306/tenant_1");
+		tenant.setStatus(TenantStatus.ACTIVE);
+		when(masterTenantRepo.findAll()).thenReturn(Collections.singletonList(tenant));
+		when(masterTenantRepo.findByTenantId("tenant_1")).thenReturn(tenant);
+		when(masterTenantRepo.updateOnStandby(anyString(), anyBoolean(), anyInt())).thenReturn(1);
+
+		monitor = new TenantFailoverMonitor();
+		ReflectionTestUtils.setField(monitor, "failoverProperties", properties);
+		ReflectionTestUtils.setField(monitor, "connectionProvider", connectionProvider);
+		ReflectionTestUtils.setField(monitor, "masterTenantRepo", masterTenantRepo);
+		ReflectionTestUtils.setField(monitor, "meterRegistry", meterRegistry);
+		monitor.init();
+	}
+
+	@After
+	public void tearDown() {
+		monitor.shutdown();
+	}
+
+	@Test
+	public void tenantIsFailedOverOnceTheThresholdIsReached() throws Exception {
+		tenant.setUrl(DOWN);
+		check(2);
+		verify(masterTenantRepo, never()).updateOnStandby(anyString(), anyBoolean(), anyInt());
+		assertEquals(2, status().getConsecutiveFailures());
+
+		replacedPool = new JdbcDataSource();
+		check(1);
+		verify(masterTenantRepo).updateOnStandby("tenant_1", true, 0);
+		assertEquals(Arrays.asList(false, false, true), followed);
+		verify(connectionProvider).retirePool("tenant_1", replacedPool, properties.getDrainTimeout());
+		assertEquals(1, tenant.getVersion());
+		TenantFailoverStatus status = status();
+		assertFalse(status.isPrimaryReachable());
+		assertEquals(1, status.getSwitches());
+		assertEquals(0, status.getConsecutiveFailures());
+		assertEquals(1, meterRegistry.timer("tenant.failover.time", "tenant", "tenant_1", "target", "standby")
+				.count());
+	}
+
+	@Test
+	public void successfulCheckResetsTheStreak() throws Exception {
+		tenant.setUrl(DOWN);
+		check(2);
+		tenant.setUrl(UP);
+		check(1);
+		assertTrue(status().isPrimaryReachable());
+		tenant.setUrl(DOWN);
+		check(2);
+
+		verify(masterTenantRepo, never()).updateOnStandby(anyString(), anyBoolean(), anyInt());
+		assertEquals(2, status().getConsecutiveFailures());
+	}
+
+	@Test
+	public void failoverDecidedByAnotherNodeIsFollowed() throws Exception {
+		when(masterTenantRepo.updateOnStandby("tenant_1", true, 0)).thenReturn(0);
+		tenant.setUrl(DOWN);
+		check(3);
+
+		// Not counted as an error, the pool is left alone until the decision
+		// of the other node is read
+		assertEquals(0, status().getSwitches());
+		assertEquals(0, meterRegistry.counter("tenant.failover.errors", "tenant", "tenant_1").count(), 0);
+		assertEquals(Arrays.asList(false, false), followed);
+
+		tenant.setOnStandby(true);
+		tenant.setVersion(1);
+		check(1);
+		assertEquals(Arrays.asList(false, false, true), followed);
+	}
+
+	@Test
+	public void switchIsRetriedWhenTheStandbyCannotBeConnectedTo() throws Exception {
+		standbyDown = true;
+		tenant.setUrl(DOWN);
+		check(3);
+		assertEquals(1, meterRegistry.counter("tenant.failover.errors", "tenant", "tenant_1").count(), 0);
+		assertEquals(0, status().getSwitches());
+
+		// The decision is recorded, the next check switches the pool
+		assertTrue(tenant.isOnStandby());
+		check(1);
+		verify(masterTenantRepo).updateOnStandby("tenant_1", true, 0);
+		assertEquals(Arrays.asList(false, false, true, true), followed);
+		assertEquals(1, meterRegistry.counter("tenant.failover.errors", "tenant", "tenant_1").count(), 0);
+	}
+
+	@Test
+	public void tenantIsNotSwitchedBackAutomatically() throws Exception {
+		tenant.setOnStandby(true);
+		check(5);
+		assertTrue(status().isPrimaryReachable());
+		assertEquals(5, status().getConsecutiveSuccesses());
+		verify(masterTenantRepo, never()).updateOnStandby(anyString(), anyBoolean(), anyInt());
+	}
+
+	@Test
+	public void operatorSwitchesTheTenantBack() throws Exception {
+		tenant.setOnStandby(true);
+		tenant.setVersion(4);
+		replacedPool = new JdbcDataSource();
+		monitor.switchNow("tenant_1", false);
+
+		verify(connectionProvider).checkFailover(tenant, false);
+		verify(masterTenantRepo).updateOnStandby("tenant_1", false, 4);
+		assertEquals(Collections.singletonList(false), followed);
+		verify(connectionProvider).retirePool("tenant_1", replacedPool, properties.getDrainTimeout());
+		assertEquals(1, meterRegistry.timer("tenant.failover.time", "tenant", "tenant_1", "target", "primary")
+				.count());
+	}
+
+	@Test
+	public void concurrentManualSwitchIsRejected() throws Exception {
+		when(masterTenantRepo.updateOnStandby("tenant_1", true, 0)).thenReturn(0);
+		try {
+			monitor.switchNow("tenant_1", true);
+			fail("Switch should have been rejected");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		assertTrue(followed.isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unknownTenantCannotBeSwitched() throws Exception {
+		monitor.switchNow("tenant_9", true);
+	}
+
+	@Test
+	public void onlyActiveDedicatedTenantsWithAStandbyAreChecked() throws Exception {
+		MasterTenant shared = tenant("tenant_2");
+		shared.setShared(true);
+		MasterTenant suspended = tenant("tenant_3");
+		suspended.setStatus(TenantStatus.SUSPENDED);
+		MasterTenant withoutStandby = tenant("tenant_4");
+		withoutStandby.setStandbyUrl(null);
+		when(masterTenantRepo.findAll()).thenReturn(Arrays.asList(tenant, shared, suspended, withoutStandby));
+
+		check(1);
+
+		List<TenantFailoverStatus> statuses = monitor.getStatuses();
+		assertEquals(1, statuses.size());
+		assertEquals("tenant_1", statuses.get(0).getTenantId());
+	}
+
+	@Test
+	public void nothingIsCheckedWhenDisabled() {
+		properties.setEnabled(false);
+		check(1);
+		verify(masterTenantRepo, never()).findAll();
+	}
+
+	private void check(int times) {
+		for (int i = 0; i < times; i++) {
+			monitor.checkPrimaries();
+		}
+	}
+
+	private TenantFailoverStatus status() {
+		List<TenantFailoverStatus> statuses = monitor.getStatuses();
+		assertEquals(1, statuses.size());
+		return statuses.get(0);
+	}
+
+	private MasterTenant tenant(String tenantId) {
+		MasterTenant masterTenant = new MasterTenant();
+		masterTenant.setTenantId(tenantId);
+		masterTenant.setUrl(DOWN);
+		masterTenant.setUsername("sa");
+		masterTenant.setStandbyUrl(tenant.getStandbyUrl());
+		masterTenant.setStatus(TenantStatus.ACTIVE);
+		return masterTenant;
+	}
+}
@@ -0,0 +1,108 @@
+package com.sunitkatkar.blogspot.tenant.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.HdrHistogram.Recorder;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.sunitkatkar.blogspot.tenant.model.LatencySnapshot;
+
+public class TenantLatencyRecorderTests {
+
+	private LatencyConfigProperties properties;
+
+	private TenantLatencyRecorder recorder;
+
+	@Before
+	public void setUp() {
+		properties = new LatencyConfigProperties();
+		properties.setHighestTrackableMillis(60000);
+		properties.setSignificantDigits(2);
+		properties.setWindowIntervals(1);
+		properties.setMaxTrackedKeys(2);
+		recorder = new TenantLatencyRecorder(properties);
+	}
+
+	@Test
+	public void percentilesAreOfTheLastWindow() {
+		for (int i = 1; i <= 100; i++) {
+			recorder.record("tenant_1", "/users", millis(i));
+		}
+		// Not moved into the window before the snapshot
+		assertTrue(recorder.getPercentiles("tenant_1").isEmpty());
+
+		recorder.snapshot();
+		LatencySnapshot snapshot = recorder.getPercentiles("tenant_1").get(0);
+		assertEquals("/users", snapshot.getEndpoint());
+		assertEquals(100, snapshot.getCount());
+		assertEquals(50, snapshot.getP50(), 1);
+		assertEquals(99, snapshot.getP99(), 1);
+		assertEquals(100, snapshot.getMax(), 1);
+	}
+
+	@Test
+	public void keysBeyondTheLimitAreCountedAsOther() {
+		recorder.record("tenant_1", "/a", millis(1));
+		recorder.record("tenant_2", "/b", millis(1));
+		recorder.record("tenant_3", "/c", millis(1));
+		recorder.snapshot();
+
+		assertEquals(Arrays.asList("/a", "/b", TenantLatencyRecorder.OTHER), endpoints(null));
+		assertTrue(recorder.getPercentiles("tenant_3").isEmpty());
+		assertEquals(1, recorder.getPercentiles(TenantLatencyRecorder.OTHER).get(0).getCount());
+	}
+
+	@Test
+	public void idleHistogramsAreReusedOneIntervalLater() {
+		recorder.record("tenant_1", "/a", millis(5));
+		recorder.snapshot();
+		Object dropped = histograms("tenant_1", "/a");
+
+		// A window without requests, so the histograms are dropped
+		recorder.snapshot();
+		assertTrue(recorder.getPercentiles("tenant_1").isEmpty());
+
+		// A request which looked them up just before still records into them
+		((Recorder) ReflectionTestUtils.getField(dropped, "recorder")).recordValue(millis(7) / 1000);
+
+		// Not reused until the next snapshot
+		recorder.record("tenant_2", "/b", millis(1));
+		assertNotSame(dropped, histograms("tenant_2", "/b"));
+		recorder.snapshot();
+
+		recorder.record("tenant_3", "/c", millis(1));
+		assertSame(dropped, histograms("tenant_3", "/c"));
+		recorder.snapshot();
+		// Without the late value of tenant_1
+		List<LatencySnapshot> snapshots = recorder.getPercentiles("tenant_3");
+		assertEquals(1, snapshots.get(0).getCount());
+		assertEquals(1, snapshots.get(0).getMax(), 0.1);
+	}
+
+	private Object histograms(String tenantId, String endpoint) {
+		@SuppressWarnings("unchecked")
+		Map<String, Map<String, Object>> histograms = (Map<String, Map<String, Object>>) ReflectionTestUtils
+				.getField(recorder, "histograms");
+		return histograms.get(tenantId).get(endpoint);
+	}
+
+	private List<String> endpoints(String tenantId) {
+		return recorder.getPercentiles(tenantId).stream().map(LatencySnapshot::getEndpoint)
+				.collect(Collectors.toList());
+	}
+
+	private static long millis(long millis) {
+		return TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+}
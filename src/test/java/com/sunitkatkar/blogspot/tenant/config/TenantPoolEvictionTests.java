@@ -0,0 +1,117 @@
+package com.sunitkatkar.blogspot.tenant.config;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Evicts pools of in-memory H2 databases from the connection provider
+ */
+public class TenantPoolEvictionTests {
+
+	private DataSourceBasedMultiTenantConnectionProviderImpl connectionProvider;
+
+	private HikariDataSource pool1;
+
+	private HikariDataSource pool2;
+
+	@Before
+	public void setUp() {
+		connectionProvider = new DataSourceBasedMultiTenantConnectionProviderImpl();
+		pool1 = pool("tenant_1");
+		pool2 = pool("tenant_2");
+		@SuppressWarnings("unchecked")
+		Map<String, DataSource> dataSources = (Map<String, DataSource>) ReflectionTestUtils
+				.getField(connectionProvider, "dataSourcesMtApp");
+		dataSources.put("tenant_1", pool1);
+		dataSources.put("tenant_2", pool2);
+	}
+
+	@After
+	public void tearDown() {
+		pool1.close();
+		pool2.close();
+	}
+
+	@Test
+	public void poolIsClosedOnceTheConnectionIsReturned() throws Exception {
+		Connection connection = pool1.getConnection();
+		CompletableFuture<Boolean> evicted = CompletableFuture
+				.supplyAsync(() -> connectionProvider.evictTenant("tenant_1", 5000));
+		Thread.sleep(200);
+		assertFalse("Pool was closed with a connection in use", evicted.isDone());
+		assertFalse(connection.isClosed());
+
+		connection.close();
+		assertTrue(evicted.get(5, TimeUnit.SECONDS));
+		assertTrue(pool1.isClosed());
+		assertFalse(connectionProvider.evictTenant("tenant_1", 0));
+	}
+
+	@Test
+	public void connectionIsAbandonedAfterTheDrainTimeout() throws Exception {
+		Connection connection = pool1.getConnection();
+		long start = System.nanoTime();
+		assertTrue(connectionProvider.evictTenant("tenant_1", 100));
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 100);
+		assertTrue(pool1.isClosed());
+		connection.close();
+	}
+
+	@Test
+	public void otherTenantsAreNotHeldUpByADrain() throws Exception {
+		Connection connection = pool1.getConnection();
+		CompletableFuture<Boolean> evicted = CompletableFuture
+				.supplyAsync(() -> connectionProvider.evictTenant("tenant_1", 5000));
+		Thread.sleep(100);
+
+		// Needs the lock of the provider, which the drain must not hold
+		CompletableFuture<Boolean> other = CompletableFuture
+				.supplyAsync(() -> connectionProvider.evictTenant("tenant_2", 0));
+		assertTrue(other.get(1, TimeUnit.SECONDS));
+		assertTrue(pool2.isClosed());
+		assertFalse(evicted.isDone());
+
+		connection.close();
+		assertTrue(evicted.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void replacedPoolIsRetiredInTheBackground() throws Exception {
+		HikariDataSource replaced = pool("tenant_1_replaced");
+		Connection connection = replaced.getConnection();
+		connectionProvider.retirePool("tenant_1", replaced, 5000);
+		Thread.sleep(200);
+		assertFalse("Pool was closed with a connection in use", replaced.isClosed());
+		assertFalse(connection.isClosed());
+
+		connection.close();
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!replaced.isClosed() && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		assertTrue(replaced.isClosed());
+	}
+
+	private static HikariDataSource pool(String tenantId) {
+		HikariDataSource dataSource = new HikariDataSource();
+		dataSource.setJdbcUrl("jdbc:h2:mem:eviction_" + tenantId + ";DB_CLOSE_DELAY=-1");
+		dataSource.setUsername("sa");
+		dataSource.setMaximumPoolSize(2);
+		dataSource.setPoolName(tenantId + "-connection-pool");
+		return dataSource;
+	}
+}
@@ -0,0 +1,165 @@
+package com.sunitkatkar.blogspot.tenant.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sunitkatkar.blogspot.master.repository.MasterTenantRepository;
+
+public class TenantRateLimiterTests {
+
+	private RateLimitConfigProperties properties;
+
+	private MasterTenantRepository masterTenantRepo;
+
+	private TenantDbQuota tenantDbQuota;
+
+	private TenantRateLimiter limiter;
+
+	@Before
+	public void setUp() {
+		properties = new RateLimitConfigProperties();
+		Map<String, Integer> plans = new HashMap<>();
+		plans.put("free", 10);
+		plans.put("pro", 100);
+		properties.setPlans(plans);
+		properties.setDefaultPlan("free");
+		properties.setBurstSeconds(1);
+		masterTenantRepo = mock(MasterTenantRepository.class);
+		tenantDbQuota = mock(TenantDbQuota.class);
+		limiter = new TenantRateLimiter(properties, masterTenantRepo, tenantDbQuota);
+	}
+
+	@Test
+	public void burstIsAllowedThenRequestsWait() {
+		int allowed = acquireAll("tenant_1", 30);
+		// A slow machine may earn one more token while the loop runs
+		assertTrue("allowed " + allowed, allowed >= 10 && allowed <= 11);
+
+		long wait = limiter.tryAcquire("tenant_1", true);
+		assertTrue(wait > 0);
+		assertTrue(wait <= TimeUnit.MILLISECONDS.toNanos(100));
+	}
+
+	@Test
+	public void tokensAreEarnedBackOverTime() throws InterruptedException {
+		acquireAll("tenant_1", 30);
+		long start = System.nanoTime();
+		Thread.sleep(250);
+		int allowed = acquireAll("tenant_1", 30);
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		// A token every 100ms
+		assertTrue("allowed " + allowed, allowed >= 2 && allowed <= elapsedMillis / 100 + 1);
+	}
+
+	@Test
+	public void concurrentCallersNeverSpendATokenTwice() throws Exception {
+		reload(row("tenant_1", "pro", null));
+		int threads = 8;
+		AtomicInteger allowed = new AtomicInteger();
+		CountDownLatch go = new CountDownLatch(1);
+		List<Thread> started = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			Thread thread = new Thread(() -> {
+				try {
+					go.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int i = 0; i < 1000; i++) {
+					if (limiter.tryAcquire("tenant_1", true) == 0) {
+						allowed.incrementAndGet();
+					}
+				}
+			});
+			thread.start();
+			started.add(thread);
+		}
+		long start = System.nanoTime();
+		go.countDown();
+		for (Thread thread : started) {
+			thread.join();
+		}
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		// One second of burst plus the tokens earned while the threads ran
+		long earned = elapsedMillis / 10 + 1;
+		assertTrue("allowed " + allowed, allowed.get() >= 100 && allowed.get() <= 100 + earned);
+	}
+
+	@Test
+	public void limitsComeFromOverrideOrPlan() {
+		reload(row("tenant_1", "pro", null), row("tenant_2", "pro", 5), row("tenant_3", null, null));
+		assertEquals(100, limiter.getLimit("tenant_1"));
+		assertEquals(5, limiter.getLimit("tenant_2"));
+		assertEquals(10, limiter.getLimit("tenant_3"));
+		// Not in the master database
+		assertEquals(10, limiter.getLimit("tenant_4"));
+	}
+
+	@Test
+	public void zeroLimitIsUnlimited() {
+		reload(row("tenant_1", "pro", 0));
+		assertEquals(1000, acquireAll("tenant_1", 1000));
+		assertEquals(0, limiter.getBucketCount());
+	}
+
+	@Test
+	public void unknownTenantsShareOneBucket() {
+		for (int i = 0; i < 100; i++) {
+			limiter.tryAcquire("made_up_" + i, false);
+		}
+		assertEquals(1, limiter.getBucketCount());
+	}
+
+	@Test
+	public void fullBucketsAreDroppedOnReload() throws InterruptedException {
+		reload(row("tenant_1", "pro", 1000));
+		limiter.tryAcquire("tenant_1", true);
+		assertEquals(1, limiter.getBucketCount());
+		Thread.sleep(10);
+		limiter.reload();
+		assertEquals(0, limiter.getBucketCount());
+	}
+
+	@Test
+	public void tenantOverQuotaIsThrottled() {
+		reload(row("tenant_1", "pro", null));
+		when(tenantDbQuota.isOverQuota(anyString())).thenReturn(true);
+		when(tenantDbQuota.getThrottleFactor()).thenReturn(0.1);
+		int allowed = acquireAll("tenant_1", 100);
+		assertTrue("allowed " + allowed, allowed >= 10 && allowed <= 11);
+	}
+
+	private int acquireAll(String tenantId, int attempts) {
+		int allowed = 0;
+		for (int i = 0; i < attempts; i++) {
+			if (limiter.tryAcquire(tenantId, true) == 0) {
+				allowed++;
+			}
+		}
+		return allowed;
+	}
+
+	private void reload(Object[]... rows) {
+		when(masterTenantRepo.findRateLimits()).thenReturn(Arrays.asList(rows));
+		limiter.reload();
+	}
+
+	private static Object[] row(String tenantId, String plan, Integer rateLimit) {
+		return new Object[] { tenantId, plan, rateLimit };
+	}
+}
@@ -0,0 +1,205 @@
+package com.sunitkatkar.blogspot.tenant.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sunitkatkar.blogspot.util.Span;
+import com.sunitkatkar.blogspot.util.Tracer;
+
+public class TraceExporterTests {
+
+	private File file;
+
+	private TracingConfigProperties properties;
+
+	private TraceExporter exporter;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("traces", ".json");
+		properties = new TracingConfigProperties();
+		properties.setExporter("file");
+		properties.setFile(file.getPath());
+		properties.setSampleRate(1);
+		properties.setMaxTracesPerSecond(5);
+		properties.setMaxSpansPerTrace(3);
+		properties.setExportQueueSize(16);
+		properties.setServiceName("test");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (exporter != null) {
+			exporter.stop();
+		}
+		Tracer.install(null);
+		file.delete();
+	}
+
+	@Test
+	public void budgetCapsTracesPerSecond() throws IOException {
+		start(new ObjectMapper());
+		int sampled;
+		long second;
+		// Retried when the loop happens to cross into the next second
+		do {
+			waitForNextSecond();
+			second = System.currentTimeMillis() / 1000;
+			sampled = 0;
+			for (int i = 0; i < 20; i++) {
+				if (exporter.sample()) {
+					sampled++;
+				}
+			}
+		} while (System.currentTimeMillis() / 1000 != second);
+		assertEquals(5, sampled);
+	}
+
+	@Test
+	public void concurrentRequestsShareTheBudget() throws Exception {
+		start(new ObjectMapper());
+		int threads = 8;
+		AtomicInteger sampled = new AtomicInteger();
+		long second;
+		do {
+			waitForNextSecond();
+			second = System.currentTimeMillis() / 1000;
+			sampled.set(0);
+			CountDownLatch go = new CountDownLatch(1);
+			List<Thread> started = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				Thread thread = new Thread(() -> {
+					try {
+						go.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					for (int i = 0; i < 100; i++) {
+						if (exporter.sample()) {
+							sampled.incrementAndGet();
+						}
+					}
+				});
+				thread.start();
+				started.add(thread);
+			}
+			go.countDown();
+			for (Thread thread : started) {
+				thread.join();
+			}
+		} while (System.currentTimeMillis() / 1000 != second);
+		assertEquals(5, sampled.get());
+	}
+
+	@Test
+	public void zeroSampleRateNeverSamples() throws IOException {
+		properties.setSampleRate(0);
+		start(new ObjectMapper());
+		for (int i = 0; i < 100; i++) {
+			assertFalse(exporter.sample());
+		}
+	}
+
+	@Test
+	public void spansBeyondTheLimitAreCountedNotKept() throws Exception {
+		start(new ObjectMapper());
+		waitForNextSecond();
+		Span root = Tracer.startTrace("GET /users");
+		assertTrue(root.isRecording());
+		for (int i = 0; i < 5; i++) {
+			Tracer.startSpan("query " + i).close();
+		}
+		root.close();
+		exporter.stop();
+		exporter = null;
+
+		List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+		assertEquals(1, lines.size());
+		JsonNode resourceSpans = new ObjectMapper().readTree(lines.get(0)).get("resourceSpans").get(0);
+		assertEquals(3, resourceSpans.get("scopeSpans").get(0).get("spans").size());
+		String dropped = null;
+		for (JsonNode attribute : resourceSpans.get("resource").get("attributes")) {
+			if ("trace.dropped_spans".equals(attribute.get("key").asText())) {
+				dropped = attribute.get("value").get("stringValue").asText();
+			}
+		}
+		assertEquals("3", dropped);
+	}
+
+	@Test
+	public void fullQueueDropsTracesWithoutBlocking() throws Exception {
+		properties.setExportQueueSize(1);
+		properties.setMaxTracesPerSecond(100);
+		CountDownLatch writing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		start(new ObjectMapper() {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public byte[] writeValueAsBytes(Object value) throws JsonProcessingException {
+				writing.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return super.writeValueAsBytes(value);
+			}
+		});
+		waitForNextSecond();
+
+		// The first trace holds the export thread, the second waits in the
+		// queue and the others are dropped
+		Tracer.startTrace("GET /1").close();
+		assertTrue(writing.await(5, TimeUnit.SECONDS));
+		for (int i = 2; i <= 5; i++) {
+			Tracer.startTrace("GET /" + i).close();
+		}
+		AtomicLong dropped = (AtomicLong) ReflectionTestUtils.getField(exporter, "droppedTraces");
+		assertEquals(3, dropped.get());
+
+		release.countDown();
+		exporter.stop();
+		exporter = null;
+		assertEquals(2, Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).size());
+	}
+
+	private void start(ObjectMapper objectMapper) throws IOException {
+		exporter = new TraceExporter();
+		ReflectionTestUtils.setField(exporter, "tracingProperties", properties);
+		ReflectionTestUtils.setField(exporter, "objectMapper", objectMapper);
+		exporter.start();
+	}
+
+	/**
+	 * Starts the test at the beginning of a second, so that it is not split
+	 * across two budgets
+	 */
+	private static void waitForNextSecond() {
+		long second = System.currentTimeMillis() / 1000;
+		while (System.currentTimeMillis() / 1000 == second) {
+			Thread.yield();
+		}
+	}
+}
@@ -0,0 +1,197 @@
+package com.sunitkatkar.blogspot.tenant.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.sunitkatkar.blogspot.master.model.MasterTenant;
+import com.sunitkatkar.blogspot.master.model.TenantStatus;
+import com.sunitkatkar.blogspot.master.repository.MasterTenantRepository;
+import com.sunitkatkar.blogspot.tenant.config.TenantFanOutConfigProperties;
+import com.sunitkatkar.blogspot.tenant.model.TenantResult;
+import com.sunitkatkar.blogspot.util.StatementDeadlineHolder;
+import com.sunitkatkar.blogspot.util.TenantContextHolder;
+
+/**
+ * Fans out over tenants of a mocked master repository, tenant_1 to tenant_6 on
+ * the server db1 and tenant_7 to tenant_12 on the server db2.
+ */
+public class TenantFanOutServiceImplTests {
+
+	private TenantFanOutConfigProperties properties;
+
+	private TenantFanOutServiceImpl service;
+
+	private final Map<String, String> servers = new HashMap<>();
+
+	@Before
+	public void setUp() {
+		List<MasterTenant> tenants = new ArrayList<>();
+		for (int i = 1; i <= 12; i++) {
+			String server = i <= 6 ? "db1" : "db2";
+			MasterTenant tenant = new MasterTenant();
+			tenant.setTenantId("tenant_" + i);
+			tenant.setUrl("jdbc:mysql://" + server + ":3306/tenant_" + i);
+			tenant.setStatus(TenantStatus.ACTIVE);
+			tenants.add(tenant);
+			servers.put("tenant_" + i, server);
+		}
+		MasterTenantRepository masterTenantRepo = mock(MasterTenantRepository.class);
+		when(masterTenantRepo.findAll()).thenReturn(tenants);
+
+		properties = new TenantFanOutConfigProperties();
+		properties.setThreadPoolSize(8);
+		properties.setMaxConcurrencyPerServer(2);
+		service = new TenantFanOutServiceImpl();
+		ReflectionTestUtils.setField(service, "fanOutProperties", properties);
+		ReflectionTestUtils.setField(service, "masterTenantRepo", masterTenantRepo);
+		service.init();
+	}
+
+	@After
+	public void tearDown() {
+		service.shutdown();
+	}
+
+	@Test
+	public void concurrencyIsCappedPerServer() {
+		Map<String, AtomicInteger> running = new ConcurrentHashMap<>();
+		Map<String, AtomicInteger> maxRunning = new ConcurrentHashMap<>();
+		for (String server : Arrays.asList("db1", "db2")) {
+			running.put(server, new AtomicInteger());
+			maxRunning.put(server, new AtomicInteger());
+		}
+
+		List<TenantResult<String>> results = service.executeAll(service.findAllTenantIds(), tenantId -> {
+			String server = servers.get(tenantId);
+			int now = running.get(server).incrementAndGet();
+			maxRunning.get(server).accumulateAndGet(now, Math::max);
+			Thread.sleep(50);
+			running.get(server).decrementAndGet();
+			return TenantContextHolder.getTenant();
+		}, 5000);
+
+		assertEquals(12, results.size());
+		for (TenantResult<String> result : results) {
+			assertTrue(result.isSuccess());
+			assertEquals(result.getTenantId(), result.getValue());
+		}
+		assertEquals(2, maxRunning.get("db1").get());
+		assertEquals(2, maxRunning.get("db2").get());
+	}
+
+	@Test
+	public void slowTenantIsTimedOut() {
+		long start = System.nanoTime();
+		List<TenantResult<Integer>> results = service.executeAll(Arrays.asList("tenant_1", "tenant_2"),
+				tenantId -> {
+					// The statements of the tenant end by its timeout
+					int remaining = StatementDeadlineHolder.getRemainingSeconds();
+					if (tenantId.equals("tenant_2")) {
+						Thread.sleep(5000);
+					}
+					return remaining;
+				}, 100);
+
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+		assertEquals(2, results.size());
+		TenantResult<Integer> fast = results.get(0);
+		assertEquals("tenant_1", fast.getTenantId());
+		assertTrue(fast.isSuccess());
+		assertEquals(Integer.valueOf(1), fast.getValue());
+		TenantResult<Integer> slow = results.get(1);
+		assertEquals("tenant_2", slow.getTenantId());
+		assertTrue(slow.isTimedOut());
+		assertFalse(StatementDeadlineHolder.isSet());
+	}
+
+	@Test
+	public void eachTenantHasExactlyOneResult() throws Exception {
+		List<TenantResult<String>> results = new ArrayList<>();
+		CountDownLatch stubbornReturned = new CountDownLatch(1);
+		service.execute(Arrays.asList("tenant_1", "tenant_7", "tenant_1", "tenant_99", "tenant_8"), tenantId -> {
+			if (tenantId.equals("tenant_7")) {
+				// Ignores the interrupt and returns after its timeout
+				busyWait(300);
+				stubbornReturned.countDown();
+			}
+			return tenantId;
+		}, 100, results::add);
+
+		assertEquals(4, results.size());
+		Map<String, TenantResult<String>> byTenant = new HashMap<>();
+		for (TenantResult<String> result : results) {
+			assertEquals(null, byTenant.put(result.getTenantId(), result));
+		}
+		assertTrue(byTenant.get("tenant_1").isSuccess());
+		assertTrue(byTenant.get("tenant_7").isTimedOut());
+		assertTrue(byTenant.get("tenant_8").isSuccess());
+		assertTrue(byTenant.get("tenant_99").getError() instanceof IllegalArgumentException);
+
+		// The late result of the stubborn tenant is not handed out
+		assertTrue(stubbornReturned.await(5, TimeUnit.SECONDS));
+		Thread.sleep(50);
+		assertEquals(4, results.size());
+	}
+
+	@Test
+	public void stuckLanesAreGivenUp() throws Exception {
+		properties.setMaxConcurrencyPerServer(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger started = new AtomicInteger();
+		try {
+			long start = System.nanoTime();
+			List<TenantResult<String>> results = service.executeAll(Arrays.asList("tenant_1", "tenant_2"),
+					tenantId -> {
+						started.incrementAndGet();
+						// Neither returns nor reacts to the interrupt
+						while (release.getCount() > 0) {
+							try {
+								release.await();
+							} catch (InterruptedException e) {
+								// ignored
+							}
+						}
+						return tenantId;
+					}, 100);
+
+			// Two rounds on the single lane of db1 plus one
+			long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			assertTrue(elapsed >= 300 && elapsed < 2000);
+			assertEquals(2, results.size());
+			assertEquals("tenant_1", results.get(0).getTenantId());
+			assertTrue(results.get(0).isTimedOut());
+			assertEquals("tenant_2", results.get(1).getTenantId());
+			assertTrue(results.get(1).isTimedOut());
+		} finally {
+			release.countDown();
+		}
+		// The lane stopped picking up tenants
+		Thread.sleep(50);
+		assertEquals(1, started.get());
+	}
+
+	private static void busyWait(long millis) {
+		long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+		while (System.nanoTime() < end) {
+			Thread.interrupted();
+		}
+	}
+}
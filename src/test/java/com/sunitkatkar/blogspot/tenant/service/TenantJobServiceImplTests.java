@@ -0,0 +1,307 @@
+package com.sunitkatkar.blogspot.tenant.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.sunitkatkar.blogspot.master.model.MasterJobRun;
+import com.sunitkatkar.blogspot.master.model.MasterTenant;
+import com.sunitkatkar.blogspot.master.model.MasterTenantJob;
+import com.sunitkatkar.blogspot.master.model.TenantStatus;
+import com.sunitkatkar.blogspot.master.repository.MasterJobRunRepository;
+import com.sunitkatkar.blogspot.master.repository.MasterTenantJobRepository;
+import com.sunitkatkar.blogspot.master.repository.MasterTenantRepository;
+import com.sunitkatkar.blogspot.tenant.config.ShutdownConfigProperties;
+import com.sunitkatkar.blogspot.tenant.config.TenantJobConfigProperties;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Runs the scheduler against mocked master repositories. The named lock of
+ * MySQL is stood in for by a mocked master connection.
+ */
+public class TenantJobServiceImplTests {
+
+	private static final String JOB = "test_job";
+
+	private TenantJobConfigProperties properties;
+
+	private MasterTenantRepository masterTenantRepo;
+
+	private MasterJobRunRepository jobRunRepo;
+
+	private MasterTenantJobRepository tenantJobRepo;
+
+	private DataSource masterDataSource;
+
+	private Connection connection;
+
+	private ResultSet lockResult;
+
+	private TenantJobServiceImpl service;
+
+	/**
+	 * Tenants the job ran on, in order
+	 */
+	private final Queue<String> ranOn = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Counted down when a run is saved as completed
+	 */
+	private final CountDownLatch completed = new CountDownLatch(1);
+
+	private volatile MasterJobRun completedRun;
+
+	@Before
+	public void setUp() throws Exception {
+		properties = new TenantJobConfigProperties();
+		properties.setEnabled(true);
+		properties.setMaxConcurrency(1);
+		properties.setMaxConcurrencyPerServer(1);
+		properties.setDefaultInterval(TimeUnit.HOURS.toMillis(1));
+		ShutdownConfigProperties shutdownProperties = new ShutdownConfigProperties();
+		shutdownProperties.setDrainTimeout(5000);
+
+		masterTenantRepo = mock(MasterTenantRepository.class);
+		when(masterTenantRepo.findAll()).thenReturn(Arrays.asList(tenant("tenant_1", TenantStatus.ACTIVE),
+				tenant("tenant_2", TenantStatus.ACTIVE), tenant("tenant_3", TenantStatus.ACTIVE),
+				tenant("tenant_4", TenantStatus.SUSPENDED)));
+		jobRunRepo = mock(MasterJobRunRepository.class);
+		when(jobRunRepo.save(any(MasterJobRun.class))).thenAnswer(invocation -> {
+			MasterJobRun run = invocation.getArgument(0);
+			if (run.getCompletedAt() != null) {
+				completedRun = run;
+				completed.countDown();
+			}
+			return run;
+		});
+		tenantJobRepo = mock(MasterTenantJobRepository.class);
+
+		lockResult = mock(ResultSet.class);
+		when(lockResult.next()).thenReturn(true);
+		when(lockResult.getInt(1)).thenReturn(1);
+		PreparedStatement statement = mock(PreparedStatement.class);
+		when(statement.executeQuery()).thenReturn(lockResult);
+		connection = mock(Connection.class);
+		when(connection.prepareStatement(anyString())).thenReturn(statement);
+		masterDataSource = mock(DataSource.class);
+		when(masterDataSource.getConnection()).thenReturn(connection);
+
+		service = new TenantJobServiceImpl();
+		ReflectionTestUtils.setField(service, "jobProperties", properties);
+		ReflectionTestUtils.setField(service, "shutdownProperties", shutdownProperties);
+		ReflectionTestUtils.setField(service, "masterTenantRepo", masterTenantRepo);
+		ReflectionTestUtils.setField(service, "jobRunRepo", jobRunRepo);
+		ReflectionTestUtils.setField(service, "tenantJobRepo", tenantJobRepo);
+		ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(service, "masterDataSource", masterDataSource);
+	}
+
+	@After
+	public void tearDown() {
+		service.stop();
+	}
+
+	@Test
+	public void completedRunIsFollowedByANewRun() throws Exception {
+		start(tenantId -> {
+		});
+		when(jobRunRepo.findByJobName(JOB)).thenReturn(run(3, new Date()));
+
+		service.runNow(JOB);
+		MasterJobRun run = awaitCompleted();
+
+		assertEquals(4, run.getRunNumber());
+		assertEquals(3, run.getTenantCount());
+		assertEquals(Arrays.asList("tenant_1", "tenant_2", "tenant_3"), sorted(ranOn));
+		for (String tenantId : ranOn) {
+			verify(tenantJobRepo).saveCheckpoint(eq(JOB), eq(tenantId), eq(4L), eq(MasterTenantJob.SUCCESS),
+					anyLong(), isNull());
+		}
+	}
+
+	@Test
+	public void unfinishedRunIsResumedWithoutTheCheckpointedTenants() throws Exception {
+		start(tenantId -> {
+		});
+		when(jobRunRepo.findByJobName(JOB)).thenReturn(run(3, null));
+		when(tenantJobRepo.findTenantIdsOfRun(JOB, 3)).thenReturn(Collections.singletonList("tenant_1"));
+
+		service.runNow(JOB);
+		MasterJobRun run = awaitCompleted();
+
+		assertEquals(3, run.getRunNumber());
+		assertEquals(Arrays.asList("tenant_2", "tenant_3"), sorted(ranOn));
+		// The tenant of the interrupted part counts for the run
+		assertEquals(3, run.getTenantCount());
+		verify(tenantJobRepo, never()).saveCheckpoint(eq(JOB), eq("tenant_1"), anyLong(), anyString(), anyLong(),
+				any());
+	}
+
+	@Test
+	public void failureOnATenantIsCheckpointedAndTheRunGoesOn() throws Exception {
+		start(tenantId -> {
+			if ("tenant_2".equals(tenantId)) {
+				throw new IllegalStateException("table missing");
+			}
+		});
+		when(tenantJobRepo.countFailedOfRun(JOB, 1)).thenReturn(1L);
+
+		service.runNow(JOB);
+		MasterJobRun run = awaitCompleted();
+
+		assertEquals(3, ranOn.size());
+		assertEquals(1, run.getFailedCount());
+		verify(tenantJobRepo).saveCheckpoint(eq(JOB), eq("tenant_2"), eq(1L), eq(MasterTenantJob.FAILED), anyLong(),
+				startsWith(IllegalStateException.class.getName()));
+	}
+
+	@Test
+	public void shutdownLeavesTheRemainingTenantsToTheResumedRun() throws Exception {
+		CountDownLatch working = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		start(tenantId -> {
+			working.countDown();
+			release.await();
+		});
+
+		service.runNow(JOB);
+		assertTrue(working.await(5, TimeUnit.SECONDS));
+		Thread stopping = new Thread(service::stop);
+		stopping.start();
+		// The tenant in progress gets the drain timeout to finish
+		while (service.isRunning()) {
+			Thread.sleep(5);
+		}
+		release.countDown();
+		stopping.join();
+
+		assertEquals(1, ranOn.size());
+		verify(tenantJobRepo).saveCheckpoint(eq(JOB), eq(ranOn.peek()), eq(1L), eq(MasterTenantJob.SUCCESS),
+				anyLong(), isNull());
+		verify(tenantJobRepo, after(200).times(1)).saveCheckpoint(anyString(), anyString(), anyLong(), anyString(),
+				anyLong(), any());
+		assertEquals(1, completed.getCount());
+	}
+
+	@Test
+	public void runIsLeftToTheNodeHoldingTheLock() throws Exception {
+		start(tenantId -> {
+		});
+		when(lockResult.getInt(1)).thenReturn(0);
+
+		service.runNow(JOB);
+
+		verify(connection, timeout(5000)).close();
+		verify(jobRunRepo, never()).findByJobName(JOB);
+		assertTrue(ranOn.isEmpty());
+	}
+
+	@Test
+	public void unfinishedRunIsDueWhateverTheInterval() throws Exception {
+		start(tenantId -> {
+		});
+		properties.setIntervals(Collections.singletonMap(JOB, 0L));
+		when(jobRunRepo.findByJobName(JOB)).thenReturn(run(3, null));
+
+		service.runDueJobs();
+
+		assertEquals(3, awaitCompleted().getRunNumber());
+	}
+
+	@Test
+	public void recentRunIsNotDue() throws Exception {
+		start(tenantId -> {
+		});
+		when(jobRunRepo.findByJobName(JOB)).thenReturn(run(3, new Date()));
+
+		service.runDueJobs();
+
+		verify(masterDataSource, after(200).never()).getConnection();
+	}
+
+	private void start(Work work) {
+		TenantJob job = new TenantJob() {
+
+			@Override
+			public String getName() {
+				return JOB;
+			}
+
+			@Override
+			public void run(String tenantId) throws Exception {
+				ranOn.add(tenantId);
+				work.run(tenantId);
+			}
+		};
+		ReflectionTestUtils.setField(service, "tenantJobs", Collections.singletonList(job));
+		service.start();
+	}
+
+	private MasterJobRun awaitCompleted() throws InterruptedException {
+		assertTrue("Run did not complete", completed.await(5, TimeUnit.SECONDS));
+		return completedRun;
+	}
+
+	private static List<String> sorted(Queue<String> tenantIds) {
+		List<String> sorted = new ArrayList<>(tenantIds);
+		Collections.sort(sorted);
+		return sorted;
+	}
+
+	private static MasterJobRun run(long runNumber, Date completedAt) {
+		MasterJobRun run = new MasterJobRun();
+		run.setJobName(JOB);
+		run.setRunNumber(runNumber);
+		run.setStartedAt(new Date());
+		run.setCompletedAt(completedAt);
+		return run;
+	}
+
+	/**
+	 * What the job does on a tenant
+	 */
+	private interface Work {
+
+		void run(String tenantId) throws Exception;
+	}
+
+	private static MasterTenant tenant(String tenantId, TenantStatus status) {
+		MasterTenant tenant = new MasterTenant();
+		tenant.setTenantId(tenantId);
+		tenant.setUrl("jdbc:mysql://db1:3306/" + tenantId);
+		tenant.setStatus(status);
+		return tenant;
+	}
+}
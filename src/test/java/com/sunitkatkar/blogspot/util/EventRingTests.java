@@ -0,0 +1,85 @@
+package com.sunitkatkar.blogspot.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class EventRingTests {
+
+	@Test
+	public void capacityIsRoundedUpToPowerOfTwo() {
+		assertEquals(8, new EventRing<Integer>(5).capacity());
+		assertEquals(8, new EventRing<Integer>(8).capacity());
+	}
+
+	@Test
+	public void fullRingRejectsAndEmptyRingReturnsNull() {
+		EventRing<Integer> ring = new EventRing<>(4);
+		for (int i = 0; i < 4; i++) {
+			assertTrue(ring.offer(i));
+		}
+		assertFalse(ring.offer(4));
+		assertEquals(4, ring.size());
+		for (int i = 0; i < 4; i++) {
+			assertEquals(Integer.valueOf(i), ring.poll());
+		}
+		assertNull(ring.poll());
+		assertEquals(0, ring.size());
+		// The slots are reused on the next lap
+		assertTrue(ring.offer(5));
+		assertEquals(Integer.valueOf(5), ring.poll());
+	}
+
+	@Test
+	public void concurrentProducersLoseNothing() throws Exception {
+		int producers = 4;
+		int perProducer = 100000;
+		EventRing<Integer> ring = new EventRing<>(1024);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> threads = new ArrayList<>();
+		for (int p = 0; p < producers; p++) {
+			int base = p * perProducer;
+			Thread thread = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int i = 0; i < perProducer; i++) {
+					while (!ring.offer(base + i)) {
+						Thread.yield();
+					}
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		BitSet seen = new BitSet(producers * perProducer);
+		AtomicInteger received = new AtomicInteger();
+		start.countDown();
+		while (received.get() < producers * perProducer) {
+			Integer value = ring.poll();
+			if (value == null) {
+				Thread.yield();
+				continue;
+			}
+			assertFalse("duplicate " + value, seen.get(value));
+			seen.set(value);
+			received.incrementAndGet();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(producers * perProducer, seen.cardinality());
+		assertNull(ring.poll());
+	}
+}
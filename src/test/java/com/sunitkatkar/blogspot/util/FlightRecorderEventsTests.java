@@ -0,0 +1,241 @@
+package com.sunitkatkar.blogspot.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.sunitkatkar.blogspot.master.repository.MasterTenantRepository;
+import com.sunitkatkar.blogspot.security.CustomAuthenticationToken;
+import com.sunitkatkar.blogspot.security.CustomUserDetailsAuthenticationProvider;
+import com.sunitkatkar.blogspot.security.CustomUserDetailsService;
+import com.sunitkatkar.blogspot.tenant.config.DataSourceBasedMultiTenantConnectionProviderImpl;
+import com.sunitkatkar.blogspot.tenant.config.SlowQueryRecorder;
+import com.sunitkatkar.blogspot.tenant.config.TenantLifecycleStatus;
+import com.sunitkatkar.blogspot.tenant.config.TenantMigrationConfigProperties;
+import com.sunitkatkar.blogspot.tenant.model.CustomUserDetails;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Records the events of the instrumented connection provider and login
+ * provider in a flight recording. The tenant database is an in-memory H2
+ * database and the master database a mocked repository.
+ */
+public class FlightRecorderEventsTests {
+
+	private static final String EVENT_PREFIX = "com.sunitkatkar.blogspot.";
+
+	private DataSourceBasedMultiTenantConnectionProviderImpl connectionProvider;
+
+	private CustomUserDetailsService userDetailsService;
+
+	private CustomUserDetailsAuthenticationProvider authenticationProvider;
+
+	@Before
+	public void setUp() throws Exception {
+		TenantLifecycleStatus lifecycleStatus = mock(TenantLifecycleStatus.class);
+		when(lifecycleStatus.isActive(anyString())).thenReturn(true);
+		TenantMigrationConfigProperties migrationProperties = new TenantMigrationConfigProperties();
+		migrationProperties.setBlockUntilMigrated(false);
+		SlowQueryRecorder slowQueryRecorder = mock(SlowQueryRecorder.class);
+		when(slowQueryRecorder.wrap(anyString(), any(Connection.class)))
+				.thenAnswer(invocation -> invocation.getArgument(1));
+		MasterTenantRepository masterTenantRepo = mock(MasterTenantRepository.class);
+		when(masterTenantRepo.findAll()).thenReturn(Collections.emptyList());
+
+		connectionProvider = new DataSourceBasedMultiTenantConnectionProviderImpl();
+		ReflectionTestUtils.setField(connectionProvider, "tenantLifecycleStatus", lifecycleStatus);
+		ReflectionTestUtils.setField(connectionProvider, "migrationProperties", migrationProperties);
+		ReflectionTestUtils.setField(connectionProvider, "slowQueryRecorder", slowQueryRecorder);
+		ReflectionTestUtils.setField(connectionProvider, "masterTenantRepo", masterTenantRepo);
+		JdbcDataSource dataSource = new JdbcDataSource();
+		dataSource.setURL("jdbc:h2:mem:jfr_tenant_1;DB_CLOSE_DELAY=-1");
+		@SuppressWarnings("unchecked")
+		Map<String, DataSource> dataSources = (Map<String, DataSource>) ReflectionTestUtils
+				.getField(connectionProvider, "dataSourcesMtApp");
+		dataSources.put("tenant_1", dataSource);
+
+		BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder(4);
+		userDetailsService = mock(CustomUserDetailsService.class);
+		when(userDetailsService.loadUserByUsernameAndTenantname(anyString(), anyString()))
+				.thenThrow(new UsernameNotFoundException("not found"));
+		doReturn(new CustomUserDetails("alice", passwordEncoder.encode("secret"),
+				Collections.singleton(new SimpleGrantedAuthority("ROLE_USER")), "tenant_1")).when(userDetailsService)
+						.loadUserByUsernameAndTenantname("alice", "tenant_1");
+		authenticationProvider = new CustomUserDetailsAuthenticationProvider(passwordEncoder, userDetailsService,
+				null);
+		authenticationProvider.afterPropertiesSet();
+	}
+
+	@After
+	public void tearDown() {
+		TenantContextHolder.clear();
+	}
+
+	@Test
+	public void connectionIsRoutedAcquiredAndReleased() throws Exception {
+		List<RecordedEvent> events = record(() -> {
+			TenantContextHolder.setTenantId("tenant_1");
+			Connection connection = connectionProvider.getConnection("tenant_1");
+			connectionProvider.releaseConnection("tenant_1", connection);
+			TenantContextHolder.clear();
+		});
+
+		List<RecordedEvent> context = named(events, "TenantContext");
+		assertEquals(2, context.size());
+		assertEquals("set", context.get(0).getString("action"));
+		assertEquals("clear", context.get(1).getString("action"));
+		assertEquals("tenant_1", context.get(1).getString("tenantId"));
+
+		List<RecordedEvent> routing = named(events, "TenantRouting");
+		assertEquals(1, routing.size());
+		assertEquals("tenant_1", routing.get(0).getString("tenantId"));
+		assertFalse(routing.get(0).getBoolean("rescanned"));
+
+		List<RecordedEvent> connection = named(events, "TenantConnection");
+		assertEquals(2, connection.size());
+		assertConnectionEvent(connection.get(0), "acquire", true);
+		assertConnectionEvent(connection.get(1), "release", true);
+	}
+
+	@Test
+	public void unknownTenantIsRescannedAndFails() throws Exception {
+		List<RecordedEvent> events = record(() -> {
+			TenantContextHolder.setTenantId("tenant_9");
+			try {
+				connectionProvider.getConnection("tenant_9");
+				fail("Unknown tenant got a connection");
+			} catch (UsernameNotFoundException e) {
+				// expected
+			}
+		});
+
+		List<RecordedEvent> routing = named(events, "TenantRouting");
+		assertEquals(1, routing.size());
+		assertEquals("tenant_9", routing.get(0).getString("tenantId"));
+		assertTrue(routing.get(0).getBoolean("rescanned"));
+		assertFalse(routing.get(0).getBoolean("poolCreated"));
+
+		List<RecordedEvent> connection = named(events, "TenantConnection");
+		assertEquals(1, connection.size());
+		assertEquals("tenant_9", connection.get(0).getString("tenantId"));
+		assertConnectionEvent(connection.get(0), "acquire", false);
+	}
+
+	@Test
+	public void loginStepsAreRecorded() throws Exception {
+		List<RecordedEvent> events = record(() -> {
+			authenticationProvider.authenticate(new CustomAuthenticationToken("alice", "secret", "tenant_1"));
+		});
+		List<RecordedEvent> login = named(events, "Login");
+		assertEquals(2, login.size());
+		assertLoginEvent(login.get(0), "retrieveUser", true);
+		assertLoginEvent(login.get(1), "verifyPassword", true);
+
+		events = record(() -> {
+			try {
+				authenticationProvider.authenticate(new CustomAuthenticationToken("alice", "wrong", "tenant_1"));
+				fail("Wrong password was accepted");
+			} catch (BadCredentialsException e) {
+				// expected
+			}
+		});
+		login = named(events, "Login");
+		assertEquals(2, login.size());
+		assertLoginEvent(login.get(0), "retrieveUser", true);
+		assertLoginEvent(login.get(1), "verifyPassword", false);
+	}
+
+	@Test
+	public void unknownUserIsRecordedWithTheDummyPasswordCheck() throws Exception {
+		List<RecordedEvent> events = record(() -> {
+			try {
+				authenticationProvider.authenticate(new CustomAuthenticationToken("bob", "secret", "tenant_1"));
+				fail("Unknown user was accepted");
+			} catch (BadCredentialsException e) {
+				// expected, the user not found is hidden
+			}
+		});
+		List<RecordedEvent> login = named(events, "Login");
+		assertEquals(2, login.size());
+		assertLoginEvent(login.get(0), "retrieveUser", false);
+		// Takes as long as for a known user, so the timing does not tell
+		// whether the user exists
+		assertLoginEvent(login.get(1), "verifyPassword", false);
+	}
+
+	/**
+	 * Runs the action in a flight recording of the events of the application
+	 *
+	 * @return the events of the application, in the order they were committed
+	 */
+	private static List<RecordedEvent> record(Action action) throws Exception {
+		Path file = Files.createTempFile("tenant-events", ".jfr");
+		try {
+			try (Recording recording = new Recording()) {
+				recording.enable(TenantContextEvent.class);
+				recording.enable(TenantRoutingEvent.class);
+				recording.enable(TenantConnectionEvent.class);
+				recording.enable(LoginEvent.class);
+				recording.start();
+				action.run();
+				recording.stop();
+				recording.dump(file);
+			}
+			return RecordingFile.readAllEvents(file).stream()
+					.filter(e -> e.getEventType().getName().startsWith(EVENT_PREFIX))
+					.sorted((a, b) -> a.getEndTime().compareTo(b.getEndTime())).collect(Collectors.toList());
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	private static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+		return events.stream().filter(e -> e.getEventType().getName().equals(EVENT_PREFIX + name))
+				.collect(Collectors.toList());
+	}
+
+	private static void assertConnectionEvent(RecordedEvent event, String action, boolean success) {
+		assertEquals(action, event.getString("action"));
+		assertEquals(success, event.getBoolean("success"));
+	}
+
+	private static void assertLoginEvent(RecordedEvent event, String step, boolean success) {
+		assertEquals(step, event.getString("step"));
+		assertEquals("tenant_1", event.getString("tenantId"));
+		assertEquals(success, event.getBoolean("success"));
+	}
+
+	private interface Action {
+
+		void run() throws Exception;
+	}
+}
@@ -0,0 +1,78 @@
+package com.sunitkatkar.blogspot.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class JobExecutorTests {
+
+	private final JobExecutor executor = new JobExecutor("test-job");
+
+	@After
+	public void tearDown() {
+		executor.shutdown();
+	}
+
+	@Test
+	public void runIsSkippedWhileThePreviousOneIsInProgress() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger runs = new AtomicInteger();
+		assertTrue(executor.submit(() -> {
+			runs.incrementAndGet();
+			started.countDown();
+			await(release);
+		}));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		assertFalse(executor.submit(runs::incrementAndGet));
+		release.countDown();
+
+		// The thread is free again once the run returned
+		CountDownLatch second = new CountDownLatch(1);
+		while (!executor.submit(second::countDown)) {
+			Thread.sleep(5);
+		}
+		assertTrue(second.await(5, TimeUnit.SECONDS));
+		assertEquals(1, runs.get());
+	}
+
+	@Test
+	public void failedRunDoesNotStopTheJob() throws Exception {
+		executor.submit(() -> {
+			throw new IllegalStateException("failed");
+		});
+		CountDownLatch next = new CountDownLatch(1);
+		while (!executor.submit(next::countDown)) {
+			Thread.sleep(5);
+		}
+		assertTrue(next.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void jobRunsOnItsOwnThread() throws Exception {
+		String[] thread = new String[1];
+		CountDownLatch done = new CountDownLatch(1);
+		executor.submit(() -> {
+			thread[0] = Thread.currentThread().getName();
+			done.countDown();
+		});
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertEquals("test-job", thread[0]);
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,156 @@
+package com.sunitkatkar.blogspot.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sunitkatkar.blogspot.tenant.model.CustomUserDetails;
+import com.sunitkatkar.blogspot.tenant.model.UserSummary;
+import com.sunitkatkar.blogspot.tenant.model.UserSummaryPage;
+import com.sunitkatkar.blogspot.tenant.service.UserService;
+import com.sunitkatkar.blogspot.util.TenantContextHolder;
+
+/**
+ * Calls the controller directly with a mocked user service, the way the
+ * dispatcher servlet would after the login.
+ */
+public class UserRestControllerTests {
+
+	private UserService userService;
+
+	private UserRestController controller;
+
+	private CustomUserDetails user;
+
+	@Before
+	public void setUp() {
+		userService = mock(UserService.class);
+		controller = new UserRestController();
+		ReflectionTestUtils.setField(controller, "userService", userService);
+		ReflectionTestUtils.setField(controller, "objectMapper", new ObjectMapper());
+		user = new CustomUserDetails("alice", "secret",
+				Collections.singleton(new SimpleGrantedAuthority("ROLE_USER")), "tenant_1");
+	}
+
+	@After
+	public void tearDown() {
+		TenantContextHolder.clear();
+	}
+
+	@Test
+	public void pageStartsAfterTheGivenId() {
+		when(userService.findUserSummaries(40, 2)).thenReturn(summaries(41, 2));
+
+		UserSummaryPage page = controller.getUsersForTenant(user, "tenant_1", 40, 2);
+
+		assertEquals(2, page.getUsers().size());
+		assertEquals(Integer.valueOf(42), page.getNextAfterId());
+		assertEquals("tenant_1", TenantContextHolder.getTenant());
+	}
+
+	@Test
+	public void shortPageIsTheLast() {
+		when(userService.findUserSummaries(0, 100)).thenReturn(summaries(1, 3));
+
+		assertNull(controller.getUsersForTenant(user, "tenant_1", 0, 100).getNextAfterId());
+	}
+
+	@Test
+	public void limitIsCapped() {
+		when(userService.findUserSummaries(anyInt(), anyInt())).thenReturn(Collections.emptyList());
+
+		controller.getUsersForTenant(user, "tenant_1", 0, 5000);
+		verify(userService).findUserSummaries(0, 1000);
+		controller.getUsersForTenant(user, "tenant_1", 0, 0);
+		verify(userService).findUserSummaries(0, 1);
+		controller.getUsersForTenant(user, "tenant_1", 0, -5);
+		verify(userService, times(2)).findUserSummaries(0, 1);
+	}
+
+	@Test
+	public void otherTenantIsDenied() throws Exception {
+		try {
+			controller.getUsersForTenant(user, "tenant_2", 0, 100);
+			fail("Users of another tenant were listed");
+		} catch (AccessDeniedException e) {
+			// expected, mapped to 403
+		}
+		try {
+			controller.exportUsersForTenant(user, "tenant_2", new MockHttpServletResponse());
+			fail("Users of another tenant were exported");
+		} catch (AccessDeniedException e) {
+			// expected, mapped to 403
+		}
+		try {
+			controller.getUsersForTenant(null, "tenant_1", 0, 100);
+			fail("Users were listed without a login");
+		} catch (AccessDeniedException e) {
+			// expected
+		}
+		verifyZeroInteractions(userService);
+		assertNull(TenantContextHolder.getTenant());
+	}
+
+	@Test
+	public void exportIsWrittenAsNdjsonAndFlushedWhileStreaming() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		// Large enough that only a flush commits the response
+		response.setBufferSize(1024 * 1024);
+		List<Boolean> committed = new ArrayList<>();
+		doAnswer(invocation -> {
+			Consumer<UserSummary> consumer = invocation.getArgument(0);
+			for (UserSummary summary : summaries(1, 1001)) {
+				consumer.accept(summary);
+				if (summary.getId() == 499 || summary.getId() == 500) {
+					committed.add(response.isCommitted());
+				}
+			}
+			return null;
+		}).when(userService).exportUserSummaries(any());
+
+		controller.exportUsersForTenant(user, "tenant_1", response);
+
+		// The first flush is after 500 lines
+		assertFalse(committed.get(0));
+		assertTrue(committed.get(1));
+		assertEquals("application/x-ndjson", response.getContentType());
+		assertEquals("UTF-8", response.getCharacterEncoding());
+		String[] lines = response.getContentAsString().split("\n");
+		assertEquals(1001, lines.length);
+		assertEquals("{\"id\":1,\"username\":\"user_1\",\"active\":true,\"tenant\":\"tenant_1\"}", lines[0]);
+		assertEquals("{\"id\":1001,\"username\":\"user_1001\",\"active\":true,\"tenant\":\"tenant_1\"}",
+				lines[1000]);
+	}
+
+	private static List<UserSummary> summaries(int firstId, int count) {
+		List<UserSummary> summaries = new ArrayList<>();
+		for (int id = firstId; id < firstId + count; id++) {
+			summaries.add(new UserSummary(id, "user_" + id, true, "tenant_1"));
+		}
+		return summaries;
+	}
+}